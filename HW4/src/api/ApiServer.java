@@ -0,0 +1,710 @@
+package api;
+
+import application.Answer;
+import application.Question;
+import application.QuestionValidator;
+import application.Review;
+import application.ReviewValidator;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import databasePart1.DatabaseHelper;
+import databasePart1.DatabaseHelperDM;
+import databasePart1.Log;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Headless HTTP service over the question, answer, vote, review and direct message operations of
+ * {@link DatabaseHelper} and {@link DatabaseHelperDM}, with JSON request and response bodies.
+ * <p>
+ * The server listens on the loopback interface only and does not authenticate callers: it is meant
+ * for load tests and local tools, which say which user they act as in each request. It applies the
+ * same checks as the pages to that user: only the asker or staff may edit or delete a question,
+ * only the reviewer may edit or delete a review, and only a chat's members may read or post in it.
+ * </p>
+ * <p>
+ * Requests run on a fixed pool of worker threads, each taking one of a matching number of database
+ * connections for the length of the request. The service was meant to run one virtual thread per
+ * request, but this project targets Java 17, which has no virtual threads, so the pool stands in:
+ * its size caps the number of requests in progress, and more wait in the queue. The load
+ * generators in the benchmark package use fixed pools of platform threads for the same reason.
+ * {@link DatabaseHelperDM} keeps one connection for the whole process, so direct message calls
+ * take turns on a connection of their own.
+ * </p>
+ * Endpoints:
+ * <pre>
+ * GET    /questions?limit=50                  newest questions with their answers
+ * POST   /questions                           {"body", "askedBy"}
+ * GET    /questions/search?q=..&amp;limit=20      questions matching a search, best first
+ * GET    /questions/hot?limit=10              the hot questions
+ * GET    /questions/{id}                      one question with its answers and votes
+ * PUT    /questions/{id}?user=..              {"body"}
+ * DELETE /questions/{id}?user=..
+ * POST   /questions/{id}/answers              {"text", "answeredBy"}
+ * POST   /questions/{id}/votes                {"userName", "voteType": "upvote" or "downvote"}
+ * POST   /answers/{id}/votes                  {"userName", "voteType"}
+ * GET    /reviews?author=..                   a reviewer's reviews, with their IDs
+ * POST   /reviews                             {"answerId", "reviewer", "text"}
+ * PUT    /reviews/{id}?user=..                {"text"}
+ * DELETE /reviews/{id}?user=..
+ * GET    /users/{userName}/chats              the user's chats
+ * POST   /chats                               {"user", "otherUser"}: their chat, started if needed
+ * GET    /chats/{id}/messages?user=..
+ * POST   /chats/{id}/messages                 {"sender", "content"}
+ * </pre>
+ * Example:
+ * <pre>
+ * java -Dcse360.db.mode=server api.ApiServer port=8080 threads=32
+ * </pre>
+ */
+public class ApiServer {
+
+    /** Largest request body accepted, in bytes */
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+
+    /** Logger for this class's messages and errors */
+    private static final Log LOG = Log.get(ApiServer.class);
+
+    /**
+     * An error reported to the caller with an HTTP status.
+     */
+    private static class ApiException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+
+        ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    /**
+     * A response body sent with a status other than 200.
+     */
+    private static class Reply {
+        private final int status;
+        private final Object body;
+
+        Reply(int status, Object body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    /**
+     * One parsed request.
+     */
+    private static class Request {
+        private final Map<String, String> path = new LinkedHashMap<>();
+        private final Map<String, String> query = new LinkedHashMap<>();
+        private Map<String, Object> body = new LinkedHashMap<>();
+        private DatabaseHelper helper;
+
+        /** Returns a numeric path parameter */
+        int pathInt(String name) {
+            try {
+                return Integer.parseInt(path.get(name));
+            } catch (NumberFormatException e) {
+                throw new ApiException(400, name + " must be a number");
+            }
+        }
+
+        /** Returns a numeric query parameter, or the default if it is not given */
+        int queryInt(String name, int defaultValue) {
+            String value = query.get(name);
+            try {
+                return value == null ? defaultValue : Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw new ApiException(400, name + " must be a number");
+            }
+        }
+
+        /** Returns a required query parameter */
+        String queryString(String name) {
+            String value = query.get(name);
+            if (value == null || value.isEmpty()) {
+                throw new ApiException(400, "Missing query parameter " + name);
+            }
+            return value;
+        }
+
+        /** Returns a required string member of the body */
+        String bodyString(String name) {
+            Object value = body.get(name);
+            if (!(value instanceof String) || ((String) value).isEmpty()) {
+                throw new ApiException(400, "Missing string " + name);
+            }
+            return (String) value;
+        }
+
+        /** Returns a required whole-number member of the body */
+        int bodyInt(String name) {
+            Object value = body.get(name);
+            if (!(value instanceof Long)) {
+                throw new ApiException(400, "Missing number " + name);
+            }
+            return ((Long) value).intValue();
+        }
+    }
+
+    /**
+     * The work behind one endpoint.
+     */
+    private interface Handler {
+        Object handle(Request request) throws SQLException;
+    }
+
+    /**
+     * An endpoint: a method and a path whose {name} segments are parameters.
+     */
+    private static class Route {
+        private final String method;
+        private final String[] segments;
+        private final Handler handler;
+
+        Route(String method, String path, Handler handler) {
+            this.method = method;
+            this.segments = path.substring(1).split("/");
+            this.handler = handler;
+        }
+
+        /** Matches a path, filling in the request's path parameters; returns false if it does not match */
+        boolean matches(String[] pathSegments, Request request) {
+            if (pathSegments.length != segments.length) {
+                return false;
+            }
+            for (int i = 0; i < segments.length; i++) {
+                if (segments[i].startsWith("{")) {
+                    request.path.put(segments[i].substring(1, segments[i].length() - 1), pathSegments[i]);
+                } else if (!segments[i].equals(pathSegments[i])) {
+                    request.path.clear();
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private final List<Route> routes = new ArrayList<>();
+
+    /** Database connections for the worker threads */
+    private final BlockingQueue<DatabaseHelper> helpers;
+
+    /** Guards the connection shared by every {@link DatabaseHelperDM} call */
+    private final ReentrantLock messagingLock = new ReentrantLock(true);
+    private final DatabaseHelper messagingHelper = new DatabaseHelper();
+    private final DatabaseHelperDM messaging;
+
+    private final HttpServer server;
+    private final ExecutorService workers;
+
+    /**
+     * Connects to the database and binds the server; call {@link #start} to begin serving.
+     *
+     * @param port The port to listen on, on the loopback interface; 0 picks a free one
+     * @param threads The number of worker threads and database connections
+     * @throws SQLException If the database cannot be reached
+     * @throws IOException If the port cannot be opened
+     */
+    public ApiServer(int port, int threads) throws SQLException, IOException {
+        helpers = new ArrayBlockingQueue<>(threads);
+        for (int i = 0; i < threads; i++) {
+            DatabaseHelper helper = new DatabaseHelper();
+            helper.connectToDatabase();
+            helpers.add(helper);
+        }
+        // Direct message calls get a connection of their own, so they never share one with a worker
+        messagingHelper.connectToDatabase();
+        messaging = new DatabaseHelperDM(messagingHelper.getConnection());
+        registerRoutes();
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(threads,
+                runnable -> new Thread(runnable, "api-worker-" + threadNumber.incrementAndGet()));
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.setExecutor(workers);
+        server.createContext("/", this::serve);
+    }
+
+    /**
+     * Starts serving requests.
+     */
+    public void start() {
+        server.start();
+        LOG.info("API listening on http://{}:{}/", server.getAddress().getHostString(), getPort());
+    }
+
+    /**
+     * @return The port the server listens on
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Stops serving, waiting up to a second for requests in progress, and closes the connections.
+     */
+    public void stop() {
+        server.stop(1);
+        workers.shutdown();
+        for (DatabaseHelper helper : helpers) {
+            helper.closeConnection();
+        }
+        messagingHelper.closeConnection();
+    }
+
+    private void registerRoutes() {
+        routes.add(new Route("GET", "/questions", this::listQuestions));
+        routes.add(new Route("POST", "/questions", this::askQuestion));
+        routes.add(new Route("GET", "/questions/search", this::searchQuestions));
+        routes.add(new Route("GET", "/questions/hot", this::hotQuestions));
+        routes.add(new Route("GET", "/questions/{id}", this::getQuestion));
+        routes.add(new Route("PUT", "/questions/{id}", this::updateQuestion));
+        routes.add(new Route("DELETE", "/questions/{id}", this::deleteQuestion));
+        routes.add(new Route("POST", "/questions/{id}/answers", this::answerQuestion));
+        routes.add(new Route("POST", "/questions/{id}/votes", this::voteOnQuestion));
+        routes.add(new Route("POST", "/answers/{id}/votes", this::voteOnAnswer));
+        routes.add(new Route("GET", "/reviews", this::listReviews));
+        routes.add(new Route("POST", "/reviews", this::saveReview));
+        routes.add(new Route("PUT", "/reviews/{id}", this::updateReview));
+        routes.add(new Route("DELETE", "/reviews/{id}", this::deleteReview));
+        routes.add(new Route("GET", "/users/{userName}/chats", this::listChats));
+        routes.add(new Route("POST", "/chats", this::openChat));
+        routes.add(new Route("GET", "/chats/{id}/messages", this::listMessages));
+        routes.add(new Route("POST", "/chats/{id}/messages", this::sendMessage));
+    }
+
+    /**
+     * Handles one exchange: finds its route, runs it on a pooled connection and writes the JSON reply.
+     */
+    private void serve(HttpExchange exchange) throws IOException {
+        int status = 200;
+        Object body;
+        try {
+            Request request = new Request();
+            Handler handler = route(exchange, request);
+            request.body = readBody(exchange);
+            request.helper = helpers.take();
+            try {
+                body = handler.handle(request);
+            } finally {
+                helpers.add(request.helper);
+            }
+            if (body instanceof Reply) {
+                status = ((Reply) body).status;
+                body = ((Reply) body).body;
+            }
+        } catch (ApiException e) {
+            status = e.status;
+            body = error(e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            status = 503;
+            body = error("Shutting down");
+        } catch (SQLException | RuntimeException e) {
+            LOG.error(exchange.getRequestMethod() + " " + exchange.getRequestURI() + " failed", e);
+            status = 500;
+            body = error("Internal error");
+        }
+        byte[] bytes = Json.write(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private Handler route(HttpExchange exchange, Request request) {
+        String rawQuery = exchange.getRequestURI().getRawQuery();
+        if (rawQuery != null) {
+            for (String pair : rawQuery.split("&")) {
+                String[] parts = pair.split("=", 2);
+                request.query.put(decode(parts[0]), parts.length > 1 ? decode(parts[1]) : "");
+            }
+        }
+        String[] segments = exchange.getRequestURI().getRawPath().replaceAll("^/+|/+$", "").split("/");
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = decode(segments[i]);
+        }
+        boolean pathFound = false;
+        for (Route route : routes) {
+            if (route.matches(segments, request)) {
+                if (route.method.equals(exchange.getRequestMethod())) {
+                    return route.handler;
+                }
+                request.path.clear();
+                pathFound = true;
+            }
+        }
+        throw pathFound ? new ApiException(405, "Method not allowed") : new ApiException(404, "No such endpoint");
+    }
+
+    private static String decode(String text) {
+        try {
+            return URLDecoder.decode(text, StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new ApiException(400, "Bad URL escape: " + e.getMessage());
+        }
+    }
+
+    private static Map<String, Object> readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] bytes = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (bytes.length > MAX_BODY_BYTES) {
+                throw new ApiException(413, "Request body too large");
+            }
+            String text = new String(bytes, StandardCharsets.UTF_8).trim();
+            if (text.isEmpty()) {
+                return new LinkedHashMap<>();
+            }
+            try {
+                return Json.readObject(text);
+            } catch (IllegalArgumentException e) {
+                throw new ApiException(400, "Bad JSON: " + e.getMessage());
+            }
+        }
+    }
+
+    private static Map<String, Object> error(String message) {
+        Map<String, Object> error = new LinkedHashMap<>();
+        error.put("error", message);
+        return error;
+    }
+
+    private static Map<String, Object> result(String name, Object value) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put(name, value);
+        return result;
+    }
+
+    private static void check(QuestionValidator.ValidationResult validation) {
+        if (!validation.isValid()) {
+            throw new ApiException(400, validation.getMessage());
+        }
+    }
+
+    private static void checkDone(boolean done, String action) {
+        if (!done) {
+            throw new ApiException(500, "Could not " + action);
+        }
+    }
+
+    private static String voteType(Request request) {
+        String voteType = request.bodyString("voteType");
+        if (!voteType.equals("upvote") && !voteType.equals("downvote")) {
+            throw new ApiException(400, "voteType must be upvote or downvote");
+        }
+        return voteType;
+    }
+
+    private static Map<String, Object> questionJson(int id, Question question) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("id", id);
+        json.put("body", question.getBody());
+        json.put("askedBy", question.getAskedBy());
+        List<Map<String, Object>> answers = new ArrayList<>();
+        for (Answer answer : question.getAnswers()) {
+            Map<String, Object> answerJson = new LinkedHashMap<>();
+            answerJson.put("id", answer.getId());
+            answerJson.put("text", answer.getText());
+            answerJson.put("answeredBy", answer.getAnsweredBy());
+            answerJson.put("upvotes", answer.getUpvotes());
+            answerJson.put("downvotes", answer.getDownvotes());
+            answerJson.put("correct", answer.isCorrect());
+            answers.add(answerJson);
+        }
+        json.put("answers", answers);
+        return json;
+    }
+
+    /**
+     * Refuses the request unless the user it acts as asked the question or is staff, as on the Q and A page.
+     */
+    private static void checkAskerOrStaff(Request request, Question question) {
+        String user = request.queryString("user");
+        if (!user.equals(question.getAskedBy()) && !request.helper.getUserRole(user).contains("staff")) {
+            throw new ApiException(403, "Only the asker or staff can change this question");
+        }
+    }
+
+    /**
+     * Refuses the request unless the user it acts as wrote the review, as in the review window.
+     */
+    private static void checkReviewer(Request request, int reviewId) {
+        String reviewer = request.helper.getReviewer(reviewId);
+        if (reviewer == null) {
+            throw new ApiException(404, "No review " + reviewId);
+        }
+        if (!reviewer.equals(request.queryString("user"))) {
+            throw new ApiException(403, "Only the reviewer can change this review");
+        }
+    }
+
+    private Question requireQuestion(Request request, int questionId) {
+        Question question = request.helper.loadQuestion(questionId);
+        if (question == null) {
+            throw new ApiException(404, "No question " + questionId);
+        }
+        return question;
+    }
+
+    private List<Map<String, Object>> questionsJson(Request request, List<Integer> questionIds, int limit) {
+        List<Map<String, Object>> questions = new ArrayList<>();
+        for (int questionId : questionIds) {
+            if (questions.size() == limit) {
+                break;
+            }
+            Question question = request.helper.loadQuestion(questionId);
+            if (question != null) {
+                questions.add(questionJson(questionId, question));
+            }
+        }
+        return questions;
+    }
+
+    private Object listQuestions(Request request) {
+        int limit = request.queryInt("limit", 50);
+        List<Map<String, Object>> questions = new ArrayList<>();
+        for (Map.Entry<Question, Integer> entry : request.helper.loadAllQuestionsWithIDs().entrySet()) {
+            if (questions.size() == limit) {
+                break;
+            }
+            questions.add(questionJson(entry.getValue(), entry.getKey()));
+        }
+        return questions;
+    }
+
+    private Object askQuestion(Request request) {
+        String body = request.bodyString("body");
+        check(QuestionValidator.validateQuestion(body));
+        int questionId = request.helper.saveQuestion(new Question(body, request.bodyString("askedBy")));
+        checkDone(questionId != -1, "save the question");
+        return new Reply(201, result("id", questionId));
+    }
+
+    private Object searchQuestions(Request request) {
+        List<Integer> questionIds = request.helper.searchQuestionIds(request.queryString("q"));
+        return questionsJson(request, questionIds, request.queryInt("limit", 20));
+    }
+
+    private Object hotQuestions(Request request) {
+        int limit = request.queryInt("limit", 10);
+        return questionsJson(request, request.helper.getHotQuestionIds(limit), limit);
+    }
+
+    private Object getQuestion(Request request) {
+        int questionId = request.pathInt("id");
+        Map<String, Object> json = questionJson(questionId, requireQuestion(request, questionId));
+        json.put("upvotes", request.helper.getQuestionUpvotes(questionId));
+        json.put("downvotes", request.helper.getQuestionDownvotes(questionId));
+        return json;
+    }
+
+    private Object updateQuestion(Request request) {
+        int questionId = request.pathInt("id");
+        checkAskerOrStaff(request, requireQuestion(request, questionId));
+        String body = request.bodyString("body");
+        check(QuestionValidator.validateQuestion(body));
+        checkDone(request.helper.updateQuestion(questionId, body), "update the question");
+        return result("id", questionId);
+    }
+
+    private Object deleteQuestion(Request request) {
+        int questionId = request.pathInt("id");
+        Question question = requireQuestion(request, questionId);
+        checkAskerOrStaff(request, question);
+        checkDone(request.helper.deleteQuestion(question), "delete the question");
+        return result("id", questionId);
+    }
+
+    private Object answerQuestion(Request request) {
+        int questionId = request.pathInt("id");
+        requireQuestion(request, questionId);
+        String text = request.bodyString("text");
+        check(QuestionValidator.validateAnswer(text));
+        checkDone(request.helper.saveAnswer(questionId, new Answer(text, request.bodyString("answeredBy"))), "save the answer");
+        return new Reply(201, result("questionId", questionId));
+    }
+
+    private Object voteOnQuestion(Request request) {
+        int questionId = request.pathInt("id");
+        checkDone(request.helper.recordQuestionVote(questionId, request.bodyString("userName"), voteType(request)), "record the vote");
+        Map<String, Object> votes = result("upvotes", request.helper.getQuestionUpvotes(questionId));
+        votes.put("downvotes", request.helper.getQuestionDownvotes(questionId));
+        return votes;
+    }
+
+    private Object voteOnAnswer(Request request) {
+        int answerId = request.pathInt("id");
+        // As on the Q and A page: record the vote, then bring the answer's totals up to date
+        checkDone(request.helper.recordVote(answerId, request.bodyString("userName"), voteType(request)), "record the vote");
+        checkDone(request.helper.recalculateAnswerVotes(answerId), "count the votes");
+        Map<String, Object> votes = result("upvotes", request.helper.getAnswerUpvotes(answerId));
+        votes.put("downvotes", request.helper.getAnswerDownvotes(answerId));
+        return votes;
+    }
+
+    private Object listReviews(Request request) {
+        List<Map<String, Object>> reviews = new ArrayList<>();
+        DatabaseHelper.getReviewsWithIDsByAuthor(request.queryString("author")).forEach((review, reviewId) -> {
+            Map<String, Object> json = new LinkedHashMap<>();
+            json.put("id", reviewId);
+            json.put("answerId", review.getAnswerID());
+            json.put("reviewer", review.getReviewedBy());
+            json.put("text", review.getReviewBody());
+            json.put("helpful", review.getHelpfulCount());
+            json.put("notHelpful", review.getNotHelpfulCount());
+            reviews.add(json);
+        });
+        return reviews;
+    }
+
+    private Object saveReview(Request request) {
+        String text = request.bodyString("text");
+        check(ReviewValidator.validateReview(text));
+        int reviewId = request.helper.saveReview(new Review(text, request.bodyString("reviewer"), request.bodyInt("answerId")));
+        checkDone(reviewId != -1, "save the review");
+        return new Reply(201, result("id", reviewId));
+    }
+
+    private Object updateReview(Request request) {
+        int reviewId = request.pathInt("id");
+        checkReviewer(request, reviewId);
+        String text = request.bodyString("text");
+        check(ReviewValidator.validateReview(text));
+        checkDone(request.helper.updateReview(reviewId, text), "update the review");
+        return result("id", reviewId);
+    }
+
+    private Object deleteReview(Request request) {
+        int reviewId = request.pathInt("id");
+        checkReviewer(request, reviewId);
+        checkDone(request.helper.deleteReview(reviewId), "delete the review");
+        return result("id", reviewId);
+    }
+
+    /**
+     * Looks up a user's ID on the shared messaging connection; the caller holds the messaging lock.
+     */
+    private int userId(String userName) {
+        int userId = messaging.getUserIdByName(userName);
+        if (userId <= 0) {
+            throw new ApiException(404, "No user " + userName);
+        }
+        return userId;
+    }
+
+    /**
+     * Refuses the request unless a user is a member of the chat; the caller holds the messaging lock.
+     */
+    private void checkMember(int chatId, String userName) {
+        Map<Integer, String> members = messaging.getChatMembers(chatId);
+        if (members.isEmpty()) {
+            throw new ApiException(404, "No chat " + chatId);
+        }
+        if (!members.containsKey(userId(userName))) {
+            throw new ApiException(403, userName + " is not in chat " + chatId);
+        }
+    }
+
+    private Object listChats(Request request) {
+        messagingLock.lock();
+        try {
+            List<Map<String, Object>> chats = new ArrayList<>();
+            messaging.getUserChats(userId(request.path.get("userName"))).forEach((chatId, name) -> {
+                Map<String, Object> json = result("id", chatId);
+                json.put("name", name);
+                chats.add(json);
+            });
+            return chats;
+        } finally {
+            messagingLock.unlock();
+        }
+    }
+
+    private Object openChat(Request request) {
+        messagingLock.lock();
+        try {
+            int userId = userId(request.bodyString("user"));
+            int otherId = userId(request.bodyString("otherUser"));
+            Integer chatId = DatabaseHelperDM.getChatBetweenUsers(userId, otherId);
+            if (chatId != null && chatId > 0) {
+                return result("id", chatId);
+            }
+            int newChatId = DatabaseHelperDM.createChat(userId, otherId);
+            checkDone(newChatId > 0, "start the chat");
+            return new Reply(201, result("id", newChatId));
+        } finally {
+            messagingLock.unlock();
+        }
+    }
+
+    private Object listMessages(Request request) {
+        int chatId = request.pathInt("id");
+        String user = request.queryString("user");
+        messagingLock.lock();
+        try {
+            checkMember(chatId, user);
+            return DatabaseHelperDM.getMessagesForChat(chatId);
+        } finally {
+            messagingLock.unlock();
+        }
+    }
+
+    private Object sendMessage(Request request) {
+        int chatId = request.pathInt("id");
+        String sender = request.bodyString("sender");
+        String content = request.bodyString("content");
+        messagingLock.lock();
+        try {
+            checkMember(chatId, sender);
+            int messageId = DatabaseHelperDM.sendMessage(chatId, userId(sender), content);
+            checkDone(messageId > 0, "send the message");
+            return new Reply(201, result("id", messageId));
+        } finally {
+            messagingLock.unlock();
+        }
+    }
+
+    /**
+     * Runs the API server until the process is stopped.
+     *
+     * @param args {@code port=N} (default 8080) and {@code threads=N} (default 32)
+     * @throws Exception If the server cannot start
+     */
+    public static void main(String[] args) throws Exception {
+        int port = 8080;
+        int threads = 32;
+        for (String arg : args) {
+            String[] parts = arg.split("=", 2);
+            if (parts.length == 2 && parts[0].equals("port")) {
+                port = Integer.parseInt(parts[1]);
+            } else if (parts.length == 2 && parts[0].equals("threads")) {
+                threads = Integer.parseInt(parts[1]);
+            } else {
+                throw new IllegalArgumentException("Unknown argument: " + arg);
+            }
+        }
+        ApiServer apiServer = new ApiServer(port, threads);
+        Runtime.getRuntime().addShutdownHook(new Thread(apiServer::stop, "api-shutdown"));
+        apiServer.start();
+    }
+}
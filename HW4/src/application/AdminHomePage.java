@@ -426,10 +426,16 @@ public class AdminHomePage {
             System.exit(0);
         });
         
+        /**
+         * Database Metrics button to show how long each database operation takes.
+         */
+        Button metricsButton = new Button("Database Metrics");
+        metricsButton.setOnAction(e -> new DatabaseMetricsWindow().show());
+        
         // Create a horizontal box for the admin action buttons
         HBox buttonBox = new HBox(10);
         buttonBox.setAlignment(Pos.CENTER);
-        buttonBox.getChildren().addAll(resetDatabaseButton);
+        buttonBox.getChildren().addAll(metricsButton, resetDatabaseButton);
         
         // Create a horizontal box for navigation buttons
         HBox navButtonBox = new HBox(10);
@@ -19,6 +19,9 @@ import java.util.Set;
  * the registration of the admin user in the database.
  */
 public class AdminSetupPage {
+
+    /** Logger for this class's messages and errors */
+    private static final Log LOG = Log.get(AdminSetupPage.class);
     
     /**
      * A helper object that provides database operations for user management.
@@ -88,11 +91,11 @@ public class AdminSetupPage {
                 roles.add("admin");
                 User user = new User(userName, password, roles);
                 databaseHelper.register(user);
-                System.out.println("Administrator setup completed.");
+                LOG.info("Administrator setup completed.");
                 new WelcomeLoginPage(databaseHelper).show(primaryStage, user);
             } catch (SQLException e) {
-                System.err.println("Database error: " + e.getMessage());
-                e.printStackTrace();
+                LOG.error("Database error: {}", e.getMessage());
+                LOG.error(e);
             }
         });
         
@@ -0,0 +1,165 @@
+package application;
+
+import databasePart1.*;
+import javafx.collections.FXCollections;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+
+/**
+ * AnnouncementWindow class represents a pop-up window that allows staff and
+ * instructors to broadcast an announcement to every user or to every user
+ * with a given role. The announcement is delivered in a single database
+ * transaction and shows up for each recipient as an unread group message.
+ */
+public class AnnouncementWindow {
+    /** Label for the audience option that targets every user */
+    private static final String ALL_USERS = "All Users";
+
+    /** Database helper instance for performing database operations */
+    private DatabaseHelper databaseHelper;
+
+    /** The currently logged-in staff or instructor user */
+    private User currentUser;
+
+    /** The stage for the popup window */
+    private Stage popupStage;
+
+    /** Field for the announcement title */
+    private TextField titleField;
+
+    /** Dropdown for selecting the audience */
+    private ComboBox<String> audienceSelector;
+
+    /** Area for the announcement text */
+    private TextArea contentArea;
+
+    /**
+     * Constructor for AnnouncementWindow.
+     *
+     * @param databaseHelper Helper class for database operations
+     * @param currentUser The currently logged in staff or instructor user
+     */
+    public AnnouncementWindow(DatabaseHelper databaseHelper, User currentUser) {
+        this.databaseHelper = databaseHelper;
+        this.currentUser = currentUser;
+    }
+
+    /**
+     * Shows the announcement popup window.
+     * Creates and displays a modal dialog with fields for the title, audience,
+     * and text of the announcement.
+     */
+    public void show() {
+        // Create a new stage for the popup
+        popupStage = new Stage();
+        popupStage.initModality(Modality.APPLICATION_MODAL); // Block input to other windows
+        popupStage.setTitle("Send Announcement");
+        popupStage.setMinWidth(450);
+        popupStage.setMinHeight(400);
+
+        // Create UI components
+        VBox layout = new VBox(15);
+        layout.setAlignment(Pos.CENTER);
+        layout.setPadding(new Insets(20));
+
+        // Title label
+        Label headerLabel = new Label("Broadcast an Announcement");
+        headerLabel.setStyle("-fx-font-size: 16px; -fx-font-weight: bold;");
+
+        titleField = new TextField();
+        titleField.setPromptText("Announcement title");
+
+        // Audience selector, offering every role that users currently hold
+        audienceSelector = new ComboBox<>(FXCollections.observableArrayList(ALL_USERS));
+        audienceSelector.getItems().addAll(databaseHelper.getAllRoles());
+        audienceSelector.setValue(ALL_USERS);
+        audienceSelector.setPrefWidth(250);
+
+        contentArea = new TextArea();
+        contentArea.setPromptText("Write your announcement here...");
+        contentArea.setWrapText(true);
+        contentArea.setPrefRowCount(6);
+
+        // Buttons for sending and closing
+        Button sendButton = new Button("Send");
+        sendButton.setStyle("-fx-font-size: 14px; -fx-padding: 8 15;");
+        sendButton.setOnAction(e -> sendAnnouncement());
+
+        Button closeButton = new Button("Close");
+        closeButton.setStyle("-fx-font-size: 14px; -fx-padding: 8 15;");
+        closeButton.setOnAction(e -> popupStage.close());
+
+        HBox buttonBox = new HBox(10);
+        buttonBox.setAlignment(Pos.CENTER);
+        buttonBox.getChildren().addAll(sendButton, closeButton);
+
+        // Add all components to the layout
+        layout.getChildren().addAll(
+            headerLabel,
+            new Label("Title:"),
+            titleField,
+            new Label("Send to:"),
+            audienceSelector,
+            contentArea,
+            buttonBox
+        );
+
+        // Create and set the scene
+        Scene scene = new Scene(layout);
+        popupStage.setScene(scene);
+
+        // Show the popup
+        popupStage.showAndWait();
+    }
+
+    /**
+     * Validates the form and broadcasts the announcement.
+     * Shows appropriate alerts for success, failure, or validation issues.
+     */
+    private void sendAnnouncement() {
+        String title = titleField.getText().trim();
+        String content = contentArea.getText().trim();
+        if (title.isEmpty() || content.isEmpty()) {
+            showAlert(Alert.AlertType.WARNING, "Missing Information",
+                      "Please enter both a title and the announcement text.");
+            return;
+        }
+
+        String audience = audienceSelector.getValue();
+        String role = ALL_USERS.equals(audience) ? null : audience;
+
+        DatabaseHelperDM dmHelper = new DatabaseHelperDM(databaseHelper.getConnection());
+        int senderId = dmHelper.getUserIdByName(currentUser.getUserName());
+        int recipients = DatabaseHelperDM.broadcastAnnouncement(senderId, "[Announcement] " + title, content, role);
+
+        if (recipients >= 0) {
+            showAlert(Alert.AlertType.INFORMATION, "Announcement Sent",
+                      "Your announcement was delivered to " + recipients + " user(s).");
+            popupStage.close();
+        } else {
+            showAlert(Alert.AlertType.ERROR, "Send Failed",
+                      "Failed to send the announcement. Please try again.");
+        }
+    }
+
+    /**
+     * Shows an alert dialog with the specified type, title, and message.
+     *
+     * @param alertType The type of alert to show (e.g., information, warning, error)
+     * @param title The title of the alert
+     * @param message The message to display in the alert
+     */
+    private void showAlert(Alert.AlertType alertType, String title, String message) {
+        Alert alert = new Alert(alertType);
+        alert.setTitle(title);
+        alert.setHeaderText(null);
+        alert.setContentText(message);
+        alert.showAndWait();
+    }
+}
@@ -0,0 +1,29 @@
+package application;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder event for one list cell being rendered.
+ * Emitted by {@link TracedListCell} each time a cell's item is updated.
+ */
+@Name("cse360.CellRender")
+@Label("List Cell Render")
+@Category({"CSE360", "UI"})
+@Description("One ListCell.updateItem call in a traced list")
+@StackTrace(false)
+public class CellRenderEvent extends jdk.jfr.Event {
+
+    @Label("View")
+    @Description("The page or window the list belongs to")
+    String view;
+
+    @Label("Item Type")
+    String itemType;
+
+    @Label("Empty")
+    boolean empty;
+}
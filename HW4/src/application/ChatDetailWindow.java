@@ -76,6 +76,17 @@ public class ChatDetailWindow {
      */
     private SimpleDateFormat timeFormat;
     
+    /**
+     * Whether this chat is a group chat. Group chats show the sender of each
+     * message and do not show per-message read receipts.
+     */
+    private boolean groupChat;
+    
+    /**
+     * Whether this chat is read-only, as announcements are. Read-only chats have no input area.
+     */
+    private boolean readOnly;
+    
     /**
      * Constructor for the ChatDetailWindow.
      * <p>
@@ -97,11 +108,21 @@ public class ChatDetailWindow {
         this.otherUserName = otherUserName;
         this.dmHelper = dmHelper;
         this.timeFormat = new SimpleDateFormat("h:mm a");
+        this.readOnly = dmHelper.isReadOnlyChat(chatId);
         
         // Mark messages as read as soon as the window opens
         dmHelper.markMessagesAsRead(chatId, currentUserId);
     }
     
+    /**
+     * Sets whether this window displays a group chat.
+     * 
+     * @param groupChat true if the chat is a group chat
+     */
+    public void setGroupChat(boolean groupChat) {
+        this.groupChat = groupChat;
+    }
+    
     /**
      * Shows the chat detail window.
      * <p>
@@ -168,9 +189,78 @@ public class ChatDetailWindow {
         titleLabel.setFont(Font.font("System", FontWeight.BOLD, 16));
         
         header.getChildren().add(titleLabel);
+        
+        // Group members can be added or removed from the group's own window
+        if (groupChat && !readOnly) {
+            Region spacer = new Region();
+            HBox.setHgrow(spacer, Priority.ALWAYS);
+            Button membersButton = new Button("Members");
+            membersButton.setOnAction(e -> showMembersDialog());
+            header.getChildren().addAll(spacer, membersButton);
+        }
         return header;
     }
     
+    /**
+     * Shows a dialog for managing the members of a group chat.
+     * <p>
+     * The dialog lists the current members, adds a member by username and removes the
+     * selected member. Removing yourself leaves the group and closes the chat window.
+     * </p>
+     */
+    private void showMembersDialog() {
+        Dialog<Void> dialog = new Dialog<>();
+        dialog.setTitle("Members");
+        dialog.setHeaderText("Members of " + otherUserName);
+        dialog.getDialogPane().getButtonTypes().add(ButtonType.CLOSE);
+        
+        ListView<String> memberList = new ListView<>();
+        memberList.setPrefHeight(200);
+        memberList.setPrefWidth(300);
+        Runnable loadMembers = () -> memberList.getItems().setAll(dmHelper.getChatMembers(chatId).values());
+        loadMembers.run();
+        
+        TextField usernameField = new TextField();
+        usernameField.setPromptText("Username to add");
+        HBox.setHgrow(usernameField, Priority.ALWAYS);
+        
+        Button addButton = new Button("Add");
+        addButton.setOnAction(e -> {
+            String username = usernameField.getText().trim();
+            int userId = dmHelper.getUserIdByName(username);
+            if (userId == -1) {
+                showErrorMessage("User Not Found", "Could not find user: " + username);
+            } else if (dmHelper.addChatParticipants(chatId, List.of(userId))) {
+                usernameField.clear();
+                loadMembers.run();
+            } else {
+                showErrorMessage("Error", "Failed to add " + username + " to the group.");
+            }
+        });
+        
+        Button removeButton = new Button("Remove");
+        removeButton.disableProperty().bind(memberList.getSelectionModel().selectedItemProperty().isNull());
+        removeButton.setOnAction(e -> {
+            String username = memberList.getSelectionModel().getSelectedItem();
+            int userId = dmHelper.getUserIdByName(username);
+            if (!dmHelper.removeChatParticipant(chatId, userId)) {
+                showErrorMessage("Error", "Failed to remove " + username + " from the group.");
+            } else if (userId == currentUserId) {
+                // The user left the group, so the conversation is no longer theirs to view
+                dialog.close();
+                dialogStage.close();
+            } else {
+                loadMembers.run();
+            }
+        });
+        
+        HBox addRow = new HBox(10, usernameField, addButton);
+        VBox content = new VBox(10, memberList, removeButton, addRow);
+        content.setPadding(new Insets(10));
+        dialog.getDialogPane().setContent(content);
+        dialog.showAndWait();
+    }
+    
     /**
      * Creates the scrollable message area.
      * <p>
@@ -198,6 +288,7 @@ public class ChatDetailWindow {
      * <p>
      * This area contains a text field for typing messages and a send button.
      * Messages can be sent by clicking the send button or pressing Enter.
+     * Read-only chats show a notice instead.
      * </p>
      * 
      * @return An HBox containing the input field and send button
@@ -208,6 +299,14 @@ public class ChatDetailWindow {
         inputArea.setPadding(new Insets(10, 0, 0, 0));
         inputArea.setStyle("-fx-border-color: #e0e0e0; -fx-border-width: 1 0 0 0;");
         
+        // Announcements cannot be replied to
+        if (readOnly) {
+            Label readOnlyLabel = new Label("This is an announcement. Replies are turned off.");
+            readOnlyLabel.setTextFill(Color.GRAY);
+            inputArea.getChildren().add(readOnlyLabel);
+            return inputArea;
+        }
+        
         messageInput = new TextField();
         messageInput.setPromptText("Type a message...");
         messageInput.setPrefHeight(40);
@@ -275,6 +374,13 @@ public class ChatDetailWindow {
             Label messageText = new Label(content);
             messageText.setWrapText(true);
             
+            // Group chats have several other participants, so name the sender
+            if (groupChat && !isCurrentUser) {
+                Label senderLabel = new Label(senderName);
+                senderLabel.setFont(Font.font("System", FontWeight.BOLD, 11));
+                messageBubble.getChildren().add(senderLabel);
+            }
+            
             // Time and status info
             HBox infoBox = new HBox(5);
             infoBox.setAlignment(isCurrentUser ? Pos.CENTER_RIGHT : Pos.CENTER_LEFT);
@@ -285,8 +391,8 @@ public class ChatDetailWindow {
             
             infoBox.getChildren().add(timeLabel);
             
-            // For sent messages, add read status
-            if (isCurrentUser) {
+            // For sent messages in direct chats, add read status
+            if (isCurrentUser && !groupChat) {
                 Label statusLabel = new Label(isRead ? "Read" : "Delivered");
                 statusLabel.setFont(Font.font("System", 10));
                 statusLabel.setTextFill(isRead ? Color.GRAY : Color.DARKGRAY);
@@ -0,0 +1,261 @@
+package application;
+
+import databasePart1.*;
+import javafx.collections.FXCollections;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.*;
+import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+
+import java.util.List;
+
+/**
+ * DatabaseMetricsWindow class represents a window that shows admins how much time each
+ * database operation takes. The first tab lists the counters kept by {@link DatabaseMetrics}
+ * for every operation that has run since the application started or the counters were last
+ * reset, with the operations that took the most total time at the top. The second tab lists
+ * the recent statements recorded by {@link SlowQueryLog}, with the parameters and plan of the
+ * selected one. The third tab shows how often {@link EntityCache} answered a load from memory.
+ */
+public class DatabaseMetricsWindow {
+    /** The stage for the metrics window */
+    private Stage metricsStage;
+
+    /** Table of per-operation counters */
+    private TableView<DatabaseMetrics.OperationSnapshot> metricsTable;
+
+    /** Label showing the totals across all operations */
+    private Label summaryLabel;
+
+    /** Table of recent slow statements */
+    private TableView<SlowQueryLog.SlowQuery> slowQueryTable;
+
+    /** Details of the selected slow statement */
+    private TextArea slowQueryDetails;
+
+    /** Table of entity cache counters */
+    private TableView<EntityCache.RegionSnapshot> cacheTable;
+
+    /**
+     * Shows the metrics window.
+     */
+    public void show() {
+        metricsStage = new Stage();
+        metricsStage.setTitle("Database Metrics");
+        metricsStage.setMinWidth(900);
+        metricsStage.setMinHeight(500);
+
+        VBox layout = new VBox(15);
+        layout.setAlignment(Pos.CENTER);
+        layout.setPadding(new Insets(20));
+
+        Label headerLabel = new Label("Database Operations");
+        headerLabel.setStyle("-fx-font-size: 16px; -fx-font-weight: bold;");
+
+        summaryLabel = new Label();
+        summaryLabel.setStyle("-fx-font-size: 12px;");
+
+        // Table with one row per operation
+        metricsTable = new TableView<>();
+        metricsTable.setPrefHeight(400);
+        metricsTable.getColumns().add(column("Operation", "operation", 260));
+        metricsTable.getColumns().add(column("Statements", "statements", 80));
+        metricsTable.getColumns().add(column("Failures", "failures", 70));
+        metricsTable.getColumns().add(column("Rows Read", "rowsReturned", 80));
+        metricsTable.getColumns().add(column("Rows Written", "rowsUpdated", 90));
+        metricsTable.getColumns().add(millisColumn("Total ms", "totalMillis"));
+        metricsTable.getColumns().add(millisColumn("Mean ms", "meanMillis"));
+        metricsTable.getColumns().add(millisColumn("p50 ms", "p50Millis"));
+        metricsTable.getColumns().add(millisColumn("p99 ms", "p99Millis"));
+        metricsTable.getColumns().add(millisColumn("Max ms", "maxMillis"));
+
+        VBox operationsBox = new VBox(10, summaryLabel, metricsTable);
+        operationsBox.setPadding(new Insets(10));
+        Tab operationsTab = new Tab("Operations", operationsBox);
+
+        // Slow statements, with the details of the selected one below
+        Label thresholdLabel = new Label(SlowQueryLog.getThresholdMillis() < 0
+                ? "The slow-query log is off."
+                : "Statements taking " + SlowQueryLog.getThresholdMillis() + " ms or more, also written to "
+                  + SlowQueryLog.getLogFile());
+        thresholdLabel.setStyle("-fx-font-size: 12px;");
+
+        slowQueryTable = new TableView<>();
+        slowQueryTable.setPrefHeight(260);
+        slowQueryTable.getColumns().add(slowColumn("Time", "time", 170));
+        slowQueryTable.getColumns().add(slowColumn("Operation", "operation", 220));
+        TableColumn<SlowQueryLog.SlowQuery, Double> durationCol = slowColumn("ms", "durationMillis", 70);
+        durationCol.setCellFactory(col -> millisCell());
+        slowQueryTable.getColumns().add(durationCol);
+        slowQueryTable.getColumns().add(slowColumn("Rows", "rows", 60));
+        slowQueryTable.getColumns().add(slowColumn("SQL", "sql", 420));
+
+        slowQueryDetails = new TextArea();
+        slowQueryDetails.setEditable(false);
+        slowQueryDetails.setWrapText(true);
+        slowQueryDetails.setPrefRowCount(6);
+        slowQueryTable.getSelectionModel().selectedItemProperty().addListener((obs, oldVal, newVal) ->
+            slowQueryDetails.setText(newVal == null ? "" : newVal.toString()));
+
+        VBox slowQueriesBox = new VBox(10, thresholdLabel, slowQueryTable, slowQueryDetails);
+        slowQueriesBox.setPadding(new Insets(10));
+        Tab slowQueriesTab = new Tab("Slow Queries", slowQueriesBox);
+
+        // Entity cache counters, one row per kind of entity
+        cacheTable = new TableView<>();
+        cacheTable.setPrefHeight(200);
+        cacheTable.getColumns().add(cacheColumn("Entities", "region", 160));
+        cacheTable.getColumns().add(cacheColumn("Cached", "entries", 90));
+        cacheTable.getColumns().add(cacheColumn("Est. Bytes", "weightBytes", 110));
+        cacheTable.getColumns().add(cacheColumn("Max Bytes", "maxWeightBytes", 110));
+        cacheTable.getColumns().add(cacheColumn("Hits", "hits", 90));
+        cacheTable.getColumns().add(cacheColumn("Misses", "misses", 90));
+        TableColumn<EntityCache.RegionSnapshot, Double> hitRateCol = cacheColumn("Hit Rate", "hitRate", 90);
+        hitRateCol.setCellFactory(col -> new TableCell<>() {
+            @Override
+            protected void updateItem(Double value, boolean empty) {
+                super.updateItem(value, empty);
+                setText(empty || value == null ? null : String.format("%.1f%%", value * 100));
+            }
+        });
+        cacheTable.getColumns().add(hitRateCol);
+        cacheTable.getColumns().add(cacheColumn("Evictions", "evictions", 90));
+
+        VBox cacheBox = new VBox(10, cacheTable);
+        cacheBox.setPadding(new Insets(10));
+        Tab cacheTab = new Tab("Entity Cache", cacheBox);
+
+        TabPane tabPane = new TabPane(operationsTab, slowQueriesTab, cacheTab);
+        tabPane.setTabClosingPolicy(TabPane.TabClosingPolicy.UNAVAILABLE);
+
+        // Buttons for refreshing, resetting and closing
+        Button refreshButton = new Button("Refresh");
+        refreshButton.setStyle("-fx-font-size: 14px; -fx-padding: 8 15;");
+        refreshButton.setOnAction(e -> refresh());
+
+        Button resetButton = new Button("Reset Counters");
+        resetButton.setStyle("-fx-font-size: 14px; -fx-padding: 8 15;");
+        resetButton.setOnAction(e -> {
+            DatabaseMetrics.reset();
+            SlowQueryLog.clear();
+            refresh();
+        });
+
+        Button closeButton = new Button("Close");
+        closeButton.setStyle("-fx-font-size: 14px; -fx-padding: 8 15;");
+        closeButton.setOnAction(e -> metricsStage.close());
+
+        HBox buttonBox = new HBox(10);
+        buttonBox.setAlignment(Pos.CENTER);
+        buttonBox.getChildren().addAll(refreshButton, resetButton, closeButton);
+
+        layout.getChildren().addAll(headerLabel, tabPane, buttonBox);
+
+        refresh();
+
+        Scene scene = new Scene(layout);
+        metricsStage.setScene(scene);
+        metricsStage.show();
+    }
+
+    /**
+     * Reloads the table and summary from the current counters.
+     */
+    private void refresh() {
+        List<DatabaseMetrics.OperationSnapshot> snapshots = DatabaseMetrics.snapshot();
+        metricsTable.setItems(FXCollections.observableArrayList(snapshots));
+
+        long statements = 0;
+        long failures = 0;
+        double totalMillis = 0;
+        for (DatabaseMetrics.OperationSnapshot snapshot : snapshots) {
+            statements += snapshot.getStatements();
+            failures += snapshot.getFailures();
+            totalMillis += snapshot.getTotalMillis();
+        }
+        summaryLabel.setText(String.format("%d operations, %d statements, %d failures, %.1f ms total",
+                snapshots.size(), statements, failures, totalMillis));
+
+        slowQueryTable.setItems(FXCollections.observableArrayList(SlowQueryLog.recent()));
+        slowQueryDetails.clear();
+
+        cacheTable.setItems(FXCollections.observableArrayList(EntityCache.snapshot()));
+    }
+
+    /**
+     * Creates a table column bound to a snapshot property.
+     *
+     * @param title The column heading
+     * @param property The snapshot property to show
+     * @param width The preferred column width
+     * @return The column
+     */
+    private static <T> TableColumn<DatabaseMetrics.OperationSnapshot, T> column(String title, String property, double width) {
+        TableColumn<DatabaseMetrics.OperationSnapshot, T> column = new TableColumn<>(title);
+        column.setCellValueFactory(new PropertyValueFactory<>(property));
+        column.setPrefWidth(width);
+        return column;
+    }
+
+    /**
+     * Creates a table column showing a time in milliseconds with two decimal places.
+     *
+     * @param title The column heading
+     * @param property The snapshot property to show
+     * @return The column
+     */
+    private static TableColumn<DatabaseMetrics.OperationSnapshot, Double> millisColumn(String title, String property) {
+        TableColumn<DatabaseMetrics.OperationSnapshot, Double> column = column(title, property, 75);
+        column.setCellFactory(col -> millisCell());
+        return column;
+    }
+
+    /**
+     * Creates a table column bound to a slow-query property.
+     *
+     * @param title The column heading
+     * @param property The slow-query property to show
+     * @param width The preferred column width
+     * @return The column
+     */
+    private static <T> TableColumn<SlowQueryLog.SlowQuery, T> slowColumn(String title, String property, double width) {
+        TableColumn<SlowQueryLog.SlowQuery, T> column = new TableColumn<>(title);
+        column.setCellValueFactory(new PropertyValueFactory<>(property));
+        column.setPrefWidth(width);
+        return column;
+    }
+
+    /**
+     * Creates a table column bound to an entity cache property.
+     *
+     * @param title The column heading
+     * @param property The cache property to show
+     * @param width The preferred column width
+     * @return The column
+     */
+    private static <T> TableColumn<EntityCache.RegionSnapshot, T> cacheColumn(String title, String property, double width) {
+        TableColumn<EntityCache.RegionSnapshot, T> column = new TableColumn<>(title);
+        column.setCellValueFactory(new PropertyValueFactory<>(property));
+        column.setPrefWidth(width);
+        return column;
+    }
+
+    /**
+     * Creates a table cell showing a time in milliseconds with two decimal places.
+     *
+     * @return The cell
+     */
+    private static <S> TableCell<S, Double> millisCell() {
+        return new TableCell<>() {
+            @Override
+            protected void updateItem(Double value, boolean empty) {
+                super.updateItem(value, empty);
+                setText(empty || value == null ? null : String.format("%.2f", value));
+            }
+        };
+    }
+}
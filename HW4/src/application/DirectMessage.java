@@ -17,6 +17,7 @@ import java.sql.Connection;
 
 import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -137,6 +138,11 @@ public class DirectMessage {
         newChatButton.setStyle("-fx-font-size: 14px; -fx-padding: 8 15;");
         newChatButton.setOnAction(e -> showNewChatDialog());
         
+        // New Group button
+        Button newGroupButton = new Button("New Group");
+        newGroupButton.setStyle("-fx-font-size: 14px; -fx-padding: 8 15;");
+        newGroupButton.setOnAction(e -> showNewGroupDialog());
+        
         // Refresh button
         Button refreshButton = new Button("Refresh");
         refreshButton.setStyle("-fx-font-size: 14px; -fx-padding: 8 15;");
@@ -156,7 +162,7 @@ public class DirectMessage {
         });
         
         // Add buttons to container
-        buttonContainer.getChildren().addAll(newChatButton, refreshButton, backButton, quitButton);
+        buttonContainer.getChildren().addAll(newChatButton, newGroupButton, refreshButton, backButton, quitButton);
         mainLayout.setBottom(buttonContainer);
         
         // Create and return scene
@@ -183,7 +189,7 @@ public class DirectMessage {
             
             // Look for existing chat with this user
             for (ChatListItem item : chatList) {
-                if (item.getOtherUser().equals(username)) {
+                if (!item.isGroup() && item.getOtherUser().equals(username)) {
                     // Select this chat
                     chatListView.getSelectionModel().select(item);
                     existingChatFound = true;
@@ -219,11 +225,12 @@ public class DirectMessage {
             String lastMessage = (String) chatDetails.get("last_message");
             Timestamp updatedAt = (Timestamp) chatDetails.get("updated_at");
             int unreadCount = (Integer) chatDetails.get("unread_count");
+            boolean isGroup = (Boolean) chatDetails.get("is_group");
             
-            // Check if the user is a staff member
-            boolean isStaff = isUserStaff(otherUser);
+            // Check if the user is a staff member (group chats have no single other user)
+            boolean isStaff = !isGroup && isUserStaff(otherUser);
             
-            ChatListItem item = new ChatListItem(chatId, otherUser, lastMessage, updatedAt, unreadCount > 0, isStaff);
+            ChatListItem item = new ChatListItem(chatId, otherUser, lastMessage, updatedAt, unreadCount > 0, isStaff, isGroup);
             chatList.add(item);
         }
         
@@ -268,6 +275,7 @@ public class DirectMessage {
             chatItem.getOtherUser(),
             dmHelper
         );
+        chatDetailWindow.setGroupChat(chatItem.isGroup());
         
         // Show the window
         chatDetailWindow.show();
@@ -362,6 +370,91 @@ public class DirectMessage {
         });
     }
     
+    /**
+     * Shows a dialog to create a new group chat.
+     * <p>
+     * This method displays a dialog that asks for a group name and lets the user
+     * pick any number of other users as members.
+     */
+    private void showNewGroupDialog() {
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle("New Group");
+        dialog.setHeaderText("Start a new group conversation");
+        
+        ButtonType createButtonType = new ButtonType("Create Group", ButtonBar.ButtonData.OK_DONE);
+        dialog.getDialogPane().getButtonTypes().addAll(createButtonType, ButtonType.CANCEL);
+        
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(15);
+        grid.setPadding(new Insets(20, 20, 20, 20));
+        
+        // Group name
+        grid.add(new Label("Group name:"), 0, 0);
+        TextField groupNameField = new TextField();
+        groupNameField.setPromptText("e.g. Study Group 3");
+        grid.add(groupNameField, 1, 0);
+        
+        // Members, multiple selection with Ctrl/Shift
+        grid.add(new Label("Members:"), 0, 1);
+        ListView<String> memberList = new ListView<>(getOtherUserNames());
+        memberList.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        memberList.setPrefHeight(200);
+        memberList.setPrefWidth(300);
+        grid.add(memberList, 1, 1);
+        
+        dialog.getDialogPane().setContent(grid);
+        Platform.runLater(() -> groupNameField.requestFocus());
+        
+        dialog.showAndWait().ifPresent(result -> {
+            if (result == createButtonType) {
+                createNewGroup(groupNameField.getText().trim(), memberList.getSelectionModel().getSelectedItems());
+            }
+        });
+    }
+    
+    /**
+     * Creates a new group chat with the selected members and selects it in the chat list.
+     * 
+     * @param groupName The display name of the group
+     * @param memberNames The usernames of the members to add (the current user is added automatically)
+     */
+    private void createNewGroup(String groupName, List<String> memberNames) {
+        if (groupName.isEmpty()) {
+            showErrorMessage("Invalid Group", "Please enter a name for the group.");
+            return;
+        }
+        if (memberNames.isEmpty()) {
+            showErrorMessage("Invalid Group", "Please select at least one member.");
+            return;
+        }
+        
+        List<Integer> memberIds = new ArrayList<>();
+        for (String memberName : memberNames) {
+            int memberId = dmHelper.getUserIdByName(memberName);
+            if (memberId == -1) {
+                showErrorMessage("User Not Found", "Could not find user: " + memberName);
+                return;
+            }
+            memberIds.add(memberId);
+        }
+        
+        int chatId = dmHelper.createGroupChat(groupName, currentUserId, memberIds);
+        if (chatId == -1) {
+            showErrorMessage("Chat Error", "Could not create group: " + groupName);
+            return;
+        }
+        
+        // Refresh the chat list and select the new group
+        loadChats();
+        for (ChatListItem item : chatList) {
+            if (item.getChatId() == chatId) {
+                chatListView.getSelectionModel().select(item);
+                break;
+            }
+        }
+    }
+    
     /**
      * Loads all users from the database into the dropdown.
      * <p>
@@ -371,6 +464,16 @@ public class DirectMessage {
      * @param userDropdown The ComboBox to populate with usernames
      */
     private void loadUsersIntoDropdown(ComboBox<String> userDropdown) {
+        // Set the items in the dropdown
+        userDropdown.setItems(getOtherUserNames());
+    }
+    
+    /**
+     * Gets the sorted usernames of every user except the current user.
+     * 
+     * @return An ObservableList of usernames sorted alphabetically
+     */
+    private ObservableList<String> getOtherUserNames() {
         // Get all users from the database
         ObservableList<User> allUsers = databaseHelper.getAllUsersWithRoles();
         
@@ -388,8 +491,7 @@ public class DirectMessage {
         // Sort alphabetically
         FXCollections.sort(usernames);
         
-        // Set the items in the dropdown
-        userDropdown.setItems(usernames);
+        return usernames;
     }
     
     /**
@@ -457,18 +559,19 @@ public class DirectMessage {
             return;
         }
 
+        // Time building and showing the home page for the flight recorder
         if (currentUser.hasRole("instructor")) {
             // Route to InstructorHomePage
-            InstructorHomePage instructorPage = new InstructorHomePage();
-            instructorPage.show(primaryStage, databaseHelper, currentUser);
+            PageNavigationEvent.navigate("DirectMessage", "InstructorHomePage",
+                    () -> new InstructorHomePage().show(primaryStage, databaseHelper, currentUser));
         } else if (currentUser.hasRole("student")) {
             // Route to UserHomePage
-            UserHomePage userPage = new UserHomePage();
-            userPage.show(primaryStage, currentUser);
+            PageNavigationEvent.navigate("DirectMessage", "UserHomePage",
+                    () -> new UserHomePage().show(primaryStage, currentUser));
         } else if (currentUser.hasRole("reviewer")) {
         	// Route to UserHomePage
-        	ReviewerHomePage reviewerPage = new ReviewerHomePage();
-        	reviewerPage.show(primaryStage, currentUser);
+        	PageNavigationEvent.navigate("DirectMessage", "ReviewerHomePage",
+        	        () -> new ReviewerHomePage().show(primaryStage, currentUser));
         } else {
             // Default fallback - could show error or a generic page
             showErrorMessage("Error", "Unknown user role, can't navigate to appropriate page.");
@@ -517,23 +620,28 @@ public class DirectMessage {
         /** Whether the other user is a staff member */
         private final boolean isStaff;
         
+        /** Whether the chat is a group chat */
+        private final boolean isGroup;
+        
         /**
          * Constructs a new ChatListItem.
          * 
          * @param chatId The database ID of the chat
-         * @param otherUser The username of the other user in the chat
+         * @param otherUser The username of the other user in the chat, or the group name for group chats
          * @param lastMessage The text of the last message in the chat
          * @param timestamp The timestamp of the last message
          * @param unread Whether the chat has unread messages
          * @param isStaff Whether the other user is a staff member
+         * @param isGroup Whether the chat is a group chat
          */
-        public ChatListItem(int chatId, String otherUser, String lastMessage, Timestamp timestamp, boolean unread, boolean isStaff) {
+        public ChatListItem(int chatId, String otherUser, String lastMessage, Timestamp timestamp, boolean unread, boolean isStaff, boolean isGroup) {
             this.chatId = chatId;
             this.otherUser = otherUser;
             this.lastMessage = lastMessage;
             this.timestamp = timestamp;
             this.unread = unread;
             this.isStaff = isStaff;
+            this.isGroup = isGroup;
         }
         
         /**
@@ -598,6 +706,15 @@ public class DirectMessage {
         public boolean isStaff() {
             return isStaff;
         }
+        
+        /**
+         * Checks if the chat is a group chat.
+         * 
+         * @return true if the chat is a group chat, false for a direct chat
+         */
+        public boolean isGroup() {
+            return isGroup;
+        }
     }
     
     /**
@@ -669,6 +786,9 @@ public class DirectMessage {
                     // Add a star for staff members
                     usernameLabel.setText("★ " + item.getOtherUser());
                     usernameLabel.setTextFill(Color.GREEN);
+                } else if (item.isGroup()) {
+                    usernameLabel.setText("[Group] " + item.getOtherUser());
+                    usernameLabel.setTextFill(Color.BLACK);
                 } else {
                     usernameLabel.setText(item.getOtherUser());
                     usernameLabel.setTextFill(Color.BLACK);
@@ -52,6 +52,13 @@ public class InstructorHomePage {
             openDirectMessagePage(primaryStage);
         });
         
+        // Button to broadcast an announcement to the class
+        Button announcementButton = new Button("Send Announcement");
+        announcementButton.setStyle("-fx-font-size: 14px; -fx-padding: 8 15;");
+        announcementButton.setOnAction(e -> {
+            new AnnouncementWindow(databaseHelper, currentUser).show();
+        });
+        
         // Go to previous page
         Button backButton = new Button("Back");
         backButton.setStyle("-fx-font-size: 14px; -fx-padding: 8 15;");
@@ -78,8 +85,8 @@ public class InstructorHomePage {
             System.exit(0);
         });
         
-        layout.getChildren().addAll(instructorLabel, qandaButton, directMessageButton, backButton, promoteButton, quitButton);
-        Scene instructorScene = new Scene(layout, 800, 400);
+        layout.getChildren().addAll(instructorLabel, qandaButton, directMessageButton, announcementButton, backButton, promoteButton, quitButton);
+        Scene instructorScene = new Scene(layout, 800, 450);
         // Set the scene to primary stage
         primaryStage.setScene(instructorScene);
         primaryStage.setTitle("Instructor Page");
@@ -0,0 +1,45 @@
+package application;
+
+import databasePart1.ChangeFeed;
+import javafx.application.Platform;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.scene.Scene;
+import javafx.stage.Stage;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Delivers database row changes from {@link ChangeFeed} to a page while its scene is shown.
+ * <p>
+ * The changes are handed to the page on the JavaFX thread, so it can apply them to its lists
+ * directly. The subscription is closed as soon as the stage moves on to another scene.
+ * </p>
+ */
+public final class LiveChanges {
+
+    private LiveChanges() {
+    }
+
+    /**
+     * Starts delivering changes to a page.
+     *
+     * @param stage The stage the page's scene is shown on
+     * @param scene The page's scene
+     * @param listener Applies a batch of changes to the page; runs on the JavaFX thread
+     */
+    public static void follow(Stage stage, Scene scene, Consumer<List<ChangeFeed.Change>> listener) {
+        ChangeFeed.Subscription subscription = ChangeFeed.subscribe(
+                changes -> Platform.runLater(() -> listener.accept(changes)));
+        stage.sceneProperty().addListener(new ChangeListener<Scene>() {
+            @Override
+            public void changed(ObservableValue<? extends Scene> observable, Scene previous, Scene current) {
+                if (current != scene) {
+                    subscription.close();
+                    observable.removeListener(this);
+                }
+            }
+        });
+    }
+}
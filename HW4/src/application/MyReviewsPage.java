@@ -5,7 +5,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
+import databasePart1.ChangeFeed;
 import databasePart1.DatabaseHelper;
+import databasePart1.Log;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
@@ -34,6 +36,9 @@ import javafx.stage.Stage;
  * @version 1.0
  */
 public class MyReviewsPage {
+
+    /** Logger for this class's messages and errors */
+    private static final Log LOG = Log.get(MyReviewsPage.class);
     
     /** Database helper for database operations */
     private DatabaseHelper databaseHelper;
@@ -78,7 +83,7 @@ public class MyReviewsPage {
                 int reviewId = databaseHelper.findIdOfReview(review);
                 reviewIDs.put(review, reviewId);
             } catch (Exception e) {
-                System.err.println("Error finding ID for review: " + e.getMessage());
+                LOG.error("Error finding ID for review: {}", e.getMessage());
             }
         }
     }
@@ -181,7 +186,61 @@ public class MyReviewsPage {
         mainLayout.setTop(headerBox);
         mainLayout.setBottom(buttonsBox);
         
-        return new Scene(mainLayout, 800, 600);
+        // Keep the list current as the user's reviews change, here or elsewhere
+        Scene scene = new Scene(mainLayout, 800, 600);
+        LiveChanges.follow(primaryStage, scene, changes -> {
+            applyChanges(changes);
+            if (!userReviews.isEmpty()) {
+                mainLayout.setCenter(reviewsListView);
+            }
+        });
+        return scene;
+    }
+    
+    /**
+     * Applies database row changes to the user's reviews: new reviews by the user are added,
+     * edited ones are replaced in the list and deleted ones are removed.
+     * 
+     * @param changes The changed rows, oldest first
+     */
+    private void applyChanges(List<ChangeFeed.Change> changes) {
+        for (ChangeFeed.Change change : changes) {
+            if (change.getTable() != ChangeFeed.Table.REVIEWS
+                    || !currentUser.getUserName().equals(change.getString("reviewer"))) {
+                continue;
+            }
+            Review review = null;
+            for (Map.Entry<Review, Integer> entry : reviewIDs.entrySet()) {
+                if (entry.getValue() == change.getId()) {
+                    review = entry.getKey();
+                }
+            }
+            if (change.getKind() == ChangeFeed.Kind.DELETE) {
+                if (review != null) {
+                    userReviews.remove(review);
+                    reviewIDs.remove(review);
+                }
+            } else if (review == null) {
+                review = new Review(change.getString("text"), change.getString("reviewer"), change.getParentId());
+                userReviews.add(review);
+                reviewIDs.put(review, change.getId());
+            } else if (!review.getReviewBody().equals(change.getString("text"))) {
+                review.setReviewBody(change.getString("text"));
+                reviewChanged(review);
+            }
+        }
+    }
+    
+    /**
+     * Redraws a review that changed in place by replacing it in the list.
+     * 
+     * @param review The changed review
+     */
+    private void reviewChanged(Review review) {
+        int index = userReviews.indexOf(review);
+        if (index != -1) {
+            userReviews.set(index, review);
+        }
     }
     
     /**
@@ -219,7 +278,7 @@ public class MyReviewsPage {
      * Prompts the user to update an existing review, validates the input,
      * and updates the review in the database if validation passes.
      * 
-     * @param reviewListView The ListView to refresh after update
+     * @param reviewListView The ListView showing the review
      * @param review The review to update
      */
     private void promptForUpdatedReview(ListView<Review> reviewListView, Review review) {
@@ -247,7 +306,7 @@ public class MyReviewsPage {
                     boolean updated = databaseHelper.updateReview(reviewID, updatedText);
                     if (updated) {
                         review.setReviewBody(updatedText);
-                        reviewListView.refresh();
+                        reviewChanged(review);
                     } else {
                         showErrorMessage("Database Error", "Failed to update the review in the database.");
                     }
@@ -0,0 +1,59 @@
+package application;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder event for moving from one page to another.
+ * The event spans building and showing the new page, including the data it loads.
+ */
+@Name("cse360.PageNavigation")
+@Label("Page Navigation")
+@Category({"CSE360", "UI"})
+@Description("Navigation from one page to another")
+public class PageNavigationEvent extends jdk.jfr.Event {
+
+    @Label("From Page")
+    String fromPage;
+
+    @Label("To Page")
+    String toPage;
+
+    /**
+     * Starts timing a navigation away from the given page.
+     *
+     * @param fromPage The page being left
+     * @return The started event; call {@link #finish(String)} once the new page is shown
+     */
+    public static PageNavigationEvent start(String fromPage) {
+        PageNavigationEvent event = new PageNavigationEvent();
+        event.fromPage = fromPage;
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Ends the navigation and records the event.
+     *
+     * @param toPage The page that was shown
+     */
+    public void finish(String toPage) {
+        this.toPage = toPage;
+        commit();
+    }
+
+    /**
+     * Runs a navigation and records how long it took.
+     *
+     * @param fromPage The page being left
+     * @param toPage The page being shown
+     * @param navigation Builds and shows the new page
+     */
+    public static void navigate(String fromPage, String toPage, Runnable navigation) {
+        PageNavigationEvent event = start(fromPage);
+        navigation.run();
+        event.finish(toPage);
+    }
+}
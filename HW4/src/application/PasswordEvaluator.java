@@ -2,201 +2,156 @@ package application;
 
 /**
  * <p> Title: Directed Graph-translated Password Assessor. </p>
- * 
- * <p> Description: A demonstration of the mechanical translation of Directed Graph 
- * diagram into an executable Java program using the Password Evaluator Directed Graph. 
- * The code detailed design is based on a while loop with a cascade of if statements</p>
- * 
+ *
+ * <p> Description: A demonstration of the mechanical translation of Directed Graph
+ * diagram into an executable Java program using the Password Evaluator Directed Graph.
+ * Each character is classified with a lookup table and the conditions that have been met
+ * are collected in a bit mask held in a local variable, so the evaluator keeps no shared
+ * state and can be called from many threads at once.</p>
+ *
  * <p> Copyright: Lynn Robert Carter © 2022 </p>
- * 
+ *
  * @author Lynn Robert Carter
- * 
- * @version 0.00		2018-02-22	Initial baseline 
- * 
+ *
+ * @version 0.00		2018-02-22	Initial baseline
+ * @version 1.00		2026-10-18	Table-driven and reentrant; the console trace is removed
+ * 								and the result is returned as a bit mask
+ *
  */
 public class PasswordEvaluator {
 
     /**********************************************************************************************
-     * 
-     * Result attributes to be used for GUI applications where a detailed error message and a 
-     * pointer to the character of the error will enhance the user experience.
-     * 
+     *
+     * Result bits returned by {@link #evaluate(CharSequence)}. A result of {@link #VALID} means
+     * every condition was satisfied; otherwise each set bit names a problem.
+     *
      */
 
-    /**
-     * The error message text that describes any password validation failures
-     */
-    public static String passwordErrorMessage = "";		
+    /** The password satisfies every condition */
+    public static final int VALID = 0;
 
-    /**
-     * The input being processed
-     */
-    public static String passwordInput = "";			
+    /** No upper case letter was found */
+    public static final int MISSING_UPPER_CASE = 1;
 
-    /**
-     * The index where the error was located in the password
-     */
-    public static int passwordIndexofError = -1;		
+    /** No lower case letter was found */
+    public static final int MISSING_LOWER_CASE = 1 << 1;
 
-    /**
-     * Flag indicating whether an uppercase letter was found in the password
-     */
-    public static boolean foundUpperCase = false;
+    /** No numeric digit was found */
+    public static final int MISSING_NUMERIC_DIGIT = 1 << 2;
 
-    /**
-     * Flag indicating whether a lowercase letter was found in the password
-     */
-    public static boolean foundLowerCase = false;
+    /** No special character was found */
+    public static final int MISSING_SPECIAL_CHAR = 1 << 3;
 
-    /**
-     * Flag indicating whether a numeric digit was found in the password
-     */
-    public static boolean foundNumericDigit = false;
+    /** The password is shorter than 8 characters */
+    public static final int NOT_LONG_ENOUGH = 1 << 4;
 
-    /**
-     * Flag indicating whether a special character was found in the password
-     */
-    public static boolean foundSpecialChar = false;
+    /** The password contains a character that is not allowed */
+    public static final int INVALID_CHARACTER = 1 << 5;
 
-    /**
-     * Flag indicating whether the password is at least 8 characters long
-     */
-    public static boolean foundLongEnough = false;
+    /** The password is empty */
+    public static final int EMPTY = 1 << 6;
 
-    /**
-     * The input line being evaluated
-     */
-    private static String inputLine = "";				
+    /** The bits for the five conditions a password must satisfy */
+    private static final int ALL_CONDITIONS = MISSING_UPPER_CASE | MISSING_LOWER_CASE
+            | MISSING_NUMERIC_DIGIT | MISSING_SPECIAL_CHAR | NOT_LONG_ENOUGH;
 
-    /**
-     * The current character being examined in the password evaluation process
-     */
-    private static char currentChar;					
+    /** The minimum number of characters in a password */
+    private static final int MIN_LENGTH = 8;
 
-    /**
-     * The index of the current character being evaluated
-     */
-    private static int currentCharNdx;					
+    /** The special characters that are allowed in a password */
+    private static final String SPECIAL_CHARS = "~`!@#$%^&*()_-+{}[]|:,.?/";
 
     /**
-     * Flag that specifies if the FSM (Finite State Machine) is running
+     * The condition each ASCII character satisfies, or 0 if the character is not allowed.
+     * Anything outside of ASCII is not allowed.
      */
-    private static boolean running;						
+    private static final byte[] CHAR_CONDITION = new byte[128];
 
     /**
-     * This private method displays the input line and then on a line under it displays an up arrow
-     * at the point where an error is detected. This method is designed to be used to 
-     * display the error message on the console terminal.
-     * 
-     * The method prints:
-     * 1. The entire input line
-     * 2. A question mark at the position of the current character
-     * 3. Information about the password size, current character index, and the current character
+     * The error message for every combination of unmet conditions, indexed by the condition
+     * bits, so that no message has to be built per call.
      */
-    private static void displayInputState() {
-        // Display the entire input line
-        System.out.println(inputLine);
-        System.out.println(inputLine.substring(0,currentCharNdx) + "?");
-        System.out.println("The password size: " + inputLine.length() + "  |  The currentCharNdx: " + 
-                currentCharNdx + "  |  The currentChar: \"" + currentChar + "\"");
+    private static final String[] CONDITION_MESSAGES = new String[ALL_CONDITIONS + 1];
+
+    static {
+        for (int c = 0; c < CHAR_CONDITION.length; c++) {
+            if (c >= 'A' && c <= 'Z')
+                CHAR_CONDITION[c] = MISSING_UPPER_CASE;
+            else if (c >= 'a' && c <= 'z')
+                CHAR_CONDITION[c] = MISSING_LOWER_CASE;
+            else if (c >= '0' && c <= '9')
+                CHAR_CONDITION[c] = MISSING_NUMERIC_DIGIT;
+            else if (SPECIAL_CHARS.indexOf(c) >= 0)
+                CHAR_CONDITION[c] = MISSING_SPECIAL_CHAR;
+        }
+
+        CONDITION_MESSAGES[VALID] = "";
+        for (int bits = 1; bits <= ALL_CONDITIONS; bits++) {
+            String errMessage = "";
+            if ((bits & MISSING_UPPER_CASE) != 0)
+                errMessage += "Upper case; ";
+            if ((bits & MISSING_LOWER_CASE) != 0)
+                errMessage += "Lower case; ";
+            if ((bits & MISSING_NUMERIC_DIGIT) != 0)
+                errMessage += "Numeric digits; ";
+            if ((bits & MISSING_SPECIAL_CHAR) != 0)
+                errMessage += "Special character; ";
+            if ((bits & NOT_LONG_ENOUGH) != 0)
+                errMessage += "Long Enough; ";
+            CONDITION_MESSAGES[bits] = errMessage + "conditions were not satisfied";
+        }
     }
 
     /**
-     * This method evaluates a password string according to specific criteria:
+     * This method evaluates a password according to specific criteria:
      * - Must contain at least one uppercase letter
      * - Must contain at least one lowercase letter
      * - Must contain at least one numeric digit
      * - Must contain at least one special character
      * - Must be at least 8 characters long
-     * 
-     * The method implements a mechanical transformation of a Directed Graph diagram into code,
-     * examining each character in the input string and updating flags for each requirement.
-     * 
+     *
+     * Each character clears the bit of the condition it satisfies. Evaluation stops at the
+     * first character that is not allowed. The method does not allocate and does not touch
+     * any shared state, so it is safe to call concurrently.
+     *
+     * @param input The password to evaluate
+     * @return {@link #VALID}, {@link #EMPTY}, {@link #INVALID_CHARACTER}, or the bits of the
+     *         conditions that were not met
+     */
+    public static int evaluate(CharSequence input) {
+        if (input == null || input.length() == 0)
+            return EMPTY;
+
+        int length = input.length();
+        int missing = ALL_CONDITIONS;
+        if (length >= MIN_LENGTH)
+            missing &= ~NOT_LONG_ENOUGH;
+
+        for (int currentCharNdx = 0; currentCharNdx < length; currentCharNdx++) {
+            char currentChar = input.charAt(currentCharNdx);
+            int condition = currentChar < CHAR_CONDITION.length ? CHAR_CONDITION[currentChar] : 0;
+            if (condition == 0)
+                return INVALID_CHARACTER;
+            missing &= ~condition;
+        }
+
+        return missing;
+    }
+
+    /**
+     * This method evaluates a password and returns the error message for the GUI.
+     *
      * @param input The password string to evaluate
      * @return An empty string if the password meets all criteria, or an error message listing
      *         the specific criteria that were not met
+     * @see #evaluate(CharSequence)
      */
     public static String evaluatePassword(String input) {
-        // The following are the local variable used to perform the Directed Graph simulation
-        passwordErrorMessage = "";
-        passwordIndexofError = 0;			// Initialize the IndexofError
-        inputLine = input;					// Save the reference to the input line as a global
-        currentCharNdx = 0;					// The index of the current character
-        
-        if(input.length() <= 0) return "*** Error *** The password is empty!";
-        
-        // The input is not empty, so we can access the first character
-        currentChar = input.charAt(0);		// The current character from the above indexed position
-
-        // The Directed Graph simulation continues until the end of the input is reached or at some 
-        // state the current character does not match any valid transition to a next state
-
-        passwordInput = input;				// Save a copy of the input
-        foundUpperCase = false;				// Reset the Boolean flag
-        foundLowerCase = false;				// Reset the Boolean flag
-        foundNumericDigit = false;			// Reset the Boolean flag
-        foundSpecialChar = false;			// Reset the Boolean flag
-        foundNumericDigit = false;			// Reset the Boolean flag - Note: This is duplicated in the original code
-        foundLongEnough = false;			// Reset the Boolean flag
-        running = true;						// Start the loop
-
-        // The Directed Graph simulation continues until the end of the input is reached or at some 
-        // state the current character does not match any valid transition
-        while (running) {
-            displayInputState();
-            // The cascading if statement sequentially tries the current character against all of the
-            // valid transitions
-            if (currentChar >= 'A' && currentChar <= 'Z') {
-                System.out.println("Upper case letter found");
-                foundUpperCase = true;
-            } else if (currentChar >= 'a' && currentChar <= 'z') {
-                System.out.println("Lower case letter found");
-                foundLowerCase = true;
-            } else if (currentChar >= '0' && currentChar <= '9') {
-                System.out.println("Digit found");
-                foundNumericDigit = true;
-            } else if ("~`!@#$%^&*()_-+{}[]|:,.?/".indexOf(currentChar) >= 0) {
-                System.out.println("Special character found");
-                foundSpecialChar = true;
-            } else {
-                passwordIndexofError = currentCharNdx;
-                return "*** Error *** An invalid character has been found!";
-            }
-            if (currentCharNdx >= 7) {
-                System.out.println("At least 8 characters found");
-                foundLongEnough = true;
-            }
-            
-            // Go to the next character if there is one
-            currentCharNdx++;
-            if (currentCharNdx >= inputLine.length())
-                running = false;
-            else
-                currentChar = input.charAt(currentCharNdx);
-            
-            System.out.println();
-        }
-        
-        String errMessage = "";
-        if (!foundUpperCase)
-            errMessage += "Upper case; ";
-        
-        if (!foundLowerCase)
-            errMessage += "Lower case; ";
-        
-        if (!foundNumericDigit)
-            errMessage += "Numeric digits; ";
-            
-        if (!foundSpecialChar)
-            errMessage += "Special character; ";
-            
-        if (!foundLongEnough)
-            errMessage += "Long Enough; ";
-        
-        if (errMessage == "")
-            return "";
-        
-        passwordIndexofError = currentCharNdx;
-        return errMessage + "conditions were not satisfied";
+        int result = evaluate(input);
+        if (result == EMPTY)
+            return "*** Error *** The password is empty!";
+        if (result == INVALID_CHARACTER)
+            return "*** Error *** An invalid character has been found!";
+        return CONDITION_MESSAGES[result];
     }
-}
\ No newline at end of file
+}
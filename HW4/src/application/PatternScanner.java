@@ -0,0 +1,274 @@
+package application;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Case-insensitive multi-pattern scanner built on the Aho-Corasick algorithm.
+ *
+ * All patterns are compiled once into a single automaton, so a text is scanned in one
+ * pass no matter how many patterns there are. Characters are folded to lower case as they
+ * are read, so no lowercase copy of the text is made. A scanner is immutable after it is
+ * built and can be shared between threads; adding patterns produces a new scanner.
+ */
+public class PatternScanner {
+    /** The patterns this scanner looks for, in lower case and without duplicates. */
+    private final List<String> patterns;
+
+    /** Column of the transition table for each ASCII character, 0 if it appears in no pattern. */
+    private final int[] asciiColumns = new int[128];
+
+    /** Sorted non-ASCII characters that appear in a pattern. */
+    private final char[] otherChars;
+
+    /** Column of the transition table for each character in {@link #otherChars}. */
+    private final int[] otherColumns;
+
+    /** Transition table, indexed by [state][column]. State 0 is the root. */
+    private final int[][] next;
+
+    /** Index of the pattern that ends at each state, or -1 if none does. */
+    private final int[] output;
+
+    /** Nearest state on the failure chain that has an output, or -1 if there is none. */
+    private final int[] outputLink;
+
+    /**
+     * Compiles a scanner for the given patterns. Empty patterns are ignored.
+     *
+     * @param patterns The patterns to look for, matched without regard to case
+     */
+    public PatternScanner(Collection<String> patterns) {
+        Set<String> folded = new LinkedHashSet<>();
+        for (String pattern : patterns) {
+            if (pattern != null && !pattern.isEmpty()) {
+                folded.add(fold(pattern));
+            }
+        }
+        this.patterns = Collections.unmodifiableList(new ArrayList<>(folded));
+
+        // Give every distinct character its own column; column 0 is for all other characters
+        StringBuilder others = new StringBuilder();
+        int columnCount = 1;
+        for (String pattern : this.patterns) {
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                if (c < 128) {
+                    if (asciiColumns[c] == 0) {
+                        asciiColumns[c] = columnCount++;
+                    }
+                } else if (others.indexOf(String.valueOf(c)) < 0) {
+                    others.append(c);
+                }
+            }
+        }
+        otherChars = others.toString().toCharArray();
+        Arrays.sort(otherChars);
+        otherColumns = new int[otherChars.length];
+        for (int i = 0; i < otherChars.length; i++) {
+            otherColumns[i] = columnCount++;
+        }
+
+        // Build the trie
+        List<int[]> trie = new ArrayList<>();
+        List<Integer> ends = new ArrayList<>();
+        trie.add(newRow(columnCount));
+        ends.add(-1);
+        for (int p = 0; p < this.patterns.size(); p++) {
+            String pattern = this.patterns.get(p);
+            int state = 0;
+            for (int i = 0; i < pattern.length(); i++) {
+                int column = columnOf(pattern.charAt(i));
+                if (trie.get(state)[column] < 0) {
+                    trie.get(state)[column] = trie.size();
+                    trie.add(newRow(columnCount));
+                    ends.add(-1);
+                }
+                state = trie.get(state)[column];
+            }
+            ends.set(state, p);
+        }
+
+        int stateCount = trie.size();
+        next = trie.toArray(new int[stateCount][]);
+        output = new int[stateCount];
+        outputLink = new int[stateCount];
+        int[] fail = new int[stateCount];
+        for (int s = 0; s < stateCount; s++) {
+            output[s] = ends.get(s);
+            outputLink[s] = -1;
+        }
+
+        // Breadth-first pass to fill in failure transitions, turning the trie into a DFA
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int column = 0; column < columnCount; column++) {
+            int child = next[0][column];
+            if (child < 0) {
+                next[0][column] = 0;
+            } else {
+                fail[child] = 0;
+                queue.add(child);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            for (int column = 0; column < columnCount; column++) {
+                int child = next[state][column];
+                if (child < 0) {
+                    next[state][column] = next[fail[state]][column];
+                } else {
+                    int f = next[fail[state]][column];
+                    fail[child] = f;
+                    outputLink[child] = output[f] >= 0 ? f : outputLink[f];
+                    queue.add(child);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a new scanner that looks for this scanner's patterns plus the given ones.
+     *
+     * @param morePatterns The patterns to add
+     * @return A new scanner with the combined pattern set
+     */
+    public PatternScanner withPatterns(Collection<String> morePatterns) {
+        List<String> combined = new ArrayList<>(patterns);
+        combined.addAll(morePatterns);
+        return new PatternScanner(combined);
+    }
+
+    /**
+     * Returns the patterns this scanner looks for, in lower case.
+     *
+     * @return An unmodifiable list of the patterns
+     */
+    public List<String> getPatterns() {
+        return patterns;
+    }
+
+    /**
+     * Checks whether the text contains any of the patterns.
+     * Stops at the first match and does not allocate.
+     *
+     * @param text The text to scan
+     * @return true if at least one pattern occurs in the text, false otherwise
+     */
+    public boolean containsAny(CharSequence text) {
+        if (text == null) {
+            return false;
+        }
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = next[state][columnOf(Character.toLowerCase(text.charAt(i)))];
+            if (output[state] >= 0 || outputLink[state] >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether the text contains any of the patterns as a whole word or phrase:
+     * a match only counts if it is not directly preceded or followed by a letter or digit,
+     * so "exam" is found in "the exam." but not in "example".
+     *
+     * @param text The text to scan
+     * @return true if at least one pattern occurs in the text on word boundaries, false otherwise
+     */
+    public boolean containsAnyWord(CharSequence text) {
+        if (text == null) {
+            return false;
+        }
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = next[state][columnOf(Character.toLowerCase(text.charAt(i)))];
+            for (int s = output[state] >= 0 ? state : outputLink[state]; s >= 0; s = outputLink[s]) {
+                int start = i - patterns.get(output[s]).length() + 1;
+                if (isBoundary(text, start - 1) && isBoundary(text, i + 1)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether the character at an index can end a word: it is outside the text or
+     * neither a letter nor a digit.
+     *
+     * @param text The text
+     * @param index The index to check
+     * @return true if a word may end before or start after this index
+     */
+    private static boolean isBoundary(CharSequence text, int index) {
+        return index < 0 || index >= text.length() || !Character.isLetterOrDigit(text.charAt(index));
+    }
+
+    /**
+     * Finds every pattern that occurs in the text.
+     *
+     * @param text The text to scan
+     * @return The distinct patterns found, in the order they were first seen
+     */
+    public List<String> findMatches(CharSequence text) {
+        Set<String> found = new LinkedHashSet<>();
+        if (text == null) {
+            return new ArrayList<>(found);
+        }
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            state = next[state][columnOf(Character.toLowerCase(text.charAt(i)))];
+            for (int s = output[state] >= 0 ? state : outputLink[state]; s >= 0; s = outputLink[s]) {
+                found.add(patterns.get(output[s]));
+            }
+        }
+        return new ArrayList<>(found);
+    }
+
+    /**
+     * Maps a (lower case) character to its column in the transition table.
+     *
+     * @param c The character
+     * @return The column, or 0 if the character appears in no pattern
+     */
+    private int columnOf(char c) {
+        if (c < 128) {
+            return asciiColumns[c];
+        }
+        int i = Arrays.binarySearch(otherChars, c);
+        return i >= 0 ? otherColumns[i] : 0;
+    }
+
+    /**
+     * Lower-cases a pattern one character at a time, the same way text is folded while scanning.
+     *
+     * @param pattern The pattern to fold
+     * @return The folded pattern
+     */
+    private static String fold(String pattern) {
+        char[] chars = pattern.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(chars[i]);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Creates a transition table row with every entry unset.
+     *
+     * @param columnCount The number of columns
+     * @return The new row
+     */
+    private static int[] newRow(int columnCount) {
+        int[] row = new int[columnCount];
+        Arrays.fill(row, -1);
+        return row;
+    }
+}
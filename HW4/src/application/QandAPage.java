@@ -1,8 +1,13 @@
 package application;
 
 // question and answer loading / storing
+import databasePart1.ChangeFeed;
 import databasePart1.DatabaseHelper;
+import databasePart1.Log;
 import databasePart1.DatabaseHelperReviews;
+import databasePart1.DuplicateQuestionIndex;
+import databasePart1.GlobalSearch;
+import databasePart1.RelatedQuestionIndex;
 
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
@@ -31,9 +36,18 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.Set;
 import javafx.application.Platform;
 import javafx.scene.control.ButtonType;
+import javafx.scene.control.ContextMenu;
+import javafx.scene.control.MenuItem;
+import javafx.animation.PauseTransition;
+import javafx.geometry.Side;
+import javafx.util.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import application.QuestionValidator.ValidationResult;
 
@@ -46,6 +60,31 @@ import application.QuestionValidator.ValidationResult;
  * </p>
  */
 public class QandAPage {
+
+    /** Logger for this class's messages and errors */
+    private static final Log LOG = Log.get(QandAPage.class);
+    
+    /** Number of questions shown by the Hot Questions button */
+    private static final int HOT_QUESTION_COUNT = 20;
+    
+    /** Number of questions shown in the related questions panel */
+    private static final int RELATED_QUESTION_COUNT = 8;
+    
+    /** Number of results shown by the Search Everything button */
+    private static final int GLOBAL_RESULT_COUNT = 50;
+    
+    /** Number of completions suggested for the search box */
+    private static final int SUGGESTION_COUNT = 8;
+    
+    /** Pause in typing, in milliseconds, before suggestions are looked up */
+    private static final int SUGGESTION_DELAY_MILLIS = 150;
+    
+    /** Looks up search suggestions off the UI thread, one at a time */
+    private static final ExecutorService SUGGESTION_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "search-suggestions");
+        thread.setDaemon(true);
+        return thread;
+    });
     
     /** Observable list of questions displayed in the UI */
     private ObservableList<Question> questions;
@@ -74,6 +113,9 @@ public class QandAPage {
     /** Primary stage reference for navigation */
     private Stage primaryStage;
     
+    /** The search suggestion lookup that was last started */
+    private Future<?> pendingSuggestions;
+    
     /**
      * Constructs a new QandAPage and initializes database connections.
      * Connects to the database and initializes the necessary database helpers.
@@ -113,6 +155,7 @@ public class QandAPage {
         
         // LOAD QUESTIONS
         questions = loadQuestionsFromDatabase();
+        databaseHelper.prepareRelatedQuestions();
         
         // Main layout
         VBox layout = new VBox();
@@ -138,11 +181,9 @@ public class QandAPage {
             @Override
             public ListCell<Question> call(ListView<Question> param) {
                 // Return a custom ListCell that is used to display all question objects
-                return new ListCell<Question>() {
+                return new TracedListCell<Question>("QandAPage") {
                     @Override
-                    protected void updateItem(Question item, boolean empty) {
-                        super.updateItem(item, empty);
-                        
+                    protected void render(Question item, boolean empty) {
                         // if cell is empty / null - clear its graphic
                         if (empty || item == null) {
                             setGraphic(null);
@@ -339,31 +380,7 @@ public class QandAPage {
                             container.getChildren().add(questionBox);
                             
                             
-                            // Separate answers with reviews and without reviews
-                            List<Answer> answersWithReviews = new ArrayList<>();
-                            List<Answer> answersWithoutReviews = new ArrayList<>();
-
-                            // Separate answers into the two lists based on whether they have reviews
-                            for (Answer answer : item.getAnswers()) {
-                                if (answer.hasReview()) {  // had to create a method to check if an answer has reviews
-                                    answersWithReviews.add(answer);
-                                } else {
-                                    answersWithoutReviews.add(answer);
-                                }
-                            }
-                            
-                            
-                            // Sort the answers without reviews based on upvotes and downvotes
-                            answersWithoutReviews.sort((a1, a2) -> {
-                                int votes1 = a1.getUpvotes() - a1.getDownvotes();
-                                int votes2 = a2.getUpvotes() - a2.getDownvotes();
-                                return Integer.compare(votes2, votes1);  // Sorting in descending order of votes
-                            });
-                            
-                            // Combine the answers with reviews at the top, followed by the sorted answers
-                            answersWithReviews.addAll(answersWithoutReviews);
-
-                            // Add answers
+                            // Add answers; the question keeps them in display order, so there is nothing to sort here
                             if (!item.getAnswers().isEmpty()) {
                                 Label answersLabel = new Label("Answers:");
                                 answersLabel.setStyle("-fx-font-weight: bold; -fx-padding: 5 0 0 0;");
@@ -428,8 +445,8 @@ public class QandAPage {
                                                 
                                                 // Recalculate votes and update ui
                                                 databaseHelper.recalculateAnswerVotes(answer.getId());
-                                                answer.setUpvote(databaseHelper.getAnswerUpvotes(answer.getId()));
-                                                answer.setDownvote(databaseHelper.getAnswerDownvotes(answer.getId()));
+                                                item.updateAnswerVotes(answer, databaseHelper.getAnswerUpvotes(answer.getId()),
+                                                        databaseHelper.getAnswerDownvotes(answer.getId()));
                                                 answerVotesLabel.setText("[Votes: " + (answer.getUpvotes() - answer.getDownvotes()) + "]");
                                             }
                                         }
@@ -448,8 +465,8 @@ public class QandAPage {
                                                 
                                                 // Recalculate votes and update UI
                                                 databaseHelper.recalculateAnswerVotes(answer.getId());
-                                                answer.setUpvote(databaseHelper.getAnswerUpvotes(answer.getId()));
-                                                answer.setDownvote(databaseHelper.getAnswerDownvotes(answer.getId()));
+                                                item.updateAnswerVotes(answer, databaseHelper.getAnswerUpvotes(answer.getId()),
+                                                        databaseHelper.getAnswerDownvotes(answer.getId()));
                                                 answerVotesLabel.setText("[Votes: " + (answer.getUpvotes() - answer.getDownvotes()) + "]");
                                             }
                                         }
@@ -472,8 +489,8 @@ public class QandAPage {
                                                 
                                                 // Recalculate votes and update UI
                                                 databaseHelper.recalculateAnswerVotes(answer.getId());
-                                                answer.setUpvote(databaseHelper.getAnswerUpvotes(answer.getId()));
-                                                answer.setDownvote(databaseHelper.getAnswerDownvotes(answer.getId()));
+                                                item.updateAnswerVotes(answer, databaseHelper.getAnswerUpvotes(answer.getId()),
+                                                        databaseHelper.getAnswerDownvotes(answer.getId()));
                                                 answerVotesLabel.setText("[Votes: " + (answer.getUpvotes() - answer.getDownvotes()) + "]");
                                             }
                                         }
@@ -492,8 +509,8 @@ public class QandAPage {
                                                 
                                                 // Recalculate votes and update UI
                                                 databaseHelper.recalculateAnswerVotes(answer.getId());
-                                                answer.setUpvote(databaseHelper.getAnswerUpvotes(answer.getId()));
-                                                answer.setDownvote(databaseHelper.getAnswerDownvotes(answer.getId()));
+                                                item.updateAnswerVotes(answer, databaseHelper.getAnswerUpvotes(answer.getId()),
+                                                        databaseHelper.getAnswerDownvotes(answer.getId()));
                                                 answerVotesLabel.setText("[Votes: " + (answer.getUpvotes() - answer.getDownvotes()) + "]");
                                             }
                                         }
@@ -554,15 +571,20 @@ public class QandAPage {
         TextField searchField = new TextField();
         searchField.setPromptText("Enter search term");
         searchField.setPrefWidth(200);
+        ContextMenu suggestionMenu = new ContextMenu();
 
         Button searchButton = new Button("Search");
         searchButton.setStyle("-fx-font-size: 14px; -fx-padding: 5;");
         searchButton.setOnAction(e -> {
             String searchTerm = searchField.getText().trim();
-            System.out.println("it worked: " + searchTerm);
+            LOG.debug("Searching questions for: {}", searchTerm);
+            suggestionMenu.hide();
             
             // Find matching questions
             ObservableList<Question> searchResults = searchQuestions(searchTerm);
+            if (!searchResults.isEmpty()) {
+                databaseHelper.recordSearch(searchTerm);
+            }
             
             // Update the ListView with search results
             questionListView.setItems(searchResults);
@@ -573,6 +595,59 @@ public class QandAPage {
             }
         });
         
+        // Search reviews and the user's messages as well as questions and answers
+        Button searchEverythingButton = new Button("Search Everything");
+        searchEverythingButton.setStyle("-fx-font-size: 14px; -fx-padding: 5;");
+        searchEverythingButton.setOnAction(e -> {
+            String searchTerm = searchField.getText().trim();
+            suggestionMenu.hide();
+            List<GlobalSearch.Result> results = databaseHelper.searchEverything(searchTerm, currentUser, GLOBAL_RESULT_COUNT);
+            if (results.isEmpty()) {
+                showErrorMessage("Search Results", "Nothing found containing: " + searchTerm);
+            } else {
+                showGlobalSearchResults(searchTerm, results, questionListView);
+            }
+        });
+        
+        // Suggest completions while typing: wait for a pause, look them up off the UI thread,
+        // and drop any that arrive after the text has changed again
+        PauseTransition suggestionDelay = new PauseTransition(Duration.millis(SUGGESTION_DELAY_MILLIS));
+        suggestionDelay.setOnFinished(e -> {
+            String input = searchField.getText();
+            if (pendingSuggestions != null) {
+                pendingSuggestions.cancel(false);
+            }
+            if (input.isBlank()) {
+                suggestionMenu.hide();
+                return;
+            }
+            pendingSuggestions = SUGGESTION_EXECUTOR.submit(() -> {
+                List<String> suggestions = databaseHelper.getSearchSuggestions(input, SUGGESTION_COUNT);
+                Platform.runLater(() -> {
+                    if (!input.equals(searchField.getText())) {
+                        return;
+                    }
+                    suggestionMenu.getItems().clear();
+                    for (String suggestion : suggestions) {
+                        MenuItem item = new MenuItem(suggestion);
+                        item.setOnAction(event -> {
+                            searchField.setText(suggestion);
+                            searchField.end();
+                            suggestionDelay.stop();
+                            searchButton.fire();
+                        });
+                        suggestionMenu.getItems().add(item);
+                    }
+                    if (suggestions.isEmpty()) {
+                        suggestionMenu.hide();
+                    } else if (!suggestionMenu.isShowing()) {
+                        suggestionMenu.show(searchField, Side.BOTTOM, 0, 0);
+                    }
+                });
+            });
+        });
+        searchField.textProperty().addListener((observable, previous, text) -> suggestionDelay.playFromStart());
+        
         // NEW BUTTON: Search for reviews by trusted reviewers
         Button trustedReviewerSearchButton = new Button("Trusted Reviewer Reviews");
         trustedReviewerSearchButton.setStyle("-fx-font-size: 14px; -fx-padding: 5;");
@@ -589,6 +664,18 @@ public class QandAPage {
             }
         });
         
+        // Show the most active questions, ranked by recent votes and answers
+        Button hotButton = new Button("Hot Questions");
+        hotButton.setStyle("-fx-font-size: 14px; -fx-padding: 5;");
+        hotButton.setOnAction(e -> {
+            ObservableList<Question> hotQuestions = loadHotQuestions();
+            questionListView.setItems(hotQuestions);
+            
+            if (hotQuestions.isEmpty()) {
+                showErrorMessage("Hot Questions", "There has been no recent activity on any question.");
+            }
+        });
+        
         Button clearSearchButton = new Button("Clear Search");
         clearSearchButton.setStyle("-fx-font-size: 14px; -fx-padding: 5;");
         clearSearchButton.setOnAction(e -> {
@@ -601,7 +688,7 @@ public class QandAPage {
         
         HBox searchBox = new HBox(10); // 10 is the spacing between elements
         searchBox.setStyle("-fx-alignment: center;");
-        searchBox.getChildren().addAll(searchField, searchButton, trustedReviewerSearchButton, clearSearchButton);
+        searchBox.getChildren().addAll(searchField, searchButton, searchEverythingButton, trustedReviewerSearchButton, hotButton, clearSearchButton);
         
         // Button: Ask question
         Button addButton = new Button("Ask a Question");
@@ -699,7 +786,46 @@ public class QandAPage {
         backButton.setStyle("-fx-font-size: 14px; -fx-padding: 5;");
         backButton.setOnAction(e -> navigateToUserHomePage());
         
-        layout.getChildren().addAll(questionListView, searchBox, buttonContainer, backButton);
+        // Related questions for the selected one; clicking one opens it in the main list
+        Label relatedLabel = new Label("Related Questions");
+        relatedLabel.setStyle("-fx-font-size: 14px; -fx-font-weight: bold;");
+        ListView<Question> relatedListView = new ListView<>();
+        relatedListView.setPrefSize(300, 400);
+        relatedListView.setPlaceholder(new Label("No related questions found."));
+        relatedListView.setCellFactory(list -> new ListCell<Question>() {
+            @Override
+            protected void updateItem(Question item, boolean empty) {
+                super.updateItem(item, empty);
+                if (empty || item == null) {
+                    setText(null);
+                    return;
+                }
+                boolean resolved = item.getAnswers().stream().anyMatch(Answer::isCorrect);
+                setText((resolved ? "[Resolved] " : "") + item.getBody());
+                setWrapText(true);
+                setPrefWidth(0);
+            }
+        });
+        relatedListView.setOnMouseClicked(e -> {
+            Question related = relatedListView.getSelectionModel().getSelectedItem();
+            if (related == null) {
+                return;
+            }
+            if (!questionListView.getItems().contains(related)) {
+                questionListView.setItems(questions);
+            }
+            questionListView.getSelectionModel().select(related);
+            questionListView.scrollTo(related);
+        });
+        questionListView.getSelectionModel().selectedItemProperty().addListener(
+                (observable, previous, selected) -> relatedListView.setItems(loadRelatedQuestions(selected)));
+        
+        VBox relatedBox = new VBox(5, relatedLabel, relatedListView);
+        VBox.setVgrow(relatedListView, Priority.ALWAYS);
+        HBox questionArea = new HBox(10, questionListView, relatedBox);
+        HBox.setHgrow(questionListView, Priority.ALWAYS);
+        
+        layout.getChildren().addAll(questionArea, searchBox, buttonContainer, backButton);
         
         // Add a quit button to the button container in the createScene method
         Button quitButton = new Button("Quit Application");
@@ -724,7 +850,173 @@ public class QandAPage {
         // Add the quit button to the buttonContainer
         buttonContainer.getChildren().add(quitButton);
         
-        return new Scene(layout, 1024, 600);
+        // Keep the lists current as questions, answers and reviews change, here or elsewhere
+        Scene scene = new Scene(layout, 1024, 600);
+        LiveChanges.follow(primaryStage, scene, changes -> applyChanges(changes, questionListView));
+        return scene;
+    }
+    
+    /**
+     * Applies database row changes to the question and review lists. Rows this page already
+     * shows as they are, like a question the user just asked, are left alone, and each changed
+     * question is replaced in the list once, so only its own row is redrawn.
+     * 
+     * @param changes The changed rows, oldest first
+     * @param questionListView The ListView showing the questions
+     */
+    private void applyChanges(List<ChangeFeed.Change> changes, ListView<Question> questionListView) {
+        Map<Integer, Question> questionsById = questionsById();
+        Set<Question> changed = new LinkedHashSet<>();
+        for (ChangeFeed.Change change : changes) {
+            int id = change.getId();
+            boolean deleted = change.getKind() == ChangeFeed.Kind.DELETE;
+            switch (change.getTable()) {
+                case QUESTIONS: {
+                    Question question = questionsById.get(id);
+                    if (deleted) {
+                        if (question != null) {
+                            questions.remove(question);
+                            questionListView.getItems().remove(question);
+                            questionIDs.remove(question);
+                            questionsById.remove(id);
+                            changed.remove(question);
+                        }
+                    } else if (question == null) {
+                        question = new Question(change.getString("body"), change.getString("askedBy"));
+                        // The list is newest first
+                        questions.add(0, question);
+                        questionIDs.put(question, id);
+                        questionsById.put(id, question);
+                    } else if (!question.getBody().equals(change.getString("body"))) {
+                        question.setBody(change.getString("body"));
+                        changed.add(question);
+                    }
+                    break;
+                }
+                case ANSWERS: {
+                    Question question = questionsById.get(change.getParentId());
+                    if (question != null && applyAnswerChange(question, change)) {
+                        changed.add(question);
+                    }
+                    break;
+                }
+                case REVIEWS:
+                    applyReviewChange(change);
+                    break;
+                default:
+                    break;
+            }
+        }
+        for (Question question : changed) {
+            questionChanged(questionListView, question);
+        }
+    }
+    
+    /**
+     * Applies an inserted, updated or deleted answer row to its question.
+     * 
+     * @param question The answer's question
+     * @param change The changed row
+     * @return true if the question's answers changed
+     */
+    private boolean applyAnswerChange(Question question, ChangeFeed.Change change) {
+        Answer answer = null;
+        for (Answer candidate : question.getAnswers()) {
+            if (candidate.getId() == change.getId()) {
+                answer = candidate;
+            }
+        }
+        if (answer == null && change.getKind() == ChangeFeed.Kind.INSERT) {
+            // An answer given on this page has no ID yet; the row for it is the one with its text
+            for (Answer candidate : question.getAnswers()) {
+                if (candidate.getId() == 0 && candidate.getText().equals(change.getString("text"))
+                        && candidate.getAnsweredBy().equals(change.getString("answeredBy"))) {
+                    candidate.setId(change.getId());
+                    return false;
+                }
+            }
+        }
+        if (change.getKind() == ChangeFeed.Kind.DELETE) {
+            return answer != null && question.getAnswers().remove(answer);
+        }
+        int upvotes = change.getInt("upVote");
+        int downvotes = change.getInt("downVote");
+        if (answer == null) {
+            answer = new Answer(change.getString("text"), change.getString("answeredBy"));
+            answer.setId(change.getId());
+            answer.setUpvote(upvotes);
+            answer.setDownvote(downvotes);
+            if (change.getBoolean("isCorrect")) {
+                answer.markAsCorrect();
+            }
+            question.addAnswer(answer);
+            return true;
+        }
+        boolean updated = false;
+        if (!answer.getText().equals(change.getString("text"))) {
+            answer.setText(change.getString("text"));
+            updated = true;
+        }
+        if (answer.getUpvotes() != upvotes || answer.getDownvotes() != downvotes) {
+            question.updateAnswerVotes(answer, upvotes, downvotes);
+            updated = true;
+        }
+        if (change.getBoolean("isCorrect") && !answer.isCorrect()) {
+            question.markAnswerCorrect(answer);
+            updated = true;
+        }
+        return updated;
+    }
+    
+    /**
+     * Applies an inserted, updated or deleted review row to the review list.
+     * 
+     * @param change The changed row
+     */
+    private void applyReviewChange(ChangeFeed.Change change) {
+        Review review = null;
+        for (Map.Entry<Review, Integer> entry : reviewIDs.entrySet()) {
+            if (entry.getValue() == change.getId()) {
+                review = entry.getKey();
+            }
+        }
+        if (change.getKind() == ChangeFeed.Kind.DELETE) {
+            if (review != null) {
+                reviews.remove(review);
+                reviewIDs.remove(review);
+            }
+        } else if (review == null) {
+            review = new Review(change.getString("text"), change.getString("reviewer"), change.getParentId());
+            reviews.add(review);
+            reviewIDs.put(review, change.getId());
+        } else if (!review.getReviewBody().equals(change.getString("text"))) {
+            review.setReviewBody(change.getString("text"));
+            int index = reviews.indexOf(review);
+            if (index != -1) {
+                reviews.set(index, review);
+            }
+        }
+    }
+    
+    /**
+     * Redraws a question that changed in place by replacing it in the lists that show it, which
+     * updates just its row instead of the whole list.
+     * 
+     * @param questionListView The ListView showing the questions
+     * @param question The changed question
+     */
+    private void questionChanged(ListView<Question> questionListView, Question question) {
+        int index = questions.indexOf(question);
+        if (index != -1) {
+            questions.set(index, question);
+        }
+        ObservableList<Question> shown = questionListView.getItems();
+        if (shown != questions) {
+            index = shown.indexOf(question);
+            if (index != -1) {
+                shown.set(index, question);
+            }
+        }
     }
     
     /**
@@ -797,24 +1089,138 @@ public class QandAPage {
             return;
         }
 
+        // Time building and showing the home page for the flight recorder
         if (currentUser.hasRole("instructor")) {
             // Route to InstructorHomePage
-            InstructorHomePage instructorPage = new InstructorHomePage();
-            instructorPage.show(primaryStage, databaseHelper, currentUser);
+            PageNavigationEvent.navigate("QandAPage", "InstructorHomePage",
+                    () -> new InstructorHomePage().show(primaryStage, databaseHelper, currentUser));
         } else if (currentUser.hasRole("student")) {
             // Route to UserHomePage
-            UserHomePage userPage = new UserHomePage();
-            userPage.show(primaryStage, currentUser);
+            PageNavigationEvent.navigate("QandAPage", "UserHomePage",
+                    () -> new UserHomePage().show(primaryStage, currentUser));
         } else if (currentUser.hasRole("reviewer")) {
         	// Route to UserHomePage
-        	ReviewerHomePage reviewerPage = new ReviewerHomePage();
-        	reviewerPage.show(primaryStage, currentUser);
+        	PageNavigationEvent.navigate("QandAPage", "ReviewerHomePage",
+        	        () -> new ReviewerHomePage().show(primaryStage, currentUser));
         } else {
             // Default fallback - could show error or a generic page
             showErrorMessage("Error", "Unknown user role, can't navigate to appropriate page.");
         }
     }
     
+    /**
+     * Looks up the hottest questions among the loaded ones.
+     * 
+     * @return The questions, hottest first
+     */
+    private ObservableList<Question> loadHotQuestions() {
+        Map<Integer, Question> questionsById = questionsById();
+        ObservableList<Question> hotQuestions = FXCollections.observableArrayList();
+        for (int questionId : databaseHelper.getHotQuestionIds(HOT_QUESTION_COUNT)) {
+            Question question = questionsById.get(questionId);
+            if (question != null) {
+                hotQuestions.add(question);
+            }
+        }
+        return hotQuestions;
+    }
+    
+    /**
+     * Opens a window listing the results of a search across all content. Choosing a question, answer
+     * or review shows its question in the main list.
+     * 
+     * @param searchTerm The text that was searched for
+     * @param results The results, best first
+     * @param questionListView The main question list
+     */
+    private void showGlobalSearchResults(String searchTerm, List<GlobalSearch.Result> results, ListView<Question> questionListView) {
+        Stage resultStage = new Stage();
+        resultStage.setTitle("Search Results: " + searchTerm);
+        
+        ListView<GlobalSearch.Result> resultListView = new ListView<>(FXCollections.observableArrayList(results));
+        resultListView.setPrefSize(600, 400);
+        resultListView.setCellFactory(list -> new ListCell<GlobalSearch.Result>() {
+            @Override
+            protected void updateItem(GlobalSearch.Result item, boolean empty) {
+                super.updateItem(item, empty);
+                if (empty || item == null) {
+                    setText(null);
+                    return;
+                }
+                String type = item.getType().name().charAt(0) + item.getType().name().substring(1).toLowerCase();
+                setText("[" + type + "] " + item.getText());
+                setWrapText(true);
+                setPrefWidth(0);
+            }
+        });
+        resultListView.setOnMouseClicked(e -> {
+            GlobalSearch.Result result = resultListView.getSelectionModel().getSelectedItem();
+            if (result == null) {
+                return;
+            }
+            int questionId;
+            switch (result.getType()) {
+                case QUESTION:
+                case ANSWER:
+                    questionId = result.getOwnerId();
+                    break;
+                case REVIEW:
+                    questionId = databaseHelper.getQuestionIdForAnswer(result.getOwnerId());
+                    break;
+                default:
+                    // Messages are opened from the Messages page
+                    return;
+            }
+            Question question = questionsById().get(questionId);
+            if (question != null) {
+                questionListView.setItems(questions);
+                questionListView.getSelectionModel().select(question);
+                questionListView.scrollTo(question);
+            }
+        });
+        
+        VBox resultLayout = new VBox(10, new Label(results.size() + " result(s)"), resultListView);
+        resultLayout.setPadding(new Insets(10));
+        VBox.setVgrow(resultListView, Priority.ALWAYS);
+        resultStage.setScene(new Scene(resultLayout));
+        resultStage.show();
+    }
+    
+    /**
+     * Looks up the loaded questions most similar to a question and its accepted answers.
+     * 
+     * @param question The selected question, or null
+     * @return The related questions, most similar first
+     */
+    private ObservableList<Question> loadRelatedQuestions(Question question) {
+        ObservableList<Question> relatedQuestions = FXCollections.observableArrayList();
+        Integer questionId = question == null ? null : questionIDs.get(question);
+        if (questionId == null) {
+            return relatedQuestions;
+        }
+        Map<Integer, Question> questionsById = questionsById();
+        for (RelatedQuestionIndex.Related related : databaseHelper.getRelatedQuestions(questionId, RELATED_QUESTION_COUNT)) {
+            Question relatedQuestion = questionsById.get(related.getQuestionId());
+            if (relatedQuestion != null) {
+                relatedQuestions.add(relatedQuestion);
+            }
+        }
+        return relatedQuestions;
+    }
+    
+    /**
+     * Indexes the loaded questions by their database IDs.
+     * 
+     * @return The questions by ID
+     */
+    private Map<Integer, Question> questionsById() {
+        Map<Integer, Question> questionsById = new HashMap<>();
+        for (Map.Entry<Question, Integer> entry : questionIDs.entrySet()) {
+            questionsById.put(entry.getValue(), entry.getKey());
+        }
+        return questionsById;
+    }
+    
     /**
      * Loads questions from the database and populates the questions list.
      * If no questions exist in the database, creates and saves some default questions.
@@ -887,7 +1293,7 @@ public class QandAPage {
             if (!validationResult.isValid()) {
                 showErrorMessage("Invalid Question", validationResult.getMessage());
             }
-            else {
+            else if (confirmNotDuplicate(questionText)) {
                 // Create question object and store to DB
                 Question newQuestion = new Question(questionText, currentUser.getUserName());    // obtain username
                 int questionID = databaseHelper.saveQuestion(newQuestion);
@@ -902,6 +1308,31 @@ public class QandAPage {
         });
     }
     
+    /**
+     * Shows the user any existing questions worded nearly the same as the one they are about to ask,
+     * so they can read those instead of posting a duplicate.
+     * 
+     * @param questionText The text of the new question
+     * @return true if there are no similar questions or the user chose to post anyway
+     */
+    private boolean confirmNotDuplicate(String questionText) {
+        List<DuplicateQuestionIndex.Match> similar = databaseHelper.findSimilarQuestions(questionText, 5);
+        if (similar.isEmpty()) {
+            return true;
+        }
+        StringBuilder list = new StringBuilder();
+        for (DuplicateQuestionIndex.Match match : similar) {
+            list.append(String.format("• %s (%.0f%% similar)%n", match.getBody(), match.getSimilarity() * 100));
+        }
+        Alert confirmDialog = new Alert(Alert.AlertType.CONFIRMATION);
+        confirmDialog.setTitle("Similar Questions");
+        confirmDialog.setHeaderText("These questions have already been asked. Post yours anyway?");
+        confirmDialog.setContentText(list.toString());
+        
+        Optional<ButtonType> result = confirmDialog.showAndWait();
+        return result.isPresent() && result.get() == ButtonType.OK;
+    }
+    
     /**
      * Displays a dialog prompting the user to enter an answer to a question.
      * Validates the answer and saves it to the database if valid.
@@ -928,7 +1359,7 @@ public class QandAPage {
                 Question question = questionListView.getItems().get(selectedIndex);
                 Answer answer = new Answer(answerText, currentUser.getUserName());
                 Integer questionID = questionIDs.get(question);
-                System.out.println(questionID);
+                LOG.debug("Answering question {}", questionID);
                 // question ID not cached
                 if (questionID == null) {
                     questionID = -1;
@@ -938,7 +1369,7 @@ public class QandAPage {
                     // database fetch success
                     if (added_answer) {
                         question.addAnswer(answer);
-                        questionListView.refresh();
+                        questionChanged(questionListView, question);
                     }
                     else {
                         showErrorMessage("Database Error", "Something went wrong saving the answer to the database.");
@@ -975,7 +1406,7 @@ public class QandAPage {
                     boolean updated = databaseHelper.updateQuestion(questionID, updatedText);
                     if (updated) {
                         question.setBody(updatedText);
-                        questionListView.refresh();
+                        questionChanged(questionListView, question);
                     } else {
                         showErrorMessage("Database Error", "Failed to update the question in the database.");
                     }
@@ -988,6 +1419,8 @@ public class QandAPage {
     
     /**
      * Searches for questions and answers containing the specified search term.
+     * Questions that use the search words, or words a typo or two away from them, come first,
+     * best match first, followed by any other question containing the term as typed.
      * 
      * @param searchTerm The term to search for
      * @return An ObservableList of questions matching the search criteria
@@ -1001,25 +1434,11 @@ public class QandAPage {
         // Create a new list for search results
         ObservableList<Question> searchResults = FXCollections.observableArrayList();
         
-        // Iterate through all questions
-        for (Question question : questions) {
-            boolean matchFound = false;
-            
-            // Check if search term is in question body
-            if (question.getBody().toLowerCase().contains(searchTerm.toLowerCase())) {
-                matchFound = true;
-            } else {
-                // Check if search term is in any of the answers
-                for (Answer answer : question.getAnswers()) {
-                    if (answer.getText().toLowerCase().contains(searchTerm.toLowerCase())) {
-                        matchFound = true;
-                        break; // No need to check other answers
-                    }
-                }
-            }
-            
-            // Add question to results if it matched
-            if (matchFound) {
+        // The matching IDs come from the database, cached until a post that could change them is saved
+        Map<Integer, Question> questionsById = questionsById();
+        for (int questionId : databaseHelper.searchQuestionIds(searchTerm)) {
+            Question question = questionsById.get(questionId);
+            if (question != null) {
                 searchResults.add(question);
             }
         }
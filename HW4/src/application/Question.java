@@ -135,22 +135,120 @@ public class Question {
     }
     
     /**
-     * Adds a new answer to this question.
+     * Adds a new answer to this question at its place in the answer order.
+     * The answer's votes and correctness should be set before it is added; use
+     * {@link #updateAnswerVotes} and {@link #markAnswerCorrect} to change them afterwards.
      *
      * @param answer The answer to add
      */
     public void addAnswer(Answer answer) {
-    	this.answers.add(answer);
+    	this.answers.add(insertionIndex(answer), answer);
+    }
+    
+    /**
+     * Sets an answer's vote counts and moves it to its new place in the answer order.
+     *
+     * @param answer One of this question's answers
+     * @param upvotes The new upvote count
+     * @param downvotes The new downvote count
+     */
+    public void updateAnswerVotes(Answer answer, int upvotes, int downvotes) {
+        answer.setUpvote(upvotes);
+        answer.setDownvote(downvotes);
+        repositionAnswer(answer);
+    }
+    
+    /**
+     * Marks an answer as correct and moves it up with the other correct answers.
+     *
+     * @param answer One of this question's answers
+     */
+    public void markAnswerCorrect(Answer answer) {
+        answer.markAsCorrect();
+        repositionAnswer(answer);
     }
     
     /**
      * Sorts the answers associated with this question.
-     * Answers are sorted first by correctness (correct answers first), then by score (upvotes minus downvotes, in descending order).
+     * The list is kept in order as answers are added and voted on, so this is only needed after
+     * several answers have been changed directly.
      */
     public void sortAnswers() {
-        FXCollections.sort(answers, Comparator
-                .comparing(Answer::isCorrect, Comparator.reverseOrder()) // Correct answers first
-                .thenComparing(a -> a.getUpvotes() - a.getDownvotes(), Comparator.reverseOrder())); // Sort by score
+        FXCollections.sort(answers, ANSWER_ORDER);
+    }
+    
+    /**
+     * Order of a question's answers: correct answers first, then by {@link #answerScore} from
+     * highest to lowest. Answers that compare equal stay in the order they were added.
+     */
+    public static final Comparator<Answer> ANSWER_ORDER = Comparator
+            .comparing(Answer::isCorrect, Comparator.reverseOrder())
+            .thenComparing(Question::answerScore, Comparator.reverseOrder());
+    
+    /** z value for a 95% confidence interval, used by {@link #answerScore} */
+    private static final double Z = 1.96;
+    
+    /**
+     * Scores an answer by the lower bound of the Wilson score interval for its share of upvotes.
+     * Unlike upvotes minus downvotes, this does not rank an answer with 3 of 3 votes up above one
+     * with 90 of 100, and it does not rank a heavily voted, divisive answer above a well-liked one.
+     *
+     * @param answer The answer
+     * @return A score between 0 and 1; 0 for an answer with no votes
+     */
+    public static double answerScore(Answer answer) {
+        int n = answer.getUpvotes() + answer.getDownvotes();
+        if (n <= 0) {
+            return 0;
+        }
+        double p = (double) answer.getUpvotes() / n;
+        double z2 = Z * Z;
+        return (p + z2 / (2 * n) - Z * Math.sqrt((p * (1 - p) + z2 / (4 * n)) / n)) / (1 + z2 / n);
+    }
+    
+    /**
+     * Moves an answer whose votes or correctness changed to its new place, if it is out of order.
+     *
+     * @param answer One of this question's answers
+     */
+    private void repositionAnswer(Answer answer) {
+        int index = -1;
+        for (int i = 0; i < answers.size(); i++) {
+            if (answers.get(i) == answer) {
+                index = i;
+                break;
+            }
+        }
+        if (index < 0) {
+            return;
+        }
+        boolean afterPrevious = index == 0 || ANSWER_ORDER.compare(answers.get(index - 1), answer) <= 0;
+        boolean beforeNext = index == answers.size() - 1 || ANSWER_ORDER.compare(answer, answers.get(index + 1)) <= 0;
+        if (afterPrevious && beforeNext) {
+            return;
+        }
+        answers.remove(index);
+        answers.add(insertionIndex(answer), answer);
+    }
+    
+    /**
+     * Finds where an answer belongs in the ordered list, after any answers that compare equal to it.
+     *
+     * @param answer The answer
+     * @return The index to insert it at
+     */
+    private int insertionIndex(Answer answer) {
+        int low = 0;
+        int high = answers.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (ANSWER_ORDER.compare(answers.get(middle), answer) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
     }
     
     /** Flag indicating whether this question has been marked as sensitive */
@@ -1,5 +1,8 @@
 package application;
 
+import java.util.Collection;
+import java.util.List;
+
 /**
  * Validator class for Questions and Answers.
  * 
@@ -18,6 +21,33 @@ public class QuestionValidator {
     
     /** Maximum allowed length for an answer in characters. */
     public static final int MAX_ANSWER_LENGTH = 500;
+    
+    /** Default SQL injection patterns, matched without regard to case, used until staff configure their own. */
+    public static final List<String> SQL_INJECTION_PATTERNS = List.of(
+        "drop table", "delete from", "insert into", "update ", "select ", ";", "--", "/*", "*/",
+        "exec ", "execute ", "xp_", "sp_");
+    
+    /** Scanner compiled from the current patterns and shared by all validators; replaced when the patterns change. */
+    private static volatile PatternScanner sqlInjectionScanner = new PatternScanner(SQL_INJECTION_PATTERNS);
+
+    /**
+     * Replaces the SQL injection patterns, compiling them into a new scanner.
+     * Validations already running finish with the previous scanner.
+     * 
+     * @param patterns The patterns to look for, matched without regard to case
+     */
+    public static void setSQLInjectionPatterns(Collection<String> patterns) {
+        sqlInjectionScanner = new PatternScanner(patterns);
+    }
+
+    /**
+     * Returns the SQL injection patterns currently in use.
+     * 
+     * @return The patterns, in lower case
+     */
+    public static List<String> getSQLInjectionPatterns() {
+        return sqlInjectionScanner.getPatterns();
+    }
 
     /**
      * Validates if the provided question text meets all requirements.
@@ -91,20 +121,13 @@ public class QuestionValidator {
 
     /**
      * Checks if the provided text contains common SQL injection patterns.
+     * All patterns are checked in a single pass over the text.
      * 
      * @param text The text to check for SQL injection patterns
      * @return true if potential SQL injection is detected, false otherwise
      */
-    private static boolean containsSQLInjection(String text) {
-        String text_lowercase = text.toLowerCase();
-        String[] patterns = {"drop table", "delete from", "insert into", "update ", "select ", ";", "--", "/*", "*/", "exec ", "execute ", "xp_", "sp_"};
-
-        for (String pattern : patterns) {
-            if (text_lowercase.contains(pattern)) {
-                return true;
-            }
-        }
-        return false;
+    static boolean containsSQLInjection(String text) {
+        return sqlInjectionScanner.containsAny(text);
     }
 
     /**
@@ -96,21 +96,12 @@ public class ReviewValidator {
 
     /**
      * Checks if the given text contains common SQL injection patterns.
-     * This is a simple pattern-matching check for basic SQL keywords and syntax.
+     * Uses the same precompiled pattern set as {@link QuestionValidator}.
      *
      * @param text the text to check for SQL injection patterns
      * @return true if potential SQL injection is detected, false otherwise
      */
     private static boolean containsSQLInjection(String text) {
-        String text_lowercase = text.toLowerCase();
-        String[] patterns = {"drop table", "delete from", "insert into", "update ", "select ", ";", 
-                            "--", "/*", "*/", "exec ", "execute ", "xp_", "sp_"};
-
-        for (String pattern : patterns) {
-            if (text_lowercase.contains(pattern)) {
-                return true;
-            }
-        }
-        return false;
+        return QuestionValidator.containsSQLInjection(text);
     }
 }
\ No newline at end of file
@@ -121,7 +121,7 @@ public class ReviewWindow {
         }
         
         // Custom cell factory to include trust checkbox
-        answerReviewsListView.setCellFactory(lv -> new ListCell<Review>() {
+        answerReviewsListView.setCellFactory(lv -> new TracedListCell<Review>("ReviewWindow") {
             /** Checkbox for marking reviewers as trusted */
             private CheckBox trustCheckBox = new CheckBox();
             
@@ -226,9 +226,7 @@ public class ReviewWindow {
              * @param empty Whether the cell is empty
              */
             @Override
-            protected void updateItem(Review item, boolean empty) {
-                super.updateItem(item, empty);
-                
+            protected void render(Review item, boolean empty) {
                 if (empty || item == null) {
                     setText(null);
                     setGraphic(null);
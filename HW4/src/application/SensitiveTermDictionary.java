@@ -0,0 +1,228 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled dictionary of moderation terms used to flag sensitive content automatically.
+ * <p>
+ * Every term is matched exactly as a whole word or phrase, without regard to case, through a single
+ * {@link PatternScanner}, so a term such as "exam" does not flag "example".
+ * Single-word terms of at least {@value #MIN_FUZZY_LENGTH} characters are also matched fuzzily:
+ * a word in the text that is one edit (insertion, deletion, or substitution) away from the term
+ * counts as a hit, which catches common misspellings and simple evasion. Fuzzy lookups use a
+ * precomputed index of each term with one character deleted, so the cost per word does not grow
+ * with the number of terms.
+ * </p>
+ * A dictionary is immutable and can be shared between threads.
+ */
+public class SensitiveTermDictionary {
+    /** Shortest single-word term that is also matched fuzzily. */
+    public static final int MIN_FUZZY_LENGTH = 5;
+
+    /** The terms in this dictionary. */
+    private final List<String> terms;
+
+    /** Exact, case-insensitive matcher for all of the terms. */
+    private final PatternScanner scanner;
+
+    /** Each fuzzy term and each of its one-deletion variants, mapped to the terms they came from. */
+    private final Map<String, List<String>> deletionIndex = new HashMap<>();
+
+    /**
+     * Compiles a dictionary from the given terms. Blank terms are ignored.
+     *
+     * @param terms The moderation terms
+     */
+    public SensitiveTermDictionary(Collection<String> terms) {
+        List<String> cleaned = new ArrayList<>();
+        for (String term : terms) {
+            if (term != null && !term.trim().isEmpty()) {
+                cleaned.add(term.trim().toLowerCase());
+            }
+        }
+        this.scanner = new PatternScanner(cleaned);
+        this.terms = scanner.getPatterns();
+
+        for (String term : this.terms) {
+            if (term.length() >= MIN_FUZZY_LENGTH && isWord(term)) {
+                indexVariant(term, term);
+                for (int i = 0; i < term.length(); i++) {
+                    indexVariant(deleteAt(term, i), term);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the terms in this dictionary, in lower case.
+     *
+     * @return An unmodifiable list of the terms
+     */
+    public List<String> getTerms() {
+        return terms;
+    }
+
+    /**
+     * Returns whether this dictionary has no terms.
+     *
+     * @return true if there are no terms, false otherwise
+     */
+    public boolean isEmpty() {
+        return terms.isEmpty();
+    }
+
+    /**
+     * Checks whether the text contains any term, exactly or with a one-character misspelling.
+     *
+     * @param text The text to check
+     * @return true if the text should be flagged as sensitive, false otherwise
+     */
+    public boolean matches(CharSequence text) {
+        if (text == null || terms.isEmpty()) {
+            return false;
+        }
+        if (scanner.containsAnyWord(text)) {
+            return true;
+        }
+        if (deletionIndex.isEmpty()) {
+            return false;
+        }
+
+        // Fuzzy pass over each word of the text
+        int length = text.length();
+        int start = -1;
+        for (int i = 0; i <= length; i++) {
+            boolean letter = i < length && Character.isLetterOrDigit(text.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                if (i - start >= MIN_FUZZY_LENGTH - 1 && fuzzyMatch(text.subSequence(start, i).toString().toLowerCase())) {
+                    return true;
+                }
+                start = -1;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks a single lower case word against the fuzzy terms.
+     *
+     * @param word The word to check
+     * @return true if the word is within one edit of a fuzzy term
+     */
+    private boolean fuzzyMatch(String word) {
+        if (withinOneEdit(word, deletionIndex.get(word))) {
+            return true;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if (withinOneEdit(word, deletionIndex.get(deleteAt(word, i)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether the word is within one edit of any of the candidate terms.
+     * The deletion index can pair words that are two edits apart (such as a transposition),
+     * so each candidate is verified.
+     *
+     * @param word The word to check
+     * @param candidates The candidate terms, or null if there are none
+     * @return true if one of the candidates is within one edit of the word
+     */
+    private static boolean withinOneEdit(String word, List<String> candidates) {
+        if (candidates == null) {
+            return false;
+        }
+        for (String term : candidates) {
+            if (isWithinOneEdit(word, term)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether two strings differ by at most one insertion, deletion, or substitution.
+     *
+     * @param a The first string
+     * @param b The second string
+     * @return true if the edit distance between the strings is at most one
+     */
+    static boolean isWithinOneEdit(String a, String b) {
+        if (Math.abs(a.length() - b.length()) > 1) {
+            return false;
+        }
+        if (a.length() < b.length()) {
+            String swap = a;
+            a = b;
+            b = swap;
+        }
+        int i = 0;
+        while (i < b.length() && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        if (i == b.length()) {
+            return true;
+        }
+        if (a.length() == b.length()) {
+            return a.regionMatches(i + 1, b, i + 1, a.length() - i - 1);
+        }
+        return a.regionMatches(i + 1, b, i, b.length() - i);
+    }
+
+    /**
+     * Adds one entry to the deletion index.
+     *
+     * @param variant The term or one of its deletion variants
+     * @param term The term the variant came from
+     */
+    private void indexVariant(String variant, String term) {
+        List<String> sources = deletionIndex.computeIfAbsent(variant, k -> new ArrayList<>(1));
+        if (!sources.contains(term)) {
+            sources.add(term);
+        }
+    }
+
+    /**
+     * Returns the string with the character at the given index removed.
+     *
+     * @param s The string
+     * @param index The index of the character to remove
+     * @return The shortened string
+     */
+    private static String deleteAt(String s, int index) {
+        return s.substring(0, index) + s.substring(index + 1);
+    }
+
+    /**
+     * Checks whether a term is a single word made of letters and digits.
+     *
+     * @param term The term to check
+     * @return true if the term is a single word
+     */
+    private static boolean isWord(String term) {
+        for (int i = 0; i < term.length(); i++) {
+            if (!Character.isLetterOrDigit(term.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns an empty dictionary.
+     *
+     * @return A dictionary with no terms
+     */
+    public static SensitiveTermDictionary empty() {
+        return new SensitiveTermDictionary(Collections.emptyList());
+    }
+}
@@ -23,6 +23,9 @@ import java.util.Set;
  * to validate inputs and create new user accounts.
  */
 public class SetupAccountPage {
+
+    /** Logger for this class's messages and errors */
+    private static final Log LOG = Log.get(SetupAccountPage.class);
 	
     /**
      * Database helper instance used for all database operations.
@@ -147,8 +150,8 @@ public class SetupAccountPage {
             	}
             	
             } catch (SQLException e) {
-                System.err.println("Database error: " + e.getMessage());
-                e.printStackTrace();
+                LOG.error("Database error: {}", e.getMessage());
+                LOG.error(e);
             }
         });
 
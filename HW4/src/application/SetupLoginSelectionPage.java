@@ -21,6 +21,9 @@ import databasePart1.*;
  * This class handles user authentication and validates credentials against the database.
  */
 public class SetupLoginSelectionPage {
+
+    /** Logger for this class's messages and errors */
+    private static final Log LOG = Log.get(SetupLoginSelectionPage.class);
     
     /**
      * Database helper instance used for database operations like user validation and role retrieval.
@@ -132,8 +135,8 @@ public class SetupLoginSelectionPage {
                 }
                 
             } catch (SQLException e) {
-                System.err.println("Database error: " + e.getMessage());
-                e.printStackTrace();
+                LOG.error("Database error: {}", e.getMessage());
+                LOG.error(e);
             } 
         });
         
@@ -197,6 +197,13 @@ public class StaffHomePage {
             sensitiveManager.show();
         });
         
+        // Announcement button
+        Button announcementButton = new Button("Send Announcement");
+        announcementButton.setStyle("-fx-font-size: 14px; -fx-padding: 8 15;");
+        announcementButton.setOnAction(e -> {
+            new AnnouncementWindow(databaseHelper, currentUser).show();
+        });
+        
         // Navigation buttons
         Button backButton = new Button("Back");
         backButton.setStyle("-fx-font-size: 14px; -fx-padding: 8 15;");
@@ -221,12 +228,13 @@ public class StaffHomePage {
             staffLabel, 
             qandaButton, 
             directMessageButton, 
+            announcementButton,
             userManagementBox,
             sensitiveContentButton,
             navButtonBox
         );
         
-        Scene staffScene = new Scene(layout, 800, 600); // Increased height for the new components
+        Scene staffScene = new Scene(layout, 800, 650); // Increased height for the new components
         
         // Set the scene to primary stage
         primaryStage.setScene(staffScene);
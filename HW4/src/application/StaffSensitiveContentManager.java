@@ -1,6 +1,7 @@
 package application;
 
 import databasePart1.*;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.geometry.Insets;
@@ -14,7 +15,12 @@ import javafx.scene.paint.Color;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 /**
  * StaffSensitiveContentManager provides functionality for staff members to manage
@@ -22,6 +28,8 @@ import java.util.Map;
  * contain potentially sensitive information.
  * <p>
  * The class offers a UI for viewing all content and toggling sensitivity flags.
+ * Staff can also maintain the list of moderation terms that {@link ContentModerator}
+ * uses to flag new content automatically, and re-scan existing content after changing it.
  * </p>
  */
 public class StaffSensitiveContentManager {
@@ -41,6 +49,12 @@ public class StaffSensitiveContentManager {
     /** Map to store question objects and their database IDs */
     private Map<Question, Integer> questionIDs;
     
+    /** Bitmap of sensitive question IDs, loaded together with the questions */
+    private BitSet sensitiveQuestions;
+    
+    /** Bitmap of sensitive answer IDs, loaded together with the answers */
+    private BitSet sensitiveAnswers;
+    
     /**
      * Constructs a new StaffSensitiveContentManager with the specified parameters.
      * 
@@ -77,11 +91,10 @@ public class StaffSensitiveContentManager {
         loadQuestions();
 
         ListView<Question> questionListView = new ListView<>(questions);
-        questionListView.setCellFactory(lv -> new ListCell<Question>() {
+        questionListView.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        questionListView.setCellFactory(lv -> new TracedListCell<Question>("StaffSensitiveContentManager") {
             @Override
-            protected void updateItem(Question item, boolean empty) {
-                super.updateItem(item, empty);
-                
+            protected void render(Question item, boolean empty) {
                 if (empty || item == null) {
                     setText(null);
                     setGraphic(null);
@@ -103,7 +116,7 @@ public class StaffSensitiveContentManager {
                     
 
                     Integer questionId = questionIDs.get(item);
-                    boolean isSensitive = questionId != null && databaseHelper.isQuestionSensitive(questionId);
+                    boolean isSensitive = questionId != null && sensitiveQuestions.get(questionId);
                     
                     Label sensitiveLabel = new Label("SENSITIVE");
                     sensitiveLabel.setStyle("-fx-text-fill: red; -fx-font-weight: bold;");
@@ -121,6 +134,7 @@ public class StaffSensitiveContentManager {
                                     questionId, sensitiveToggle.isSelected());
                             
                             if (success) {
+                                sensitiveQuestions.set(questionId, sensitiveToggle.isSelected());
                                 sensitiveLabel.setVisible(sensitiveToggle.isSelected());
                             }
                             else {
@@ -153,7 +167,7 @@ public class StaffSensitiveContentManager {
                             answerAuthorLabel.setStyle("-fx-font-style: italic;");
                             
                             // Sensitive flag
-                            boolean isAnswerSensitive = databaseHelper.isAnswerSensitive(answer.getId());
+                            boolean isAnswerSensitive = sensitiveAnswers.get(answer.getId());
                             
                             Label answerSensitiveLabel = new Label("SENSITIVE");
                             answerSensitiveLabel.setStyle("-fx-text-fill: red; -fx-font-weight: bold;");
@@ -169,6 +183,7 @@ public class StaffSensitiveContentManager {
                                         answer.getId(), answerSensitiveToggle.isSelected());
                                 
                                 if (success) {
+                                    sensitiveAnswers.set(answer.getId(), answerSensitiveToggle.isSelected());
                                     answerSensitiveLabel.setVisible(answerSensitiveToggle.isSelected());
                                 }
                                 else {
@@ -188,6 +203,27 @@ public class StaffSensitiveContentManager {
             }
         });
         
+        // Bulk actions on the selected questions
+        CheckBox includeAnswersBox = new CheckBox("Include answers");
+        includeAnswersBox.setSelected(true);
+        
+        Button flagSelectedButton = new Button("Flag Selected");
+        flagSelectedButton.setOnAction(e -> {
+            bulkSetSensitivity(questionListView.getSelectionModel().getSelectedItems(), true, includeAnswersBox.isSelected());
+            questionListView.refresh();
+        });
+        
+        Button unflagSelectedButton = new Button("Unflag Selected");
+        unflagSelectedButton.setOnAction(e -> {
+            bulkSetSensitivity(questionListView.getSelectionModel().getSelectedItems(), false, includeAnswersBox.isSelected());
+            questionListView.refresh();
+        });
+        
+        HBox bulkBox = new HBox(15, new Label("Ctrl/Shift-click to select several questions:"),
+                flagSelectedButton, unflagSelectedButton, includeAnswersBox);
+        bulkBox.setAlignment(Pos.CENTER);
+        bulkBox.setPadding(new Insets(10, 0, 0, 0));
+        
         // Buttons
         Button refreshButton = new Button("Refresh");
         refreshButton.setOnAction(e -> {
@@ -195,17 +231,45 @@ public class StaffSensitiveContentManager {
             questionListView.setItems(questions);
         });
         
+        Button termsButton = new Button("Moderation Terms");
+        termsButton.setOnAction(e -> showTermsDialog());
+        
+        Button patternsButton = new Button("Injection Patterns");
+        patternsButton.setOnAction(e -> showInjectionPatternsDialog());
+        
+        Button rescanButton = new Button("Re-scan All Content");
+        rescanButton.setOnAction(e -> {
+            rescanButton.setDisable(true);
+            // Scanning the whole corpus can take a while, so keep it off the UI thread
+            Thread rescanThread = new Thread(() -> {
+                int flagged = ContentModerator.rescanAll();
+                Platform.runLater(() -> {
+                    rescanButton.setDisable(false);
+                    if (flagged < 0) {
+                        showErrorMessage("Database Error", "Failed to re-scan content.");
+                    }
+                    else {
+                        showInfoMessage("Re-scan Complete", flagged + " item(s) were newly flagged as sensitive.");
+                        loadQuestions();
+                        questionListView.setItems(questions);
+                    }
+                });
+            }, "content-rescan");
+            rescanThread.setDaemon(true);
+            rescanThread.start();
+        });
+        
         Button closeButton = new Button("Close");
         closeButton.setOnAction(e -> managerStage.close());
         
-        HBox buttonBox = new HBox(15, refreshButton, closeButton);
+        HBox buttonBox = new HBox(15, refreshButton, termsButton, patternsButton, rescanButton, closeButton);
         buttonBox.setAlignment(Pos.CENTER);
         buttonBox.setPadding(new Insets(15, 0, 0, 0));
         
 
         mainLayout.setTop(headerBox);
         mainLayout.setCenter(questionListView);
-        mainLayout.setBottom(buttonBox);
+        mainLayout.setBottom(new VBox(bulkBox, buttonBox));
         
         Scene scene = new Scene(mainLayout, 800, 600);
         managerStage.setScene(scene);
@@ -213,10 +277,13 @@ public class StaffSensitiveContentManager {
     }
     
     /**
-     * Loads questions from the database.
+     * Loads questions, their answers and all sensitivity flags from the database in one query.
      */
     private void loadQuestions() {
-        Map<Question, Integer> loadedQuestionIDs = databaseHelper.loadAllQuestionsWithIDs();
+        sensitiveQuestions = new BitSet();
+        sensitiveAnswers = new BitSet();
+        Map<Question, Integer> loadedQuestionIDs = databaseHelper.loadAllQuestionsWithSensitivity(
+                sensitiveQuestions, sensitiveAnswers);
         
         questions = FXCollections.observableArrayList();
         questionIDs = loadedQuestionIDs;
@@ -226,6 +293,142 @@ public class StaffSensitiveContentManager {
         }
     }
     
+    /**
+     * Flags or unflags many questions, and optionally all of their answers, with one batched
+     * statement per table, then updates the local bitmaps to match.
+     * 
+     * @param selected The selected questions
+     * @param isSensitive Whether the content should be marked as sensitive
+     * @param includeAnswers Whether the answers to the selected questions are updated too
+     */
+    private void bulkSetSensitivity(List<Question> selected, boolean isSensitive, boolean includeAnswers) {
+        List<Integer> questionIdList = new ArrayList<>();
+        List<Integer> answerIdList = new ArrayList<>();
+        for (Question question : selected) {
+            Integer questionId = questionIDs.get(question);
+            if (questionId != null) {
+                questionIdList.add(questionId);
+            }
+            if (includeAnswers) {
+                for (Answer answer : question.getAnswers()) {
+                    answerIdList.add(answer.getId());
+                }
+            }
+        }
+        
+        if (questionIdList.isEmpty()) {
+            showErrorMessage("No Selection", "Please select one or more questions first.");
+            return;
+        }
+        
+        boolean success = databaseHelper.setQuestionsSensitivity(questionIdList, isSensitive)
+                && databaseHelper.setAnswersSensitivity(answerIdList, isSensitive);
+        if (!success) {
+            showErrorMessage("Database Error", "Failed to update sensitivity flags.");
+            return;
+        }
+        
+        for (int questionId : questionIdList) {
+            sensitiveQuestions.set(questionId, isSensitive);
+        }
+        for (int answerId : answerIdList) {
+            sensitiveAnswers.set(answerId, isSensitive);
+        }
+    }
+    
+    /**
+     * Shows a dialog for viewing, adding and removing moderation terms.
+     * New content is checked against the terms as soon as it is saved; existing content
+     * is only checked again when "Re-scan All Content" is used.
+     */
+    private void showTermsDialog() {
+        showListDialog("Moderation Terms", "Content containing these terms, or a close misspelling, is flagged automatically.",
+                "New term or phrase", "term", ContentModerator::getTerms, ContentModerator::addTerm, ContentModerator::removeTerm);
+    }
+    
+    /**
+     * Shows a dialog for viewing, adding and removing the SQL injection patterns that questions,
+     * answers and reviews are rejected for. Changes apply to the next text that is validated.
+     */
+    private void showInjectionPatternsDialog() {
+        showListDialog("Injection Patterns", "Questions, answers and reviews containing these patterns are rejected.",
+                "New pattern, e.g. \"union select\"", "pattern", databaseHelper::getInjectionPatterns,
+                databaseHelper::addInjectionPattern, databaseHelper::removeInjectionPattern);
+    }
+    
+    /**
+     * Shows a dialog for viewing, adding and removing the entries of a list kept in the database.
+     * 
+     * @param title The title of the dialog
+     * @param header The text explaining what the entries do
+     * @param prompt The prompt shown in the field for a new entry
+     * @param noun The name of one entry, used in error messages
+     * @param load Reads the entries
+     * @param add Adds an entry, returning false if it failed
+     * @param remove Removes an entry, returning false if it failed
+     */
+    private void showListDialog(String title, String header, String prompt, String noun, Supplier<List<String>> load,
+            Predicate<String> add, Predicate<String> remove) {
+        Dialog<Void> dialog = new Dialog<>();
+        dialog.setTitle(title);
+        dialog.setHeaderText(header);
+        dialog.getDialogPane().getButtonTypes().add(ButtonType.CLOSE);
+        
+        ListView<String> termList = new ListView<>(FXCollections.observableArrayList(load.get()));
+        termList.setPrefHeight(250);
+        
+        TextField termField = new TextField();
+        termField.setPromptText(prompt);
+        
+        Button addButton = new Button("Add");
+        addButton.setOnAction(e -> {
+            String term = termField.getText();
+            if (!term.trim().isEmpty()) {
+                if (add.test(term)) {
+                    termList.setItems(FXCollections.observableArrayList(load.get()));
+                    termField.clear();
+                }
+                else {
+                    showErrorMessage("Database Error", "Failed to add the " + noun + ".");
+                }
+            }
+        });
+        termField.setOnAction(e -> addButton.fire());
+        
+        Button removeButton = new Button("Remove Selected");
+        removeButton.setOnAction(e -> {
+            String selected = termList.getSelectionModel().getSelectedItem();
+            if (selected != null) {
+                if (remove.test(selected)) {
+                    termList.setItems(FXCollections.observableArrayList(load.get()));
+                }
+                else {
+                    showErrorMessage("Database Error", "Failed to remove the " + noun + ".");
+                }
+            }
+        });
+        
+        HBox addBox = new HBox(10, termField, addButton);
+        VBox content = new VBox(10, termList, addBox, removeButton);
+        content.setPadding(new Insets(10));
+        dialog.getDialogPane().setContent(content);
+        dialog.showAndWait();
+    }
+    
+    /**
+     * Displays an information message dialog with the specified title and content.
+     * 
+     * @param title The title of the information dialog
+     * @param content The content of the information dialog
+     */
+    private void showInfoMessage(String title, String content) {
+        Alert alert = new Alert(Alert.AlertType.INFORMATION);
+        alert.setTitle(title);
+        alert.setHeaderText(null);
+        alert.setContentText(content);
+        alert.showAndWait();
+    }
+    
     /**
      * Displays an error message dialog with the specified title and content.
      * 
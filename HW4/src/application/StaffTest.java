@@ -3,6 +3,8 @@ package application;
 import static org.junit.jupiter.api.Assertions.*;
 import org.junit.jupiter.api.*;
 import java.sql.SQLException;
+import java.util.BitSet;
+import java.util.List;
 import java.util.Map;
 import java.util.HashSet;
 import java.util.Set;
@@ -271,6 +273,30 @@ public class StaffTest {
         databaseHelper.deleteQuestion(question);
     }
 
+    @Test
+    public void testBulkSensitivityLoadedAsBitmap() {
+        Question first = new Question("First bulk sensitivity question?", testUser.getUserName());
+        Question second = new Question("Second bulk sensitivity question?", testUser.getUserName());
+        int firstId = databaseHelper.saveQuestion(first);
+        int secondId = databaseHelper.saveQuestion(second);
+        
+        // Flag both in one batch and check the flags come back with the content
+        assertTrue(databaseHelper.setQuestionsSensitivity(List.of(firstId, secondId), true),
+            "Bulk flagging should succeed");
+        BitSet sensitiveQuestions = new BitSet();
+        BitSet sensitiveAnswers = new BitSet();
+        Map<Question, Integer> loaded = databaseHelper.loadAllQuestionsWithSensitivity(sensitiveQuestions, sensitiveAnswers);
+        assertTrue(loaded.containsValue(firstId) && loaded.containsValue(secondId), "Both questions should be loaded");
+        assertTrue(sensitiveQuestions.get(firstId) && sensitiveQuestions.get(secondId),
+            "Bitmap should hold the flags of both questions");
+        
+        assertTrue(databaseHelper.setQuestionsSensitivity(List.of(firstId, secondId), false),
+            "Bulk unflagging should succeed");
+        assertFalse(databaseHelper.isQuestionSensitive(firstId), "Question should no longer be sensitive");
+        databaseHelper.deleteQuestion(first);
+        databaseHelper.deleteQuestion(second);
+    }
+
     @Test
     public void testBanStatusPersistence() {
         boolean banResult = databaseHelper.banUser(regularUser.getUserName());
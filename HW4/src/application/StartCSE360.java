@@ -4,6 +4,7 @@ import javafx.application.Application;
 import javafx.stage.Stage;
 import java.sql.SQLException;
 import databasePart1.DatabaseHelper;
+import databasePart1.Log;
 
 /**
  * Main application class that serves as the entry point for the CSE360 application.
@@ -15,6 +16,9 @@ import databasePart1.DatabaseHelper;
  * @version 1.0
  */
 public class StartCSE360 extends Application {
+
+    /** Logger for this class's messages and errors */
+    private static final Log LOG = Log.get(StartCSE360.class);
     /**
      * Database helper instance used for all database operations throughout the application.
      * This is a singleton instance shared across the application.
@@ -67,7 +71,7 @@ public class StartCSE360 extends Application {
                 new SetupLoginSelectionPage(databaseHelper).show(primaryStage);
             }
         } catch (SQLException e) {
-            System.out.println(e.getMessage());
+            LOG.error(e.getMessage());
         }
     }
 }
\ No newline at end of file
@@ -1,15 +1,47 @@
 package application;
+import api.ApiServer;
+import api.Json;
+import databasePart1.ChangeFeed;
+import databasePart1.ContentModerator;
 import databasePart1.DatabaseHelper;
 import databasePart1.DatabaseHelperDM;
+import databasePart1.DatabaseMetrics;
+import databasePart1.DatabaseServer;
+import databasePart1.DuplicateQuestionIndex;
+import databasePart1.EntityCache;
+import databasePart1.FuzzySearchIndex;
+import databasePart1.GlobalSearch;
+import databasePart1.HotQuestionFeed;
+import databasePart1.Log;
+import databasePart1.RelatedQuestionIndex;
+import databasePart1.SearchResultCache;
+import databasePart1.SlowQueryLog;
 import javafx.collections.ObservableList;
 import javafx.scene.control.ListView;
 
 import static org.junit.jupiter.api.Assertions.*;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.Test;
@@ -373,8 +405,647 @@ class TestCases {
         assertEquals(66, review.getReviewScore(), "Review score should calculate percentage of helpful votes");
     }
 
+    
+    /*  TEST CASE 31
+     *  Tests that group chat messages are unread per member until each member reads them.  */
+    @Test
+    public void testGroupChatUnreadTracking() throws SQLException {
+        Set<String> roles = new HashSet<>();
+        roles.add("student");
+        for (String name : new String[] {"groupa", "groupb", "groupc"}) {
+            if (!databaseHelper.doesUserExist(name)) {
+                databaseHelper.register(new User(name, name, roles));
+            }
+        }
+        DatabaseHelperDM dmHelper = new DatabaseHelperDM(databaseHelper.getConnection());
+        int a = dmHelper.getUserIdByName("groupa");
+        int b = dmHelper.getUserIdByName("groupb");
+        int c = dmHelper.getUserIdByName("groupc");
+        
+        int chatId = dmHelper.createGroupChat("Study Group", a, List.of(b, c));
+        assertTrue(chatId > 0, "Group chat should be created");
+        assertTrue(DatabaseHelperDM.sendMessage(chatId, a, "Meet at the library?") > 0, "Member should be able to send");
+        assertEquals(0, dmHelper.getUnreadMessageCount(chatId, a), "Sender has no unread messages");
+        assertEquals(1, dmHelper.getUnreadMessageCount(chatId, b), "Every other member has the message unread");
+        assertEquals(1, dmHelper.getUnreadMessageCount(chatId, c), "Every other member has the message unread");
+        
+        dmHelper.markMessagesAsRead(chatId, b);
+        assertEquals(0, dmHelper.getUnreadMessageCount(chatId, b), "Reading clears only the reader's unread count");
+        assertEquals(1, dmHelper.getUnreadMessageCount(chatId, c), "Other members are unaffected by one member reading");
+        assertNotEquals(Integer.valueOf(chatId), DatabaseHelperDM.getChatBetweenUsers(a, b), "A group chat is not a direct chat");
+        
+        assertEquals(List.of("groupa", "groupb", "groupc"), List.copyOf(dmHelper.getChatMembers(chatId).values()), "Every member should be listed");
+        assertTrue(dmHelper.removeChatParticipant(chatId, c), "A member should be removable");
+        assertFalse(dmHelper.getChatMembers(chatId).containsKey(c), "A removed member should no longer be listed");
+        
+        dmHelper.deleteChat(chatId);
+        databaseHelper.deleteUser("groupa");
+        databaseHelper.deleteUser("groupb");
+        databaseHelper.deleteUser("groupc");
+    }
+
+    /*  TEST CASE 32
+     *  Tests that an announcement reaches only the chosen role and is unread for each recipient.  */
+    @Test
+    public void testBroadcastAnnouncementToRole() throws SQLException {
+        Set<String> staffRoles = new HashSet<>();
+        staffRoles.add("staff");
+        Set<String> segmentRoles = new HashSet<>();
+        segmentRoles.add("announcetest");
+        if (!databaseHelper.doesUserExist("announcer")) {
+            databaseHelper.register(new User("announcer", "announcer", staffRoles));
+        }
+        for (String name : new String[] {"listenera", "listenerb"}) {
+            if (!databaseHelper.doesUserExist(name)) {
+                databaseHelper.register(new User(name, name, segmentRoles));
+            }
+        }
+        DatabaseHelperDM dmHelper = new DatabaseHelperDM(databaseHelper.getConnection());
+        int sender = dmHelper.getUserIdByName("announcer");
+        int a = dmHelper.getUserIdByName("listenera");
+        int b = dmHelper.getUserIdByName("listenerb");
+        
+        int recipients = DatabaseHelperDM.broadcastAnnouncement(sender, "Exam moved", "The exam is now on Friday.", "announcetest");
+        assertEquals(2, recipients, "Only users with the chosen role should receive the announcement");
+        
+        List<Map<String, Object>> inbox = dmHelper.getInboxMessages(a, 0, 10);
+        assertEquals(1, inbox.size(), "Recipient should have the announcement in their inbox");
+        int chatId = (int) inbox.get(0).get("chat_id");
+        assertEquals(1, dmHelper.getUnreadMessageCount(chatId, a), "Announcement should be unread for each recipient");
+        assertEquals(1, dmHelper.getUnreadMessageCount(chatId, b), "Announcement should be unread for each recipient");
+        assertEquals(0, dmHelper.getInboxMessages(sender, 0, 10).size(), "Sender should not receive their own announcement");
+        assertTrue(dmHelper.isReadOnlyChat(chatId), "An announcement should be read-only");
+        assertEquals(-1, DatabaseHelperDM.sendMessage(chatId, a, "Thanks!"), "A recipient should not be able to reply to everyone");
+        assertTrue(databaseHelper.getAllRoles().contains("announcetest"), "Roles should be read from the users' roles");
+        
+        dmHelper.deleteChat(chatId);
+        databaseHelper.deleteUser("announcer");
+        databaseHelper.deleteUser("listenera");
+        databaseHelper.deleteUser("listenerb");
+    }
+
+    /*  TEST CASE 33
+     *  Tests that SQL injection patterns are caught in any letter case and that extra terms can be added.  */
+    @Test
+    public void testPatternScanner() {
+        assertFalse(QuestionValidator.validateQuestion("How do I DROP TABLE students?").isValid(), "Upper case SQL should be rejected");
+        assertFalse(ReviewValidator.validateReview("nice answer -- thanks").isValid(), "Reviews should use the same patterns");
+        assertTrue(QuestionValidator.validateQuestion("How do I drop a class?").isValid(), "Ordinary text should be accepted");
+        
+        PatternScanner scanner = new PatternScanner(List.of("he", "she", "hers"))
+                .withPatterns(List.of("Cheat"));
+        assertEquals(List.of("she", "he", "hers"), scanner.findMatches("uSHErs"), "Overlapping patterns should all be found");
+        assertTrue(scanner.containsAny("no CHEATING"), "Added patterns should match without regard to case");
+        assertFalse(scanner.containsAny("no match at all"), "Text without any pattern should not match");
+        
+        assertTrue(databaseHelper.addInjectionPattern("truncate table"), "Staff should be able to add a pattern");
+        try {
+            assertFalse(QuestionValidator.validateQuestion("When should I TRUNCATE TABLE rows?").isValid(), "An added pattern should be rejected right away");
+        } finally {
+            databaseHelper.removeInjectionPattern("truncate table");
+        }
+        assertTrue(QuestionValidator.validateQuestion("When should I TRUNCATE TABLE rows?").isValid(), "A removed pattern should be accepted again");
+    }
+
+    /*  TEST CASE 34
+     *  Tests that new content containing a moderation term, even misspelled, is flagged automatically.  */
+    @Test
+    public void testAutomaticSensitiveFlagging() {
+        assertTrue(ContentModerator.addTerm("plagiarism"), "Staff should be able to add a moderation term");
+        
+        Question flagged = new Question("Is plagiarsm allowed on homework?", studentTest.getUserName());
+        Question clean = new Question("When is homework due?", studentTest.getUserName());
+        int flaggedId = databaseHelper.saveQuestion(flagged);
+        int cleanId = databaseHelper.saveQuestion(clean);
+        assertTrue(ContentModerator.awaitIdle(5000), "Moderation queue should drain");
+        
+        assertTrue(databaseHelper.isQuestionSensitive(flaggedId), "A close misspelling of a term should be flagged");
+        assertFalse(databaseHelper.isQuestionSensitive(cleanId), "Content without any term should not be flagged");
+        
+        databaseHelper.deleteQuestion(flagged);
+        databaseHelper.deleteQuestion(clean);
+        ContentModerator.removeTerm("plagiarism");
+        
+        SensitiveTermDictionary exam = new SensitiveTermDictionary(List.of("exam", "answer key"));
+        assertTrue(exam.matches("Who has the Exam?"), "A term should match as a whole word");
+        assertTrue(exam.matches("selling the answer key!"), "A phrase should match as a whole");
+        assertFalse(exam.matches("Here is an example"), "A term inside a longer word should not match");
+    }
+
+    /*  TEST CASE 35
+     *  Tests that database operations are counted and timed under the method that ran them.  */
+    @Test
+    public void testDatabaseMetrics() throws SQLException {
+        DatabaseMetrics.OperationSnapshot before = DatabaseMetrics.snapshot("DatabaseHelper.doesUserExist");
+        long statementsBefore = before == null ? 0 : before.getStatements();
+        
+        databaseHelper.doesUserExist(studentTest.getUserName());
+        assertFalse(databaseHelper.doesUserExist("nosuchuser"), "Unknown user should not exist");
+        
+        DatabaseMetrics.OperationSnapshot after = DatabaseMetrics.snapshot("DatabaseHelper.doesUserExist");
+        assertNotNull(after, "The operation should have counters");
+        assertEquals(statementsBefore + 2, after.getStatements(), "Each call should count one statement");
+        assertTrue(after.getRowsReturned() >= 2, "Rows read from the results should be counted");
+        assertTrue(after.getMaxMillis() >= after.getP50Millis(), "Latency percentiles should be ordered");
+        assertTrue(DatabaseMetrics.snapshot().stream().anyMatch(m -> m.getOperation().equals("DatabaseHelper.doesUserExist")),
+                   "The operation should be listed in the full snapshot");
+        
+        DatabaseMetrics.OperationSnapshot emptyBefore = DatabaseMetrics.snapshot("DatabaseHelper.isDatabaseEmpty");
+        long emptyStatements = emptyBefore == null ? 0 : emptyBefore.getStatements();
+        assertFalse(databaseHelper.isDatabaseEmpty(), "The test users should be in the database");
+        assertEquals(emptyStatements + 1, DatabaseMetrics.snapshot("DatabaseHelper.isDatabaseEmpty").getStatements(),
+                     "A query should be recorded once its results are closed");
+    }
+
+    /*  TEST CASE 36
+     *  Tests that a statement over the threshold is logged with its SQL, parameters and plan,
+     *  and that string parameters are redacted unless turned on.  */
+    @Test
+    public void testSlowQueryLog() {
+        long threshold = SlowQueryLog.getThresholdMillis();
+        SlowQueryLog.setThresholdMillis(0);
+        try {
+            databaseHelper.doesUserExist("slowlogtest");
+            SlowQueryLog.setLogStringParameters(true);
+            databaseHelper.doesUserExist("slowlogtest");
+        } finally {
+            SlowQueryLog.setLogStringParameters(false);
+            SlowQueryLog.setThresholdMillis(threshold);
+        }
+        assertTrue(SlowQueryLog.awaitIdle(5000), "Slow-query log should drain");
+        
+        List<SlowQueryLog.SlowQuery> entries = SlowQueryLog.recent().stream()
+                .filter(q -> q.getOperation().equals("DatabaseHelper.doesUserExist"))
+                .collect(Collectors.toList());
+        assertTrue(entries.size() >= 2, "Both statements should be in the recent slow queries");
+        assertEquals("['" + SlowQueryLog.REDACTED + "']", entries.get(1).getParameters(),
+                     "String parameters should be redacted by default");
+        SlowQueryLog.SlowQuery entry = entries.get(0);
+        assertEquals("['slowlogtest']", entry.getParameters(), "String parameters should be logged when turned on");
+        assertEquals("DatabaseHelper.doesUserExist", entry.getOperation(), "The entry should name the operation");
+        assertTrue(entry.getSql().contains("cse360users"), "The entry should keep the SQL");
+        assertEquals(1, entry.getRows(), "The entry should count the rows returned");
+        assertTrue(entry.getPlan().toUpperCase().contains("CSE360USERS"), "The entry should include the query plan");
+    }
+
+    /*  TEST CASE 37
+     *  Tests that database calls and page navigations show up in a flight recording.  */
+    @Test
+    public void testFlightRecorderEvents() throws Exception {
+        Path file = Files.createTempFile("cse360", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("cse360.DatabaseCall");
+            recording.enable("cse360.PageNavigation");
+            recording.start();
+            databaseHelper.doesUserExist("jfrtest");
+            PageNavigationEvent.navigate("TestCases", "TestPage", () -> { });
+            recording.stop();
+            recording.dump(file);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        Files.delete(file);
+        
+        assertTrue(events.stream().anyMatch(e -> e.getEventType().getName().equals("cse360.DatabaseCall")
+                && "DatabaseHelper.doesUserExist".equals(e.getString("operation")) && e.getLong("rows") == 1),
+                   "The database call should be recorded with its operation and rows");
+        assertTrue(events.stream().anyMatch(e -> e.getEventType().getName().equals("cse360.PageNavigation")
+                && "TestPage".equals(e.getString("toPage"))),
+                   "The navigation should be recorded with its destination");
+    }
+
+    /*  TEST CASE 38
+     *  Tests that log messages are formatted and printed by the background writer, below-level messages are dropped,
+     *  and a bare exception is reported with the method it came from.  */
+    @Test
+    public void testAsyncLog() {
+        Log log = Log.get(TestCases.class);
+        PrintStream originalOut = System.out;
+        PrintStream originalErr = System.err;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream err = new ByteArrayOutputStream();
+        Log.Level level = Log.getLevel();
+        try {
+            Log.flush(1000);
+            System.setOut(new PrintStream(out, true));
+            System.setErr(new PrintStream(err, true));
+            Log.setLevel(Log.Level.INFO);
+            log.info("Loaded {} of {} rows", 3, 5);
+            log.debug("This should not be printed");
+            log.error(new SQLException("test failure"));
+            assertTrue(Log.flush(5000), "The writer should catch up");
+        } finally {
+            System.setOut(originalOut);
+            System.setErr(originalErr);
+            Log.setLevel(level);
+        }
+        
+        assertTrue(out.toString().contains("INFO  [" + Thread.currentThread().getName() + "] TestCases - Loaded 3 of 5 rows"), "The message should be formatted with its arguments");
+        assertFalse(out.toString().contains("should not be printed"), "Debug messages should be dropped at INFO");
+        assertTrue(err.toString().contains("TestCases.testAsyncLog failed: java.sql.SQLException: test failure"),
+                   "The exception should name the method it came from");
+    }
+
+    /*  TEST CASE 39
+     *  Tests that answers are kept in order as they are added and voted on: correct first, then by Wilson score.  */
+    @Test
+    public void testAnswerOrdering() {
+        Question question = new Question("Which answer is best?", studentTest.getUserName());
+        Answer fewVotes = new Answer("Three of three", studentTest.getUserName());
+        fewVotes.setUpvote(3);
+        Answer manyVotes = new Answer("Ninety of a hundred", studentTest.getUserName());
+        manyVotes.setUpvote(90);
+        manyVotes.setDownvote(10);
+        Answer noVotes = new Answer("No votes yet", studentTest.getUserName());
+        question.addAnswer(noVotes);
+        question.addAnswer(fewVotes);
+        question.addAnswer(manyVotes);
+        assertEquals(List.of(manyVotes, fewVotes, noVotes), question.getAnswers(),
+                     "A well-voted answer should rank above one with only a few votes");
+        
+        question.updateAnswerVotes(noVotes, 500, 1);
+        assertEquals(noVotes, question.getAnswers().get(0), "An answer should move up when it is voted on");
+        
+        question.markAnswerCorrect(fewVotes);
+        assertEquals(List.of(fewVotes, noVotes, manyVotes), question.getAnswers(), "The correct answer should come first");
+    }
+
+    /*  TEST CASE 40
+     *  Tests that the hot question feed moves a question up as it is voted on and drops it when it is deleted.  */
+    @Test
+    public void testHotQuestionFeed() {
+        Question quiet = new Question("Hot feed quiet question", studentTest.getUserName());
+        Question busy = new Question("Hot feed busy question", studentTest.getUserName());
+        int quietId = databaseHelper.saveQuestion(quiet);
+        int busyId = databaseHelper.saveQuestion(busy);
+        databaseHelper.getHotQuestionIds(HotQuestionFeed.CAPACITY);
+        
+        for (int i = 0; i < 5; i++) {
+            databaseHelper.recordQuestionVote(busyId, "hotvoter" + i, "upvote");
+        }
+        databaseHelper.saveAnswer(busyId, new Answer("An answer", instructorTest.getUserName()));
+        List<Integer> hot = databaseHelper.getHotQuestionIds(HotQuestionFeed.CAPACITY);
+        assertTrue(hot.contains(busyId), "A question with recent votes and answers should be in the feed");
+        assertTrue(!hot.contains(quietId) || hot.indexOf(busyId) < hot.indexOf(quietId),
+                   "The busier question should rank above the quiet one");
+        
+        databaseHelper.deleteQuestion(busy);
+        databaseHelper.deleteQuestion(quiet);
+        assertFalse(databaseHelper.getHotQuestionIds(HotQuestionFeed.CAPACITY).contains(busyId),
+                    "A deleted question should leave the feed");
+    }
+
+    /*  TEST CASE 41
+     *  Tests that a reworded question is suggested as a duplicate, an unrelated one is not, and edits and deletes are tracked.  */
+    @Test
+    public void testDuplicateQuestionDetection() {
+        Question original = new Question("How do I configure the H2 database driver for the Eclipse project?", studentTest.getUserName());
+        int originalId = databaseHelper.saveQuestion(original);
+        databaseHelper.findSimilarQuestions("warm up the index", 5);
+        
+        List<DuplicateQuestionIndex.Match> similar =
+                databaseHelper.findSimilarQuestions("How do I configure the H2 database drivers in my Eclipse project", 5);
+        assertTrue(similar.stream().anyMatch(m -> m.getQuestionId() == originalId), "A reworded question should be suggested");
+        assertTrue(databaseHelper.findSimilarQuestions("What time does the lecture on Friday start?", 5).stream()
+                .noneMatch(m -> m.getQuestionId() == originalId), "An unrelated question should not be suggested");
+        
+        databaseHelper.updateQuestion(originalId, "What time does the lecture on Friday start?");
+        assertTrue(databaseHelper.findSimilarQuestions("When does the Friday lecture start?", 5).stream()
+                .anyMatch(m -> m.getQuestionId() == originalId), "An edited question should be found by its new text");
+        
+        databaseHelper.deleteQuestion(new Question("What time does the lecture on Friday start?", studentTest.getUserName()));
+        assertTrue(databaseHelper.findSimilarQuestions("What time does the lecture on Friday start?", 5).stream()
+                .noneMatch(m -> m.getQuestionId() == originalId), "A deleted question should not be suggested");
+    }
+
+    /*  TEST CASE 42
+     *  Tests that a question on the same topic is recommended as related and flagged as resolved, and that deletes are tracked.  */
+    @Test
+    public void testRelatedQuestions() {
+        Question opened = new Question("Why does my JavaFX ListView cell factory show blank rows after scrolling?", studentTest.getUserName());
+        int openedId = databaseHelper.saveQuestion(opened);
+        Question similar = new Question("JavaFX ListView shows blank cells when scrolling with a custom cell factory", studentTest.getUserName());
+        Answer accepted = new Answer("Call setText(null) in updateItem when the cell is empty, cells are reused while scrolling.", "instructor");
+        accepted.markAsCorrect();
+        similar.addAnswer(accepted);
+        int similarId = databaseHelper.saveQuestion(similar);
+        Question unrelated = new Question("When is the deadline for the team project report?", studentTest.getUserName());
+        int unrelatedId = databaseHelper.saveQuestion(unrelated);
+        try {
+            databaseHelper.getRelatedQuestions(openedId, 5);
+            assertTrue(RelatedQuestionIndex.awaitIdle(10000), "The index should finish building");
+        
+            List<RelatedQuestionIndex.Related> related = databaseHelper.getRelatedQuestions(openedId, 5);
+            assertTrue(related.stream().anyMatch(r -> r.getQuestionId() == similarId && r.isResolved()),
+                    "A resolved question on the same topic should be recommended");
+            assertTrue(related.stream().noneMatch(r -> r.getQuestionId() == unrelatedId), "An unrelated question should not be recommended");
+        
+            databaseHelper.deleteQuestion(similar);
+            assertTrue(RelatedQuestionIndex.awaitIdle(10000), "The delete should be applied");
+            assertTrue(databaseHelper.getRelatedQuestions(openedId, 5).stream().noneMatch(r -> r.getQuestionId() == similarId),
+                    "A deleted question should not be recommended");
+        } finally {
+            databaseHelper.deleteQuestion(opened);
+            databaseHelper.deleteQuestion(similar);
+            databaseHelper.deleteQuestion(unrelated);
+        }
+    }
+
+    /*  TEST CASE 43
+     *  Tests that words from questions and answers complete a typed prefix and that searches that were run are suggested.  */
+    @Test
+    public void testSearchSuggestions() {
+        Question question = new Question("Which zephyrcompiler flags turn on warnings?", studentTest.getUserName());
+        int questionId = databaseHelper.saveQuestion(question);
+        try {
+            assertTrue(databaseHelper.getSearchSuggestions("zephyrc", 5).contains("zephyrcompiler"), "A word from a question should complete its prefix");
+        
+            databaseHelper.saveAnswer(questionId, new Answer("Pass the zephyrwarnings option.", "instructor"));
+            assertTrue(databaseHelper.getSearchSuggestions("Zephyrw", 5).contains("zephyrwarnings"), "A word from a new answer should be suggested");
+        
+            databaseHelper.recordSearch("zephyrcompiler flags");
+            assertEquals("zephyrcompiler flags", databaseHelper.getSearchSuggestions("zephyrcompiler f", 5).get(0),
+                    "A search that was run should be suggested");
+            assertTrue(databaseHelper.getSearchSuggestions("qqzzxx", 5).isEmpty(), "An unknown prefix should have no suggestions");
+        } finally {
+            databaseHelper.deleteQuestion(question);
+        }
+    }
+
+    /*  TEST CASE 44
+     *  Tests that misspelled searches find questions by their words and their answers' words, exact matches rank first, and deletes are tracked.  */
+    @Test
+    public void testFuzzySearch() {
+        Question question = new Question("How deep can quixotic recursion go before the stack overflows?", studentTest.getUserName());
+        int questionId = databaseHelper.saveQuestion(question);
+        
+        List<FuzzySearchIndex.Hit> hits = databaseHelper.fuzzySearchQuestions("quixotic recusion", 10);
+        assertFalse(hits.isEmpty(), "A misspelled search should find the question");
+        assertEquals(questionId, hits.get(0).getQuestionId(), "The question should be the best match");
+        assertEquals(1, hits.get(0).getEdits(), "One typo should count as one edit");
+        
+        databaseHelper.saveAnswer(questionId, new Answer("Use quixoticmemoization to cut it short.", "instructor"));
+        assertTrue(databaseHelper.fuzzySearchQuestions("quixoticmemoisation", 10).stream().anyMatch(h -> h.getQuestionId() == questionId),
+                "A misspelled word from an answer should find the question");
+        assertTrue(databaseHelper.fuzzySearchQuestions("qqzzxxyy", 10).isEmpty(), "An unknown word should find nothing");
+        
+        databaseHelper.deleteQuestion(question);
+        assertTrue(databaseHelper.fuzzySearchQuestions("quixotic recursion", 10).stream().noneMatch(h -> h.getQuestionId() == questionId),
+                "A deleted question should not be found");
+    }
+
+    /*  TEST CASE 45
+     *  Tests that one search finds questions, answers, reviews and messages, shows messages only to chat members and sensitive content only to staff.  */
+    @Test
+    public void testGlobalSearch() throws SQLException {
+        Set<String> roles = new HashSet<>();
+        roles.add("student");
+        Set<String> staffRoles = new HashSet<>();
+        staffRoles.add("staff");
+        for (String name : new String[] {"searcha", "searchb", "searchc"}) {
+            if (!databaseHelper.doesUserExist(name)) {
+                databaseHelper.register(new User(name, name, roles));
+            }
+        }
+        User member = new User("searcha", "searcha", roles);
+        User outsider = new User("searchc", "searchc", roles);
+        User staff = new User("searchstaff", "searchstaff", staffRoles);
+        DatabaseHelperDM dmHelper = new DatabaseHelperDM(databaseHelper.getConnection());
+        int chatId = DatabaseHelperDM.createChat(dmHelper.getUserIdByName("searcha"), dmHelper.getUserIdByName("searchb"));
+        int messageId = DatabaseHelperDM.sendMessage(chatId, dmHelper.getUserIdByName("searchb"), "Bring the xylograph notes tomorrow");
+        
+        Question question = new Question("Where can I borrow a xylograph kit?", studentTest.getUserName());
+        int questionId = databaseHelper.saveQuestion(question);
+        databaseHelper.saveAnswer(questionId, new Answer("The library lends xylograph kits.", "instructor"));
+        int answerId = databaseHelper.loadAnswersForQuestion(questionId).get(0).getId();
+        int reviewId = databaseHelper.saveReview(new Review("Correct, the xylograph kits are at the front desk.", "reviewer", answerId));
+        ContentModerator.awaitIdle(5000);
+        
+        try {
+            Set<ContentModerator.ContentType> types = new HashSet<>();
+            for (GlobalSearch.Result result : databaseHelper.searchEverything("xylograph", member, 10)) {
+                types.add(result.getType());
+            }
+            assertEquals(Set.of(ContentModerator.ContentType.values()), types, "Every kind of content should be found");
+            assertTrue(databaseHelper.searchEverything("xylograph", outsider, 10).stream().noneMatch(r -> r.getId() == messageId
+                    && r.getType() == ContentModerator.ContentType.MESSAGE), "Messages should only be found by chat members");
+        
+            databaseHelper.setQuestionSensitivity(questionId, true);
+            assertTrue(databaseHelper.searchEverything("borrow xylograph", member, 10).stream().noneMatch(r -> r.getId() == questionId
+                    && r.getType() == ContentModerator.ContentType.QUESTION), "Sensitive content should be hidden from students");
+            assertTrue(databaseHelper.searchEverything("borrow xylograph", staff, 10).stream().anyMatch(r -> r.getId() == questionId
+                    && r.getType() == ContentModerator.ContentType.QUESTION), "Sensitive content should be shown to staff");
+        } finally {
+            databaseHelper.deleteQuestion(question);
+            databaseHelper.deleteReview(reviewId);
+            dmHelper.deleteChat(chatId);
+            for (String name : new String[] {"searcha", "searchb", "searchc"}) {
+                databaseHelper.deleteUser(name);
+            }
+        }
+        assertTrue(databaseHelper.searchEverything("xylograph", staff, 10).stream()
+                .noneMatch(r -> r.getType() == ContentModerator.ContentType.QUESTION || r.getType() == ContentModerator.ContentType.MESSAGE),
+                "Deleted content should not be found");
+    }
+
+    /*  TEST CASE 46
+     *  Tests that a repeated search is served from the cache, and that only posts that could change its results invalidate it.  */
+    @Test
+    public void testSearchResultCache() throws SQLException {
+        Question question = new Question("How long is the quokkalith lab report?", studentTest.getUserName());
+        int questionId = databaseHelper.saveQuestion(question);
+        
+        assertTrue(databaseHelper.searchQuestionIds("quokkalith").contains(questionId), "The question should be found");
+        long hits = SearchResultCache.getHitCount();
+        assertTrue(databaseHelper.searchQuestionIds("Quokkalith ").contains(questionId), "The repeated search should find it again");
+        assertEquals(hits + 1, SearchResultCache.getHitCount(), "The repeated search should come from the cache");
+        
+        Question unrelated = new Question("When are office hours on Friday?", studentTest.getUserName());
+        databaseHelper.saveQuestion(unrelated);
+        databaseHelper.searchQuestionIds("quokkalith");
+        assertEquals(hits + 2, SearchResultCache.getHitCount(), "An unrelated question should keep the search cached");
+        
+        Question similar = new Question("Is the quokkaliht report graded?", studentTest.getUserName());
+        int similarId = databaseHelper.saveQuestion(similar);
+        assertTrue(databaseHelper.searchQuestionIds("quokkalith").contains(similarId), "A question with a close word should invalidate the search");
+        
+        databaseHelper.deleteQuestion(question);
+        assertFalse(databaseHelper.searchQuestionIds("quokkalith").contains(questionId), "A deleted question should invalidate the search");
+        
+        databaseHelper.deleteQuestion(similar);
+        databaseHelper.deleteQuestion(unrelated);
+    }
 
+    /*  TEST CASE 47
+     *  Tests that loading questions and reviews again is served from the entity cache, and that saves, edits, flags and deletes show up in the cached copies.  */
+    @Test
+    public void testEntityCache() {
+        Question question = new Question("Which room is the quillwort study group in?", studentTest.getUserName());
+        int questionId = databaseHelper.saveQuestion(question);
+        ContentModerator.awaitIdle(5000);
+        databaseHelper.loadAllQuestionsWithIDs();
+        long hits = EntityCache.snapshot().get(0).getHits();
+        Map<Question, Integer> loaded = databaseHelper.loadAllQuestionsWithIDs();
+        assertEquals(hits + loaded.size(), EntityCache.snapshot().get(0).getHits(), "Every question should come from the cache the second time");
+        
+        databaseHelper.saveAnswer(questionId, new Answer("Room 210, after the lecture.", "instructor"));
+        assertTrue(databaseHelper.updateQuestion(questionId, "Which room is the quillwort study group in this week?"));
+        Question cached = null;
+        for (Map.Entry<Question, Integer> entry : databaseHelper.loadAllQuestionsWithIDs().entrySet()) {
+            if (entry.getValue() == questionId) {
+                cached = entry.getKey();
+            }
+        }
+        assertNotNull(cached, "The question should be loaded");
+        assertEquals("Which room is the quillwort study group in this week?", cached.getBody(), "The edit should be written through");
+        assertEquals(1, cached.getAnswers().size(), "The new answer should be written through");
+        int answerId = cached.getAnswers().get(0).getId();
+        cached.getAnswers().clear();
+        
+        assertTrue(databaseHelper.setAnswerSensitivity(answerId, true));
+        BitSet sensitiveQuestions = new BitSet();
+        BitSet sensitiveAnswers = new BitSet();
+        Map<Question, Integer> withSensitivity = databaseHelper.loadAllQuestionsWithSensitivity(sensitiveQuestions, sensitiveAnswers);
+        assertTrue(sensitiveAnswers.get(answerId), "The flag should be written through");
+        assertTrue(withSensitivity.entrySet().stream().anyMatch(e -> e.getValue() == questionId && e.getKey().getAnswers().size() == 1),
+                "Changing a loaded copy should not change the cached one");
+        
+        int reviewId = databaseHelper.saveReview(new Review("Room 210 is right.", "reviewer", answerId));
+        databaseHelper.updateReview(reviewId, "Room 210 is right, it moved last week.");
+        assertTrue(DatabaseHelper.getReviewsByAuthor("reviewer").stream()
+                .anyMatch(r -> r.getReviewBody().equals("Room 210 is right, it moved last week.")), "The review edit should be written through");
+        databaseHelper.deleteReview(reviewId);
+        assertFalse(databaseHelper.loadAllReviewsWithIDs().keySet().stream()
+                .anyMatch(r -> r.getAnswerID() == answerId), "The deleted review should be dropped");
+        
+        databaseHelper.deleteQuestion(new Question("Which room is the quillwort study group in this week?", studentTest.getUserName()));
+        assertFalse(databaseHelper.loadAllQuestionsWithIDs().containsValue(questionId), "The deleted question should be dropped");
+    }
+    
+    /*  TEST CASE 48
+     *  Tests that changes made through another connection are delivered by the change feed and applied to the entity cache,
+     *  and that rolled-back changes are not delivered.  */
+    @Test
+    public void testChangeFeed() throws SQLException {
+        int questionId = databaseHelper.saveQuestion(new Question("Is the sundew lab open on Fridays?", studentTest.getUserName()));
+        ContentModerator.awaitIdle(5000);
+        databaseHelper.loadAllQuestionsWithIDs();
+        
+        List<ChangeFeed.Change> received = new CopyOnWriteArrayList<>();
+        ChangeFeed.Subscription subscription = ChangeFeed.subscribe(received::addAll);
+        try (Connection other = databaseHelper.openConnection()) {
+            try (PreparedStatement update = other.prepareStatement("UPDATE Questions SET body = ? WHERE id = ?")) {
+                update.setString(1, "Is the sundew lab open on Fridays and Saturdays?");
+                update.setInt(2, questionId);
+                update.executeUpdate();
+            }
+            try (PreparedStatement insert = other.prepareStatement(
+                    "INSERT INTO Answers (questionId, text, answeredBy) VALUES (?, 'Only on Fridays.', 'instructor')")) {
+                insert.setInt(1, questionId);
+                insert.executeUpdate();
+            }
+            assertTrue(ChangeFeed.awaitIdle(5000), "The changes should be delivered");
+            
+            assertTrue(received.stream().anyMatch(c -> c.getTable() == ChangeFeed.Table.QUESTIONS && c.getKind() == ChangeFeed.Kind.UPDATE
+                    && c.getId() == questionId && c.getString("body").endsWith("and Saturdays?")), "The edit should be delivered");
+            assertTrue(received.stream().anyMatch(c -> c.getTable() == ChangeFeed.Table.ANSWERS && c.getKind() == ChangeFeed.Kind.INSERT
+                    && c.getParentId() == questionId), "The new answer should be delivered");
+            
+            other.setAutoCommit(false);
+            try (PreparedStatement insert = other.prepareStatement(
+                    "INSERT INTO Answers (questionId, text, answeredBy) VALUES (?, 'Never mind.', 'instructor')")) {
+                insert.setInt(1, questionId);
+                insert.executeUpdate();
+            } finally {
+                other.rollback();
+                other.setAutoCommit(true);
+            }
+            assertTrue(ChangeFeed.awaitIdle(5000), "The rollback should be followed");
+            assertFalse(received.stream().anyMatch(c -> "Never mind.".equals(c.getString("text"))), "The rolled-back answer should not be delivered");
+            Question cached = null;
+            for (Map.Entry<Question, Integer> entry : databaseHelper.loadAllQuestionsWithIDs().entrySet()) {
+                if (entry.getValue() == questionId) {
+                    cached = entry.getKey();
+                }
+            }
+            assertNotNull(cached, "The question should be loaded");
+            assertEquals("Is the sundew lab open on Fridays and Saturdays?", cached.getBody(), "The cache should have the other connection's edit");
+            assertEquals(1, cached.getAnswers().size(), "The cache should have the other connection's answer");
+            
+            try (PreparedStatement delete = other.prepareStatement("DELETE FROM Questions WHERE id = ?")) {
+                delete.setInt(1, questionId);
+                delete.executeUpdate();
+            }
+            assertTrue(ChangeFeed.awaitIdle(5000), "The delete should be delivered");
+            assertTrue(received.stream().anyMatch(c -> c.getTable() == ChangeFeed.Table.ANSWERS && c.getKind() == ChangeFeed.Kind.DELETE
+                    && c.getParentId() == questionId), "The cascaded answer delete should be delivered");
+            assertFalse(databaseHelper.loadAllQuestionsWithIDs().containsValue(questionId), "The cache should drop the deleted question");
+        } finally {
+            subscription.close();
+        }
+    }
+    
+    /*  TEST CASE 49
+     *  Tests the database URLs for the embedded, shared and in-memory modes.  */
+    @Test
+    public void testDatabaseModes() {
+        assertEquals(DatabaseServer.Mode.EMBEDDED, DatabaseServer.getMode(), "The tests should use the embedded database");
+        assertEquals("jdbc:h2:~/FoundationDatabase", DatabaseServer.urlFor(DatabaseServer.Mode.EMBEDDED, 9092, "a"));
+        assertTrue(DatabaseServer.urlFor(DatabaseServer.Mode.MEMORY, 9092, "a").startsWith("jdbc:h2:mem:"), "Memory mode should not use a file");
+        String shared = DatabaseServer.urlFor(DatabaseServer.Mode.SERVER, 9300, "client-1");
+        assertTrue(shared.startsWith("jdbc:h2:tcp://localhost:9300/~/FoundationDatabase"), "Server mode should connect to the local server");
+        assertTrue(shared.contains("'client-1'"), "Server mode connections should name their client");
+    }
+    
+    /*  TEST CASE 50
+     *  Tests asking, reading, voting on and deleting a question through the HTTP API, and that only the asker or staff can delete it.  */
     @Test
+    public void testApiServer() throws Exception {
+        Map<String, Object> parsed = Json.readObject(Json.write(Map.of("text", "Say \"hi\"\n", "count", 3)));
+        assertEquals("Say \"hi\"\n", parsed.get("text"), "Strings should survive a JSON round trip");
+        assertEquals(3L, parsed.get("count"), "Numbers should survive a JSON round trip");
+        
+        ApiServer server = new ApiServer(0, 2);
+        server.start();
+        try {
+            HttpClient client = HttpClient.newHttpClient();
+            String base = "http://127.0.0.1:" + server.getPort();
+            HttpResponse<String> asked = client.send(HttpRequest.newBuilder(URI.create(base + "/questions"))
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"body\": \"Does the bladderwort lab need goggles?\", \"askedBy\": \"student\"}"))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(201, asked.statusCode(), asked.body());
+            long questionId = (Long) Json.readObject(asked.body()).get("id");
+            
+            HttpResponse<String> vote = client.send(HttpRequest.newBuilder(URI.create(base + "/questions/" + questionId + "/votes"))
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"userName\": \"student\", \"voteType\": \"upvote\"}"))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, vote.statusCode(), vote.body());
+            
+            HttpResponse<String> read = client.send(HttpRequest.newBuilder(URI.create(base + "/questions/" + questionId)).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, read.statusCode(), read.body());
+            assertTrue(read.body().contains("\"body\":\"Does the bladderwort lab need goggles?\""), "The question should be returned");
+            assertTrue(read.body().contains("\"upvotes\":1"), "The vote should be counted");
+            
+            HttpResponse<String> invalid = client.send(HttpRequest.newBuilder(URI.create(base + "/questions"))
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"askedBy\": \"student\"}"))
+                    .build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(400, invalid.statusCode(), "A question without a body should be rejected");
+            
+            HttpResponse<String> refused = client.send(HttpRequest.newBuilder(URI.create(base + "/questions/" + questionId + "?user=reviewer")).DELETE().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(403, refused.statusCode(), "Someone else's question should not be deleted");
+            HttpResponse<String> deleted = client.send(HttpRequest.newBuilder(URI.create(base + "/questions/" + questionId + "?user=student")).DELETE().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, deleted.statusCode(), deleted.body());
+            HttpResponse<String> missing = client.send(HttpRequest.newBuilder(URI.create(base + "/questions/" + questionId)).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            assertEquals(404, missing.statusCode(), "The deleted question should be gone");
+        } finally {
+            server.stop();
+        }
+    }
+
+        @Test
     public void deleteUsers() {
         databaseHelper.deleteUser("reviewer");
         databaseHelper.deleteUser("student");
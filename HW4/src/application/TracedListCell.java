@@ -0,0 +1,49 @@
+package application;
+
+import javafx.scene.control.ListCell;
+
+/**
+ * A ListCell that records a {@link CellRenderEvent} for every update.
+ * <p>
+ * Subclasses put their rendering code in {@link #render(Object, boolean)} instead of
+ * overriding updateItem. The base class calls ListCell.updateItem first, as an override
+ * would, then the subclass's rendering, and times both.
+ * </p>
+ *
+ * @param <T> The type of the list items
+ */
+public abstract class TracedListCell<T> extends ListCell<T> {
+    /** The page or window the list belongs to */
+    private final String view;
+
+    /**
+     * Creates a cell for a list in the given view.
+     *
+     * @param view The page or window the list belongs to, shown in the recorded events
+     */
+    protected TracedListCell(String view) {
+        this.view = view;
+    }
+
+    @Override
+    protected final void updateItem(T item, boolean empty) {
+        CellRenderEvent event = new CellRenderEvent();
+        event.begin();
+        super.updateItem(item, empty);
+        render(item, empty);
+        if (event.shouldCommit()) {
+            event.view = view;
+            event.itemType = item == null ? null : item.getClass().getSimpleName();
+            event.empty = empty;
+            event.commit();
+        }
+    }
+
+    /**
+     * Updates the cell to show the given item.
+     *
+     * @param item The item to show, or null
+     * @param empty Whether the cell is empty
+     */
+    protected abstract void render(T item, boolean empty);
+}
@@ -2,323 +2,192 @@ package application;
 
 /**
  * <p> Title: FSM-translated UserNameRecognizer. </p>
- * 
- * <p> Description: A demonstration of the mechanical translation of Finite State Machine 
- * diagram into an executable Java program using the UserName Recognizer. The code 
- * detailed design is based on a while loop with a select list</p>
- * 
+ *
+ * <p> Description: A demonstration of the mechanical translation of Finite State Machine
+ * diagram into an executable Java program using the UserName Recognizer. The FSM is encoded
+ * as a character class table and a state transition table, and all of the working state is
+ * held in local variables, so the recognizer can be called from many threads at once.</p>
+ *
  * <p> Copyright: Lynn Robert Carter © 2024 </p>
- * 
+ *
  * @author Lynn Robert Carter
- * 
+ *
  * @version 1.00		2024-09-13	Initial baseline derived from the Even Recognizer
  * @version 1.01		2024-09-17	Correction to address UNChar coding error, improper error
  * 								message, and improve internal documentation
- * 
+ * @version 2.00		2026-10-18	Table-driven and reentrant; the execution trace is removed
+ * 								and the result is returned as a Result value
+ *
  */
 public class UserNameRecognizer {
 
 	/**********************************************************************************************
-	 * 
-	 * Result attributes to be used for GUI applications where a detailed error message and a 
-	 * pointer to the character of the error will enhance the user experience.
-	 * 
+	 *
+	 * Result values to be used for GUI applications where a detailed error message will enhance
+	 * the user experience. Each value carries its own message, so no text is built per call.
+	 *
 	 */
+	public enum Result {
+		/** The UserName is valid */
+		VALID(""),
+		/** The input is empty */
+		EMPTY("\n*** ERROR *** The input is empty"),
+		/** The first character is not a letter */
+		INVALID_START("\n*** ERROR *** A UserName must start with A-Z, a-z.\n"),
+		/** Fewer than 4 characters */
+		TOO_SHORT("\n*** ERROR *** A UserName must have at least 4 characters.\n"),
+		/** More than 16 characters */
+		TOO_LONG("\n*** ERROR *** A UserName must have no more than 16 character.\n"),
+		/** A character outside of A-Z, a-z, 0-9, '.', '-', '_' */
+		INVALID_CHARACTER("\n*** ERROR *** A UserName character may only contain the characters A-Z, a-z, 0-9.\n"),
+		/** A period, dash, or underscore that is not followed by a letter or digit */
+		INVALID_AFTER_SEPARATOR("\n*** ERROR *** A UserName character after a period, dash, or underscore must be A-Z, a-z, 0-9.\n");
 
-	/**
-	 * Stores the error message text when username validation fails
-	 */
-	public static String userNameRecognizerErrorMessage = "";
-	
-	/**
-	 * Stores the input string being processed during validation
-	 */
-	public static String userNameRecognizerInput = "";
-	
-	/**
-	 * Stores the index position of the error in the input string.
-	 * A value of -1 indicates no error was found.
-	 */
-	public static int userNameRecognizerIndexofError = -1;
-	
-	/**
-	 * The current state value in the finite state machine
-	 */
-	private static int state = 0;
-	
-	/**
-	 * The next state value in the finite state machine
-	 */
-	private static int nextState = 0;
-	
-	/**
-	 * Flag indicating whether the current state is a final state
-	 */
-	private static boolean finalState = false;
-	
-	/**
-	 * The input line being processed
-	 */
-	private static String inputLine = "";
-	
-	/**
-	 * The current character being examined in the input line
-	 */
-	private static char currentChar;
-	
-	/**
-	 * The index of the current character in the input line
-	 */
-	private static int currentCharNdx;
-	
-	/**
-	 * Flag indicating whether the finite state machine is running
-	 */
-	private static boolean running;
-	
-	/**
-	 * Tracks the length of the username (must not exceed 16 characters)
-	 */
-	private static int userNameSize = 0;
+		private final String message;
+
+		Result(String message) {
+			this.message = message;
+		}
+
+		/**
+		 * Returns the error message for this result, or an empty string if the UserName is valid.
+		 *
+		 * @return The error message
+		 */
+		public String getMessage() {
+			return message;
+		}
+
+		/**
+		 * Returns whether this result means the UserName is valid.
+		 *
+		 * @return True if the UserName is valid
+		 */
+		public boolean isValid() {
+			return this == VALID;
+		}
+	}
+
+	/** The maximum number of characters in a UserName */
+	private static final int MAX_SIZE = 16;
+
+	/** The minimum number of characters in a UserName */
+	private static final int MIN_SIZE = 4;
+
+	/** Character classes used as the columns of the transition table */
+	private static final int LETTER = 0;
+	private static final int DIGIT = 1;
+	private static final int SEPARATOR = 2;
+	private static final int OTHER = 3;
+
+	/** The FSM halts when a transition leads to this state */
+	private static final int HALT = -1;
 
 	/**
-	 * Displays debugging information about the current state of the finite state machine.
-	 * This includes the current state, whether it's a final state, the current character,
-	 * the next state, and the username size.
+	 * The character class of every ASCII character. Anything outside of ASCII is OTHER.
 	 */
-	private static void displayDebuggingInfo() {
-		// Display the current state of the FSM as part of an execution trace
-		if (currentCharNdx >= inputLine.length())
-			// display the line with the current state numbers aligned
-			System.out.println(((state > 99) ? " " : (state > 9) ? "  " : "   ") + state + 
-					((finalState) ? "       F   " : "           ") + "None");
-		else
-			System.out.println(((state > 99) ? " " : (state > 9) ? "  " : "   ") + state + 
-				((finalState) ? "       F   " : "           ") + "  " + currentChar + " " + 
-				((nextState > 99) ? "" : (nextState > 9) || (nextState == -1) ? "   " : "    ") + 
-				nextState + "     " + userNameSize);
-	}
-	
+	private static final byte[] CHAR_CLASS = new byte[128];
+
 	/**
-	 * Advances the FSM to the next character in the input line.
-	 * If the end of the input is reached, sets the currentChar to a space
-	 * and stops the FSM by setting running to false.
+	 * The transition table, indexed by [state][character class].
+	 * State 0 is the start state, state 1 is inside the name (final), and state 2 follows
+	 * a period, dash, or underscore.
 	 */
-	private static void moveToNextCharacter() {
-		currentCharNdx++;
-		if (currentCharNdx < inputLine.length())
-			currentChar = inputLine.charAt(currentCharNdx);
-		else {
-			currentChar = ' ';
-			running = false;
+	private static final int[][] NEXT_STATE = {
+		// LETTER  DIGIT  SEPARATOR  OTHER
+		{  1,      HALT,  HALT,      HALT },	// State 0
+		{  1,      1,     2,         HALT },	// State 1
+		{  1,      1,     HALT,      HALT },	// State 2
+	};
+
+	static {
+		for (int c = 0; c < CHAR_CLASS.length; c++) {
+			if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z'))
+				CHAR_CLASS[c] = LETTER;
+			else if (c >= '0' && c <= '9')
+				CHAR_CLASS[c] = DIGIT;
+			else if (c == '.' || c == '-' || c == '_')
+				CHAR_CLASS[c] = SEPARATOR;
+			else
+				CHAR_CLASS[c] = OTHER;
 		}
 	}
 
 	/**
-	 * Validates a username string according to the following rules:
+	 * Validates a username according to the following rules:
 	 * <ul>
 	 *   <li>Must start with a letter (A-Z, a-z)</li>
 	 *   <li>Can contain letters (A-Z, a-z), digits (0-9), periods (.), dashes (-), and underscores (_)</li>
 	 *   <li>Characters after a period, dash, or underscore must be letters or digits</li>
 	 *   <li>Must be between 4 and 16 characters in length</li>
 	 * </ul>
-	 * 
-	 * This method implements a finite state machine to validate the username.
-	 * 
-	 * @param input The input string to validate as a username
-	 * @return An empty string if the username is valid, or an error message describing the issue
+	 *
+	 * This method runs the finite state machine without allocating and without touching any
+	 * shared state, so it is safe to call concurrently.
+	 *
+	 * @param input The input to validate as a username
+	 * @return The result of the validation
 	 */
-	public static String checkForValidUserName(String input) {
+	public static Result validate(CharSequence input) {
 		// Check to ensure that there is input to process
-		if(input.length() <= 0) {
-			userNameRecognizerIndexofError = 0;	// Error at first character;
-			return "\n*** ERROR *** The input is empty";
-		}
-		
-		// The local variables used to perform the Finite State Machine simulation
-		state = 0;							// This is the FSM state number
-		inputLine = input;					// Save the reference to the input line as a global
-		currentCharNdx = 0;					// The index of the current character
-		currentChar = input.charAt(0);		// The current character from above indexed position
+		if (input == null || input.length() == 0)
+			return Result.EMPTY;
 
-		// The Finite State Machines continues until the end of the input is reached or at some 
-		// state the current character does not match any valid transition to a next state
+		int length = input.length();
+		int state = 0;						// This is the FSM state number
+		int currentCharNdx = 0;				// The index of the current character
+		int userNameSize = 0;				// The number of characters accepted so far
 
-		userNameRecognizerInput = input;	// Save a copy of the input
-		running = true;						// Start the loop
-		nextState = -1;						// There is no next state
-		System.out.println("\nCurrent Final Input  Next  Date\nState   State Char  State  Size");
-		
-		// This is the place where semantic actions for a transition to the initial state occur
-		
-		userNameSize = 0;					// Initialize the UserName size
-
-		// The Finite State Machines continues until the end of the input is reached or at some 
-		// state the current character does not match any valid transition to a next state
-		while (running) {
-			// The switch statement takes the execution to the code for the current state, where
-			// that code sees whether or not the current character is valid to transition to a
-			// next state
-			switch (state) {
-			case 0: 
-				// State 0 has 1 valid transition that is addressed by an if statement.
-				
-				// The current character is checked against A-Z, a-z. If any are matched
-				// the FSM goes to state 1
-				
-				// A-Z, a-z, 0-9 -> State 1
-				if ((currentChar >= 'A' && currentChar <= 'Z' ) ||		// Check for A-Z
-						(currentChar >= 'a' && currentChar <= 'z' )) {  // Check for a-z
-					nextState = 1;
-					
-					// Count the character 
-					userNameSize++;
-					
-					// This only occurs once, so there is no need to check for the size getting
-					// too large.
-				}
-				// If it is none of those characters, the FSM halts
-				else 
-					running = false;
-				
-				// The execution of this state is finished
+		// The FSM continues until the end of the input is reached, a character does not match
+		// any valid transition, or the UserName grows too long
+		while (currentCharNdx < length) {
+			char currentChar = input.charAt(currentCharNdx);
+			int charClass = currentChar < CHAR_CLASS.length ? CHAR_CLASS[currentChar] : OTHER;
+			int nextState = NEXT_STATE[state][charClass];
+			if (nextState == HALT)
 				break;
-			
-			case 1: 
-				// State 1 has two valid transitions, 
-				//	1: a A-Z, a-z, 0-9 that transitions to State 1
-				//  2: a ., -, or _ that transitions to State 2 
-
-				
-				// A-Z, a-z, 0-9 -> State 1
-				if ((currentChar >= 'A' && currentChar <= 'Z' ) ||		// Check for A-Z
-						(currentChar >= 'a' && currentChar <= 'z' ) ||	// Check for a-z
-						(currentChar >= '0' && currentChar <= '9' )) {	// Check for 0-9
-					nextState = 1;
-					
-					// Count the character
-					userNameSize++;
-				}
-				// ., -, _ -> State 2
-				else if ((currentChar == '.' ) ||     // Check for .
-							(currentChar == '-' ) ||  // Check for -
-							(currentChar == '_' )) {  // Check for _
-					nextState = 2;
-					
-					// Count the ., -, or _
-					userNameSize++;
-				}				
-				// If it is none of those characters, the FSM halts
-				else
-					running = false;
-				
-				// The execution of this state is finished
-				// If the size is larger than 16, the loop must stop
-				if (userNameSize > 16)
-					running = false;
-				break;			
-			
-			case 2: 
-				// State 2 deals with a character after a period in the name.
-				
-				// A-Z, a-z, 0-9 -> State 1
-				if ((currentChar >= 'A' && currentChar <= 'Z' ) ||		// Check for A-Z
-						(currentChar >= 'a' && currentChar <= 'z' ) ||	// Check for a-z
-						(currentChar >= '0' && currentChar <= '9' )) {	// Check for 0-9
-					nextState = 1;
-					
-					// Count the odd digit
-					userNameSize++;
-					
-				}
-				// If it is none of those characters, the FSM halts
-				else 
-					running = false;
 
-				// The execution of this state is finished
-				// If the size is larger than 16, the loop must stop
-				if (userNameSize > 16)
-					running = false;
-				break;			
-			}
-			
-			if (running) {
-				displayDebuggingInfo();
-				// When the processing of a state has finished, the FSM proceeds to the next
-				// character in the input and if there is one, it fetches that character and
-				// updates the currentChar.  If there is no next character the currentChar is
-				// set to a blank.
-				moveToNextCharacter();
-
-				// Move to the next state
-				state = nextState;
-				
-				// Is the new state a final state?  If so, signal this fact.
-				if (state == 2) finalState = true;
+			// Count the character; if the size is larger than 16, the loop must stop
+			userNameSize++;
+			if (userNameSize > MAX_SIZE)
+				break;
 
-				// Ensure that one of the cases sets this to a valid value
-				nextState = -1;
-			}
-			// Should the FSM get here, the loop starts again
-	
+			state = nextState;
+			currentCharNdx++;
 		}
-		displayDebuggingInfo();
-		
-		System.out.println("The loop has ended.");
-		
-		// When the FSM halts, we must determine if the situation is an error or not.  That depends
-		// of the current state of the FSM and whether or not the whole string has been consumed.
-		// This switch directs the execution to separate code for each of the FSM states and that
-		// makes it possible for this code to display a very specific error message to improve the
-		// user experience.
-		userNameRecognizerIndexofError = currentCharNdx;	// Set index of a possible error;
-		userNameRecognizerErrorMessage = "\n*** ERROR *** ";
-		
-		// The following code is a slight variation to support just console output.
+
+		// When the FSM halts, the current state and whether or not the whole string has been
+		// consumed determine which specific error, if any, applies.
 		switch (state) {
 		case 0:
-			// State 0 is not a final state, so we can return a very specific error message
-			userNameRecognizerErrorMessage += "A UserName must start with A-Z, a-z.\n";
-			return userNameRecognizerErrorMessage;
+			// State 0 is not a final state
+			return Result.INVALID_START;
 
 		case 1:
-			// State 1 is a final state.  Check to see if the UserName length is valid.  If so we
-			// we must ensure the whole string has been consumed.
-
-			if (userNameSize < 4) {
-				// UserName is too small
-				userNameRecognizerErrorMessage += "A UserName must have at least 4 characters.\n";
-				return userNameRecognizerErrorMessage;
-			}
-			else if (userNameSize > 16) {
-				// UserName is too long
-				userNameRecognizerErrorMessage += 
-					"A UserName must have no more than 16 character.\n";
-				return userNameRecognizerErrorMessage;
-			}
-			else if (currentCharNdx < input.length()) {
-				// There are characters remaining in the input, so the input is not valid
-				userNameRecognizerErrorMessage += 
-					"A UserName character may only contain the characters A-Z, a-z, 0-9.\n";
-				return userNameRecognizerErrorMessage;
-			}
-			else {
-					// UserName is valid
-					userNameRecognizerIndexofError = -1;
-					userNameRecognizerErrorMessage = "";
-					return userNameRecognizerErrorMessage;
-			}
+			// State 1 is a final state.  Check the UserName length, then ensure the whole
+			// string has been consumed.
+			if (userNameSize < MIN_SIZE)
+				return Result.TOO_SHORT;
+			if (userNameSize > MAX_SIZE)
+				return Result.TOO_LONG;
+			if (currentCharNdx < length)
+				return Result.INVALID_CHARACTER;
+			return Result.VALID;
 
-		case 2:
-			// State 2 is not a final state, so we can return a very specific error message
-			userNameRecognizerErrorMessage +=
-				"A UserName character after a period, dash, or underscore must be A-Z, a-z, 0-9.\n";
-			return userNameRecognizerErrorMessage;
-			
 		default:
-			// This is for the case where we have a state that is outside of the valid range.
-			// This should not happen
-			return "";
+			// State 2 is not a final state
+			return Result.INVALID_AFTER_SEPARATOR;
 		}
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Validates a username and returns the error message for the GUI.
+	 *
+	 * @param input The input string to validate as a username
+	 * @return An empty string if the username is valid, or an error message describing the issue
+	 * @see #validate(CharSequence)
+	 */
+	public static String checkForValidUserName(String input) {
+		return validate(input).getMessage();
+	}
+}
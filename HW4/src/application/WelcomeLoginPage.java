@@ -53,7 +53,8 @@ public class WelcomeLoginPage {
         if(user.hasRole("admin")) {
             Button adminButton = new Button("Go to Admin Page");
             adminButton.setOnAction(a -> {
-                new AdminHomePage().show(primaryStage, databaseHelper, user);
+                PageNavigationEvent.navigate("WelcomeLoginPage", "AdminHomePage", () ->
+                    new AdminHomePage().show(primaryStage, databaseHelper, user));
             });
             layout.getChildren().add(adminButton);
         }
@@ -62,7 +63,8 @@ public class WelcomeLoginPage {
         if(user.hasRole("user")) {
             Button userButton = new Button("Go to User Page");
             userButton.setOnAction(a -> {
-                new UserHomePage().show(primaryStage, user);
+                PageNavigationEvent.navigate("WelcomeLoginPage", "UserHomePage", () ->
+                    new UserHomePage().show(primaryStage, user));
             });
             layout.getChildren().add(userButton);
         }
@@ -71,7 +73,8 @@ public class WelcomeLoginPage {
         if(user.hasRole("student")) {
             Button studentButton = new Button("Go to Student Page");
             studentButton.setOnAction(a -> {
-                new UserHomePage().show(primaryStage, user);
+                PageNavigationEvent.navigate("WelcomeLoginPage", "UserHomePage", () ->
+                    new UserHomePage().show(primaryStage, user));
             });
             layout.getChildren().add(studentButton);
         }
@@ -80,7 +83,8 @@ public class WelcomeLoginPage {
         if(user.hasRole("reviewer")) {
             Button reviewerButton = new Button("Go to Reviewer Page");
             reviewerButton.setOnAction(a -> {
-                new ReviewerHomePage().show(primaryStage, user);
+                PageNavigationEvent.navigate("WelcomeLoginPage", "ReviewerHomePage", () ->
+                    new ReviewerHomePage().show(primaryStage, user));
             });
             layout.getChildren().add(reviewerButton);
         }
@@ -89,7 +93,8 @@ public class WelcomeLoginPage {
         if(user.hasRole("instructor")) {
             Button instructorButton = new Button("Go to Instructor Page");
             instructorButton.setOnAction(a -> {
-                new InstructorHomePage().show(primaryStage, databaseHelper, user);
+                PageNavigationEvent.navigate("WelcomeLoginPage", "InstructorHomePage", () ->
+                    new InstructorHomePage().show(primaryStage, databaseHelper, user));
             });
             layout.getChildren().add(instructorButton);
         }
@@ -97,7 +102,8 @@ public class WelcomeLoginPage {
         if(user.hasRole("staff")) {
             Button staffButton = new Button("Go to Staff Page");
             staffButton.setOnAction(a -> {
-                new StaffHomePage().show(primaryStage, databaseHelper, user);
+                PageNavigationEvent.navigate("WelcomeLoginPage", "StaffHomePage", () ->
+                    new StaffHomePage().show(primaryStage, databaseHelper, user));
             });
             layout.getChildren().add(staffButton);
         }
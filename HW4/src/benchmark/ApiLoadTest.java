@@ -0,0 +1,403 @@
+package benchmark;
+
+import api.Json;
+import databasePart1.LatencyHistogram;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Load test for the HTTP API: many clients calling a running {@link api.ApiServer} at once, so its
+ * throughput can be measured apart from the desktop UI, and compared across server thread counts or
+ * several servers sharing one database.
+ * <p>
+ * Before the run the test reads the newest questions from the server to pick questions, answers,
+ * users and chats from. Each client then repeatedly performs an action drawn from a configurable mix:
+ * opening a question, listing or searching questions, asking, answering, voting, and sending and
+ * reading direct messages. After a warm-up period every request is timed, and the report lists
+ * throughput, latency percentiles and failed requests per action, and responses by HTTP status.
+ * </p>
+ * Start the server first, then run for example:
+ * <pre>
+ * java benchmark.ApiLoadTest url=http://127.0.0.1:8080 clients=64 duration=30 mix=browse:40,vote:30,send:20,answer:10
+ * </pre>
+ */
+public class ApiLoadTest {
+
+    /**
+     * Settings for a load test. Every public field can be set from the command line.
+     */
+    public static class Config {
+        /** Address of the API server */
+        public String url = "http://127.0.0.1:8080";
+        /** Number of concurrent clients, each with its own thread */
+        public int clients = 32;
+        /** Seconds of measured load */
+        public int duration = 30;
+        /** Seconds of unmeasured load before measuring */
+        public int warmup = 5;
+        /** Pause between a client's requests, in milliseconds */
+        public int thinkMillis = 0;
+        /** Relative weight of each action, as {@code action:weight} pairs */
+        public String mix = "browse:35,list:3,search:10,hot:5,ask:3,answer:8,vote:20,questionVote:6,send:6,read:4";
+        /** Number of newest questions the clients pick from */
+        public int questions = 500;
+        /** Seed for the clients' random choices */
+        public long seed = 7;
+
+        /**
+         * Reads settings from {@code key=value} arguments.
+         *
+         * @param args The arguments
+         * @return The settings, with defaults for anything not given
+         */
+        public static Config fromArgs(String[] args) {
+            Config config = new Config();
+            Settings.apply(config, args);
+            return config;
+        }
+    }
+
+    /**
+     * The actions a client can perform, each one request.
+     */
+    public enum Action {
+        /** GET one question with its answers */
+        BROWSE("browse"),
+        /** GET the newest questions */
+        LIST("list"),
+        /** GET a question search */
+        SEARCH("search"),
+        /** GET the hot questions */
+        HOT("hot"),
+        /** POST a question */
+        ASK("ask"),
+        /** POST an answer */
+        ANSWER("answer"),
+        /** POST a vote on an answer */
+        VOTE("vote"),
+        /** POST a vote on a question */
+        QUESTION_VOTE("questionVote"),
+        /** POST a direct message */
+        SEND("send"),
+        /** GET a chat's messages */
+        READ("read");
+
+        private final String key;
+
+        Action(String key) {
+            this.key = key;
+        }
+
+        static Action fromKey(String key) {
+            for (Action action : values()) {
+                if (action.key.equalsIgnoreCase(key)) {
+                    return action;
+                }
+            }
+            throw new IllegalArgumentException("Unknown action: " + key);
+        }
+    }
+
+    /**
+     * Timings and failure counts for one action.
+     */
+    private static class ActionStats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder failures = new LongAdder();
+    }
+
+    /** Words the search action looks for */
+    private static final String[] SEARCH_WORDS = {"exam", "homework", "deadline", "lab", "project", "grade", "lecture", "java"};
+
+    private final Config config;
+    private final Action[] actionTable;
+    private final Map<Action, ActionStats> stats = new EnumMap<>(Action.class);
+
+    /** Responses by HTTP status, or by exception name for requests that got none */
+    private final Map<String, LongAdder> statuses = new ConcurrentHashMap<>();
+
+    private final HttpClient client;
+
+    /** Whether measurements are being kept; false during warm-up */
+    private volatile boolean measuring;
+    private volatile boolean running;
+
+    /** Length of the measured period */
+    private double measuredSeconds;
+
+    private int[] questionIds;
+    private int[] answerIds;
+    private String[] userNames;
+    private int[] chatIds;
+    private String[] chatMembers;
+
+    /**
+     * Creates a load test with the given settings.
+     *
+     * @param config The settings
+     */
+    public ApiLoadTest(Config config) {
+        this.config = config;
+        this.actionTable = buildActionTable(config.mix);
+        for (Action action : Action.values()) {
+            stats.put(action, new ActionStats());
+        }
+        this.client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newFixedThreadPool(Math.max(2, config.clients / 4)))
+                .build();
+    }
+
+    /**
+     * Expands the mix into a table with one entry per unit of weight, so an action is drawn by a single index.
+     */
+    private static Action[] buildActionTable(String mix) {
+        List<Action> table = new ArrayList<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            Action action = Action.fromKey(parts[0].trim());
+            int weight = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1;
+            for (int i = 0; i < weight; i++) {
+                table.add(action);
+            }
+        }
+        if (table.isEmpty()) {
+            throw new IllegalArgumentException("The action mix is empty");
+        }
+        return table.toArray(new Action[0]);
+    }
+
+    /**
+     * Runs the load test and prints the report.
+     *
+     * @throws Exception If the server cannot be reached or has no questions
+     */
+    public void run() throws Exception {
+        loadPopulation();
+        simulate();
+        printReport();
+    }
+
+    /**
+     * Reads the questions, answers, users and chats the clients pick from.
+     */
+    private void loadPopulation() throws IOException, InterruptedException {
+        String questions = get("/questions?limit=" + config.questions).body();
+        questionIds = ids(questions, "\"id\":(\\d+),\"body\"");
+        // Answers saved before their IDs were read back show as 0 and cannot be voted on
+        answerIds = Arrays.stream(ids(questions, "\"id\":(\\d+),\"text\"")).filter(id -> id > 0).toArray();
+        Set<String> names = new LinkedHashSet<>();
+        Matcher matcher = Pattern.compile("\"(?:askedBy|answeredBy)\":\"([^\"]+)\"").matcher(questions);
+        while (matcher.find()) {
+            names.add(matcher.group(1));
+        }
+        userNames = names.toArray(new String[0]);
+        if (questionIds.length == 0 || answerIds.length == 0 || userNames.length == 0) {
+            throw new IllegalStateException("The server needs questions with answers; run DatasetGenerator first");
+        }
+
+        // A chat for some of the users, for the messaging actions
+        List<Integer> chats = new ArrayList<>();
+        List<String> members = new ArrayList<>();
+        for (int i = 0; i + 1 < userNames.length && chats.size() < config.clients; i += 2) {
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("user", userNames[i]);
+            body.put("otherUser", userNames[i + 1]);
+            HttpResponse<String> response = send("POST", "/chats", body);
+            int[] id = ids(response.body(), "\"id\":(\\d+)");
+            if (response.statusCode() < 300 && id.length == 1) {
+                chats.add(id[0]);
+                members.add(userNames[i]);
+            }
+        }
+        chatIds = chats.stream().mapToInt(Integer::intValue).toArray();
+        chatMembers = members.toArray(new String[0]);
+        boolean messaging = Arrays.asList(actionTable).contains(Action.SEND) || Arrays.asList(actionTable).contains(Action.READ);
+        if (messaging && chatIds.length == 0) {
+            throw new IllegalStateException("No chat could be opened between the questions' users; leave send and read out of the mix");
+        }
+        System.out.printf("Load testing %s with %d clients over %d questions, %d answers, %d users, %d chats%n",
+                config.url, config.clients, questionIds.length, answerIds.length, userNames.length, chatIds.length);
+    }
+
+    private static int[] ids(String json, String pattern) {
+        List<Integer> ids = new ArrayList<>();
+        Matcher matcher = Pattern.compile(pattern).matcher(json);
+        while (matcher.find()) {
+            ids.add(Integer.parseInt(matcher.group(1)));
+        }
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Starts the clients, lets them run through warm-up and the measured period, then stops them.
+     */
+    private void simulate() throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(config.clients);
+        CountDownLatch start = new CountDownLatch(1);
+        running = true;
+        for (int i = 0; i < config.clients; i++) {
+            SplittableRandom random = new SplittableRandom(config.seed * 31 + i);
+            pool.execute(() -> {
+                try {
+                    start.await();
+                    while (running) {
+                        performAction(random);
+                        if (config.thinkMillis > 0) {
+                            Thread.sleep(config.thinkMillis);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+
+        start.countDown();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(config.warmup));
+        measuring = true;
+        long measureStart = System.nanoTime();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(config.duration));
+        measuring = false;
+        running = false;
+        measuredSeconds = (System.nanoTime() - measureStart) / 1e9;
+
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Performs one randomly chosen action and records how long it took.
+     */
+    private void performAction(SplittableRandom random) throws InterruptedException {
+        Action action = actionTable[random.nextInt(actionTable.length)];
+        long start = System.nanoTime();
+        String outcome;
+        try {
+            outcome = String.valueOf(execute(action, random).statusCode());
+        } catch (IOException e) {
+            outcome = e.getClass().getSimpleName();
+        }
+        if (measuring) {
+            ActionStats actionStats = stats.get(action);
+            actionStats.latency.record((System.nanoTime() - start) / 1000);
+            if (!outcome.startsWith("2")) {
+                actionStats.failures.increment();
+            }
+            statuses.computeIfAbsent(outcome, k -> new LongAdder()).increment();
+        }
+    }
+
+    /**
+     * Sends the request for one action.
+     */
+    private HttpResponse<String> execute(Action action, SplittableRandom random) throws IOException, InterruptedException {
+        String userName = userNames[random.nextInt(userNames.length)];
+        int questionId = questionIds[random.nextInt(questionIds.length)];
+        Map<String, Object> body = new LinkedHashMap<>();
+        switch (action) {
+            case BROWSE:
+                return get("/questions/" + questionId);
+            case LIST:
+                return get("/questions?limit=50");
+            case SEARCH:
+                String word = SEARCH_WORDS[random.nextInt(SEARCH_WORDS.length)];
+                return get("/questions/search?limit=20&q=" + URLEncoder.encode(word, StandardCharsets.UTF_8));
+            case HOT:
+                return get("/questions/hot?limit=10");
+            case ASK:
+                body.put("body", "Load test question " + random.nextInt(1_000_000) + "?");
+                body.put("askedBy", userName);
+                return send("POST", "/questions", body);
+            case ANSWER:
+                body.put("text", "Load test answer " + random.nextInt(1_000_000));
+                body.put("answeredBy", userName);
+                return send("POST", "/questions/" + questionId + "/answers", body);
+            case VOTE:
+                body.put("userName", userName);
+                body.put("voteType", random.nextInt(10) < 8 ? "upvote" : "downvote");
+                return send("POST", "/answers/" + answerIds[random.nextInt(answerIds.length)] + "/votes", body);
+            case QUESTION_VOTE:
+                body.put("userName", userName);
+                body.put("voteType", random.nextInt(10) < 8 ? "upvote" : "downvote");
+                return send("POST", "/questions/" + questionId + "/votes", body);
+            case SEND: {
+                int chat = random.nextInt(chatIds.length);
+                body.put("sender", chatMembers[chat]);
+                body.put("content", "Load test message " + random.nextInt(1_000_000));
+                return send("POST", "/chats/" + chatIds[chat] + "/messages", body);
+            }
+            case READ: {
+                int chat = random.nextInt(chatIds.length);
+                return get("/chats/" + chatIds[chat] + "/messages?user=" + URLEncoder.encode(chatMembers[chat], StandardCharsets.UTF_8));
+            }
+            default:
+                throw new IllegalStateException("Unhandled action: " + action);
+        }
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(config.url + path)).GET().build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> send(String method, String path, Map<String, Object> body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(config.url + path))
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(Json.write(body)))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private void printReport() {
+        Map<String, LatencyHistogram> latencies = new LinkedHashMap<>();
+        Map<String, Long> failures = new LinkedHashMap<>();
+        for (Action action : Action.values()) {
+            latencies.put(action.key, stats.get(action).latency);
+            failures.put(action.key, stats.get(action).failures.sum());
+        }
+        LatencyReport.print("requests", "req/s", measuredSeconds, config.clients, latencies, failures);
+
+        System.out.println();
+        System.out.println("Responses:");
+        Map<String, Long> sorted = new TreeMap<>();
+        statuses.forEach((status, count) -> sorted.put(status, count.sum()));
+        sorted.forEach((status, count) -> System.out.printf("  %-30s %10d%n", status, count));
+    }
+
+    /**
+     * Runs a load test against a running API server.
+     *
+     * @param args Settings as {@code key=value} pairs
+     * @throws Exception If the load test cannot be set up
+     */
+    public static void main(String[] args) throws Exception {
+        new ApiLoadTest(Config.fromArgs(args)).run();
+        System.exit(0);
+    }
+}
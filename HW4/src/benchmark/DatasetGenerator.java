@@ -0,0 +1,639 @@
+package benchmark;
+
+import databasePart1.ContentEvents;
+import databasePart1.DatabaseHelper;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Fills an empty database with a synthetic forum for load and scale testing.
+ * <p>
+ * The schema is created by {@link DatabaseHelper#connectToDatabase()}, then every table is
+ * filled: users with roles, questions, answers, answer/question/review votes, reviews,
+ * trusted-reviewer lists, and direct-message chats with their messages and inbox entries.
+ * Popularity follows Zipfian distributions, so a few users post most of the content, a few
+ * questions collect most of the answers and votes, and a few heavy-talker chats hold most
+ * of the messages.
+ * </p>
+ * <p>
+ * Rows are written in fixed-size chunks by a thread pool, each chunk in its own transaction with
+ * batched inserts. Every chunk draws from its own random source derived from the seed, and
+ * every referenced row gets an explicit ID, so the same settings produce the same data no
+ * matter how many threads are used.
+ * </p>
+ * Settings are passed as {@code key=value} arguments matching the fields of {@link Config}, e.g.
+ * <pre>
+ * java -Dcse360.db.url=jdbc:h2:/tmp/loadtest benchmark.DatasetGenerator users=100000 questions=1000000
+ * </pre>
+ */
+public class DatasetGenerator {
+
+    /**
+     * Settings for a generator run. Every public field can be set from the command line.
+     */
+    public static class Config {
+        /** Number of users; user 1 is an admin */
+        public int users = 10_000;
+        /** Fraction of users with the staff role */
+        public double staffFraction = 0.01;
+        /** Fraction of users with the instructor role */
+        public double instructorFraction = 0.01;
+        /** Fraction of users who are students with the reviewer role */
+        public double reviewerFraction = 0.05;
+        /** Number of questions */
+        public int questions = 100_000;
+        /** Average number of answers per question */
+        public double answersPerQuestion = 4;
+        /** Average number of reviews per answer */
+        public double reviewsPerAnswer = 0.3;
+        /** Largest number of votes on a single question, answer or review */
+        public int maxVotesPerPost = 200;
+        /** Fraction of students who keep a trusted-reviewer list */
+        public double trustFraction = 0.2;
+        /** Number of trusted reviewers per list */
+        public int trustedPerUser = 3;
+        /** Number of direct chats */
+        public int chats = 20_000;
+        /** Largest number of messages in a single chat */
+        public int maxMessagesPerChat = 500;
+        /** Skew of user activity: how much the most active users dominate posting and chatting */
+        public double userSkew = 1.1;
+        /** Skew of question popularity: how much the hottest questions dominate answers */
+        public double questionSkew = 1.0;
+        /** Skew of vote counts per post */
+        public double voteSkew = 1.5;
+        /** Skew of messages per chat: how much the heavy-talker chats dominate */
+        public double chatSkew = 1.2;
+        /** Seed for all random choices */
+        public long seed = 42;
+        /** Number of writer threads */
+        public int threads = Runtime.getRuntime().availableProcessors();
+        /** Rows per JDBC batch */
+        public int batchSize = 1000;
+        /** Rows per chunk; each chunk is one task and one transaction */
+        public int chunkSize = 10_000;
+
+        /**
+         * Reads settings from {@code key=value} arguments.
+         *
+         * @param args The arguments
+         * @return The settings, with defaults for anything not given
+         */
+        public static Config fromArgs(String[] args) {
+            Config config = new Config();
+            Settings.apply(config, args);
+            return config;
+        }
+    }
+
+    /** Password given to every generated user */
+    public static final String PASSWORD = "Password1!";
+
+    /** Time of the first generated question */
+    private static final long START_MILLIS = Timestamp.valueOf("2025-01-06 08:00:00").getTime();
+
+    /** Time span the generated questions are spread over */
+    private static final long SPAN_MILLIS = 120L * 24 * 60 * 60 * 1000;
+
+    /** Words used to build question, answer, review and message text */
+    private static final String[] WORDS = {
+        "how", "do", "I", "fix", "the", "loop", "in", "my", "homework", "assignment", "why", "does",
+        "this", "query", "return", "null", "when", "test", "case", "fails", "what", "is", "a",
+        "finite", "state", "machine", "can", "someone", "explain", "recursion", "array", "index",
+        "exception", "database", "table", "join", "JavaFX", "button", "scene", "stage", "lambda",
+        "stream", "interface", "class", "method", "constructor", "deadline", "lab", "exam", "grade",
+        "project", "team", "meeting", "review", "answer", "question", "thanks", "help", "please",
+        "error", "compile", "runtime", "debugger", "breakpoint", "sprint", "user", "story", "UML"
+    };
+
+    private final Config config;
+
+    /** First and last user IDs of each role block */
+    private final int staffEnd;
+    private final int instructorEnd;
+    private final int reviewerEnd;
+
+    private final int answers;
+    private final int reviews;
+
+    private final ZipfDistribution userActivity;
+    private final ZipfDistribution questionPopularity;
+    private final ZipfDistribution votesPerPost;
+    private final ZipfDistribution messagesPerChat;
+
+    /** Helper for the database being filled, used to open one connection per chunk */
+    private DatabaseHelper databaseHelper;
+
+    /** Writer threads */
+    private ExecutorService pool;
+
+    /**
+     * Creates a generator with the given settings.
+     *
+     * @param config The settings
+     */
+    public DatasetGenerator(Config config) {
+        this.config = config;
+        // User 1 is the admin, followed by blocks of staff, instructors and reviewers
+        int staff = Math.max(1, (int) (config.users * config.staffFraction));
+        int instructors = Math.max(1, (int) (config.users * config.instructorFraction));
+        int reviewers = Math.max(1, (int) (config.users * config.reviewerFraction));
+        this.staffEnd = 1 + staff;
+        this.instructorEnd = staffEnd + instructors;
+        this.reviewerEnd = instructorEnd + reviewers;
+        if (reviewerEnd > config.users) {
+            throw new IllegalArgumentException("Not enough users for the requested role fractions");
+        }
+
+        this.answers = (int) Math.round(config.questions * config.answersPerQuestion);
+        // Every review points at an answer, so there are none to write without answers
+        this.reviews = answers == 0 ? 0 : Math.max(0, (int) Math.round(answers * config.reviewsPerAnswer));
+
+        this.userActivity = new ZipfDistribution(config.users, config.userSkew);
+        this.questionPopularity = new ZipfDistribution(Math.max(1, config.questions), config.questionSkew);
+        this.votesPerPost = new ZipfDistribution(Math.min(config.maxVotesPerPost, config.users) + 1, config.voteSkew);
+        this.messagesPerChat = new ZipfDistribution(config.maxMessagesPerChat, config.chatSkew);
+    }
+
+    /**
+     * Generates the whole dataset. The database must not contain any users yet.
+     *
+     * @param databaseHelper Helper connected to the database to fill
+     * @throws Exception If any chunk fails to load
+     */
+    public void generate(DatabaseHelper databaseHelper) throws Exception {
+        if (!databaseHelper.isDatabaseEmpty()) {
+            throw new IllegalStateException("The generator only fills an empty database");
+        }
+        this.databaseHelper = databaseHelper;
+        this.pool = Executors.newFixedThreadPool(config.threads);
+        long start = System.nanoTime();
+        try {
+            runPhase("users", 1, config.users, this::writeUsers);
+            runPhase("questions", 2, config.questions, this::writeQuestions);
+            runPhase("answers", 3, answers, this::writeAnswers);
+            runPhase("reviews", 4, reviews, this::writeReviews);
+            runPhase("trusted reviewers", 5, config.users, this::writeTrustedReviewers);
+            writeChats();
+            restartIdentities();
+        } finally {
+            pool.shutdown();
+            // The rows were written directly, so any index or cache built earlier is out of date
+            ContentEvents.invalidate();
+        }
+        System.out.printf("Dataset generated in %.1f s%n", (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Writes one chunk of rows with the IDs {@code from} to {@code to}.
+     */
+    private interface ChunkWriter {
+        void write(Connection connection, SplittableRandom random, int from, int to) throws SQLException;
+    }
+
+    /**
+     * Splits the IDs {@code 1 .. total} into chunks and writes them in parallel.
+     *
+     * @param name The name shown in the progress output
+     * @param salt A number unique to the phase, mixed into each chunk's seed
+     * @param total The number of rows
+     * @param writer Writes one chunk
+     * @throws Exception If any chunk fails
+     */
+    private void runPhase(String name, int salt, int total, ChunkWriter writer) throws Exception {
+        long start = System.nanoTime();
+        List<Future<Void>> futures = new ArrayList<>();
+        int chunk = 0;
+        for (int from = 1; from <= total; from += config.chunkSize, chunk++) {
+            int chunkFrom = from;
+            int chunkTo = (int) Math.min(total, (long) from + config.chunkSize - 1);
+            long chunkSeed = chunkSeed(salt, chunk);
+            futures.add(pool.submit(() -> {
+                try (Connection connection = databaseHelper.openConnection()) {
+                    connection.setAutoCommit(false);
+                    writer.write(connection, new SplittableRandom(chunkSeed), chunkFrom, chunkTo);
+                    connection.commit();
+                }
+                return null;
+            }));
+        }
+        for (Future<Void> future : futures) {
+            future.get();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%-18s %,12d rows in %6.1f s (%,.0f rows/s)%n", name, total, seconds, total / Math.max(seconds, 1e-9));
+    }
+
+    private void writeUsers(Connection connection, SplittableRandom random, int from, int to) throws SQLException {
+        try (PreparedStatement users = connection.prepareStatement(
+                "INSERT INTO cse360users (id, userName, password, is_banned) VALUES (?, ?, ?, FALSE)");
+             PreparedStatement roles = connection.prepareStatement(
+                "INSERT INTO UserRoles (userId, role) VALUES (?, ?)")) {
+            for (int id = from; id <= to; id++) {
+                users.setInt(1, id);
+                users.setString(2, userName(id));
+                users.setString(3, PASSWORD);
+                users.addBatch();
+                for (String role : rolesOf(id)) {
+                    roles.setInt(1, id);
+                    roles.setString(2, role);
+                    roles.addBatch();
+                }
+                if ((id - from + 1) % config.batchSize == 0) {
+                    users.executeBatch();
+                    roles.executeBatch();
+                }
+            }
+            users.executeBatch();
+            roles.executeBatch();
+        }
+    }
+
+    private void writeQuestions(Connection connection, SplittableRandom random, int from, int to) throws SQLException {
+        try (PreparedStatement questions = connection.prepareStatement(
+                "INSERT INTO Questions (id, body, askedBy, timestamp) VALUES (?, ?, ?, ?)");
+             PreparedStatement votes = connection.prepareStatement(
+                "INSERT INTO QuestionVotes (questionId, userName, voteType, timestamp) VALUES (?, ?, ?, ?)")) {
+            for (int id = from; id <= to; id++) {
+                Timestamp asked = questionTime(id);
+                questions.setInt(1, id);
+                questions.setString(2, sentence(random, 6, 14) + "?");
+                questions.setString(3, userName(activeUser(random)));
+                questions.setTimestamp(4, asked);
+                questions.addBatch();
+                for (int voter : voters(random)) {
+                    votes.setInt(1, id);
+                    votes.setString(2, userName(voter));
+                    votes.setString(3, random.nextInt(10) < 8 ? "upvote" : "downvote");
+                    votes.setTimestamp(4, asked);
+                    votes.addBatch();
+                }
+                if ((id - from + 1) % config.batchSize == 0) {
+                    questions.executeBatch();
+                    votes.executeBatch();
+                }
+            }
+            questions.executeBatch();
+            votes.executeBatch();
+        }
+    }
+
+    private void writeAnswers(Connection connection, SplittableRandom random, int from, int to) throws SQLException {
+        try (PreparedStatement answerStmt = connection.prepareStatement(
+                "INSERT INTO Answers (id, questionId, text, answeredBy, upVote, downVote, isCorrect, timestamp) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+             PreparedStatement votes = connection.prepareStatement(
+                "INSERT INTO Votes (answerId, userName, voteType, timestamp) VALUES (?, ?, ?, ?)")) {
+            for (int id = from; id <= to; id++) {
+                // Popular questions collect most of the answers
+                int questionId = ZipfDistribution.permute(questionPopularity.sample(random), config.questions) + 1;
+                Timestamp answered = new Timestamp(questionTime(questionId).getTime() + random.nextInt(72 * 60) * 60_000L);
+                int up = 0;
+                int down = 0;
+                for (int voter : voters(random)) {
+                    boolean upvote = random.nextInt(10) < 8;
+                    if (upvote) {
+                        up++;
+                    } else {
+                        down++;
+                    }
+                    votes.setInt(1, id);
+                    votes.setString(2, userName(voter));
+                    votes.setString(3, upvote ? "upvote" : "downvote");
+                    votes.setTimestamp(4, answered);
+                    votes.addBatch();
+                }
+                answerStmt.setInt(1, id);
+                answerStmt.setInt(2, questionId);
+                answerStmt.setString(3, sentence(random, 8, 30) + ".");
+                answerStmt.setString(4, userName(activeUser(random)));
+                answerStmt.setInt(5, up);
+                answerStmt.setInt(6, down);
+                answerStmt.setBoolean(7, random.nextInt(10) == 0);
+                answerStmt.setTimestamp(8, answered);
+                answerStmt.addBatch();
+                if ((id - from + 1) % config.batchSize == 0) {
+                    answerStmt.executeBatch();
+                    votes.executeBatch();
+                }
+            }
+            answerStmt.executeBatch();
+            votes.executeBatch();
+        }
+    }
+
+    private void writeReviews(Connection connection, SplittableRandom random, int from, int to) throws SQLException {
+        int reviewerCount = reviewerEnd - instructorEnd;
+        try (PreparedStatement reviewStmt = connection.prepareStatement(
+                "INSERT INTO Reviews (id, answerId, reviewer, text, upVote, downVote) VALUES (?, ?, ?, ?, ?, ?)");
+             PreparedStatement votes = connection.prepareStatement(
+                "INSERT INTO ReviewVotes (reviewId, userName, voteType) VALUES (?, ?, ?)")) {
+            for (int id = from; id <= to; id++) {
+                int up = 0;
+                int down = 0;
+                List<Integer> voters = voters(random);
+                for (int voter : voters) {
+                    boolean upvote = random.nextInt(10) < 7;
+                    if (upvote) {
+                        up++;
+                    } else {
+                        down++;
+                    }
+                }
+                reviewStmt.setInt(1, id);
+                reviewStmt.setInt(2, random.nextInt(answers) + 1);
+                reviewStmt.setString(3, userName(instructorEnd + random.nextInt(reviewerCount)));
+                reviewStmt.setString(4, sentence(random, 5, 20) + ".");
+                reviewStmt.setInt(5, up);
+                reviewStmt.setInt(6, down);
+                reviewStmt.addBatch();
+                int upLeft = up;
+                for (int voter : voters) {
+                    votes.setInt(1, id);
+                    votes.setString(2, userName(voter));
+                    votes.setString(3, upLeft-- > 0 ? "upvote" : "downvote");
+                    votes.addBatch();
+                }
+                if ((id - from + 1) % config.batchSize == 0) {
+                    reviewStmt.executeBatch();
+                    votes.executeBatch();
+                }
+            }
+            reviewStmt.executeBatch();
+            votes.executeBatch();
+        }
+    }
+
+    private void writeTrustedReviewers(Connection connection, SplittableRandom random, int from, int to) throws SQLException {
+        int reviewerCount = reviewerEnd - instructorEnd;
+        int listSize = Math.min(config.trustedPerUser, reviewerCount);
+        try (PreparedStatement trusted = connection.prepareStatement(
+                "INSERT INTO TrustedReviewers (userId, trustedReviewerUserName) VALUES (?, ?)")) {
+            for (int id = Math.max(from, instructorEnd); id <= to; id++) {
+                if (random.nextDouble() >= config.trustFraction) {
+                    continue;
+                }
+                // Reviewers cannot trust themselves, so they have one fewer to choose from
+                int size = id < reviewerEnd ? Math.min(listSize, reviewerCount - 1) : listSize;
+                Set<Integer> chosen = new HashSet<>();
+                while (chosen.size() < size) {
+                    int reviewer = instructorEnd + random.nextInt(reviewerCount);
+                    if (reviewer != id && chosen.add(reviewer)) {
+                        trusted.setInt(1, id);
+                        trusted.setString(2, userName(reviewer));
+                        trusted.addBatch();
+                    }
+                }
+                if ((id - from + 1) % config.batchSize == 0) {
+                    trusted.executeBatch();
+                }
+            }
+            trusted.executeBatch();
+        }
+    }
+
+    /**
+     * Writes the chats. Participants and message counts are planned up front on one thread so that
+     * every message gets a fixed ID; the chats are then written in parallel chunks.
+     *
+     * @throws Exception If any chunk fails
+     */
+    private void writeChats() throws Exception {
+        int chats = config.chats;
+        int[] talker = new int[chats + 1];
+        int[] partner = new int[chats + 1];
+        int[] firstMessage = new int[chats + 2];
+        SplittableRandom planner = new SplittableRandom(chunkSeed(6, 0));
+        Set<Long> pairs = new HashSet<>();
+        firstMessage[1] = 1;
+        for (int c = 1; c <= chats; c++) {
+            int a;
+            int b;
+            int attempts = 0;
+            do {
+                // Active users start most chats, with anyone
+                a = activeUser(planner);
+                b = planner.nextInt(config.users) + 1;
+                attempts++;
+            } while ((a == b || !pairs.add(Math.min(a, b) * (long) Integer.MAX_VALUE + Math.max(a, b))) && attempts < 100);
+            if (a == b) {
+                b = a % config.users + 1;
+            }
+            talker[c] = a;
+            partner[c] = b;
+            firstMessage[c + 1] = firstMessage[c] + messagesPerChat.sample(planner) + 1;
+        }
+        int totalMessages = firstMessage[chats + 1] - 1;
+
+        runPhase("chats", 7, chats, (connection, random, from, to) -> {
+            try (PreparedStatement chatStmt = connection.prepareStatement(
+                    "INSERT INTO Chats (id, created_at, updated_at, is_group, last_message_id) VALUES (?, ?, ?, FALSE, ?)");
+                 PreparedStatement participants = connection.prepareStatement(
+                    "INSERT INTO ChatParticipants (chat_id, user_id, last_read_message_id) VALUES (?, ?, ?)");
+                 PreparedStatement messages = connection.prepareStatement(
+                    "INSERT INTO Messages (id, chat_id, sender_id, content, timestamp, is_read) VALUES (?, ?, ?, ?, ?, ?)");
+                 PreparedStatement inbox = connection.prepareStatement(
+                    "INSERT INTO MessageInbox (user_id, chat_id, message_id) VALUES (?, ?, ?)")) {
+                int rows = 0;
+                for (int c = from; c <= to; c++) {
+                    int first = firstMessage[c];
+                    int last = firstMessage[c + 1] - 1;
+                    long created = START_MILLIS + (long) (random.nextDouble() * SPAN_MILLIS);
+                    // Each participant has read all but the last few messages
+                    int talkerRead = Math.max(first - 1, last - random.nextInt(4));
+                    int partnerRead = Math.max(first - 1, last - random.nextInt(4));
+
+                    chatStmt.setInt(1, c);
+                    chatStmt.setTimestamp(2, new Timestamp(created));
+                    chatStmt.setTimestamp(3, new Timestamp(created + (last - first) * 60_000L));
+                    chatStmt.setInt(4, last);
+                    chatStmt.addBatch();
+                    participants.setInt(1, c);
+                    participants.setInt(2, talker[c]);
+                    participants.setInt(3, talkerRead);
+                    participants.addBatch();
+                    participants.setInt(1, c);
+                    participants.setInt(2, partner[c]);
+                    participants.setInt(3, partnerRead);
+                    participants.addBatch();
+
+                    for (int m = first; m <= last; m++) {
+                        boolean fromTalker = random.nextInt(3) != 0;
+                        int sender = fromTalker ? talker[c] : partner[c];
+                        int recipient = fromTalker ? partner[c] : talker[c];
+                        int recipientRead = fromTalker ? partnerRead : talkerRead;
+                        messages.setInt(1, m);
+                        messages.setInt(2, c);
+                        messages.setInt(3, sender);
+                        messages.setString(4, sentence(random, 2, 18));
+                        messages.setTimestamp(5, new Timestamp(created + (m - first) * 60_000L));
+                        messages.setBoolean(6, m <= recipientRead);
+                        messages.addBatch();
+                        inbox.setInt(1, recipient);
+                        inbox.setInt(2, c);
+                        inbox.setInt(3, m);
+                        inbox.addBatch();
+                        if (++rows % config.batchSize == 0) {
+                            chatStmt.executeBatch();
+                            participants.executeBatch();
+                            messages.executeBatch();
+                            inbox.executeBatch();
+                        }
+                    }
+                }
+                chatStmt.executeBatch();
+                participants.executeBatch();
+                messages.executeBatch();
+                inbox.executeBatch();
+            }
+        });
+        System.out.printf("%-18s %,12d rows%n", "messages", totalMessages);
+    }
+
+    /**
+     * Moves each identity column past the explicit IDs the generator wrote, so rows added
+     * by the application afterwards do not collide with them.
+     *
+     * @throws SQLException If a database access error occurs
+     */
+    private void restartIdentities() throws SQLException {
+        String[] tables = {"cse360users", "Questions", "Answers", "Reviews", "Chats", "Messages"};
+        try (Connection connection = databaseHelper.openConnection();
+             Statement statement = connection.createStatement()) {
+            for (String table : tables) {
+                long next;
+                try (java.sql.ResultSet rs = statement.executeQuery("SELECT COALESCE(MAX(id), 0) + 1 FROM " + table)) {
+                    rs.next();
+                    next = rs.getLong(1);
+                }
+                statement.execute("ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH " + next);
+            }
+            statement.execute("ANALYZE");
+        }
+    }
+
+    /**
+     * Returns the roles of a generated user.
+     *
+     * @param id The user ID
+     * @return The roles
+     */
+    private List<String> rolesOf(int id) {
+        if (id == 1) {
+            return List.of("admin");
+        } else if (id < staffEnd) {
+            return List.of("staff");
+        } else if (id < instructorEnd) {
+            return List.of("instructor");
+        } else if (id < reviewerEnd) {
+            return List.of("student", "reviewer");
+        }
+        return List.of("student");
+    }
+
+    /**
+     * Returns the user name of a generated user.
+     *
+     * @param id The user ID
+     * @return The user name
+     */
+    public static String userName(int id) {
+        return "user" + id;
+    }
+
+    /**
+     * Draws a user, favouring the most active ones.
+     *
+     * @param random The random source
+     * @return A user ID
+     */
+    private int activeUser(SplittableRandom random) {
+        return ZipfDistribution.permute(userActivity.sample(random), config.users) + 1;
+    }
+
+    /**
+     * Draws the distinct voters for one post. Most posts get few votes, a few get many.
+     *
+     * @param random The random source
+     * @return The IDs of the voters
+     */
+    private List<Integer> voters(SplittableRandom random) {
+        int count = votesPerPost.sample(random);
+        Set<Integer> voters = new HashSet<>();
+        while (voters.size() < count) {
+            voters.add(random.nextInt(config.users) + 1);
+        }
+        return new ArrayList<>(voters);
+    }
+
+    /**
+     * Returns the time a question was asked. Questions are spread evenly over the time span in ID order.
+     *
+     * @param questionId The question ID
+     * @return The timestamp
+     */
+    private Timestamp questionTime(int questionId) {
+        return new Timestamp(START_MILLIS + SPAN_MILLIS * questionId / Math.max(1, config.questions));
+    }
+
+    /**
+     * Builds a sentence of random words.
+     *
+     * @param random The random source
+     * @param minWords The fewest words
+     * @param maxWords The most words
+     * @return The sentence
+     */
+    private static String sentence(SplittableRandom random, int minWords, int maxWords) {
+        int words = minWords + random.nextInt(maxWords - minWords + 1);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                text.append(' ');
+            }
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        text.setCharAt(0, Character.toUpperCase(text.charAt(0)));
+        return text.toString();
+    }
+
+    /**
+     * Derives the seed of one chunk from the run's seed.
+     *
+     * @param salt A number unique to the phase
+     * @param chunk The chunk index
+     * @return The chunk's seed
+     */
+    private long chunkSeed(int salt, int chunk) {
+        return new SplittableRandom(config.seed ^ (salt * 0x9E3779B97F4A7C15L)).split().nextLong() + chunk * 0xBF58476D1CE4E5B9L;
+    }
+
+    /**
+     * Generates a dataset into the database given by the cse360.db.url system property.
+     *
+     * @param args Settings as {@code key=value} pairs
+     * @throws Exception If generation fails
+     */
+    public static void main(String[] args) throws Exception {
+        Config config = Config.fromArgs(args);
+        DatabaseHelper databaseHelper = new DatabaseHelper();
+        databaseHelper.connectToDatabase();
+        try {
+            new DatasetGenerator(config).generate(databaseHelper);
+        } finally {
+            databaseHelper.closeConnection();
+        }
+    }
+}
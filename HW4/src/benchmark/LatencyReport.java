@@ -0,0 +1,56 @@
+package benchmark;
+
+import databasePart1.LatencyHistogram;
+
+import java.util.Map;
+
+/**
+ * Prints the latency table that {@link WorkloadSimulator} and {@link ApiLoadTest} start their
+ * reports with: one row per action that ran, then a total, with the count, rate, failures and
+ * latency percentiles in milliseconds.
+ */
+final class LatencyReport {
+
+    private LatencyReport() {
+    }
+
+    /**
+     * Prints the measured time and the table.
+     *
+     * @param countLabel The heading of the count column, such as "ops"
+     * @param rateLabel The heading of the rate column, such as "ops/s"
+     * @param measuredSeconds The length of the measured period
+     * @param clients The number of clients
+     * @param latencies The latency of each action, in the order to print them
+     * @param failures The number of failures of each action
+     * @return The latency of all the actions together
+     */
+    static LatencyHistogram print(String countLabel, String rateLabel, double measuredSeconds, int clients,
+            Map<String, LatencyHistogram> latencies, Map<String, Long> failures) {
+        System.out.println();
+        System.out.printf("Measured %.1f s with %d clients%n%n", measuredSeconds, clients);
+        System.out.printf("%-14s %10s %10s %9s %9s %9s %9s %9s %9s%n",
+                "action", countLabel, rateLabel, "failed", "mean ms", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        LatencyHistogram all = new LatencyHistogram();
+        long allFailures = 0;
+        for (Map.Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+            LatencyHistogram latency = entry.getValue();
+            if (latency.getCount() == 0) {
+                continue;
+            }
+            long actionFailures = failures.getOrDefault(entry.getKey(), 0L);
+            all.add(latency);
+            allFailures += actionFailures;
+            printRow(entry.getKey(), latency, actionFailures, measuredSeconds);
+        }
+        printRow("total", all, allFailures, measuredSeconds);
+        return all;
+    }
+
+    private static void printRow(String name, LatencyHistogram latency, long failures, double measuredSeconds) {
+        System.out.printf("%-14s %10d %10.1f %9d %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                name, latency.getCount(), latency.getCount() / measuredSeconds, failures,
+                latency.getMean() / 1000, latency.getPercentile(0.50) / 1000.0, latency.getPercentile(0.99) / 1000.0,
+                latency.getPercentile(0.999) / 1000.0, latency.getMax() / 1000.0);
+    }
+}
@@ -0,0 +1,190 @@
+package benchmark;
+
+import application.Answer;
+import application.Question;
+import application.User;
+import databasePart1.DatabaseHelper;
+import databasePart1.DatabaseHelperDM;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmarks for the persistence layer.
+ * <p>
+ * Each fork runs against its own in-memory H2 database (selected with the cse360.db.url
+ * system property), seeded with the number of users, questions and messages given by the
+ * parameters. Every benchmark is measured both as throughput and as sampled latency, so
+ * the report shows operations per second as well as the p99 time of a single call.
+ * </p>
+ * Run with the JMH runner, for example:
+ * <pre>
+ * java -cp &lt;classpath&gt; org.openjdk.jmh.Main PersistenceBenchmark -p questions=10000
+ * </pre>
+ * Pass {@code -jvmArgsAppend -Dcse360.db.url=jdbc:h2:/tmp/bench} to benchmark a file database instead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dcse360.db.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1")
+public class PersistenceBenchmark {
+
+    /** Number of users to seed */
+    @Param({"200"})
+    public int users;
+
+    /** Number of questions to seed */
+    @Param({"100", "1000"})
+    public int questions;
+
+    /** Number of answers per question */
+    @Param({"5"})
+    public int answersPerQuestion;
+
+    /** Number of chats the benchmark user takes part in */
+    @Param({"20"})
+    public int chats;
+
+    /** Number of messages per chat */
+    @Param({"200"})
+    public int messagesPerChat;
+
+    /** Password given to every seeded user */
+    private static final String PASSWORD = "Bench1!pass";
+
+    private DatabaseHelper databaseHelper;
+    private DatabaseHelperDM dmHelper;
+
+    /** The user whose chats, logins and votes are benchmarked */
+    private User benchUser;
+    private int benchUserId;
+
+    private List<String> userNames = new ArrayList<>();
+    private List<Integer> answerIds = new ArrayList<>();
+    private List<Integer> chatIds = new ArrayList<>();
+
+    /** Position in the vote rotation, so each call votes on a different answer/voter pair */
+    private int voteCursor;
+
+    /** Position in the chat rotation, so each call reads a different chat */
+    private int chatCursor;
+
+    /**
+     * Creates the schema and seeds it through the same data-access methods the application uses.
+     *
+     * @throws SQLException If seeding fails
+     */
+    @Setup(Level.Trial)
+    public void seed() throws SQLException {
+        databaseHelper = new DatabaseHelper();
+        databaseHelper.connectToDatabase();
+        dmHelper = new DatabaseHelperDM(databaseHelper.getConnection());
+
+        Set<String> roles = new HashSet<>();
+        roles.add("student");
+        for (int i = 0; i < users; i++) {
+            String userName = "benchuser" + i;
+            databaseHelper.register(new User(userName, PASSWORD, roles));
+            userNames.add(userName);
+        }
+        benchUser = new User(userNames.get(0), PASSWORD, roles);
+        benchUserId = dmHelper.getUserIdByName(benchUser.getUserName());
+
+        for (int q = 0; q < questions; q++) {
+            Question question = new Question("Benchmark question " + q + " about topic " + (q % 37) + "?",
+                    userNames.get(q % users));
+            int questionId = databaseHelper.saveQuestion(question);
+            for (int a = 0; a < answersPerQuestion; a++) {
+                databaseHelper.saveAnswer(questionId,
+                        new Answer("Answer " + a + " to question " + q, userNames.get((q + a + 1) % users)));
+            }
+        }
+        try (Statement stmt = databaseHelper.getConnection().createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id FROM Answers")) {
+            while (rs.next()) {
+                answerIds.add(rs.getInt(1));
+            }
+        }
+
+        for (int c = 1; c <= chats && c < users; c++) {
+            int otherId = dmHelper.getUserIdByName(userNames.get(c));
+            int chatId = DatabaseHelperDM.createChat(benchUserId, otherId);
+            chatIds.add(chatId);
+            for (int m = 0; m < messagesPerChat; m++) {
+                int senderId = m % 2 == 0 ? benchUserId : otherId;
+                DatabaseHelperDM.sendMessage(chatId, senderId, "Message " + m + " about homework " + (m % 11));
+            }
+        }
+    }
+
+    /**
+     * Closes the connection at the end of the trial.
+     */
+    @TearDown(Level.Trial)
+    public void close() {
+        databaseHelper.closeConnection();
+    }
+
+    @Benchmark
+    public Map<Question, Integer> loadAllQuestionsWithIDs() {
+        return databaseHelper.loadAllQuestionsWithIDs();
+    }
+
+    @Benchmark
+    public boolean recordVoteAndRecalculate() {
+        int i = voteCursor++;
+        int answerId = answerIds.get(i % answerIds.size());
+        // A repeated vote withdraws the first one, so each pass over the answers gets a new voter
+        String voter = "benchvoter" + (i / answerIds.size());
+        databaseHelper.recordVote(answerId, voter, "upvote");
+        return databaseHelper.recalculateAnswerVotes(answerId);
+    }
+
+    @Benchmark
+    public Map<Integer, Map<String, Object>> getRecentChats() {
+        return dmHelper.getRecentChats(benchUserId, 10);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> getMessagesForChat() {
+        return DatabaseHelperDM.getMessagesForChat(chatIds.get(chatCursor++ % chatIds.size()));
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> searchMessages() {
+        return dmHelper.searchMessages(benchUserId, "homework 7");
+    }
+
+    @Benchmark
+    public Object getAllUsersWithRoles() {
+        return databaseHelper.getAllUsersWithRoles();
+    }
+
+    @Benchmark
+    public boolean login() throws SQLException {
+        return databaseHelper.login(benchUser);
+    }
+}
@@ -0,0 +1,48 @@
+package benchmark;
+
+import java.lang.reflect.Field;
+
+/**
+ * Reads {@code key=value} command-line arguments into the public fields of a settings object.
+ * Numbers may contain underscores, as in {@code users=1_000_000}.
+ */
+final class Settings {
+
+    private Settings() {
+    }
+
+    /**
+     * Sets each named public field of the settings object from the arguments.
+     * Fields may be int, long, double, boolean or String.
+     *
+     * @param settings The object to fill in
+     * @param args The {@code key=value} arguments
+     * @throws IllegalArgumentException If an argument is malformed or names an unknown field
+     */
+    static void apply(Object settings, String[] args) {
+        for (String arg : args) {
+            String[] parts = arg.split("=", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Expected key=value but got: " + arg);
+            }
+            try {
+                Field field = settings.getClass().getField(parts[0]);
+                Class<?> type = field.getType();
+                String value = parts[1];
+                if (type == int.class) {
+                    field.setInt(settings, Integer.parseInt(value.replace("_", "")));
+                } else if (type == long.class) {
+                    field.setLong(settings, Long.parseLong(value.replace("_", "")));
+                } else if (type == double.class) {
+                    field.setDouble(settings, Double.parseDouble(value));
+                } else if (type == boolean.class) {
+                    field.setBoolean(settings, Boolean.parseBoolean(value));
+                } else {
+                    field.set(settings, value);
+                }
+            } catch (NoSuchFieldException | IllegalAccessException e) {
+                throw new IllegalArgumentException("Unknown setting: " + parts[0]);
+            }
+        }
+    }
+}
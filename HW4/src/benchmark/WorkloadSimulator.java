@@ -0,0 +1,553 @@
+package benchmark;
+
+import application.Answer;
+import application.Question;
+import application.User;
+import databasePart1.DatabaseHelper;
+import databasePart1.DatabaseHelperDM;
+import databasePart1.DatabaseMetrics;
+import databasePart1.LatencyHistogram;
+import databasePart1.Log;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Headless load test that drives the data-access layer the way many students using the
+ * application at once would.
+ * <p>
+ * Each simulated client runs on its own thread with its own {@link DatabaseHelper} connection,
+ * picks a user (active users more often than others), and performs actions drawn from a
+ * configurable mix: browsing questions, asking, answering, voting, sending and reading
+ * messages, and logging in. After a warm-up period every action is timed, and the report lists
+ * throughput, latency percentiles and a latency histogram per action, failed calls, database
+ * errors by H2 error code (deadlocks, lock timeouts, concurrent-update conflicts), and lock waits.
+ * </p>
+ * <p>
+ * Lock waits are measured by a sampler that polls INFORMATION_SCHEMA.SESSIONS for sessions
+ * blocked by another session's locks. Messaging actions run concurrently like the others:
+ * {@link DatabaseHelperDM} sends messages and creates chats in transactions on their own
+ * connections, while its reads share one static autocommit connection that H2 runs a statement
+ * at a time, so contention on that connection shows up in the messaging latencies.
+ * </p>
+ * <p>
+ * The data-access methods report most failures by logging them and returning a failure value,
+ * so the simulator counts database errors through {@link DatabaseMetrics#addErrorListener},
+ * which sees each SQLException before it is caught. Logging is turned off during the run
+ * unless {@code verbose=true}.
+ * </p>
+ * If the database is empty it is first filled with a small {@link DatasetGenerator} dataset;
+ * run the generator beforehand to test against more data. Example:
+ * <pre>
+ * java -Dcse360.db.url=jdbc:h2:/tmp/loadtest benchmark.WorkloadSimulator clients=200 duration=60 mix=browse:40,vote:30,send:20,answer:10
+ * </pre>
+ */
+public class WorkloadSimulator {
+
+    /** Logger for this class's errors */
+    private static final Log LOG = Log.get(WorkloadSimulator.class);
+
+    /**
+     * Settings for a simulation run. Every public field can be set from the command line.
+     */
+    public static class Config {
+        /** Number of concurrent clients, each with its own thread and connection */
+        public int clients = 50;
+        /** Seconds of measured load */
+        public int duration = 30;
+        /** Seconds of unmeasured load before measuring */
+        public int warmup = 5;
+        /** Pause between a client's actions, in milliseconds */
+        public int thinkMillis = 0;
+        /** Relative weight of each action, as {@code action:weight} pairs */
+        public String mix = "browse:30,list:2,ask:3,answer:8,vote:20,questionVote:7,send:15,read:10,inbox:4,login:1";
+        /** Skew of user activity, as in {@link DatasetGenerator.Config#userSkew} */
+        public double userSkew = 1.1;
+        /** Seed for the clients' random choices */
+        public long seed = 7;
+        /** Interval between lock-wait samples, in milliseconds */
+        public int lockSampleMillis = 10;
+        /** Whether to log the failed calls as they happen */
+        public boolean verbose = false;
+
+        /**
+         * Reads settings from {@code key=value} arguments.
+         *
+         * @param args The arguments
+         * @return The settings, with defaults for anything not given
+         */
+        public static Config fromArgs(String[] args) {
+            Config config = new Config();
+            Settings.apply(config, args);
+            return config;
+        }
+    }
+
+    /**
+     * The actions a simulated client can perform, each mapped onto the calls the UI makes for it.
+     */
+    public enum Action {
+        /** Open a question and read its answers */
+        BROWSE("browse"),
+        /** Load the full question list, as the home pages do */
+        LIST("list"),
+        /** Post a new question */
+        ASK("ask"),
+        /** Post an answer to a popular question */
+        ANSWER("answer"),
+        /** Vote on an answer and refresh its totals */
+        VOTE("vote"),
+        /** Vote on a question */
+        QUESTION_VOTE("questionVote"),
+        /** Send a direct message */
+        SEND("send"),
+        /** Open a chat and mark it read */
+        READ("read"),
+        /** Load the recent-chats list */
+        INBOX("inbox"),
+        /** Log in */
+        LOGIN("login");
+
+        private final String key;
+
+        Action(String key) {
+            this.key = key;
+        }
+
+        static Action fromKey(String key) {
+            for (Action action : values()) {
+                if (action.key.equalsIgnoreCase(key)) {
+                    return action;
+                }
+            }
+            throw new IllegalArgumentException("Unknown action: " + key);
+        }
+    }
+
+    /**
+     * Timings and failure counts for one action.
+     */
+    private static class ActionStats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder failures = new LongAdder();
+    }
+
+    /** H2 error codes given their own line in the report */
+    private static final Map<String, String> KNOWN_ERRORS = Map.of(
+            "40001", "deadlock",
+            "50200", "lock timeout",
+            "90131", "concurrent update conflict");
+
+    private final Config config;
+    private final Action[] actionTable;
+    private final Map<Action, ActionStats> stats = new EnumMap<>(Action.class);
+
+    /** Database errors, by H2 error code */
+    private final Map<String, LongAdder> errorCodes = new ConcurrentHashMap<>();
+
+    /** Lock-wait samples: how many were taken, how many found a blocked session, and the total blocked */
+    private long lockSamples;
+    private long blockedSamples;
+    private long blockedSessions;
+    private int maxBlocked;
+
+    /** Whether measurements are being kept; false during warm-up */
+    private volatile boolean measuring;
+    private volatile boolean running;
+
+    /** Length of the measured period */
+    private double measuredSeconds;
+
+    /** Helper whose connection is the one all messaging calls share */
+    private DatabaseHelper setupHelper;
+    private DatabaseHelperDM messaging;
+    private int[] userIds;
+    private String[] userNames;
+    private int[] questionIds;
+    private int[] answerIds;
+    private Map<Integer, int[]> chatsByUser;
+    private ZipfDistribution userActivity;
+    private ZipfDistribution questionPopularity;
+
+    /**
+     * Creates a simulator with the given settings.
+     *
+     * @param config The settings
+     */
+    public WorkloadSimulator(Config config) {
+        this.config = config;
+        this.actionTable = buildActionTable(config.mix);
+        for (Action action : Action.values()) {
+            stats.put(action, new ActionStats());
+        }
+    }
+
+    /**
+     * Expands the mix into a table with one entry per unit of weight, so an action is drawn by a single index.
+     *
+     * @param mix The {@code action:weight} pairs
+     * @return The table
+     */
+    private static Action[] buildActionTable(String mix) {
+        List<Action> table = new ArrayList<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            Action action = Action.fromKey(parts[0].trim());
+            int weight = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1;
+            for (int i = 0; i < weight; i++) {
+                table.add(action);
+            }
+        }
+        if (table.isEmpty()) {
+            throw new IllegalArgumentException("The action mix is empty");
+        }
+        return table.toArray(new Action[0]);
+    }
+
+    /**
+     * Runs the simulation and prints the report.
+     *
+     * @throws Exception If setup fails
+     */
+    public void run() throws Exception {
+        Consumer<SQLException> errorCounter = e -> countError(String.valueOf(e.getErrorCode()));
+        DatabaseMetrics.addErrorListener(errorCounter);
+        Log.Level originalLevel = Log.getLevel();
+        setupHelper = new DatabaseHelper();
+        setupHelper.connectToDatabase();
+        try {
+            if (setupHelper.isDatabaseEmpty()) {
+                DatasetGenerator.Config seed = new DatasetGenerator.Config();
+                seed.users = Math.max(1000, config.clients * 4);
+                seed.questions = seed.users * 5;
+                seed.chats = seed.users * 2;
+                seed.maxMessagesPerChat = 50;
+                System.out.println("Database is empty; generating " + seed.users + " users first");
+                new DatasetGenerator(seed).generate(setupHelper);
+            }
+            messaging = new DatabaseHelperDM(setupHelper.getConnection());
+            loadPopulation();
+            if (!config.verbose) {
+                Log.setLevel(Log.Level.OFF);
+            }
+            simulate();
+        } finally {
+            setupHelper.closeConnection();
+            DatabaseMetrics.removeErrorListener(errorCounter);
+            Log.setLevel(originalLevel);
+        }
+        printReport();
+    }
+
+    /**
+     * Loads the IDs the clients pick from.
+     *
+     * @throws SQLException If a database access error occurs
+     */
+    private void loadPopulation() throws SQLException {
+        Connection connection = setupHelper.getConnection();
+        List<Integer> ids = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        try (PreparedStatement pstmt = connection.prepareStatement("SELECT id, userName FROM cse360users ORDER BY id");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+                names.add(rs.getString(2));
+            }
+        }
+        userIds = ids.stream().mapToInt(Integer::intValue).toArray();
+        userNames = names.toArray(new String[0]);
+        questionIds = loadIds(connection, "SELECT id FROM Questions ORDER BY id");
+        answerIds = loadIds(connection, "SELECT id FROM Answers ORDER BY id");
+        if (userIds.length < 2 || questionIds.length == 0 || answerIds.length == 0) {
+            throw new IllegalStateException("The database needs at least two users, a question and an answer");
+        }
+
+        Map<Integer, List<Integer>> chats = new HashMap<>();
+        try (PreparedStatement pstmt = connection.prepareStatement("SELECT user_id, chat_id FROM ChatParticipants");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                chats.computeIfAbsent(rs.getInt(1), k -> new ArrayList<>()).add(rs.getInt(2));
+            }
+        }
+        chatsByUser = new ConcurrentHashMap<>();
+        chats.forEach((user, list) -> chatsByUser.put(user, list.stream().mapToInt(Integer::intValue).toArray()));
+
+        userActivity = new ZipfDistribution(userIds.length, config.userSkew);
+        questionPopularity = new ZipfDistribution(questionIds.length, 1.0);
+        System.out.printf("Simulating %d clients over %,d users, %,d questions, %,d answers%n",
+                config.clients, userIds.length, questionIds.length, answerIds.length);
+    }
+
+    private static int[] loadIds(Connection connection, String query) throws SQLException {
+        List<Integer> ids = new ArrayList<>();
+        try (PreparedStatement pstmt = connection.prepareStatement(query);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+            }
+        }
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Starts the clients and the lock sampler, lets them run through warm-up and the measured period,
+     * then stops them.
+     *
+     * @throws Exception If a client cannot connect
+     */
+    private void simulate() throws Exception {
+        // Connect every client up front so connection setup is not measured
+        List<DatabaseHelper> helpers = new ArrayList<>();
+        for (int i = 0; i < config.clients; i++) {
+            DatabaseHelper helper = new DatabaseHelper();
+            helper.connectToDatabase();
+            helpers.add(helper);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(config.clients + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        running = true;
+        for (int i = 0; i < config.clients; i++) {
+            DatabaseHelper helper = helpers.get(i);
+            SplittableRandom random = new SplittableRandom(config.seed * 31 + i);
+            pool.execute(() -> {
+                try {
+                    start.await();
+                    while (running) {
+                        performAction(helper, random);
+                        if (config.thinkMillis > 0) {
+                            Thread.sleep(config.thinkMillis);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        pool.execute(this::sampleLockWaits);
+
+        start.countDown();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(config.warmup));
+        measuring = true;
+        long measureStart = System.nanoTime();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(config.duration));
+        measuring = false;
+        running = false;
+        measuredSeconds = (System.nanoTime() - measureStart) / 1e9;
+
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+        for (DatabaseHelper helper : helpers) {
+            helper.closeConnection();
+        }
+    }
+
+    /**
+     * Performs one randomly chosen action as a randomly chosen user and records how long it took.
+     *
+     * @param helper The client's database helper
+     * @param random The client's random source
+     */
+    private void performAction(DatabaseHelper helper, SplittableRandom random) {
+        Action action = actionTable[random.nextInt(actionTable.length)];
+        int user = ZipfDistribution.permute(userActivity.sample(random), userIds.length);
+        long start = System.nanoTime();
+        boolean ok;
+        try {
+            ok = execute(action, helper, random, user);
+        } catch (SQLException e) {
+            // Already counted by the error listener
+            ok = false;
+        } catch (RuntimeException e) {
+            countError(e.getClass().getSimpleName());
+            ok = false;
+        }
+        if (measuring) {
+            ActionStats actionStats = stats.get(action);
+            actionStats.latency.record((System.nanoTime() - start) / 1000);
+            if (!ok) {
+                actionStats.failures.increment();
+            }
+        }
+    }
+
+    /**
+     * Performs one action.
+     *
+     * @return true if the data-access calls reported success
+     */
+    private boolean execute(Action action, DatabaseHelper helper, SplittableRandom random, int user) throws SQLException {
+        String userName = userNames[user];
+        int userId = userIds[user];
+        switch (action) {
+            case BROWSE:
+                helper.loadAnswersForQuestion(popularQuestion(random));
+                return true;
+            case LIST:
+                return !helper.loadAllQuestionsWithIDs().isEmpty();
+            case ASK:
+                return helper.saveQuestion(new Question("Load test question " + random.nextInt(1_000_000) + "?", userName)) > 0;
+            case ANSWER:
+                return helper.saveAnswer(popularQuestion(random), new Answer("Load test answer " + random.nextInt(1_000_000), userName));
+            case VOTE: {
+                int answerId = answerIds[random.nextInt(answerIds.length)];
+                boolean voted = helper.recordVote(answerId, userName, random.nextInt(10) < 8 ? "upvote" : "downvote");
+                return helper.recalculateAnswerVotes(answerId) && voted;
+            }
+            case QUESTION_VOTE:
+                return helper.recordQuestionVote(popularQuestion(random), userName, random.nextInt(10) < 8 ? "upvote" : "downvote");
+            case SEND: {
+                int chatId = chatFor(userId, random);
+                return chatId > 0 && DatabaseHelperDM.sendMessage(chatId, userId, "Load test message " + random.nextInt(1_000_000)) > 0;
+            }
+            case READ: {
+                int[] chats = chatsByUser.get(userId);
+                if (chats == null) {
+                    return true;
+                }
+                int chatId = chats[random.nextInt(chats.length)];
+                DatabaseHelperDM.getMessagesForChat(chatId);
+                return messaging.markMessagesAsRead(chatId, userId) >= 0;
+            }
+            case INBOX:
+                messaging.getRecentChats(userId, 10);
+                return true;
+            case LOGIN: {
+                Set<String> roles = new HashSet<>();
+                roles.add("student");
+                return helper.login(new User(userName, DatasetGenerator.PASSWORD, roles));
+            }
+            default:
+                throw new IllegalStateException("Unhandled action: " + action);
+        }
+    }
+
+    /**
+     * Returns one of the user's chats, starting a chat with another user if they have none.
+     *
+     * @return The chat ID, or -1 if a chat could not be created
+     */
+    private int chatFor(int userId, SplittableRandom random) {
+        int[] chats = chatsByUser.get(userId);
+        if (chats != null) {
+            return chats[random.nextInt(chats.length)];
+        }
+        int other;
+        do {
+            other = userIds[random.nextInt(userIds.length)];
+        } while (other == userId);
+        int chatId = DatabaseHelperDM.createChat(userId, other);
+        if (chatId > 0) {
+            chatsByUser.put(userId, new int[] {chatId});
+        }
+        return chatId;
+    }
+
+    private int popularQuestion(SplittableRandom random) {
+        return questionIds[ZipfDistribution.permute(questionPopularity.sample(random), questionIds.length)];
+    }
+
+    /**
+     * Body of the lock sampler: counts sessions blocked on another session's locks until the run ends.
+     */
+    private void sampleLockWaits() {
+        String query = "SELECT COUNT(*) FROM INFORMATION_SCHEMA.SESSIONS WHERE BLOCKER_ID IS NOT NULL";
+        try (Connection connection = setupHelper.openConnection();
+             PreparedStatement pstmt = connection.prepareStatement(query)) {
+            while (running) {
+                if (measuring) {
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        rs.next();
+                        int blocked = rs.getInt(1);
+                        lockSamples++;
+                        if (blocked > 0) {
+                            blockedSamples++;
+                            blockedSessions += blocked;
+                            maxBlocked = Math.max(maxBlocked, blocked);
+                        }
+                    }
+                }
+                Thread.sleep(config.lockSampleMillis);
+            }
+        } catch (SQLException e) {
+            LOG.error("Lock-wait sampler stopped", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void countError(String code) {
+        if (measuring) {
+            errorCodes.computeIfAbsent(code, k -> new LongAdder()).increment();
+        }
+    }
+
+    /**
+     * Prints the report.
+     */
+    private void printReport() {
+        Map<String, LatencyHistogram> latencies = new LinkedHashMap<>();
+        Map<String, Long> failures = new LinkedHashMap<>();
+        for (Action action : Action.values()) {
+            latencies.put(action.key, stats.get(action).latency);
+            failures.put(action.key, stats.get(action).failures.sum());
+        }
+        LatencyHistogram all = LatencyReport.print("ops", "ops/s", measuredSeconds, config.clients, latencies, failures);
+
+        System.out.println();
+        System.out.println("Latency histogram (all actions):");
+        long[] ranges = all.getMillisecondRanges();
+        for (int i = 0; i < ranges.length; i++) {
+            String label = i == 0 ? "< 1 ms" : (1L << (i - 1)) + "-" + (1L << i) + " ms";
+            double share = all.getCount() == 0 ? 0 : 100.0 * ranges[i] / all.getCount();
+            System.out.printf("  %-14s %10d %6.2f%% %s%n", label, ranges[i], share, "#".repeat((int) Math.round(share / 2)));
+        }
+
+        System.out.println();
+        System.out.println("Database errors:");
+        Map<String, Long> sorted = new TreeMap<>();
+        errorCodes.forEach((code, count) -> sorted.put(code, count.sum()));
+        for (String code : KNOWN_ERRORS.keySet()) {
+            sorted.putIfAbsent(code, 0L);
+        }
+        sorted.forEach((code, count) ->
+                System.out.printf("  %-30s %10d%n", KNOWN_ERRORS.getOrDefault(code, "error " + code), count));
+
+        System.out.println();
+        System.out.println("Lock waits:");
+        System.out.printf("  blocked sessions seen in %.2f%% of %d samples (mean %.2f when blocked, max %d)%n",
+                lockSamples == 0 ? 0 : 100.0 * blockedSamples / lockSamples, lockSamples,
+                blockedSamples == 0 ? 0 : (double) blockedSessions / blockedSamples, maxBlocked);
+    }
+
+    /**
+     * Runs a simulation against the database given by the cse360.db.url system property.
+     *
+     * @param args Settings as {@code key=value} pairs
+     * @throws Exception If the simulation cannot be set up
+     */
+    public static void main(String[] args) throws Exception {
+        new WorkloadSimulator(Config.fromArgs(args)).run();
+        System.exit(0);
+    }
+}
@@ -0,0 +1,74 @@
+package benchmark;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Zipfian distribution over the ranks {@code 0 .. n-1}, where rank {@code k} is drawn with
+ * probability proportional to {@code 1 / (k + 1)^skew}.
+ * <p>
+ * A skew of 0 is uniform; around 1 a handful of ranks take most of the draws, which is how
+ * popularity behaves in a real forum (a few hot questions, a few very active users).
+ * The cumulative distribution is computed once, so each draw is a binary search.
+ * Instances are immutable and can be shared between threads; each thread passes its own random source.
+ * </p>
+ */
+public class ZipfDistribution {
+    /** Cumulative probability of each rank. */
+    private final double[] cdf;
+
+    /**
+     * Creates a Zipfian distribution.
+     *
+     * @param n The number of ranks
+     * @param skew The exponent; 0 gives a uniform distribution
+     */
+    public ZipfDistribution(int n, double skew) {
+        if (n <= 0) {
+            throw new IllegalArgumentException("n must be positive");
+        }
+        cdf = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1.0 / Math.pow(k + 1, skew);
+            cdf[k] = sum;
+        }
+        for (int k = 0; k < n; k++) {
+            cdf[k] /= sum;
+        }
+    }
+
+    /**
+     * Draws a rank.
+     *
+     * @param random The random source to draw from
+     * @return A rank between 0 and n-1, with low ranks the most likely
+     */
+    public int sample(SplittableRandom random) {
+        int i = Arrays.binarySearch(cdf, random.nextDouble());
+        int rank = i >= 0 ? i : -i - 1;
+        return Math.min(rank, cdf.length - 1);
+    }
+
+    /**
+     * Returns the number of ranks.
+     *
+     * @return n
+     */
+    public int size() {
+        return cdf.length;
+    }
+
+    /**
+     * Maps a rank to a position in {@code 0 .. n-1} by a fixed permutation, so that the most
+     * popular ranks are spread across the ID space instead of being the lowest IDs.
+     *
+     * @param rank The rank to map
+     * @param n The size of the ID space
+     * @return The permuted position
+     */
+    public static int permute(int rank, int n) {
+        // 2654435761 is prime, so multiplying by it is a bijection modulo any n it does not divide
+        return (int) ((rank * 2654435761L) % n);
+    }
+}
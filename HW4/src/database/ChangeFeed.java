@@ -0,0 +1,468 @@
+package databasePart1;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import org.h2.engine.SessionLocal;
+import org.h2.jdbc.JdbcConnection;
+import org.h2.mvstore.tx.Transaction;
+
+/**
+ * The ChangeFeed class tells the rest of the application about every row inserted, updated or
+ * deleted in the Questions, Answers, Reviews, Votes, QuestionVotes and Messages tables.
+ * <p>
+ * {@link DatabaseHelper} installs an H2 trigger, {@link RowTrigger}, on each of those tables. H2
+ * runs triggers inside the database engine, so changes made through any connection to the
+ * database are seen, not only the ones made through DatabaseHelper. The trigger copies the row into
+ * a {@link Change} and holds it with the rest of its transaction; once the transaction commits, a
+ * background worker hands its changes, in the order they were made, to every subscriber in
+ * batches. Subscribers run on that worker thread and should
+ * move to the JavaFX thread themselves before touching the UI. When nobody is subscribed the
+ * trigger does nothing.
+ * </p>
+ * <p>
+ * When several clients share a database through {@link DatabaseServer}, the triggers run in the
+ * client that hosts it. Each change then also records which client made it, and
+ * {@link ChangeRelay} passes the changes on to the other clients, which publish them here too.
+ * </p>
+ * <p>
+ * Only committed changes are delivered. H2 runs the trigger again, with the rows swapped, for each
+ * change it rolls back, whether the whole transaction or one failed statement is rolled back, and
+ * that takes the held change back out. The worker checks the open transactions every
+ * {@value #POLL_MILLIS} ms and queues the changes of each one that has finished.
+ * </p>
+ */
+public class ChangeFeed {
+
+    /**
+     * The tables whose changes are recorded, with the name of their trigger and the column that
+     * ties a row to its parent.
+     */
+    public enum Table {
+        QUESTIONS("Questions", null),
+        ANSWERS("Answers", "questionId"),
+        REVIEWS("Reviews", "answerId"),
+        VOTES("Votes", "answerId"),
+        QUESTION_VOTES("QuestionVotes", "questionId"),
+        MESSAGES("Messages", "chat_id");
+
+        private final String tableName;
+        private final String parentColumn;
+
+        Table(String tableName, String parentColumn) {
+            this.tableName = tableName;
+            this.parentColumn = parentColumn;
+        }
+
+        /** @return The name of the table's change trigger */
+        String triggerName() {
+            return "CDC_" + name();
+        }
+    }
+
+    /**
+     * What happened to a row.
+     */
+    public enum Kind { INSERT, UPDATE, DELETE }
+
+    /**
+     * One changed row: its values after an insert or update, or before a delete.
+     */
+    public static final class Change {
+        private final Table table;
+        private final Kind kind;
+        private final String origin;
+        private final Map<String, Integer> columns;
+        private final Object[] row;
+        private final Object[] oldRow;
+
+        Change(Table table, Kind kind, String origin, Map<String, Integer> columns, Object[] row, Object[] oldRow) {
+            this.table = table;
+            this.kind = kind;
+            this.origin = origin;
+            this.columns = columns;
+            this.row = row;
+            this.oldRow = oldRow;
+        }
+
+        /** @return The table the row belongs to */
+        public Table getTable() { return table; }
+
+        /** @return Whether the row was inserted, updated or deleted */
+        public Kind getKind() { return kind; }
+
+        /**
+         * @return The {@link DatabaseServer#getClientId ID} of the client that made the change, or
+         *         null if the database is not shared or the change came from another program
+         */
+        public String getOrigin() { return origin; }
+
+        /** @return The row's ID */
+        public int getId() { return getInt("id"); }
+
+        /** @return The ID of the row's parent (its question, answer or chat), or -1 for a question */
+        public int getParentId() {
+            return table.parentColumn == null ? -1 : getInt(table.parentColumn);
+        }
+
+        /**
+         * Returns a column of the row.
+         *
+         * @param column The column name, in any case
+         * @return The value, or null if the table has no such column
+         */
+        public Object get(String column) {
+            Integer index = columns.get(column.toUpperCase());
+            return index == null ? null : row[index];
+        }
+
+        /**
+         * Checks whether an update changed a column. Inserts and deletes change every column.
+         *
+         * @param column The column name, in any case
+         * @return false if the update left the column's value as it was
+         */
+        public boolean changed(String column) {
+            Integer index = columns.get(column.toUpperCase());
+            return oldRow == null || index == null || !Objects.equals(oldRow[index], row[index]);
+        }
+
+        /** @return The row's column positions, by upper-case column name */
+        Map<String, Integer> columns() { return columns; }
+
+        /** @return The row's values, in column order */
+        Object[] row() { return row; }
+
+        /** @return The row's values before an update, or null */
+        Object[] oldRow() { return oldRow; }
+
+        /**
+         * Returns a numeric or boolean column of the row as an int.
+         *
+         * @param column The column name, in any case
+         * @return The value, with true as 1, or 0 if it is null
+         */
+        public int getInt(String column) {
+            Object value = get(column);
+            if (value instanceof Number) {
+                return ((Number) value).intValue();
+            }
+            return Boolean.TRUE.equals(value) ? 1 : 0;
+        }
+
+        /**
+         * Returns a column of the row as a boolean.
+         *
+         * @param column The column name, in any case
+         * @return Whether the value is true or a non-zero number
+         */
+        public boolean getBoolean(String column) {
+            return getInt(column) != 0;
+        }
+
+        /**
+         * Returns a column of the row as a string.
+         *
+         * @param column The column name, in any case
+         * @return The value, or null
+         */
+        public String getString(String column) {
+            Object value = get(column);
+            return value == null ? null : value.toString();
+        }
+
+        @Override
+        public String toString() {
+            return kind + " " + table.tableName + " " + getId();
+        }
+    }
+
+    /**
+     * A registered subscriber; close it to stop receiving changes.
+     */
+    public static final class Subscription implements AutoCloseable {
+        private final Consumer<List<Change>> listener;
+
+        private Subscription(Consumer<List<Change>> listener) {
+            this.listener = listener;
+        }
+
+        /**
+         * Stops delivering changes to the subscriber.
+         */
+        @Override
+        public void close() {
+            subscriptions.remove(this);
+        }
+    }
+
+    /**
+     * The trigger H2 runs for every inserted, updated or deleted row.
+     * It must be public with a public no-argument constructor so the database can create it.
+     */
+    public static class RowTrigger implements org.h2.api.Trigger {
+        private Table table;
+        private Map<String, Integer> columns;
+
+        @Override
+        public void init(Connection conn, String schemaName, String triggerName, String tableName,
+                boolean before, int type) throws SQLException {
+            for (Table candidate : Table.values()) {
+                if (candidate.triggerName().equalsIgnoreCase(triggerName)) {
+                    table = candidate;
+                }
+            }
+            // The table name is not used to find the table, since H2 renames it while altering it
+            Map<String, Integer> positions = new HashMap<>();
+            try (ResultSet rs = conn.getMetaData().getColumns(null, schemaName, tableName, null)) {
+                while (rs.next()) {
+                    positions.put(rs.getString("COLUMN_NAME").toUpperCase(), rs.getInt("ORDINAL_POSITION") - 1);
+                }
+            }
+            columns = Collections.unmodifiableMap(positions);
+        }
+
+        @Override
+        public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+            if (table == null) {
+                return;
+            }
+            Transaction transaction = ((SessionLocal) conn.unwrap(JdbcConnection.class).getSession()).getTransaction();
+            if (transaction.getStatus() != Transaction.STATUS_OPEN) {
+                // A change being rolled back, with its rows swapped
+                retract(transaction, new Change(table, Kind.UPDATE, null, columns, newRow != null ? newRow : oldRow, null));
+                return;
+            }
+            if (subscriptions.isEmpty()) {
+                return;
+            }
+            Kind kind = oldRow == null ? Kind.INSERT : newRow == null ? Kind.DELETE : Kind.UPDATE;
+            String origin = null;
+            if (recordOrigin) {
+                // Clients of a shared database name themselves in a session variable when they connect
+                try (Statement statement = conn.createStatement();
+                        ResultSet rs = statement.executeQuery("CALL @" + DatabaseServer.CLIENT_VARIABLE)) {
+                    origin = rs.next() ? rs.getString(1) : null;
+                }
+            }
+            hold(transaction, new Change(table, kind, origin, columns, (newRow != null ? newRow : oldRow).clone(),
+                    kind == Kind.UPDATE ? oldRow.clone() : null));
+        }
+    }
+
+    /** Largest number of changes delivered together. */
+    private static final int BATCH_SIZE = 500;
+
+    /** How often the worker checks whether the open transactions have finished, in milliseconds. */
+    private static final int POLL_MILLIS = 2;
+
+    /** Logger for this class's messages and errors */
+    private static final Log LOG = Log.get(ChangeFeed.class);
+
+    /** The current subscribers. */
+    private static final CopyOnWriteArrayList<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    /** Guards the changes below and {@link #pending}, and is notified whenever they change. */
+    private static final Object lock = new Object();
+
+    /** Committed changes waiting for the background worker. */
+    private static final ArrayDeque<Change> queue = new ArrayDeque<>();
+
+    /** Changes made by transactions that have not finished yet, oldest first. */
+    private static final Map<Transaction, List<Change>> open = new IdentityHashMap<>();
+
+    /** Number of recorded changes that have not been delivered or rolled back yet. */
+    private static int pending = 0;
+
+    /** The background worker thread, started on first use. */
+    private static Thread worker;
+
+    /** Whether the triggers record which client made each change; set when this client hosts a shared database. */
+    private static volatile boolean recordOrigin = false;
+
+    /**
+     * Installs the change trigger on every recorded table, if it is not there yet.
+     *
+     * @param statement A statement on the application's connection
+     * @throws SQLException If a database access error occurs
+     */
+    static void installTriggers(Statement statement) throws SQLException {
+        // Triggers from before rollbacks were followed are replaced
+        Set<String> outdated = new HashSet<>();
+        try (ResultSet rs = statement.executeQuery(
+                "SELECT TRIGGER_NAME FROM INFORMATION_SCHEMA.TRIGGERS WHERE NOT IS_ROLLBACK")) {
+            while (rs.next()) {
+                outdated.add(rs.getString(1));
+            }
+        }
+        for (Table table : Table.values()) {
+            if (outdated.contains(table.triggerName())) {
+                statement.execute("DROP TRIGGER " + table.triggerName());
+            }
+            statement.execute("CREATE TRIGGER IF NOT EXISTS " + table.triggerName()
+                    + " AFTER INSERT, UPDATE, DELETE, ROLLBACK ON " + table.tableName
+                    + " FOR EACH ROW CALL '" + RowTrigger.class.getName() + "'");
+        }
+    }
+
+    /**
+     * Starts delivering changes to a subscriber. Changes are delivered in batches, in the order
+     * they were made, on the feed's background thread.
+     *
+     * @param listener Receives each batch of changes
+     * @return The subscription, to close when the changes are no longer wanted
+     */
+    public static Subscription subscribe(Consumer<List<Change>> listener) {
+        Subscription subscription = new Subscription(listener);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * Waits until every recorded change has been delivered or rolled back. Changes made by a
+     * transaction that is still open count as well, so do not call this inside one.
+     *
+     * @param timeoutMillis The longest time to wait, in milliseconds
+     * @return true if the queue is idle, false if the timeout expired first
+     */
+    public static boolean awaitIdle(long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (lock) {
+            while (pending > 0) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    lock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Makes the triggers record which client made each change.
+     */
+    static void recordOrigins() {
+        recordOrigin = true;
+    }
+
+    /**
+     * Queues a committed change for delivery. Used by {@link ChangeRelay} for changes made on a
+     * shared database hosted by another client.
+     */
+    static void publish(Change change) {
+        synchronized (lock) {
+            pending++;
+            queue.add(change);
+            lock.notifyAll();
+        }
+        startWorker();
+    }
+
+    /**
+     * Holds a change until its transaction finishes.
+     */
+    private static void hold(Transaction transaction, Change change) {
+        synchronized (lock) {
+            pending++;
+            open.computeIfAbsent(transaction, t -> new ArrayList<>()).add(change);
+            lock.notifyAll();
+        }
+        startWorker();
+    }
+
+    /**
+     * Drops the latest held change to the same row, which is being rolled back.
+     */
+    private static void retract(Transaction transaction, Change rollback) {
+        synchronized (lock) {
+            List<Change> changes = open.get(transaction);
+            if (changes == null) {
+                return;
+            }
+            for (int i = changes.size() - 1; i >= 0; i--) {
+                Change change = changes.get(i);
+                if (change.table == rollback.table && change.getId() == rollback.getId()) {
+                    changes.remove(i);
+                    pending--;
+                    lock.notifyAll();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves the changes of every finished transaction to the queue. What a rolled-back transaction
+     * held has already been retracted, so whatever is left was committed. The caller holds the lock.
+     */
+    private static void queueFinished() {
+        Iterator<Map.Entry<Transaction, List<Change>>> entries = open.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Transaction, List<Change>> entry = entries.next();
+            if (entry.getKey().getStatus() == Transaction.STATUS_CLOSED) {
+                queue.addAll(entry.getValue());
+                entries.remove();
+            }
+        }
+    }
+
+    /**
+     * Starts the background worker if it is not already running.
+     */
+    private static synchronized void startWorker() {
+        if (worker != null) {
+            return;
+        }
+        worker = new Thread(ChangeFeed::deliverChanges, "change-feed");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Body of the background worker: takes whatever committed changes are waiting, up to one
+     * batch, and hands them to every subscriber.
+     */
+    private static void deliverChanges() {
+        List<Change> batch = new ArrayList<>(BATCH_SIZE);
+        while (true) {
+            synchronized (lock) {
+                try {
+                    queueFinished();
+                    while (queue.isEmpty()) {
+                        lock.wait(open.isEmpty() ? 0 : POLL_MILLIS);
+                        queueFinished();
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                while (batch.size() < BATCH_SIZE && !queue.isEmpty()) {
+                    batch.add(queue.poll());
+                }
+            }
+
+            List<Change> changes = Collections.unmodifiableList(new ArrayList<>(batch));
+            for (Subscription subscription : subscriptions) {
+                try {
+                    subscription.listener.accept(changes);
+                } catch (RuntimeException e) {
+                    LOG.error(e);
+                }
+            }
+            synchronized (lock) {
+                pending -= batch.size();
+                if (pending == 0) {
+                    lock.notifyAll();
+                }
+            }
+            batch.clear();
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package databasePart1;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * The ChangeRelay class passes {@link ChangeFeed} changes from the client that hosts a shared
+ * database to the other clients using it.
+ * <p>
+ * The host listens on a loopback-only socket. A client that connects is sent a random challenge
+ * and must answer with its HMAC-SHA256 under the install's shared-database password (see
+ * {@link DatabaseCredentials}), so only a process that can read the credential file receives
+ * anything. Every change the host's triggers record, whichever client made it, is then written to
+ * each connected client, which publishes it to its own ChangeFeed, so caches and open pages stay
+ * current on every client the same way they do on the host.
+ * </p>
+ * <p>
+ * Changes are sent as a table, a kind, the client that made them and the row's column names and
+ * values; numbers, booleans and strings keep their type and anything else, such as a timestamp,
+ * is sent as its string form. The text of direct messages is never sent: it is relayed as null,
+ * and a client that needs it reads it from the database.
+ * </p>
+ */
+class ChangeRelay {
+
+    /** Marks a null value */
+    private static final int NULL = 0;
+
+    /** Marks an int value */
+    private static final int INT = 1;
+
+    /** Marks a long value */
+    private static final int LONG = 2;
+
+    /** Marks a boolean value */
+    private static final int BOOLEAN = 3;
+
+    /** Marks a string value */
+    private static final int STRING = 4;
+
+    /** Number of times a client tries to reach the host's relay before giving up */
+    private static final int CONNECT_ATTEMPTS = 20;
+
+    /** Time between those attempts, in milliseconds */
+    private static final long CONNECT_RETRY_MILLIS = 250;
+
+    /** Number of random bytes in the challenge a connecting client must answer */
+    private static final int CHALLENGE_BYTES = 32;
+
+    /** Longest time the host waits for a client's answer, in milliseconds */
+    private static final int HANDSHAKE_TIMEOUT_MILLIS = 5000;
+
+    /** Columns that are relayed as null, by table */
+    private static final Map<ChangeFeed.Table, String> WITHHELD = Map.of(ChangeFeed.Table.MESSAGES, "CONTENT");
+
+    /** Logger for this class's messages and errors */
+    private static final Log LOG = Log.get(ChangeRelay.class);
+
+    /** The clients connected to this host's relay */
+    private static final CopyOnWriteArrayList<DataOutputStream> clients = new CopyOnWriteArrayList<>();
+
+    /**
+     * Starts relaying this host's changes to the clients that connect on a loopback port.
+     *
+     * @param port The port to listen on
+     * @throws IOException If the port cannot be opened
+     */
+    static void host(int port) throws IOException {
+        ServerSocket serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        ChangeFeed.subscribe(ChangeRelay::send);
+        Thread acceptor = new Thread(() -> {
+            while (true) {
+                Socket socket;
+                try {
+                    socket = serverSocket.accept();
+                } catch (IOException e) {
+                    LOG.error(e);
+                    return;
+                }
+                try {
+                    socket.setTcpNoDelay(true);
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                    if (accept(socket, out)) {
+                        clients.add(out);
+                        LOG.info("Client connected to the change relay from port {}", socket.getPort());
+                    } else {
+                        LOG.warn("Refused a change relay client on port {} that did not know the shared-database password", socket.getPort());
+                        socket.close();
+                    }
+                } catch (IOException e) {
+                    LOG.info("Client left the change relay during the handshake: {}", e.getMessage());
+                    try {
+                        socket.close();
+                    } catch (IOException ignored) {
+                        // Already gone
+                    }
+                }
+            }
+        }, "change-relay");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Connects to the host's relay and publishes the changes it sends to this client's
+     * {@link ChangeFeed}. The host may still be starting, so the connection is retried for a few
+     * seconds.
+     *
+     * @param port The port the host's relay listens on
+     * @throws IOException If the relay cannot be reached
+     */
+    static void join(int port) throws IOException {
+        Socket socket = null;
+        for (int attempt = 1; socket == null; attempt++) {
+            try {
+                socket = new Socket(InetAddress.getLoopbackAddress(), port);
+            } catch (IOException e) {
+                if (attempt == CONNECT_ATTEMPTS) {
+                    throw e;
+                }
+                try {
+                    Thread.sleep(CONNECT_RETRY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+        DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        byte[] challenge = new byte[CHALLENGE_BYTES];
+        in.readFully(challenge);
+        DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+        out.write(answer(challenge));
+        out.flush();
+        if (!in.readBoolean()) {
+            socket.close();
+            throw new IOException("The change relay refused this client's shared-database password");
+        }
+        Thread reader = new Thread(() -> {
+            try {
+                while (true) {
+                    ChangeFeed.publish(read(in));
+                }
+            } catch (EOFException e) {
+                LOG.warn("The database host closed the change relay; changes made by other clients will not be seen");
+            } catch (IOException e) {
+                LOG.error(e);
+            }
+        }, "change-relay");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Challenges a client that has just connected and tells it whether its answer was right.
+     *
+     * @return true if the client knows the database password
+     */
+    private static boolean accept(Socket socket, DataOutputStream out) throws IOException {
+        byte[] challenge = new byte[CHALLENGE_BYTES];
+        new SecureRandom().nextBytes(challenge);
+        out.write(challenge);
+        out.flush();
+
+        socket.setSoTimeout(HANDSHAKE_TIMEOUT_MILLIS);
+        byte[] response = new byte[answer(challenge).length];
+        new DataInputStream(socket.getInputStream()).readFully(response);
+        socket.setSoTimeout(0);
+
+        boolean accepted = MessageDigest.isEqual(answer(challenge), response);
+        out.writeBoolean(accepted);
+        out.flush();
+        return accepted;
+    }
+
+    /**
+     * Computes the answer to a challenge: its HMAC-SHA256 under the database password.
+     */
+    private static byte[] answer(byte[] challenge) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(DatabaseCredentials.password().getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            return mac.doFinal(challenge);
+        } catch (GeneralSecurityException e) {
+            // Every Java platform has HmacSHA256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Writes a batch of changes to every connected client, dropping any that has gone away.
+     */
+    private static void send(List<ChangeFeed.Change> changes) {
+        for (DataOutputStream out : clients) {
+            try {
+                for (ChangeFeed.Change change : changes) {
+                    write(out, change);
+                }
+                out.flush();
+            } catch (IOException e) {
+                LOG.info("Client left the change relay: {}", e.getMessage());
+                clients.remove(out);
+            }
+        }
+    }
+
+    /**
+     * Writes one change.
+     */
+    private static void write(DataOutputStream out, ChangeFeed.Change change) throws IOException {
+        out.writeByte(change.getTable().ordinal());
+        out.writeByte(change.getKind().ordinal());
+        out.writeUTF(change.getOrigin() == null ? "" : change.getOrigin());
+        String[] names = new String[change.row().length];
+        for (Map.Entry<String, Integer> column : change.columns().entrySet()) {
+            names[column.getValue()] = column.getKey();
+        }
+        out.writeShort(names.length);
+        for (String name : names) {
+            out.writeUTF(name == null ? "" : name);
+        }
+        String withheldColumn = WITHHELD.get(change.getTable());
+        Integer withheld = withheldColumn == null ? null : change.columns().get(withheldColumn);
+        writeRow(out, change.row(), withheld);
+        out.writeBoolean(change.oldRow() != null);
+        if (change.oldRow() != null) {
+            writeRow(out, change.oldRow(), withheld);
+        }
+    }
+
+    /**
+     * Reads one change written by {@link #write}.
+     */
+    private static ChangeFeed.Change read(DataInputStream in) throws IOException {
+        ChangeFeed.Table table = ChangeFeed.Table.values()[in.readUnsignedByte()];
+        ChangeFeed.Kind kind = ChangeFeed.Kind.values()[in.readUnsignedByte()];
+        String origin = in.readUTF();
+        int count = in.readUnsignedShort();
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            columns.put(in.readUTF(), i);
+        }
+        Object[] row = readRow(in, count);
+        Object[] oldRow = in.readBoolean() ? readRow(in, count) : null;
+        return new ChangeFeed.Change(table, kind, origin.isEmpty() ? null : origin,
+                Collections.unmodifiableMap(columns), row, oldRow);
+    }
+
+    /**
+     * Writes a row's values, with the one at the withheld position, if any, as null.
+     */
+    private static void writeRow(DataOutputStream out, Object[] row, Integer withheld) throws IOException {
+        for (int i = 0; i < row.length; i++) {
+            Object value = withheld != null && withheld == i ? null : row[i];
+            if (value == null) {
+                out.writeByte(NULL);
+            } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                out.writeByte(INT);
+                out.writeInt(((Number) value).intValue());
+            } else if (value instanceof Long) {
+                out.writeByte(LONG);
+                out.writeLong((Long) value);
+            } else if (value instanceof Boolean) {
+                out.writeByte(BOOLEAN);
+                out.writeBoolean((Boolean) value);
+            } else {
+                out.writeByte(STRING);
+                out.writeUTF(value.toString());
+            }
+        }
+    }
+
+    private static Object[] readRow(DataInputStream in, int count) throws IOException {
+        Object[] row = new Object[count];
+        for (int i = 0; i < count; i++) {
+            switch (in.readUnsignedByte()) {
+                case INT:
+                    row[i] = in.readInt();
+                    break;
+                case LONG:
+                    row[i] = in.readLong();
+                    break;
+                case BOOLEAN:
+                    row[i] = in.readBoolean();
+                    break;
+                case STRING:
+                    row[i] = in.readUTF();
+                    break;
+                default:
+                    row[i] = null;
+                    break;
+            }
+        }
+        return row;
+    }
+}
@@ -0,0 +1,111 @@
+package databasePart1;
+
+import java.sql.Connection;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The ContentEvents class tells the in-memory indexes and caches built from questions and answers
+ * about changes to them, so a writer reports a change once instead of calling each one in turn.
+ * <p>
+ * Each index or cache subscribes a {@link Listener} when its class is loaded and overrides the
+ * events it keeps track of. One that has not been loaded yet holds nothing that could go out of
+ * date, and builds itself from the database when it is first used. {@link DatabaseHelper} reports
+ * the changes it makes, {@link DatabaseServer} the changes other clients make to a shared
+ * database, and code that writes the tables directly calls {@link #invalidate()}. Listeners are
+ * called on the writer's thread, in the order they subscribed.
+ * </p>
+ */
+public class ContentEvents {
+
+    /**
+     * Receives changes to questions and answers. Every method does nothing unless overridden.
+     */
+    interface Listener {
+        /**
+         * A question was saved. It has no answers or flags yet.
+         *
+         * @param questionId The question's ID
+         * @param body The question's text
+         * @param askedBy The author's user name
+         */
+        default void questionSaved(int questionId, String body, String askedBy) { }
+
+        /**
+         * A question's text was changed.
+         *
+         * @param connection A connection for reloading anything else the listener needs
+         * @param questionId The question's ID
+         * @param body The new text
+         */
+        default void questionEdited(Connection connection, int questionId, String body) { }
+
+        /**
+         * A question was deleted, with its answers.
+         *
+         * @param questionId The question's ID
+         */
+        default void questionDeleted(int questionId) { }
+
+        /**
+         * An answer was saved.
+         *
+         * @param questionId The ID of the question it answers
+         * @param answer The saved answer
+         */
+        default void answerSaved(int questionId, EntityCache.CachedAnswer answer) { }
+
+        /**
+         * The tables were changed in a way that was not reported, so everything should be reloaded.
+         */
+        default void invalidate() { }
+    }
+
+    /** The subscribed listeners */
+    private static final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private ContentEvents() {
+    }
+
+    /**
+     * Starts telling a listener about changes.
+     *
+     * @param listener The listener
+     */
+    static void subscribe(Listener listener) {
+        listeners.add(listener);
+    }
+
+    static void questionSaved(int questionId, String body, String askedBy) {
+        for (Listener listener : listeners) {
+            listener.questionSaved(questionId, body, askedBy);
+        }
+    }
+
+    static void questionEdited(Connection connection, int questionId, String body) {
+        for (Listener listener : listeners) {
+            listener.questionEdited(connection, questionId, body);
+        }
+    }
+
+    static void questionDeleted(int questionId) {
+        for (Listener listener : listeners) {
+            listener.questionDeleted(questionId);
+        }
+    }
+
+    static void answerSaved(int questionId, EntityCache.CachedAnswer answer) {
+        for (Listener listener : listeners) {
+            listener.answerSaved(questionId, answer);
+        }
+    }
+
+    /**
+     * Makes every index and cache reload from the database, for when the tables were changed
+     * without going through {@link DatabaseHelper}.
+     */
+    public static void invalidate() {
+        for (Listener listener : listeners) {
+            listener.invalidate();
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package databasePart1;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.stream.IntStream;
+
+import application.SensitiveTermDictionary;
+
+/**
+ * The ContentModerator class flags sensitive content automatically.
+ * <p>
+ * New questions, answers, reviews and messages are handed to {@link #submit} when they are saved.
+ * A background worker drains them in batches, checks each one against the compiled
+ * {@link SensitiveTermDictionary} built from the ModerationTerms table, and marks every hit
+ * with a single batched UPDATE per content type. Saving content never waits for moderation.
+ * </p>
+ * After staff change the term list, {@link #rescanAll()} checks the whole corpus in parallel.
+ * Content is only ever flagged automatically, never unflagged, so flags set by staff are kept.
+ */
+public class ContentModerator {
+
+    /** Logger for this class's messages and errors */
+    private static final Log LOG = Log.get(ContentModerator.class);
+
+    /**
+     * The kinds of content that can be moderated, with the table and text column each is stored in.
+     */
+    public enum ContentType {
+        QUESTION("Questions", "body"),
+        ANSWER("Answers", "text"),
+        REVIEW("Reviews", "text"),
+        MESSAGE("Messages", "content");
+
+        private final String table;
+        private final String textColumn;
+
+        ContentType(String table, String textColumn) {
+            this.table = table;
+            this.textColumn = textColumn;
+        }
+    }
+
+    /**
+     * A piece of content waiting to be checked.
+     */
+    private static class PendingItem {
+        private final ContentType type;
+        private final int id;
+        private final String text;
+
+        PendingItem(ContentType type, int id, String text) {
+            this.type = type;
+            this.id = id;
+            this.text = text;
+        }
+    }
+
+    /** Largest number of items checked and flagged together. */
+    private static final int BATCH_SIZE = 200;
+
+    /** Content waiting for the background worker. */
+    private static final LinkedBlockingQueue<PendingItem> queue = new LinkedBlockingQueue<>();
+
+    /** Guards {@link #pending} and is notified when the queue becomes idle. */
+    private static final Object idleLock = new Object();
+
+    /** Number of submitted items that have not been processed yet. */
+    private static int pending = 0;
+
+    /** The background worker thread, started on first use. */
+    private static Thread worker;
+
+    /** The moderator's own database connection, opened on first use. */
+    private static Connection connection;
+
+    /** The compiled term dictionary, loaded on first use and replaced when the terms change. */
+    private static volatile SensitiveTermDictionary dictionary;
+
+    /**
+     * Queues a newly saved or edited piece of content to be checked in the background.
+     *
+     * @param type The kind of content
+     * @param id The database ID of the content
+     * @param text The text of the content
+     */
+    public static void submit(ContentType type, int id, String text) {
+        if (id <= 0 || text == null || text.isEmpty()) {
+            return;
+        }
+        synchronized (idleLock) {
+            pending++;
+        }
+        queue.add(new PendingItem(type, id, text));
+        startWorker();
+    }
+
+    /**
+     * Waits until every submitted item has been checked.
+     *
+     * @param timeoutMillis The longest time to wait, in milliseconds
+     * @return true if the queue is idle, false if the timeout expired first
+     */
+    public static boolean awaitIdle(long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (idleLock) {
+            while (pending > 0) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    idleLock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Retrieves the moderation terms.
+     *
+     * @return The terms in alphabetical order
+     */
+    public static List<String> getTerms() {
+        List<String> terms = new ArrayList<>();
+        String query = "SELECT term FROM ModerationTerms ORDER BY term";
+        try (PreparedStatement pstmt = getConnection().prepareStatement(query);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                terms.add(rs.getString("term"));
+            }
+        } catch (SQLException e) {
+            LOG.error(e);
+        }
+        return terms;
+    }
+
+    /**
+     * Adds a moderation term and recompiles the dictionary.
+     * Existing content is not checked against the new term until {@link #rescanAll()} is called.
+     *
+     * @param term The term to add
+     * @return True if the term was added or already existed, false otherwise
+     */
+    public static boolean addTerm(String term) {
+        if (term == null || term.trim().isEmpty()) {
+            return false;
+        }
+        String query = "MERGE INTO ModerationTerms (term) KEY (term) VALUES (?)";
+        try (PreparedStatement pstmt = getConnection().prepareStatement(query)) {
+            pstmt.setString(1, term.trim().toLowerCase());
+            pstmt.executeUpdate();
+            reloadTerms();
+            return true;
+        } catch (SQLException e) {
+            LOG.error(e);
+            return false;
+        }
+    }
+
+    /**
+     * Removes a moderation term and recompiles the dictionary.
+     *
+     * @param term The term to remove
+     * @return True if the term was removed, false otherwise
+     */
+    public static boolean removeTerm(String term) {
+        String query = "DELETE FROM ModerationTerms WHERE term = ?";
+        try (PreparedStatement pstmt = getConnection().prepareStatement(query)) {
+            pstmt.setString(1, term);
+            int rowsAffected = pstmt.executeUpdate();
+            reloadTerms();
+            return rowsAffected > 0;
+        } catch (SQLException e) {
+            LOG.error(e);
+            return false;
+        }
+    }
+
+    /**
+     * Checks all content that is not already flagged against the current terms and flags every hit.
+     * The texts are checked in parallel and the hits for each content type are flagged in one batch.
+     *
+     * @return The number of items newly flagged, or -1 if the scan failed
+     */
+    public static int rescanAll() {
+        SensitiveTermDictionary terms = getDictionary();
+        if (terms.isEmpty()) {
+            return 0;
+        }
+
+        int flagged = 0;
+        try {
+            for (ContentType type : ContentType.values()) {
+                List<Integer> ids = new ArrayList<>();
+                List<String> texts = new ArrayList<>();
+                String query = "SELECT id, " + type.textColumn + " FROM " + type.table + " WHERE is_sensitive = 0";
+                try (PreparedStatement pstmt = getConnection().prepareStatement(query);
+                     ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        ids.add(rs.getInt(1));
+                        texts.add(rs.getString(2));
+                    }
+                }
+
+                int[] hits = IntStream.range(0, ids.size())
+                        .parallel()
+                        .filter(i -> terms.matches(texts.get(i)))
+                        .map(ids::get)
+                        .toArray();
+                flagged += flag(type, hits);
+            }
+        } catch (SQLException e) {
+            LOG.error(e);
+            return -1;
+        }
+        return flagged;
+    }
+
+    /**
+     * Starts the background worker if it is not already running.
+     */
+    private static synchronized void startWorker() {
+        if (worker != null) {
+            return;
+        }
+        worker = new Thread(ContentModerator::processQueue, "content-moderator");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Body of the background worker: takes whatever content is waiting, up to one batch,
+     * and flags the hits.
+     */
+    private static void processQueue() {
+        List<PendingItem> batch = new ArrayList<>(BATCH_SIZE);
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            queue.drainTo(batch, BATCH_SIZE - 1);
+
+            try {
+                SensitiveTermDictionary terms = getDictionary();
+                Map<ContentType, List<Integer>> hits = new EnumMap<>(ContentType.class);
+                for (PendingItem item : batch) {
+                    if (terms.matches(item.text)) {
+                        hits.computeIfAbsent(item.type, k -> new ArrayList<>()).add(item.id);
+                    }
+                }
+                for (Map.Entry<ContentType, List<Integer>> entry : hits.entrySet()) {
+                    flag(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+                }
+            } catch (SQLException e) {
+                LOG.error(e);
+            } finally {
+                synchronized (idleLock) {
+                    pending -= batch.size();
+                    if (pending == 0) {
+                        idleLock.notifyAll();
+                    }
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Marks the given content as sensitive in one batched statement.
+     *
+     * @param type The kind of content
+     * @param ids The IDs of the content to flag
+     * @return The number of items flagged
+     * @throws SQLException If a database access error occurs
+     */
+    private static int flag(ContentType type, int[] ids) throws SQLException {
+        if (ids.length == 0) {
+            return 0;
+        }
+        String query = "UPDATE " + type.table + " SET is_sensitive = 1 WHERE id = ?";
+        try (PreparedStatement pstmt = getConnection().prepareStatement(query)) {
+            for (int id : ids) {
+                pstmt.setInt(1, id);
+                pstmt.addBatch();
+            }
+            int flagged = 0;
+            for (int count : pstmt.executeBatch()) {
+                flagged += Math.max(count, 0);
+            }
+            for (int id : ids) {
+                if (type == ContentType.QUESTION) {
+                    EntityCache.questionSensitivityChanged(id, true);
+                } else if (type == ContentType.ANSWER) {
+                    EntityCache.answerSensitivityChanged(id, true);
+                }
+            }
+            return flagged;
+        }
+    }
+
+    /**
+     * Returns the compiled dictionary, loading it on first use.
+     *
+     * @return The current dictionary
+     */
+    private static SensitiveTermDictionary getDictionary() {
+        SensitiveTermDictionary current = dictionary;
+        if (current == null) {
+            current = reloadTerms();
+        }
+        return current;
+    }
+
+    /**
+     * Recompiles the dictionary from the ModerationTerms table.
+     *
+     * @return The new dictionary
+     */
+    private static synchronized SensitiveTermDictionary reloadTerms() {
+        dictionary = new SensitiveTermDictionary(getTerms());
+        return dictionary;
+    }
+
+    /**
+     * Returns the moderator's own database connection, opening it on first use.
+     *
+     * @return The connection
+     * @throws SQLException If the connection cannot be opened
+     */
+    private static synchronized Connection getConnection() throws SQLException {
+        if (connection == null || connection.isClosed()) {
+            connection = DatabaseHelper.newConnection();
+        }
+        return connection;
+    }
+}
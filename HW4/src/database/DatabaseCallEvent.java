@@ -0,0 +1,36 @@
+package databasePart1;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder event for one statement run by the data-access layer.
+ * <p>
+ * {@link DatabaseMetrics} emits one event per statement on an instrumented connection. The event
+ * spans the execution and, for queries, reading the results. Together with the UI events in the
+ * application package, a single recording shows which database calls a slow page or list was
+ * waiting on.
+ * </p>
+ */
+@Name("cse360.DatabaseCall")
+@Label("Database Call")
+@Category({"CSE360", "Database"})
+@Description("A statement run by DatabaseHelper, DatabaseHelperDM, DatabaseHelperReviews or ContentModerator")
+public class DatabaseCallEvent extends jdk.jfr.Event {
+
+    @Label("Operation")
+    @Description("The data-access method that ran the statement, as Class.method")
+    String operation;
+
+    @Label("SQL")
+    String sql;
+
+    @Label("Rows")
+    @Description("Rows returned by a query, or rows inserted, updated or deleted")
+    long rows;
+
+    @Label("Failed")
+    boolean failed;
+}
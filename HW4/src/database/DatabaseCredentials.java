@@ -0,0 +1,143 @@
+package databasePart1;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * The DatabaseCredentials class holds the password that guards a shared database's TCP server and
+ * change relay, which is generated at random the first time a client hosts or joins a shared
+ * database and kept in a credential file only that user can read.
+ * <p>
+ * The file is FoundationDatabase.credentials next to the database in the home directory, or the
+ * path in the cse360.db.credentials property. Where the file system has POSIX permissions it is
+ * created owner-only (0600), and an existing file that allows more is narrowed back to that. The
+ * password is needed to shut down the TCP server and to join its {@link ChangeRelay}, so on a
+ * shared lab machine only the account that owns the install can do either. The database's own
+ * login is not changed, so the embedded and in-memory modes, and other programs that open the
+ * same database file, are not affected; losing the file only means a new password is generated.
+ * </p>
+ */
+class DatabaseCredentials {
+
+    /** The credential file unless the cse360.db.credentials property says otherwise */
+    private static final String DEFAULT_FILE = "FoundationDatabase.credentials";
+
+    /** Key of the password in the credential file */
+    private static final String PASSWORD_KEY = "password";
+
+    /** Number of random bytes in a generated password */
+    private static final int PASSWORD_BYTES = 24;
+
+    /** Read and write for the owner only */
+    private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rw-------");
+
+    /** Logger for this class's messages and errors */
+    private static final Log LOG = Log.get(DatabaseCredentials.class);
+
+    /** The password, once read or generated */
+    private static String password;
+
+    private DatabaseCredentials() {
+    }
+
+    /**
+     * Returns this install's shared-database password, generating it and writing the credential file if
+     * there is none yet.
+     *
+     * @return The password
+     * @throws UncheckedIOException If the credential file cannot be read or written
+     */
+    static synchronized String password() {
+        if (password == null) {
+            try {
+                password = load(file());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not read or create the shared-database credentials in " + file(), e);
+            }
+        }
+        return password;
+    }
+
+    /**
+     * @return The credential file's path
+     */
+    static Path file() {
+        String configured = System.getProperty("cse360.db.credentials");
+        return configured != null ? Paths.get(configured) : Paths.get(System.getProperty("user.home"), DEFAULT_FILE);
+    }
+
+    /**
+     * Reads the password from the credential file, creating the file with a new password first if
+     * it does not exist. Two clients starting at once both write a complete file of their own and
+     * move it into place, so whichever loses the race reads the winner's.
+     */
+    private static String load(Path file) throws IOException {
+        if (Files.notExists(file)) {
+            create(file);
+        }
+        if (isPosix()) {
+            Set<PosixFilePermission> permissions = Files.getPosixFilePermissions(file);
+            if (!permissions.equals(OWNER_ONLY)) {
+                LOG.warn("{} could be read by other users; making it owner-only", file);
+                Files.setPosixFilePermissions(file, OWNER_ONLY);
+            }
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        String value = properties.getProperty(PASSWORD_KEY, "").trim();
+        if (value.isEmpty()) {
+            throw new IOException(file + " has no " + PASSWORD_KEY);
+        }
+        return value;
+    }
+
+    /**
+     * Writes a credential file with a new random password.
+     */
+    private static void create(Path file) throws IOException {
+        byte[] bytes = new byte[PASSWORD_BYTES];
+        new SecureRandom().nextBytes(bytes);
+        Properties properties = new Properties();
+        properties.setProperty(PASSWORD_KEY, Base64.getUrlEncoder().withoutPadding().encodeToString(bytes));
+
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = isPosix()
+                ? Files.createTempFile(directory, ".credentials", null, PosixFilePermissions.asFileAttribute(OWNER_ONLY))
+                : Files.createTempFile(directory, ".credentials", null);
+        try {
+            try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                properties.store(writer, "Password of the CSE360 database; keep this file private");
+            }
+            Files.move(temporary, file);
+            LOG.info("Generated a database password in {}", file);
+        } catch (FileAlreadyExistsException e) {
+            // Another client created it first
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * @return true if the default file system has POSIX permissions
+     */
+    private static boolean isPosix() {
+        return FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+    }
+}
@@ -2,8 +2,11 @@ package databasePart1;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -11,6 +14,7 @@ import java.util.UUID;
 
 import application.Answer;
 import application.Question;
+import application.QuestionValidator;
 import application.Review;
 import application.User;
 
@@ -24,11 +28,19 @@ import javafx.collections.ObservableList;
  */
 public class DatabaseHelper {
 
+    /** Logger for this class's messages and errors */
+    private static final Log LOG = Log.get(DatabaseHelper.class);
+
     /** JDBC driver name for H2 database */
     static final String JDBC_DRIVER = "org.h2.Driver";
     
-    /** Database URL for the application's H2 database */
-    static final String DB_URL = "jdbc:h2:~/FoundationDatabase";
+    /**
+     * Database URL for the application's H2 database, embedded, shared or in memory as chosen by
+     * the cse360.db.mode system property (see {@link DatabaseServer}).
+     * Can be pointed at another database (for example an in-memory one for benchmarks)
+     * with the cse360.db.url system property.
+     */
+    static final String DB_URL = DatabaseServer.url();
 
     /** Database username */
     static final String USER = "sa";
@@ -36,6 +48,12 @@ public class DatabaseHelper {
     /** Database password */
     static final String PASS = "";
 
+    /** Scope the question search is cached under in {@link SearchResultCache} */
+    private static final String QUESTION_SEARCH_SCOPE = "questions";
+    
+    /** Number of ranked matches a question search puts ahead of the plain text matches */
+    private static final int RANKED_SEARCH_RESULTS = 100;
+
     /** The database connection object */
     private Connection connection = null;
     
@@ -51,15 +69,17 @@ public class DatabaseHelper {
     public void connectToDatabase() throws SQLException {
         try {
             Class.forName(JDBC_DRIVER); // Load the JDBC driver
-            System.out.println("Connecting to database...");
-            connection = DriverManager.getConnection(DB_URL, USER, PASS);
+            LOG.info("Connecting to database...");
+            DatabaseServer.start();
+            connection = newConnection();
             statement = connection.createStatement();
             // You can use this command to clear the database and restart from fresh.
             //statement.execute("DROP ALL OBJECTS");
 
             createTables();  // Create the necessary tables if they don't exist
+            QuestionValidator.setSQLInjectionPatterns(getInjectionPatterns());
         } catch (ClassNotFoundException e) {
-            System.err.println("JDBC Driver not found: " + e.getMessage());
+            LOG.error("JDBC Driver not found: {}", e.getMessage());
         }
     }
 
@@ -168,7 +188,7 @@ public class DatabaseHelper {
                 statement.execute("ALTER TABLE Reviews ADD COLUMN downVote INT DEFAULT 0");
             }
         } catch (SQLException e) {
-            System.err.println("Error adding vote columns to Reviews table: " + e.getMessage());
+            LOG.error("Error adding vote columns to Reviews table: {}", e.getMessage());
         }
 
         try {
@@ -178,7 +198,96 @@ public class DatabaseHelper {
                 statement.execute("ALTER TABLE Answers ADD COLUMN isCorrect BOOLEAN DEFAULT FALSE");
             }
         } catch (SQLException e) {
-            System.err.println("Error adding isCorrect column: " + e.getMessage());
+            LOG.error("Error adding isCorrect column: {}", e.getMessage());
+        }
+        
+        // Terms used to flag sensitive content automatically
+        String moderationTermsTable = "CREATE TABLE IF NOT EXISTS ModerationTerms ("
+            + "term VARCHAR(255) PRIMARY KEY)";
+        statement.execute(moderationTermsTable);
+        
+        // Patterns the question, answer and review validators reject, seeded with the defaults when first created
+        boolean injectionPatternsExist;
+        try (ResultSet rs = connection.getMetaData().getTables(null, null, "INJECTIONPATTERNS", null)) {
+            injectionPatternsExist = rs.next();
+        }
+        statement.execute("CREATE TABLE IF NOT EXISTS InjectionPatterns (pattern VARCHAR(255) PRIMARY KEY)");
+        if (!injectionPatternsExist) {
+            try (PreparedStatement pstmt = connection.prepareStatement("INSERT INTO InjectionPatterns (pattern) VALUES (?)")) {
+                for (String pattern : QuestionValidator.SQL_INJECTION_PATTERNS) {
+                    pstmt.setString(1, pattern);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+            }
+        }
+        
+        // Sensitivity flags are set by the moderator as soon as content is saved
+        ensureSensitiveColumnsExist();
+        
+        // Record row changes for the open pages, last so every column is in place
+        ChangeFeed.installTriggers(statement);
+    }
+
+    /**
+     * Retrieves the SQL injection patterns the validators reject.
+     *
+     * @return The patterns in alphabetical order
+     */
+    public List<String> getInjectionPatterns() {
+        List<String> patterns = new ArrayList<>();
+        String query = "SELECT pattern FROM InjectionPatterns ORDER BY pattern";
+        try (PreparedStatement pstmt = connection.prepareStatement(query);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                patterns.add(rs.getString("pattern"));
+            }
+        } catch (SQLException e) {
+            LOG.error(e);
+        }
+        return patterns;
+    }
+
+    /**
+     * Adds an SQL injection pattern and recompiles the validators' scanner.
+     * Patterns match anywhere in the text and spaces are kept, so "select " matches "select" followed
+     * by a space wherever it appears, including inside a longer word such as "reselect ".
+     *
+     * @param pattern The pattern to add
+     * @return True if the pattern was added or already existed, false otherwise
+     */
+    public boolean addInjectionPattern(String pattern) {
+        if (pattern == null || pattern.trim().isEmpty()) {
+            return false;
+        }
+        String query = "MERGE INTO InjectionPatterns (pattern) KEY (pattern) VALUES (?)";
+        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+            pstmt.setString(1, pattern.toLowerCase());
+            pstmt.executeUpdate();
+            QuestionValidator.setSQLInjectionPatterns(getInjectionPatterns());
+            return true;
+        } catch (SQLException e) {
+            LOG.error(e);
+            return false;
+        }
+    }
+
+    /**
+     * Removes an SQL injection pattern and recompiles the validators' scanner.
+     *
+     * @param pattern The pattern to remove
+     * @return True if the pattern was removed, false otherwise
+     */
+    public boolean removeInjectionPattern(String pattern) {
+        String query = "DELETE FROM InjectionPatterns WHERE pattern = ?";
+        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+            pstmt.setString(1, pattern);
+            int rowsAffected = pstmt.executeUpdate();
+            QuestionValidator.setSQLInjectionPatterns(getInjectionPatterns());
+            return rowsAffected > 0;
+        } catch (SQLException e) {
+            LOG.error(e);
+            return false;
         }
     }
 
@@ -190,9 +299,10 @@ public class DatabaseHelper {
      */
     public boolean isDatabaseEmpty() throws SQLException {
         String query = "SELECT COUNT(*) AS count FROM cse360users";
-        ResultSet resultSet = statement.executeQuery(query);
-        if (resultSet.next()) {
-            return resultSet.getInt("count") == 0;
+        try (ResultSet resultSet = statement.executeQuery(query)) {
+            if (resultSet.next()) {
+                return resultSet.getInt("count") == 0;
+            }
         }
         return true;
     }
@@ -250,13 +360,13 @@ public class DatabaseHelper {
             
             // Provide feedback
             if (rowsAffected > 0) {
-                System.out.println("User deleted successfully.");
+                LOG.info("User deleted successfully.");
             } else {
-                System.out.println("User not found.");
+                LOG.info("User not found.");
             }
         } catch (SQLException e) {
             // Handle SQL exceptions
-            e.printStackTrace();
+            LOG.error(e);
         }
     }    
     
@@ -304,7 +414,7 @@ public class DatabaseHelper {
                 return rs.getInt(1) > 0;
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
         }
         return false; // If an error occurs, assume user doesn't exist
     }
@@ -332,7 +442,27 @@ public class DatabaseHelper {
             }
         } 
         catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
+        }
+        return roles;
+    }
+    
+    /**
+     * Retrieves every role held by at least one user, sorted by name.
+     *
+     * @return A List of the role names
+     */
+    public List<String> getAllRoles() {
+        List<String> roles = new ArrayList<>();
+        String query = "SELECT DISTINCT role FROM userRoles ORDER BY role";
+        
+        try (PreparedStatement pstmt = connection.prepareStatement(query);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                roles.add(rs.getString("role"));
+            }
+        } catch (SQLException e) {
+            LOG.error(e);
         }
         return roles;
     }
@@ -350,7 +480,7 @@ public class DatabaseHelper {
             pstmt.setString(1, code);
             pstmt.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
         }
 
         return code;
@@ -373,7 +503,7 @@ public class DatabaseHelper {
                 return true;
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
         }
         return false;
     }
@@ -389,7 +519,7 @@ public class DatabaseHelper {
             pstmt.setString(1, code);
             pstmt.executeUpdate();
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
         }
     }
     
@@ -420,6 +550,8 @@ public class DatabaseHelper {
             try (ResultSet generatedKeys = preparedstatement.getGeneratedKeys()) {
                 if (generatedKeys.next()) {
                     int questionId = generatedKeys.getInt(1);
+                    ContentEvents.questionSaved(questionId, question.getBody(), question.getAskedBy());
+                    ContentModerator.submit(ContentModerator.ContentType.QUESTION, questionId, question.getBody());
                     // Save all answers for this question
                     for (Answer answer : question.getAnswers()) {
                         saveAnswer(questionId, answer);
@@ -432,7 +564,7 @@ public class DatabaseHelper {
                 }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
             return -1;
         }
     }
@@ -446,7 +578,7 @@ public class DatabaseHelper {
      */
     public boolean saveAnswer(int questionId, Answer answer) {
         String insertAnswer = "INSERT INTO Answers (questionId, text, answeredBy, upVote, downVote, isCorrect) VALUES (?, ?, ?, ?, ?, ?)";
-        try (PreparedStatement preparedstatement = connection.prepareStatement(insertAnswer)) {
+        try (PreparedStatement preparedstatement = connection.prepareStatement(insertAnswer, Statement.RETURN_GENERATED_KEYS)) {
             preparedstatement.setInt(1, questionId);
             preparedstatement.setString(2, answer.getText());
             preparedstatement.setString(3, answer.getAnsweredBy());
@@ -454,9 +586,18 @@ public class DatabaseHelper {
             preparedstatement.setInt(5, answer.getDownvotes());
             preparedstatement.setBoolean(6, answer.isCorrect());
             int affectedRows = preparedstatement.executeUpdate();
+            
+            try (ResultSet generatedKeys = preparedstatement.getGeneratedKeys()) {
+                if (generatedKeys.next()) {
+                    int answerId = generatedKeys.getInt(1);
+                    ContentEvents.answerSaved(questionId, new EntityCache.CachedAnswer(answerId, answer.getText(),
+                            answer.getAnsweredBy(), answer.getUpvotes(), answer.getDownvotes(), answer.isCorrect(), false));
+                    ContentModerator.submit(ContentModerator.ContentType.ANSWER, answerId, answer.getText());
+                }
+            }
             return affectedRows > 0;
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
             return false;
         }
     }
@@ -481,9 +622,12 @@ public class DatabaseHelper {
             pstmt.setInt(2, downVotes);
             pstmt.setInt(3, answerId);
             int affectedRows = pstmt.executeUpdate();
+            if (affectedRows > 0) {
+                EntityCache.answerVotesChanged(answerId, upVotes, downVotes);
+            }
             return affectedRows > 0;
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
             return false;
         }
     }
@@ -500,7 +644,21 @@ public class DatabaseHelper {
     public boolean recordVote(int answerId, String userName, String voteType) {
         // check if user has already voted on answer
         String existingVoteType = getUserVoteType(answerId, userName);
+        boolean recorded = writeVote(answerId, userName, voteType, existingVoteType);
         
+        // A change between upvote and downvote is still one vote, so only new and removed votes move the question
+        if (recorded && existingVoteType == null) {
+            HotQuestionFeed.answerVoted(connection, answerId);
+        } else if (recorded && existingVoteType.equals(voteType)) {
+            HotQuestionFeed.questionChanged(connection, getQuestionIdForAnswer(answerId));
+        }
+        return recorded;
+    }
+    
+    /**
+     * Inserts, changes or deletes a user's vote on an answer, as described for {@link #recordVote}.
+     */
+    private boolean writeVote(int answerId, String userName, String voteType, String existingVoteType) {
         // User has not voted
         if (existingVoteType == null) {
             String insertVote = "INSERT INTO Votes (answerId, userName, voteType) VALUES (?, ?, ?)";
@@ -511,7 +669,7 @@ public class DatabaseHelper {
                 return pstmt.executeUpdate() > 0;
             }
             catch (SQLException e) {
-                e.printStackTrace();
+                LOG.error(e);
                 return false;
             }
         }
@@ -525,7 +683,7 @@ public class DatabaseHelper {
                 return pstmt.executeUpdate() > 0;
             }
             catch (SQLException e) {
-                e.printStackTrace();
+                LOG.error(e);
                 return false;
             }
         }
@@ -538,7 +696,7 @@ public class DatabaseHelper {
                 return pstmt.executeUpdate() > 0;
             }
             catch (SQLException e) {
-                e.printStackTrace();
+                LOG.error(e);
                 return false;
             }
         }
@@ -560,7 +718,7 @@ public class DatabaseHelper {
             }
         }
         catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
         }
         return 0;
     }
@@ -582,7 +740,7 @@ public class DatabaseHelper {
             }
         }
         catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
         }
         return 0;
     }
@@ -606,7 +764,7 @@ public class DatabaseHelper {
             }
         }
         catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
         }
         // Return null if user has not voted on the answer
         return null;
@@ -653,7 +811,7 @@ public class DatabaseHelper {
             
         }
         catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
             return false;
         }
     }
@@ -670,7 +828,20 @@ public class DatabaseHelper {
     public boolean recordQuestionVote(int questionId, String userName, String voteType) {
         // Check user already voted on question
         String existingVoteType = getUserQuestionVoteType(questionId, userName);
+        boolean recorded = writeQuestionVote(questionId, userName, voteType, existingVoteType);
         
+        if (recorded && existingVoteType == null) {
+            HotQuestionFeed.questionVoted(questionId, "upvote".equals(voteType));
+        } else if (recorded) {
+            HotQuestionFeed.questionChanged(connection, questionId);
+        }
+        return recorded;
+    }
+    
+    /**
+     * Inserts, changes or deletes a user's vote on a question, as described for {@link #recordQuestionVote}.
+     */
+    private boolean writeQuestionVote(int questionId, String userName, String voteType, String existingVoteType) {
         // User has not voted
         if (existingVoteType == null) {
             String insertVote = "INSERT INTO QuestionVotes (questionId, userName, voteType) VALUES (?, ?, ?)";
@@ -681,7 +852,7 @@ public class DatabaseHelper {
                 return pstmt.executeUpdate() > 0;
             }
             catch (SQLException e) {
-                e.printStackTrace();
+                LOG.error(e);
                 return false;
             }
         }
@@ -696,7 +867,7 @@ public class DatabaseHelper {
                 return pstmt.executeUpdate() > 0;
             }
             catch (SQLException e) {
-                e.printStackTrace();
+                LOG.error(e);
                 return false;
             }
         }
@@ -710,7 +881,7 @@ public class DatabaseHelper {
                 return pstmt.executeUpdate() > 0;
             }
             catch (SQLException e) {
-                e.printStackTrace();
+                LOG.error(e);
                 return false;
             }
         }
@@ -734,7 +905,7 @@ public class DatabaseHelper {
             }
         }
         catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
         }
         
         return null;
@@ -756,7 +927,7 @@ public class DatabaseHelper {
             }
         }
         catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
         }
         return 0;
     }
@@ -777,7 +948,7 @@ public class DatabaseHelper {
             }
         }
         catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
         }
         return 0;
     }
@@ -794,9 +965,14 @@ public class DatabaseHelper {
         try (PreparedStatement stmt = connection.prepareStatement(query)) {
             stmt.setString(1, updatedText);
             stmt.setInt(2, questionID);
-            return stmt.executeUpdate() > 0;
+            if (stmt.executeUpdate() > 0) {
+                ContentEvents.questionEdited(connection, questionID, updatedText);
+                ContentModerator.submit(ContentModerator.ContentType.QUESTION, questionID, updatedText);
+                return true;
+            }
+            return false;
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
             return false;
         }
     }
@@ -825,13 +1001,16 @@ public class DatabaseHelper {
             // Retrieve the generated ID
             try (ResultSet generatedKeys = preparedStatement.getGeneratedKeys()) {
                 if (generatedKeys.next()) {
-                    return generatedKeys.getInt(1);
+                    int reviewId = generatedKeys.getInt(1);
+                    EntityCache.reviewSaved(reviewId, review.getAnswerID(), review.getReviewBody(), review.getReviewedBy());
+                    ContentModerator.submit(ContentModerator.ContentType.REVIEW, reviewId, review.getReviewBody());
+                    return reviewId;
                 } else {
                     return -1; // No ID was generated
                 }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
         }
         return -1; // Handle SQL exception
     }
@@ -858,33 +1037,22 @@ public class DatabaseHelper {
                 reviews.add(review);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
         }
         return reviews;
     }
     
     /**
-     * Loads all reviews with their corresponding answer IDs.
+     * Loads all reviews with their corresponding answer IDs, taking the ones already in
+     * {@link EntityCache} from memory.
      *
      * @return A Map of Review objects to their answer IDs
      */
     public Map<Review, Integer> loadAllReviewsWithIDs() {
         Map<Review, Integer> reviewsWithIDs = new HashMap<>();
-        String query = "SELECT * FROM Reviews";
-        try (PreparedStatement pstmt = connection.prepareStatement(query);
-            ResultSet rs = pstmt.executeQuery()) {
-        
-            while (rs.next()) {
-                int reviewID = rs.getInt("id");
-                int answerID = rs.getInt("answerId");
-                String body = rs.getString("text");
-                String reviewer = rs.getString("reviewer");
-                Review review = new Review(body, reviewer, answerID);
-                
-                reviewsWithIDs.put(review, answerID);
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
+        for (EntityCache.CachedReview cached : loadCachedReviews(connection, "SELECT id FROM Reviews", null)) {
+            Review review = cached.toReview();
+            reviewsWithIDs.put(review, review.getAnswerID());
         }
         return reviewsWithIDs;
     }
@@ -896,97 +1064,389 @@ public class DatabaseHelper {
      * @return A List of Review objects
      */
     public static List<Review> getReviewsByAuthor(String author) {
-        List<Review> reviews = new ArrayList<>();
-        String query = "SELECT * FROM reviews WHERE reviewer = ?";
-
-        try (Connection connection = DriverManager.getConnection(DB_URL, USER, PASS);
-             PreparedStatement statement = connection.prepareStatement(query)) {
-            statement.setString(1, author);
+        return new ArrayList<>(getReviewsWithIDsByAuthor(author).keySet());
+    }
+    
+    /**
+     * Gets all reviews written by a specific author with their review IDs.
+     *
+     * @param author The username of the author
+     * @return A Map of Review objects to their review IDs, in the order the database returned them
+     */
+    public static Map<Review, Integer> getReviewsWithIDsByAuthor(String author) {
+        Map<Review, Integer> reviews = new LinkedHashMap<>();
+        String query = "SELECT id FROM reviews WHERE reviewer = ?";
 
-            try (ResultSet resultSet = statement.executeQuery()) {
-                while (resultSet.next()) {
-                    Review review = new Review(
-                        resultSet.getString("text"),
-                        resultSet.getString("reviewer"),
-                        resultSet.getInt("answerId")
-                    );
-                    reviews.add(review);
-                }
+        try (Connection connection = newConnection()) {
+            for (EntityCache.CachedReview cached : loadCachedReviews(connection, query, author)) {
+                reviews.put(cached.toReview(), cached.getId());
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
         }
 
         return reviews;
     }
     
+    /**
+     * Looks up who wrote a review.
+     *
+     * @param reviewId The ID of the review
+     * @return The reviewer's username, or null if there is no such review
+     */
+    public String getReviewer(int reviewId) {
+        String query = "SELECT reviewer FROM Reviews WHERE id = ?";
+        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+            pstmt.setInt(1, reviewId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getString("reviewer") : null;
+            }
+        } catch (SQLException e) {
+            LOG.error(e);
+        }
+        return null;
+    }
     
     /**
-     * Loads all questions with their IDs from the database.
+     * Reads the IDs of some reviews and returns them from {@link EntityCache}, loading the ones that
+     * are not cached in one query and caching them.
      *
-     * @return A Map of Question objects to their IDs
+     * @param connection The connection to read with
+     * @param idQuery A query selecting the review IDs, with at most one string parameter
+     * @param parameter The value of the parameter, or null if there is none
+     * @return The reviews, in the order the query returned them
      */
-    public Map<Question, Integer> loadAllQuestionsWithIDs() {
-        Map<Question, Integer> questionsWithIDs = new HashMap<>();
-        String query = "SELECT * FROM Questions ORDER BY timestamp DESC";
-        try (PreparedStatement pstmt = connection.prepareStatement(query);
-            ResultSet rs = pstmt.executeQuery()) {
+    private static List<EntityCache.CachedReview> loadCachedReviews(Connection connection, String idQuery, String parameter) {
+        long since = EntityCache.REVIEWS.getVersion();
+        List<Integer> ids = new ArrayList<>();
+        try (PreparedStatement pstmt = connection.prepareStatement(idQuery)) {
+            if (parameter != null) {
+                pstmt.setString(1, parameter);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
                 while (rs.next()) {
-                    int questionId = rs.getInt("id");
-                    String body = rs.getString("body");
-                    String askedBy = rs.getString("askedBy");
-                    Question question = new Question(body, askedBy);
-                    // load answers for this question
-                    loadAnswersForQuestion(questionId, question);
-                    questionsWithIDs.put(question, questionId);
+                    ids.add(rs.getInt(1));
                 }
+            }
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
+            return new ArrayList<>();
+        }
+        
+        EntityCache.CachedReview[] found = new EntityCache.CachedReview[ids.size()];
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < found.length; i++) {
+            found[i] = EntityCache.REVIEWS.get(ids.get(i));
+            if (found[i] == null) {
+                missing.add(ids.get(i));
+            }
+        }
+        if (!missing.isEmpty()) {
+            String query = "SELECT id, answerId, reviewer, text FROM Reviews WHERE id = ANY(?)";
+            Map<Integer, EntityCache.CachedReview> loaded = new HashMap<>();
+            try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+                pstmt.setArray(1, connection.createArrayOf("INTEGER", missing.toArray()));
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        int id = rs.getInt("id");
+                        loaded.put(id, new EntityCache.CachedReview(id, rs.getInt("answerId"),
+                                rs.getString("text"), rs.getString("reviewer")));
+                    }
+                }
+            } catch (SQLException e) {
+                LOG.error(e);
+            }
+            for (int i = 0; i < found.length; i++) {
+                if (found[i] == null) {
+                    found[i] = loaded.get(ids.get(i));
+                    if (found[i] != null) {
+                        EntityCache.REVIEWS.put(ids.get(i), found[i], since);
+                    }
+                }
+            }
+        }
+        
+        List<EntityCache.CachedReview> reviews = new ArrayList<>();
+        for (EntityCache.CachedReview review : found) {
+            if (review != null) {
+                reviews.add(review);
+            }
+        }
+        return reviews;
+    }
+    
+    
+    /**
+     * Loads all questions with their IDs from the database, taking the ones already in
+     * {@link EntityCache} from memory.
+     *
+     * @return A Map of Question objects to their IDs, newest question first
+     */
+    public Map<Question, Integer> loadAllQuestionsWithIDs() {
+        Map<Question, Integer> questionsWithIDs = new LinkedHashMap<>();
+        for (EntityCache.CachedQuestion cached : loadCachedQuestions()) {
+            questionsWithIDs.put(cached.toQuestion(false), cached.getId());
         }
         return questionsWithIDs;
     }
     
     /**
-     * Loads all answers for a specific question and adds them to the Question object.
+     * Loads one question with its answers, from {@link EntityCache} if it is cached.
+     *
+     * @param questionId The question's ID
+     * @return The question, or null if there is no such question
+     */
+    public Question loadQuestion(int questionId) {
+        long since = EntityCache.QUESTIONS.getVersion();
+        EntityCache.CachedQuestion cached = EntityCache.QUESTIONS.get(questionId);
+        if (cached == null) {
+            cached = loadQuestionRows(List.of(questionId)).get(questionId);
+            if (cached == null) {
+                return null;
+            }
+            EntityCache.QUESTIONS.put(questionId, cached, since);
+        }
+        return cached.toQuestion(false);
+    }
+    
+    /**
+     * Reads the IDs of all questions and returns them, with their answers, from {@link EntityCache}.
+     * The questions that are not cached are loaded and cached: in one query per batch, or with a
+     * single query over every question when most of them are missing.
      *
-     * @param questionId The ID of the question whose answers to load
-     * @param question The Question object to add the answers to
+     * @return The questions, newest first
      */
-    private void loadAnswersForQuestion(int questionId, Question question) {
-        String query = "SELECT * FROM Answers WHERE questionId = ? ORDER BY timestamp";
+    private List<EntityCache.CachedQuestion> loadCachedQuestions() {
+        long since = EntityCache.QUESTIONS.getVersion();
+        List<Integer> ids = new ArrayList<>();
+        String idQuery = "SELECT id FROM Questions ORDER BY timestamp DESC, id";
+        try (PreparedStatement pstmt = connection.prepareStatement(idQuery);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                ids.add(rs.getInt(1));
+            }
+        } catch (SQLException e) {
+            LOG.error(e);
+            return new ArrayList<>();
+        }
+        
+        EntityCache.CachedQuestion[] found = new EntityCache.CachedQuestion[ids.size()];
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < found.length; i++) {
+            found[i] = EntityCache.QUESTIONS.get(ids.get(i));
+            if (found[i] == null) {
+                missing.add(ids.get(i));
+            }
+        }
+        if (!missing.isEmpty()) {
+            Map<Integer, EntityCache.CachedQuestion> loaded = loadQuestionRows(missing.size() * 2 > ids.size() ? null : missing);
+            for (int i = 0; i < found.length; i++) {
+                if (found[i] == null) {
+                    found[i] = loaded.get(ids.get(i));
+                    if (found[i] != null) {
+                        EntityCache.QUESTIONS.put(ids.get(i), found[i], since);
+                    }
+                }
+            }
+        }
+        
+        List<EntityCache.CachedQuestion> questions = new ArrayList<>();
+        for (EntityCache.CachedQuestion question : found) {
+            if (question != null) {
+                questions.add(question);
+            }
+        }
+        return questions;
+    }
+    
+    /**
+     * Loads questions with their answers and sensitivity flags.
+     *
+     * @param questionIds The questions to load, or null to load every question
+     * @return The questions by ID
+     */
+    private Map<Integer, EntityCache.CachedQuestion> loadQuestionRows(List<Integer> questionIds) {
+        Map<Integer, EntityCache.CachedQuestion> questions = new HashMap<>();
+        String query = "SELECT q.id AS qid, q.body, q.askedBy, q.is_sensitive AS q_sensitive, "
+                + "a.id AS aid, a.text, a.answeredBy, a.upVote, a.downVote, a.isCorrect, a.is_sensitive AS a_sensitive "
+                + "FROM Questions q LEFT JOIN Answers a ON a.questionId = q.id "
+                + (questionIds == null ? "" : "WHERE q.id = ANY(?) ")
+                + "ORDER BY q.id, a.timestamp, a.id";
         try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-            pstmt.setInt(1, questionId);
+            if (questionIds != null) {
+                pstmt.setArray(1, connection.createArrayOf("INTEGER", questionIds.toArray()));
+            }
             try (ResultSet rs = pstmt.executeQuery()) {
+                int currentQuestionId = -1;
+                String body = null;
+                String askedBy = null;
+                boolean sensitive = false;
+                List<EntityCache.CachedAnswer> answers = new ArrayList<>();
                 while (rs.next()) {
-                    int answerId = rs.getInt("id");
-                    String text = rs.getString("text");
-                    String answeredBy = rs.getString("answeredBy");
-                    int upVotes = rs.getInt("upVote");
-                    int downVotes = rs.getInt("downVote");
-                    boolean isCorrect = rs.getBoolean("isCorrect");
-                    
-                    Answer answer = new Answer(text, answeredBy);
-                    // store database ID
-                    answer.setId(answerId);
-                    
-                    // set upvote / downvotes directly so exact values are loaded from database and are up to date
-                    for (int i = 0; i < upVotes; i++) {
-                        answer.upvote();
-                    }
-                    for (int i = 0; i < downVotes; i++) {
-                        answer.downvote();
+                    int questionId = rs.getInt("qid");
+                    // Rows for the same question are adjacent, one row per answer
+                    if (questionId != currentQuestionId) {
+                        if (currentQuestionId != -1) {
+                            questions.put(currentQuestionId, new EntityCache.CachedQuestion(currentQuestionId, body, askedBy, sensitive, answers));
+                        }
+                        currentQuestionId = questionId;
+                        body = rs.getString("body");
+                        askedBy = rs.getString("askedBy");
+                        sensitive = rs.getInt("q_sensitive") == 1;
+                        answers.clear();
                     }
-                    if (isCorrect) {
-                        answer.markAsCorrect();
+                    
+                    int answerId = rs.getInt("aid");
+                    if (rs.wasNull()) {
+                        continue; // Question has no answers
                     }
-                    question.addAnswer(answer);
+                    answers.add(new EntityCache.CachedAnswer(answerId, rs.getString("text"), rs.getString("answeredBy"),
+                            rs.getInt("upVote"), rs.getInt("downVote"), rs.getBoolean("isCorrect"), rs.getInt("a_sensitive") == 1));
+                }
+                if (currentQuestionId != -1) {
+                    questions.put(currentQuestionId, new EntityCache.CachedQuestion(currentQuestionId, body, askedBy, sensitive, answers));
                 }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
         }
+        return questions;
+    }
+    
+    /**
+     * Finds existing questions worded nearly the same as a new one, using {@link DuplicateQuestionIndex}.
+     *
+     * @param text The text of the new question
+     * @param limit The most questions to return
+     * @return The similar questions, most similar first
+     */
+    public List<DuplicateQuestionIndex.Match> findSimilarQuestions(String text, int limit) {
+        return DuplicateQuestionIndex.findSimilar(connection, text, limit);
+    }
+    
+    /**
+     * Returns the most active questions right now, ranked by {@link HotQuestionFeed}.
+     *
+     * @param limit The most questions to return
+     * @return The question IDs, hottest first
+     */
+    public List<Integer> getHotQuestionIds(int limit) {
+        return HotQuestionFeed.top(connection, limit);
+    }
+    
+    /**
+     * Returns the questions most similar to a question and its accepted answers, using
+     * {@link RelatedQuestionIndex}. The index is built in the background on first use, and the list is
+     * empty until it is ready.
+     *
+     * @param questionId The ID of the question
+     * @param limit The most questions to return
+     * @return The related questions, most similar first
+     */
+    public List<RelatedQuestionIndex.Related> getRelatedQuestions(int questionId, int limit) {
+        return RelatedQuestionIndex.related(questionId, limit);
     }
+    
+    /**
+     * Searches questions and their answers. Questions that use the search words, or words a typo or
+     * two away from them, come first, best match first, followed by any other question whose text or
+     * answers contain the search text as typed. Results are kept in {@link SearchResultCache} until a
+     * post that could change them is saved.
+     *
+     * @param searchTerm The search text
+     * @return The matching question IDs, best first
+     */
+    public List<Integer> searchQuestionIds(String searchTerm) {
+        List<Integer> cached = SearchResultCache.get(QUESTION_SEARCH_SCOPE, searchTerm);
+        if (cached != null) {
+            return cached;
+        }
+        long version = SearchResultCache.getVersion();
+        List<Integer> questionIds = new ArrayList<>();
+        Set<Integer> found = new HashSet<>();
+        for (FuzzySearchIndex.Hit hit : FuzzySearchIndex.search(connection, searchTerm, RANKED_SEARCH_RESULTS)) {
+            if (found.add(hit.getQuestionId())) {
+                questionIds.add(hit.getQuestionId());
+            }
+        }
         
+        String pattern = "%" + searchTerm.trim().toLowerCase()
+                .replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        String query = "SELECT q.id FROM Questions q WHERE LOWER(q.body) LIKE ? ESCAPE '\\' "
+                + "OR EXISTS (SELECT 1 FROM Answers a WHERE a.questionId = q.id AND LOWER(a.text) LIKE ? ESCAPE '\\') "
+                + "ORDER BY q.id";
+        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+            pstmt.setString(1, pattern);
+            pstmt.setString(2, pattern);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    if (found.add(rs.getInt(1))) {
+                        questionIds.add(rs.getInt(1));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            LOG.error(e);
+            return questionIds;
+        }
+        SearchResultCache.put(QUESTION_SEARCH_SCOPE, searchTerm, questionIds, version);
+        return questionIds;
+    }
+    
+    /**
+     * Finds the questions whose thread uses the search words or words a typo or two away from them,
+     * using {@link FuzzySearchIndex}.
+     *
+     * @param query The search text
+     * @param limit The most questions to return
+     * @return The matching questions, best first
+     */
+    public List<FuzzySearchIndex.Hit> fuzzySearchQuestions(String query, int limit) {
+        return FuzzySearchIndex.search(connection, query, limit);
+    }
+    
+    /**
+     * Searches questions, answers, reviews and direct messages at once, using {@link GlobalSearch}.
+     * Messages are only searched in the user's own chats, and sensitive content only for staff.
+     *
+     * @param query The search text
+     * @param user The user searching
+     * @param limit The most results to return
+     * @return The matching content, best first
+     */
+    public List<GlobalSearch.Result> searchEverything(String query, User user, int limit) {
+        return GlobalSearch.search(query, user, limit);
+    }
+    
+    /**
+     * Suggests completions for what has been typed into the question search box, using
+     * {@link SearchSuggester}.
+     *
+     * @param input The text typed so far
+     * @param limit The most suggestions to return
+     * @return The suggestions, most popular first
+     */
+    public List<String> getSearchSuggestions(String input, int limit) {
+        return SearchSuggester.suggest(connection, input, limit);
+    }
+    
+    /**
+     * Records a search that was run, so it can be suggested to others.
+     *
+     * @param query The text that was searched for
+     */
+    public void recordSearch(String query) {
+        SearchSuggester.querySubmitted(query);
+    }
+    
+    /**
+     * Starts building {@link RelatedQuestionIndex} in the background, so related questions are ready by
+     * the time a question is opened.
+     */
+    public void prepareRelatedQuestions() {
+        RelatedQuestionIndex.requestBuild();
+    }
+    
     /**
      * Finds the database ID of a question based on its content and author.
      *
@@ -1008,7 +1468,7 @@ public class DatabaseHelper {
                 }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
             throw new RuntimeException("Failed to retrieve question ID from database", e); // Rethrow exception
         }
         
@@ -1042,7 +1502,7 @@ public class DatabaseHelper {
                 throw new SQLException("No matching review found in the database.");
             }
         } catch (SQLException e) {
-             e.printStackTrace();
+             LOG.error(e);
              throw new RuntimeException("Failed to retrieve question ID from database", e);
         }
     }
@@ -1067,12 +1527,13 @@ public class DatabaseHelper {
                     try (PreparedStatement deleteStmt = connection.prepareStatement(deleteQuestion)) {
                         deleteStmt.setInt(1, questionId);
                         int affectedRows = deleteStmt.executeUpdate();
+                        ContentEvents.questionDeleted(questionId);
                         return affectedRows > 0;
                     }
                 }
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
         }
         
         return false;
@@ -1086,12 +1547,12 @@ public class DatabaseHelper {
         try{ 
             if(statement!=null) statement.close(); 
         } catch(SQLException se2) { 
-            se2.printStackTrace();
+            LOG.error(se2);
         } 
         try { 
             if(connection!=null) connection.close(); 
         } catch(SQLException se){ 
-            se.printStackTrace(); 
+            LOG.error(se); 
         } 
     }
     
@@ -1111,17 +1572,17 @@ public class DatabaseHelper {
         try (Statement stmt = connection.createStatement();
              ResultSet rs = stmt.executeQuery(query)) {
 
-            System.out.println("Usernames, Passwords, and Roles:");
+            LOG.info("Usernames, Passwords, and Roles:");
 
             // Loop through the result set and print each user's information
             while (rs.next()) {
                 String userName = rs.getString("userName");
                 String password = rs.getString("password");
                 String roles = rs.getString("roles");
-                System.out.println("Username: " + userName + ", Password: " + password + ", Roles: " + (roles != null ? roles : "No roles assigned"));
+                LOG.info("Username: {}, Password: {}, Roles: {}", userName, password, roles != null ? roles : "No roles assigned");
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
         }
     }
     
@@ -1134,17 +1595,18 @@ public class DatabaseHelper {
     public boolean resetDatabase() {
         try {
             // The DROP ALL OBJECTS command will remove all tables, views, sequences, etc.
-            System.out.println("Resetting database - dropping all objects...");
+            LOG.info("Resetting database - dropping all objects...");
             statement.execute("DROP ALL OBJECTS");
             
             // After dropping everything, recreate the necessary tables
             createTables();
+            ContentEvents.invalidate();
             
-            System.out.println("Database has been reset successfully.");
+            LOG.info("Database has been reset successfully.");
             return true;
         } catch (SQLException e) {
-            System.err.println("Error resetting database: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error resetting database: {}", e.getMessage());
+            LOG.error(e);
             return false;
         }
     }
@@ -1185,14 +1647,14 @@ public class DatabaseHelper {
                 User user = new User(userName, password, roles);
                 // Be extra sure the username is set
                 if (!roles.isEmpty()) {
-                    System.out.println("Adding user: " + userName + " with roles: " + String.join(", ", roles));
+                    LOG.debug("Adding user: {} with roles: {}", userName, roles);
                 } else {
-                    System.out.println("Adding user: " + userName + " with no roles");
+                    LOG.debug("Adding user: {} with no roles", userName);
                 }
                 users.add(user);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
         }
         
         return users;
@@ -1206,6 +1668,28 @@ public class DatabaseHelper {
     public Connection getConnection() {
         return this.connection;
     }
+    
+    /**
+     * Opens an additional connection to the same database.
+     * Used by tools that load or query the database from several threads at once.
+     * 
+     * @return A new Connection object, which the caller must close
+     * @throws SQLException If a database access error occurs
+     */
+    public Connection openConnection() throws SQLException {
+        return DriverManager.getConnection(DB_URL, USER, PASS);
+    }
+    
+    /**
+     * Opens a new connection to the application's database for the other data-access classes,
+     * timed and counted by {@link DatabaseMetrics} like the main connection.
+     * 
+     * @return A new Connection object, which the caller must close
+     * @throws SQLException If a database access error occurs
+     */
+    static Connection newConnection() throws SQLException {
+        return DatabaseMetrics.instrument(DriverManager.getConnection(DB_URL, USER, PASS));
+    }
 
     /**
      * Adds a role to a user in the database.
@@ -1243,7 +1727,7 @@ public class DatabaseHelper {
                 }
             }
         } catch (SQLException ex) {
-            ex.printStackTrace();
+            LOG.error(ex);
         }
         
         return false;
@@ -1279,7 +1763,7 @@ public class DatabaseHelper {
                 }
             }
         } catch (SQLException ex) {
-            ex.printStackTrace();
+            LOG.error(ex);
         }
         
         return false;
@@ -1296,9 +1780,12 @@ public class DatabaseHelper {
         try (PreparedStatement pstmt = connection.prepareStatement(deleteReview)) {
             pstmt.setInt(1, reviewID);
             int affectedRows = pstmt.executeUpdate();
+            if (affectedRows > 0) {
+                EntityCache.reviewDeleted(reviewID);
+            }
             return affectedRows > 0;
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
             return false;
         }
     }
@@ -1316,16 +1803,21 @@ public class DatabaseHelper {
             pstmt.setString(1, updatedText);
             pstmt.setInt(2, reviewID);
             int affectedRows = pstmt.executeUpdate();
+            if (affectedRows > 0) {
+                EntityCache.reviewEdited(reviewID, updatedText);
+                ContentModerator.submit(ContentModerator.ContentType.REVIEW, reviewID, updatedText);
+                GlobalSearch.textChanged(ContentModerator.ContentType.REVIEW, reviewID, updatedText);
+            }
             return affectedRows > 0;
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
             return false;
         }
     }
     
     /**
      * Creates the necessary tables for direct messaging if they don't exist.
-     * This includes tables for chats, chat participants, and messages.
+     * This includes tables for chats, chat participants, messages, and the message inbox.
      *
      * @throws SQLException If a database access error occurs
      */
@@ -1362,6 +1854,9 @@ public class DatabaseHelper {
         statement.execute("CREATE INDEX IF NOT EXISTS idx_messages_chat_timestamp ON Messages(chat_id, timestamp)");
         statement.execute("CREATE INDEX IF NOT EXISTS idx_chat_participants_user ON ChatParticipants(user_id)");
         statement.execute("CREATE INDEX IF NOT EXISTS idx_messages_sender ON Messages(sender_id)");
+        
+        // Group chat columns, read cursors and the message inbox
+        DatabaseHelperDM.createGroupChatColumns(connection, statement);
     }
     
     /**
@@ -1382,8 +1877,8 @@ public class DatabaseHelper {
             // Create an index for more efficient lookups
             statement.execute("CREATE INDEX IF NOT EXISTS idx_trusted_reviewers_user ON TrustedReviewers(userId)");
         } catch (SQLException e) {
-            System.err.println("Error creating TrustedReviewers table: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error creating TrustedReviewers table: {}", e.getMessage());
+            LOG.error(e);
         }
     }
     
@@ -1402,7 +1897,7 @@ public class DatabaseHelper {
                 return rs.getInt("questionId");
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
         }
         return -1;
     }
@@ -1430,7 +1925,7 @@ public class DatabaseHelper {
                 return pstmt.executeUpdate() > 0;
             }
             catch (SQLException e) {
-                e.printStackTrace();
+                LOG.error(e);
                 return false;
             }
         }
@@ -1444,7 +1939,7 @@ public class DatabaseHelper {
                 return pstmt.executeUpdate() > 0;
             }
             catch (SQLException e) {
-                e.printStackTrace();
+                LOG.error(e);
                 return false;
             }
         }
@@ -1457,7 +1952,7 @@ public class DatabaseHelper {
                 return pstmt.executeUpdate() > 0;
             }
             catch (SQLException e) {
-                e.printStackTrace();
+                LOG.error(e);
                 return false;
             }
         }
@@ -1481,7 +1976,7 @@ public class DatabaseHelper {
             }
         }
         catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
         }
         return null;
     }
@@ -1502,7 +1997,7 @@ public class DatabaseHelper {
             }
         }
         catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
         }
         return 0;
     }
@@ -1523,7 +2018,7 @@ public class DatabaseHelper {
             }
         }
         catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
         }
         return 0;
     }
@@ -1545,7 +2040,7 @@ public class DatabaseHelper {
             int affectedRows = pstmt.executeUpdate();
             return affectedRows > 0;
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
             return false;
         }
     }
@@ -1588,7 +2083,7 @@ public class DatabaseHelper {
             return updateReviewVotes(reviewId, upvotes, downvotes);
             
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
             return false;
         }
     }
@@ -1615,8 +2110,8 @@ public class DatabaseHelper {
             }
             return true;
         } catch (SQLException e) {
-            System.err.println("Error ensuring ban column exists: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error ensuring ban column exists: {}", e.getMessage());
+            LOG.error(e);
             return false;
         }
     }
@@ -1637,8 +2132,8 @@ public class DatabaseHelper {
             int rowsAffected = pstmt.executeUpdate();
             return rowsAffected > 0;
         } catch (SQLException e) {
-            System.err.println("Error banning user: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error banning user: {}", e.getMessage());
+            LOG.error(e);
             return false;
         }
     }
@@ -1659,8 +2154,8 @@ public class DatabaseHelper {
             int rowsAffected = pstmt.executeUpdate();
             return rowsAffected > 0;
         } catch (SQLException e) {
-            System.err.println("Error unbanning user: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error unbanning user: {}", e.getMessage());
+            LOG.error(e);
             return false;
         }
     }
@@ -1685,8 +2180,8 @@ public class DatabaseHelper {
                 userBanStatus.put(userName, isBanned);
             }
         } catch (SQLException e) {
-            System.err.println("Error getting user ban status: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error getting user ban status: {}", e.getMessage());
+            LOG.error(e);
         }
         
         return userBanStatus;
@@ -1710,8 +2205,8 @@ public class DatabaseHelper {
                 return rs.getBoolean("is_banned");
             }
         } catch (SQLException e) {
-            System.err.println("Error checking if user is banned: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error checking if user is banned: {}", e.getMessage());
+            LOG.error(e);
         }
         
         return false;
@@ -1719,68 +2214,41 @@ public class DatabaseHelper {
     
     /**
      * Ensures that the database has the required columns for tracking sensitive content.
-     * This method adds 'is_sensitive' columns to both questions and answers tables if they don't exist.
+     * This method adds 'is_sensitive' columns to the questions, answers, reviews and messages
+     * tables if they don't exist.
      */
     public void ensureSensitiveColumnsExist() {
+        String[] tables = {"questions", "answers", "reviews", "messages"};
         try {
-            // Check if sensitive column exists in questions table
-            boolean questionSensitiveExists = false;
-            boolean answerSensitiveExists = false;
-            
-            //  question table
-            java.sql.ResultSet rs = connection.getMetaData().getColumns(null, null, "QUESTIONS", "IS_SENSITIVE");
-            if (rs.next()) {
-                questionSensitiveExists = true;
-            }
-            rs.close();
-            
-            // answer table
-            rs = connection.getMetaData().getColumns(null, null, "ANSWERS", "IS_SENSITIVE");
-            if (rs.next()) {
-                answerSensitiveExists = true;
-            }
-            rs.close();
-            
-            // Add columns if none
-            if (!questionSensitiveExists) {
-                try {
-                    PreparedStatement stmt = connection.prepareStatement(
-                            "ALTER TABLE questions ADD COLUMN is_sensitive INTEGER DEFAULT 0");
-                    stmt.executeUpdate();
-                    stmt.close();
-                    System.out.println("Added is_sensitive column to questions table");
-                }
-                catch (SQLException e) {
-                    if (e.getMessage().contains("Duplicate column")) {
-                        System.out.println("Column is_sensitive already exists in questions table");
-                    }
-                    else {
-                        throw e;
-                    }
-                }
-            }
-            
-            if (!answerSensitiveExists) {
-                try {
-                    PreparedStatement stmt = connection.prepareStatement(
-                            "ALTER TABLE answers ADD COLUMN is_sensitive INTEGER DEFAULT 0");
-                    stmt.executeUpdate();
-                    stmt.close();
-                    System.out.println("Added is_sensitive column to answers table");
-                }
-                catch (SQLException e) {
-                    if (e.getMessage().contains("Duplicate column")) {
-                        System.out.println("Column is_sensitive already exists in answers table");
+            for (String table : tables) {
+                // Check if sensitive column exists in this table
+                java.sql.ResultSet rs = connection.getMetaData().getColumns(null, null, table.toUpperCase(), "IS_SENSITIVE");
+                boolean sensitiveExists = rs.next();
+                rs.close();
+                
+                // Add column if none
+                if (!sensitiveExists) {
+                    try {
+                        PreparedStatement stmt = connection.prepareStatement(
+                                "ALTER TABLE " + table + " ADD COLUMN is_sensitive INTEGER DEFAULT 0");
+                        stmt.executeUpdate();
+                        stmt.close();
+                        LOG.info("Added is_sensitive column to {} table", table);
                     }
-                    else {
-                        throw e;
+                    catch (SQLException e) {
+                        if (e.getMessage().contains("Duplicate column")) {
+                            LOG.info("Column is_sensitive already exists in {} table", table);
+                        }
+                        else {
+                            throw e;
+                        }
                     }
                 }
             }
         }
         catch (SQLException e) {
-            System.err.println("Error ensuring sensitive columns exist: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error ensuring sensitive columns exist: {}", e.getMessage());
+            LOG.error(e);
         }
     }
 
@@ -1806,8 +2274,8 @@ public class DatabaseHelper {
             stmt.close();
             return isSensitive;
         } catch (SQLException e) {
-            System.err.println("Error checking if question is sensitive: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error checking if question is sensitive: {}", e.getMessage());
+            LOG.error(e);
             return false;
         }
     }
@@ -1834,8 +2302,8 @@ public class DatabaseHelper {
             stmt.close();
             return isSensitive;
         } catch (SQLException e) {
-            System.err.println("Error checking if answer is sensitive: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error checking if answer is sensitive: {}", e.getMessage());
+            LOG.error(e);
             return false;
         }
     }
@@ -1856,11 +2324,11 @@ public class DatabaseHelper {
             
             int rowsAffected = stmt.executeUpdate();
             stmt.close();
+            EntityCache.questionSensitivityChanged(questionId, isSensitive);
             
             return rowsAffected > 0;
         } catch (SQLException e) {
-            System.err.println("Error setting question sensitivity: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error setting question sensitivity", e);
             return false;
         }
     }
@@ -1881,13 +2349,99 @@ public class DatabaseHelper {
             
             int rowsAffected = stmt.executeUpdate();
             stmt.close();
+            EntityCache.answerSensitivityChanged(answerId, isSensitive);
             
             return rowsAffected > 0;
         } catch (SQLException e) {
-            System.err.println("Error setting answer sensitivity: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error setting answer sensitivity", e);
+            return false;
+        }
+    }
+
+    /**
+     * Loads all questions with their answers and sensitivity flags, taking the ones already in
+     * {@link EntityCache} from memory. The IDs of sensitive questions and answers are recorded in the
+     * given bitmaps, so callers can look up a flag without going back to the database.
+     * 
+     * @param sensitiveQuestions Bitmap that receives the IDs of sensitive questions
+     * @param sensitiveAnswers Bitmap that receives the IDs of sensitive answers
+     * @return A map of questions to their IDs, newest question first
+     */
+    public Map<Question, Integer> loadAllQuestionsWithSensitivity(BitSet sensitiveQuestions, BitSet sensitiveAnswers) {
+        Map<Question, Integer> questionsWithIDs = new LinkedHashMap<>();
+        for (EntityCache.CachedQuestion cached : loadCachedQuestions()) {
+            if (cached.isSensitive()) {
+                sensitiveQuestions.set(cached.getId());
+            }
+            for (EntityCache.CachedAnswer answer : cached.getAnswers()) {
+                if (answer.isSensitive()) {
+                    sensitiveAnswers.set(answer.getId());
+                }
+            }
+            questionsWithIDs.put(cached.toQuestion(true), cached.getId());
+        }
+        return questionsWithIDs;
+    }
+    
+    /**
+     * Sets the sensitivity flag for many questions in one batched statement.
+     * 
+     * @param questionIds The IDs of the questions to update
+     * @param isSensitive Whether the questions should be marked as sensitive
+     * @return true if the operation was successful, false otherwise
+     */
+    public boolean setQuestionsSensitivity(Collection<Integer> questionIds, boolean isSensitive) {
+        return setSensitivity("questions", questionIds, isSensitive);
+    }
+    
+    /**
+     * Sets the sensitivity flag for many answers in one batched statement.
+     * 
+     * @param answerIds The IDs of the answers to update
+     * @param isSensitive Whether the answers should be marked as sensitive
+     * @return true if the operation was successful, false otherwise
+     */
+    public boolean setAnswersSensitivity(Collection<Integer> answerIds, boolean isSensitive) {
+        return setSensitivity("answers", answerIds, isSensitive);
+    }
+    
+    /**
+     * Sets the sensitivity flag for many rows of a table in one transaction, on a connection of its
+     * own so nothing else running on the shared connection is caught in it. Closing the connection
+     * without committing rolls the batch back. The cached entries are changed only once it commits.
+     * 
+     * @param table The table to update
+     * @param ids The IDs of the rows to update
+     * @param isSensitive Whether the rows should be marked as sensitive
+     * @return true if the operation was successful, false otherwise
+     */
+    private boolean setSensitivity(String table, Collection<Integer> ids, boolean isSensitive) {
+        if (ids.isEmpty()) {
+            return true;
+        }
+        String query = "UPDATE " + table + " SET is_sensitive = ? WHERE id = ?";
+        try (Connection transaction = newConnection();
+             PreparedStatement stmt = transaction.prepareStatement(query)) {
+            transaction.setAutoCommit(false);
+            for (int id : ids) {
+                stmt.setInt(1, isSensitive ? 1 : 0);
+                stmt.setInt(2, id);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            transaction.commit();
+        } catch (SQLException e) {
+            LOG.error("Error setting " + table + " sensitivity", e);
             return false;
         }
+        for (int id : ids) {
+            if (table.equals("questions")) {
+                EntityCache.questionSensitivityChanged(id, isSensitive);
+            } else {
+                EntityCache.answerSensitivityChanged(id, isSensitive);
+            }
+        }
+        return true;
     }
 
     /**
@@ -1901,19 +2455,19 @@ public class DatabaseHelper {
         List<Answer> answers = new ArrayList<>();
         try {
             PreparedStatement stmt = connection.prepareStatement(
-                    "SELECT a.id, a.text, a.answered_by, " +
-                    "a.upvotes, a.downvotes, a.is_correct, a.is_sensitive " +
-                    "FROM answers a WHERE a.question_id = ?");
+                    "SELECT a.id, a.text, a.answeredBy, " +
+                    "a.upVote, a.downVote, a.isCorrect, a.is_sensitive " +
+                    "FROM Answers a WHERE a.questionId = ? ORDER BY a.timestamp");
             stmt.setInt(1, questionId);
             ResultSet rs = stmt.executeQuery();
             
             while (rs.next()) {
                 int id = rs.getInt("id");
                 String text = rs.getString("text");
-                String answeredBy = rs.getString("answered_by");
-                int upvotes = rs.getInt("upvotes");
-                int downvotes = rs.getInt("downvotes");
-                boolean isCorrect = rs.getBoolean("is_correct");
+                String answeredBy = rs.getString("answeredBy");
+                int upvotes = rs.getInt("upVote");
+                int downvotes = rs.getInt("downVote");
+                boolean isCorrect = rs.getBoolean("isCorrect");
                 boolean isSensitive = rs.getInt("is_sensitive") == 1;
                 
                 Answer answer = new Answer(text, answeredBy);
@@ -1933,8 +2487,8 @@ public class DatabaseHelper {
             rs.close();
             stmt.close();
         } catch (SQLException e) {
-            System.err.println("Error loading answers for question: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error loading answers for question: {}", e.getMessage());
+            LOG.error(e);
         }
         
         return answers;
@@ -1979,8 +2533,8 @@ public class DatabaseHelper {
             rs.close();
             stmt.close();
         } catch (SQLException e) {
-            System.err.println("Error loading questions: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error loading questions: {}", e.getMessage());
+            LOG.error(e);
         }
         
         return allQuestions;
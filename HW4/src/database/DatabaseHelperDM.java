@@ -14,6 +14,9 @@ import application.User;
  * such as read status and search functionality.
  */
 public class DatabaseHelperDM {
+
+    /** Logger for this class's messages and errors */
+    private static final Log LOG = Log.get(DatabaseHelperDM.class);
     
     /**
      * The database connection used for executing SQL statements.
@@ -25,6 +28,16 @@ public class DatabaseHelperDM {
      */
     private Statement statement;
     
+    /**
+     * SQL expression for the name shown for a chat: the group name for group chats,
+     * or the other participant's username for direct chats.
+     * Expects the chat to be aliased as {@code c} and takes the viewing user's ID as its one parameter.
+     */
+    private static final String CHAT_DISPLAY_NAME =
+            "CASE WHEN c.is_group THEN c.name ELSE "
+            + "(SELECT u2.userName FROM ChatParticipants cp2 JOIN cse360users u2 ON cp2.user_id = u2.id "
+            + "WHERE cp2.chat_id = c.id AND cp2.user_id != ? LIMIT 1) END";
+    
     /**
      * Constructor that initializes the database helper with an existing connection.
      * 
@@ -35,10 +48,25 @@ public class DatabaseHelperDM {
         try {
             this.statement = connection.createStatement();
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
         }
     }
     
+    /**
+     * Opens a connection of its own for a transaction that spans several statements.
+     * The shared connection is used by every caller at once, so switching it out of auto-commit
+     * mode would pull their statements into the transaction. Closing the returned connection
+     * without committing rolls the transaction back.
+     * 
+     * @return A new connection with auto-commit turned off, which the caller must close
+     * @throws SQLException If a database access error occurs
+     */
+    private static Connection openTransaction() throws SQLException {
+        Connection transaction = DatabaseHelper.newConnection();
+        transaction.setAutoCommit(false);
+        return transaction;
+    }
+    
     /**
      * Creates the necessary tables for direct messaging if they don't exist.
      * This includes the following tables:
@@ -84,11 +112,64 @@ public class DatabaseHelperDM {
         statement.execute("CREATE INDEX IF NOT EXISTS idx_messages_chat_timestamp ON Messages(chat_id, timestamp)");
         statement.execute("CREATE INDEX IF NOT EXISTS idx_chat_participants_user ON ChatParticipants(user_id)");
         statement.execute("CREATE INDEX IF NOT EXISTS idx_messages_sender ON Messages(sender_id)");
+        
+        createGroupChatColumns(connection, statement);
+    }
+    
+    /**
+     * Adds the columns and tables needed for group chats to an existing direct message schema.
+     * <ul>
+     *   <li>Chats.name / Chats.is_group - The display name and type of the chat</li>
+     *   <li>Chats.last_message_id - The newest message, updated once per send</li>
+     *   <li>Chats.read_only - Set for announcements, which members read but cannot reply to</li>
+     *   <li>ChatParticipants.last_read_message_id - Per-member read cursor used for unread counts</li>
+     *   <li>MessageInbox - One row per recipient per message, written in a single statement on send</li>
+     * </ul>
+     * Existing chats are backfilled the first time the columns are added so that old messages
+     * keep their read state.
+     * 
+     * @param connection The connection the schema belongs to
+     * @param statement The statement used to run the DDL
+     * @throws SQLException If a database access error occurs or the SQL execution fails
+     */
+    static void createGroupChatColumns(Connection connection, Statement statement) throws SQLException {
+        DatabaseMetaData dbm = connection.getMetaData();
+        boolean cursorExists;
+        try (ResultSet rs = dbm.getColumns(null, null, "CHATPARTICIPANTS", "LAST_READ_MESSAGE_ID")) {
+            cursorExists = rs.next();
+        }
+        
+        statement.execute("ALTER TABLE Chats ADD COLUMN IF NOT EXISTS name VARCHAR(255)");
+        statement.execute("ALTER TABLE Chats ADD COLUMN IF NOT EXISTS is_group BOOLEAN DEFAULT FALSE");
+        statement.execute("ALTER TABLE Chats ADD COLUMN IF NOT EXISTS last_message_id INT DEFAULT 0");
+        statement.execute("ALTER TABLE Chats ADD COLUMN IF NOT EXISTS read_only BOOLEAN DEFAULT FALSE");
+        statement.execute("ALTER TABLE ChatParticipants ADD COLUMN IF NOT EXISTS last_read_message_id INT DEFAULT 0");
+        
+        String inboxTable = "CREATE TABLE IF NOT EXISTS MessageInbox ("
+                + "user_id INT NOT NULL, "
+                + "chat_id INT NOT NULL, "
+                + "message_id INT NOT NULL, "
+                + "PRIMARY KEY (user_id, message_id), "
+                + "FOREIGN KEY (user_id) REFERENCES cse360users(id) ON DELETE CASCADE, "
+                + "FOREIGN KEY (chat_id) REFERENCES Chats(id) ON DELETE CASCADE, "
+                + "FOREIGN KEY (message_id) REFERENCES Messages(id) ON DELETE CASCADE)";
+        statement.execute(inboxTable);
+        statement.execute("CREATE INDEX IF NOT EXISTS idx_message_inbox_user_chat ON MessageInbox(user_id, chat_id, message_id)");
+        
+        if (!cursorExists) {
+            // Carry over the newest message of each chat and the existing is_read state
+            statement.execute("UPDATE Chats c SET last_message_id = "
+                    + "(SELECT COALESCE(MAX(m.id), 0) FROM Messages m WHERE m.chat_id = c.id)");
+            statement.execute("UPDATE ChatParticipants cp SET last_read_message_id = "
+                    + "(SELECT COALESCE(MAX(m.id), 0) FROM Messages m WHERE m.chat_id = cp.chat_id "
+                    + "AND (m.is_read = TRUE OR m.sender_id = cp.user_id))");
+        }
     }
     
     /**
-     * Creates a new chat between two users if one doesn't already exist.
-     * If a chat already exists between the specified users, returns the existing chat ID.
+     * Creates a new direct (two person) chat between two users if one doesn't already exist.
+     * If a direct chat already exists between the specified users, returns the existing chat ID.
+     * Group chats containing both users are not reused.
      * 
      * @param user1Id The ID of the first user
      * @param user2Id The ID of the second user
@@ -104,10 +185,9 @@ public class DatabaseHelperDM {
         String createChatSQL = "INSERT INTO Chats (created_at, updated_at) VALUES (CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)";
         String addParticipantsSQL = "INSERT INTO ChatParticipants (chat_id, user_id) VALUES (?, ?)";
         
-        try (PreparedStatement createChatStmt = connection.prepareStatement(createChatSQL, Statement.RETURN_GENERATED_KEYS)) {
-            // Start transaction
-            connection.setAutoCommit(false);
-            
+        try (Connection transaction = openTransaction();
+             PreparedStatement createChatStmt = transaction.prepareStatement(createChatSQL, Statement.RETURN_GENERATED_KEYS);
+             PreparedStatement addParticipantsStmt = transaction.prepareStatement(addParticipantsSQL)) {
             // Create the chat
             createChatStmt.executeUpdate();
             ResultSet generatedKeys = createChatStmt.getGeneratedKeys();
@@ -115,44 +195,32 @@ public class DatabaseHelperDM {
             if (generatedKeys.next()) {
                 int chatId = generatedKeys.getInt(1);
                 
-                // Add participants
-                try (PreparedStatement addParticipantsStmt = connection.prepareStatement(addParticipantsSQL)) {
-                    // Add first user
-                    addParticipantsStmt.setInt(1, chatId);
-                    addParticipantsStmt.setInt(2, user1Id);
-                    addParticipantsStmt.executeUpdate();
-                    
-                    // Add second user
-                    addParticipantsStmt.setInt(1, chatId);
-                    addParticipantsStmt.setInt(2, user2Id);
-                    addParticipantsStmt.executeUpdate();
-                    
-                    // Commit the transaction
-                    connection.commit();
-                    connection.setAutoCommit(true);
-                    
-                    return chatId;
-                }
+                // Add first user
+                addParticipantsStmt.setInt(1, chatId);
+                addParticipantsStmt.setInt(2, user1Id);
+                addParticipantsStmt.executeUpdate();
+                
+                // Add second user
+                addParticipantsStmt.setInt(1, chatId);
+                addParticipantsStmt.setInt(2, user2Id);
+                addParticipantsStmt.executeUpdate();
+                
+                // Commit the transaction
+                transaction.commit();
+                return chatId;
             }
             
-            // If we get here, something went wrong
-            connection.rollback();
-            connection.setAutoCommit(true);
+            // If we get here, something went wrong; closing the connection rolls back
             return -1;
         } catch (SQLException e) {
-            try {
-                connection.rollback();
-                connection.setAutoCommit(true);
-            } catch (SQLException ex) {
-                ex.printStackTrace();
-            }
-            e.printStackTrace();
+            LOG.error(e);
             return -1;
         }
     }
     
     /**
-     * Checks if a chat exists between two users and returns its ID.
+     * Checks if a direct chat exists between two users and returns its ID.
+     * Group chats that happen to contain both users are ignored.
      * 
      * @param user1Id The ID of the first user
      * @param user2Id The ID of the second user
@@ -162,7 +230,8 @@ public class DatabaseHelperDM {
         String query = "SELECT c.id FROM Chats c "
                 + "JOIN ChatParticipants cp1 ON c.id = cp1.chat_id AND cp1.user_id = ? "
                 + "JOIN ChatParticipants cp2 ON c.id = cp2.chat_id AND cp2.user_id = ? "
-                + "GROUP BY c.id HAVING COUNT(DISTINCT cp1.user_id) = 1 AND COUNT(DISTINCT cp2.user_id) = 1";
+                + "WHERE c.is_group = FALSE "
+                + "LIMIT 1";
         
         try (PreparedStatement pstmt = connection.prepareStatement(query)) {
             pstmt.setInt(1, user1Id);
@@ -173,26 +242,260 @@ public class DatabaseHelperDM {
                 return rs.getInt("id");
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
         }
         
         return null;
     }
     
+    /**
+     * Creates a new group chat with the given name and members.
+     * The creator is always added as a member. All participant rows are inserted
+     * in one batch inside a single transaction.
+     * 
+     * @param name The display name of the group
+     * @param creatorId The ID of the user creating the group
+     * @param memberIds The IDs of the other members of the group
+     * @return The ID of the new group chat, or -1 if creation failed
+     */
+    public int createGroupChat(String name, int creatorId, Collection<Integer> memberIds) {
+        String createChatSQL = "INSERT INTO Chats (name, is_group, created_at, updated_at) "
+                + "VALUES (?, TRUE, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)";
+        String addParticipantSQL = "INSERT INTO ChatParticipants (chat_id, user_id) VALUES (?, ?)";
+        
+        // Creator first, duplicates removed
+        Set<Integer> members = new LinkedHashSet<>();
+        members.add(creatorId);
+        members.addAll(memberIds);
+        
+        try (Connection transaction = openTransaction();
+             PreparedStatement createChatStmt = transaction.prepareStatement(createChatSQL, Statement.RETURN_GENERATED_KEYS);
+             PreparedStatement addParticipantStmt = transaction.prepareStatement(addParticipantSQL)) {
+            createChatStmt.setString(1, name);
+            createChatStmt.executeUpdate();
+            ResultSet generatedKeys = createChatStmt.getGeneratedKeys();
+            
+            if (generatedKeys.next()) {
+                int chatId = generatedKeys.getInt(1);
+                
+                for (int memberId : members) {
+                    addParticipantStmt.setInt(1, chatId);
+                    addParticipantStmt.setInt(2, memberId);
+                    addParticipantStmt.addBatch();
+                }
+                addParticipantStmt.executeBatch();
+                
+                transaction.commit();
+                return chatId;
+            }
+            
+            return -1;
+        } catch (SQLException e) {
+            LOG.error(e);
+            return -1;
+        }
+    }
+    
+    /**
+     * Broadcasts an announcement to every user, or to every user with the given role.
+     * The announcement is stored as a read-only group chat containing the sender and all
+     * recipients, with a single message row, so replies cannot fan out to every recipient. Participants and inbox entries are inserted with one
+     * INSERT ... SELECT each, so the whole broadcast is a handful of statements in one
+     * transaction no matter how many users receive it.
+     * 
+     * @param senderId The ID of the staff member or instructor sending the announcement
+     * @param title The title of the announcement, used as the chat name
+     * @param content The announcement text
+     * @param role The role to deliver to (e.g. "student"), or null to deliver to all users
+     * @return The number of recipients the announcement was delivered to, or -1 if it failed
+     */
+    public static int broadcastAnnouncement(int senderId, String title, String content, String role) {
+        String createChatSQL = "INSERT INTO Chats (name, is_group, read_only, created_at, updated_at) "
+                + "VALUES (?, TRUE, TRUE, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)";
+        String addSenderSQL = "INSERT INTO ChatParticipants (chat_id, user_id) VALUES (?, ?)";
+        String addRecipientsSQL = role == null
+                ? "INSERT INTO ChatParticipants (chat_id, user_id) "
+                    + "SELECT ?, u.id FROM cse360users u WHERE u.id != ?"
+                : "INSERT INTO ChatParticipants (chat_id, user_id) "
+                    + "SELECT DISTINCT ?, u.id FROM cse360users u JOIN UserRoles r ON u.id = r.userId "
+                    + "WHERE u.id != ? AND r.role = ?";
+        String insertMessageSQL = "INSERT INTO Messages (chat_id, sender_id, content) VALUES (?, ?, ?)";
+        String updateChatSQL = "UPDATE Chats SET last_message_id = ? WHERE id = ?";
+        String fanOutSQL = "INSERT INTO MessageInbox (user_id, chat_id, message_id) "
+                + "SELECT user_id, chat_id, ? FROM ChatParticipants WHERE chat_id = ? AND user_id != ?";
+        
+        try (Connection transaction = openTransaction();
+             PreparedStatement createChatStmt = transaction.prepareStatement(createChatSQL, Statement.RETURN_GENERATED_KEYS);
+             PreparedStatement addSenderStmt = transaction.prepareStatement(addSenderSQL);
+             PreparedStatement addRecipientsStmt = transaction.prepareStatement(addRecipientsSQL);
+             PreparedStatement insertMessageStmt = transaction.prepareStatement(insertMessageSQL, Statement.RETURN_GENERATED_KEYS);
+             PreparedStatement updateChatStmt = transaction.prepareStatement(updateChatSQL);
+             PreparedStatement fanOutStmt = transaction.prepareStatement(fanOutSQL)) {
+            createChatStmt.setString(1, title);
+            createChatStmt.executeUpdate();
+            ResultSet chatKeys = createChatStmt.getGeneratedKeys();
+            if (!chatKeys.next()) {
+                return -1;
+            }
+            int chatId = chatKeys.getInt(1);
+            
+            addSenderStmt.setInt(1, chatId);
+            addSenderStmt.setInt(2, senderId);
+            addSenderStmt.executeUpdate();
+            
+            // Add every recipient in one statement
+            addRecipientsStmt.setInt(1, chatId);
+            addRecipientsStmt.setInt(2, senderId);
+            if (role != null) {
+                addRecipientsStmt.setString(3, role);
+            }
+            int recipients = addRecipientsStmt.executeUpdate();
+            
+            insertMessageStmt.setInt(1, chatId);
+            insertMessageStmt.setInt(2, senderId);
+            insertMessageStmt.setString(3, content);
+            insertMessageStmt.executeUpdate();
+            ResultSet messageKeys = insertMessageStmt.getGeneratedKeys();
+            if (!messageKeys.next()) {
+                return -1;
+            }
+            int messageId = messageKeys.getInt(1);
+            
+            updateChatStmt.setInt(1, messageId);
+            updateChatStmt.setInt(2, chatId);
+            updateChatStmt.executeUpdate();
+            
+            // Deliver to every recipient's inbox in one statement
+            fanOutStmt.setInt(1, messageId);
+            fanOutStmt.setInt(2, chatId);
+            fanOutStmt.setInt(3, senderId);
+            fanOutStmt.executeUpdate();
+            
+            transaction.commit();
+            ContentModerator.submit(ContentModerator.ContentType.MESSAGE, messageId, content);
+            return recipients;
+        } catch (SQLException e) {
+            LOG.error(e);
+            return -1;
+        }
+    }
+    
+    /**
+     * Adds members to an existing group chat in one batch.
+     * New members start with their read cursor at the newest message, so the
+     * existing history is visible but not counted as unread.
+     * 
+     * @param chatId The ID of the group chat
+     * @param memberIds The IDs of the users to add
+     * @return True if the members were added, false otherwise
+     */
+    public boolean addChatParticipants(int chatId, Collection<Integer> memberIds) {
+        if (!isGroupChat(chatId)) {
+            return false; // Direct chats always have exactly two participants
+        }
+        
+        String addParticipantSQL = "INSERT INTO ChatParticipants (chat_id, user_id, last_read_message_id) "
+                + "SELECT ?, ?, last_message_id FROM Chats WHERE id = ? "
+                + "AND NOT EXISTS (SELECT 1 FROM ChatParticipants WHERE chat_id = ? AND user_id = ?)";
+        
+        try (PreparedStatement pstmt = connection.prepareStatement(addParticipantSQL)) {
+            for (int memberId : new LinkedHashSet<>(memberIds)) {
+                pstmt.setInt(1, chatId);
+                pstmt.setInt(2, memberId);
+                pstmt.setInt(3, chatId);
+                pstmt.setInt(4, chatId);
+                pstmt.setInt(5, memberId);
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+            return true;
+        } catch (SQLException e) {
+            LOG.error(e);
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Removes a member from a group chat (for example, when a user leaves the group).
+     * 
+     * @param chatId The ID of the group chat
+     * @param userId The ID of the user to remove
+     * @return True if the member was removed, false otherwise
+     */
+    public boolean removeChatParticipant(int chatId, int userId) {
+        String query = "DELETE FROM ChatParticipants WHERE chat_id = ? AND user_id = ? "
+                + "AND chat_id IN (SELECT id FROM Chats WHERE is_group = TRUE)";
+        
+        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+            pstmt.setInt(1, chatId);
+            pstmt.setInt(2, userId);
+            return pstmt.executeUpdate() > 0;
+        } catch (SQLException e) {
+            LOG.error(e);
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Checks whether a chat is a group chat.
+     * 
+     * @param chatId The ID of the chat
+     * @return True if the chat is a group chat, false if it is a direct chat or doesn't exist
+     */
+    public boolean isGroupChat(int chatId) {
+        String query = "SELECT is_group FROM Chats WHERE id = ?";
+        
+        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+            pstmt.setInt(1, chatId);
+            ResultSet rs = pstmt.executeQuery();
+            
+            if (rs.next()) {
+                return rs.getBoolean("is_group");
+            }
+        } catch (SQLException e) {
+            LOG.error(e);
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Checks whether a chat is read-only, as announcements are.
+     * 
+     * @param chatId The ID of the chat
+     * @return True if no one can send messages to the chat, false otherwise or if it doesn't exist
+     */
+    public boolean isReadOnlyChat(int chatId) {
+        String query = "SELECT read_only FROM Chats WHERE id = ?";
+        
+        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+            pstmt.setInt(1, chatId);
+            ResultSet rs = pstmt.executeQuery();
+            
+            if (rs.next()) {
+                return rs.getBoolean("read_only");
+            }
+        } catch (SQLException e) {
+            LOG.error(e);
+        }
+        
+        return false;
+    }
+    
     /**
      * Gets all chats associated with a specific user.
      * 
      * @param userId The ID of the user
-     * @return A map of chat IDs to the usernames of other participants
+     * @return A map of chat IDs to the group name, or the username of the other participant for direct chats
      */
     public Map<Integer, String> getUserChats(int userId) {
         Map<Integer, String> userChats = new HashMap<>();
         
-        String query = "SELECT c.id, u.userName " +
+        String query = "SELECT c.id, " + CHAT_DISPLAY_NAME + " AS chat_name " +
                        "FROM Chats c " +
-                       "JOIN ChatParticipants cp1 ON c.id = cp1.chat_id AND cp1.user_id = ? " +
-                       "JOIN ChatParticipants cp2 ON c.id = cp2.chat_id AND cp2.user_id != ? " +
-                       "JOIN cse360users u ON cp2.user_id = u.id " +
+                       "JOIN ChatParticipants cp ON c.id = cp.chat_id AND cp.user_id = ? " +
                        "ORDER BY c.updated_at DESC";
         
         try (PreparedStatement pstmt = connection.prepareStatement(query)) {
@@ -202,11 +505,11 @@ public class DatabaseHelperDM {
             
             while (rs.next()) {
                 int chatId = rs.getInt("id");
-                String otherUserName = rs.getString("userName");
-                userChats.put(chatId, otherUserName);
+                String chatName = rs.getString("chat_name");
+                userChats.put(chatId, chatName);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
         }
         
         return userChats;
@@ -244,16 +547,47 @@ public class DatabaseHelperDM {
                 participants.add(user);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
         }
         
         return participants;
     }
     
+    /**
+     * Gets the members of a chat by ID and username, sorted by username.
+     * 
+     * @param chatId The ID of the chat
+     * @return A map of user IDs to usernames, empty if the chat has no members or doesn't exist
+     */
+    public Map<Integer, String> getChatMembers(int chatId) {
+        Map<Integer, String> members = new LinkedHashMap<>();
+        
+        String query = "SELECT u.id, u.userName FROM cse360users u " +
+                       "JOIN ChatParticipants cp ON u.id = cp.user_id " +
+                       "WHERE cp.chat_id = ? ORDER BY u.userName";
+        
+        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+            pstmt.setInt(1, chatId);
+            ResultSet rs = pstmt.executeQuery();
+            
+            while (rs.next()) {
+                members.put(rs.getInt("id"), rs.getString("userName"));
+            }
+        } catch (SQLException e) {
+            LOG.error(e);
+        }
+        
+        return members;
+    }
+    
     /**
      * Sends a message in a chat.
-     * Verifies that the sender is a participant in the chat before sending.
-     * Updates the chat's updated_at timestamp when a message is sent.
+     * Verifies that the sender is a participant in the chat and that the chat is not
+     * read-only before sending.
+     * In one transaction the message is inserted, the chat's updated_at timestamp and
+     * last message are updated, and the message is fanned out to the inbox of every
+     * other member with a single INSERT ... SELECT. Read state is tracked by each
+     * member's read cursor, so no per-member rows are updated here.
      * 
      * @param chatId The ID of the chat
      * @param senderId The ID of the sending user
@@ -262,7 +596,12 @@ public class DatabaseHelperDM {
      */
     public static int sendMessage(int chatId, int senderId, String content) {
         // First verify the sender is a participant in the chat
-        String verifyParticipantQuery = "SELECT COUNT(*) FROM ChatParticipants WHERE chat_id = ? AND user_id = ?";
+        String verifyParticipantQuery = "SELECT COUNT(*) FROM ChatParticipants cp JOIN Chats c ON c.id = cp.chat_id "
+                + "WHERE cp.chat_id = ? AND cp.user_id = ? AND c.read_only = FALSE";
+        String insertMessageSQL = "INSERT INTO Messages (chat_id, sender_id, content) VALUES (?, ?, ?)";
+        String updateChatSQL = "UPDATE Chats SET updated_at = CURRENT_TIMESTAMP, last_message_id = ? WHERE id = ?";
+        String fanOutSQL = "INSERT INTO MessageInbox (user_id, chat_id, message_id) "
+                + "SELECT user_id, chat_id, ? FROM ChatParticipants WHERE chat_id = ? AND user_id != ?";
         
         try (PreparedStatement verifyStmt = connection.prepareStatement(verifyParticipantQuery)) {
             verifyStmt.setInt(1, chatId);
@@ -270,34 +609,92 @@ public class DatabaseHelperDM {
             ResultSet rs = verifyStmt.executeQuery();
             
             if (rs.next() && rs.getInt(1) == 0) {
-                return -1; // Sender is not a participant in the chat
+                return -1; // Sender is not a participant in the chat, or the chat is read-only
             }
+        } catch (SQLException e) {
+            LOG.error(e);
+            return -1;
+        }
+        
+        try (Connection transaction = openTransaction();
+             PreparedStatement insertStmt = transaction.prepareStatement(insertMessageSQL, Statement.RETURN_GENERATED_KEYS);
+             PreparedStatement updateChatStmt = transaction.prepareStatement(updateChatSQL);
+             PreparedStatement fanOutStmt = transaction.prepareStatement(fanOutSQL)) {
+            // Insert the message
+            insertStmt.setInt(1, chatId);
+            insertStmt.setInt(2, senderId);
+            insertStmt.setString(3, content);
+            insertStmt.executeUpdate();
             
-            // Update the chat's updated_at timestamp
-            String updateChatSQL = "UPDATE Chats SET updated_at = CURRENT_TIMESTAMP WHERE id = ?";
-            try (PreparedStatement updateChatStmt = connection.prepareStatement(updateChatSQL)) {
-                updateChatStmt.setInt(1, chatId);
+            ResultSet generatedKeys = insertStmt.getGeneratedKeys();
+            if (generatedKeys.next()) {
+                int messageId = generatedKeys.getInt(1);
+                
+                // Update the chat's updated_at timestamp and last message
+                updateChatStmt.setInt(1, messageId);
+                updateChatStmt.setInt(2, chatId);
                 updateChatStmt.executeUpdate();
+                
+                // Deliver to every other member's inbox in one statement
+                fanOutStmt.setInt(1, messageId);
+                fanOutStmt.setInt(2, chatId);
+                fanOutStmt.setInt(3, senderId);
+                fanOutStmt.executeUpdate();
+                
+                transaction.commit();
+                ContentModerator.submit(ContentModerator.ContentType.MESSAGE, messageId, content);
+                return messageId;
             }
+        } catch (SQLException e) {
+            LOG.error(e);
+        }
+        
+        return -1;
+    }
+    
+    /**
+     * Retrieves the messages delivered to a user's inbox across all of their chats.
+     * Only messages newer than the given message ID are returned, oldest first,
+     * so callers can poll with the last ID they have seen.
+     * 
+     * @param userId The ID of the user
+     * @param afterMessageId Only messages with a larger ID are returned (0 for all)
+     * @param limit The maximum number of messages to return
+     * @return A list of maps containing message details (id, chat_id, sender_id, sender_name, content, timestamp)
+     */
+    public List<Map<String, Object>> getInboxMessages(int userId, int afterMessageId, int limit) {
+        List<Map<String, Object>> messages = new ArrayList<>();
+        
+        String query = "SELECT m.id, m.chat_id, m.sender_id, u.userName AS sender_name, m.content, m.timestamp " +
+                       "FROM MessageInbox i " +
+                       "JOIN Messages m ON i.message_id = m.id " +
+                       "JOIN cse360users u ON m.sender_id = u.id " +
+                       "WHERE i.user_id = ? AND i.message_id > ? " +
+                       "ORDER BY i.message_id ASC " +
+                       "LIMIT ?";
+        
+        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
+            pstmt.setInt(1, userId);
+            pstmt.setInt(2, afterMessageId);
+            pstmt.setInt(3, limit);
+            ResultSet rs = pstmt.executeQuery();
             
-            // Insert the message
-            String insertMessageSQL = "INSERT INTO Messages (chat_id, sender_id, content) VALUES (?, ?, ?)";
-            try (PreparedStatement insertStmt = connection.prepareStatement(insertMessageSQL, Statement.RETURN_GENERATED_KEYS)) {
-                insertStmt.setInt(1, chatId);
-                insertStmt.setInt(2, senderId);
-                insertStmt.setString(3, content);
-                insertStmt.executeUpdate();
+            while (rs.next()) {
+                Map<String, Object> message = new HashMap<>();
+                message.put("id", rs.getInt("id"));
+                message.put("chat_id", rs.getInt("chat_id"));
+                message.put("sender_id", rs.getInt("sender_id"));
+                message.put("sender_name", rs.getString("sender_name"));
+                message.put("content", rs.getString("content"));
+                message.put("timestamp", rs.getTimestamp("timestamp"));
                 
-                ResultSet generatedKeys = insertStmt.getGeneratedKeys();
-                if (generatedKeys.next()) {
-                    return generatedKeys.getInt(1);
-                }
+                messages.add(message);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
         }
         
-        return -1;
+        return messages;
     }
     
     /**
@@ -333,7 +730,7 @@ public class DatabaseHelperDM {
                 messages.add(message);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
         }
         
         return messages;
@@ -341,26 +738,28 @@ public class DatabaseHelperDM {
     
     /**
      * Gets the count of unread messages in a chat for a specific user.
-     * Only counts messages sent by other users, not messages sent by the specified user.
+     * Only counts messages sent by other users that are newer than the user's read cursor.
      * 
      * @param chatId The ID of the chat
      * @param userId The ID of the user
      * @return The count of unread messages
      */
     public int getUnreadMessageCount(int chatId, int userId) {
-        String query = "SELECT COUNT(*) FROM Messages " +
-                       "WHERE chat_id = ? AND sender_id != ? AND is_read = FALSE";
+        String query = "SELECT COUNT(*) FROM Messages m " +
+                       "JOIN ChatParticipants cp ON cp.chat_id = m.chat_id AND cp.user_id = ? " +
+                       "WHERE m.chat_id = ? AND m.sender_id != ? AND m.id > cp.last_read_message_id";
         
         try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-            pstmt.setInt(1, chatId);
-            pstmt.setInt(2, userId);
+            pstmt.setInt(1, userId);
+            pstmt.setInt(2, chatId);
+            pstmt.setInt(3, userId);
             ResultSet rs = pstmt.executeQuery();
             
             if (rs.next()) {
                 return rs.getInt(1);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
         }
         
         return 0;
@@ -368,22 +767,40 @@ public class DatabaseHelperDM {
     
     /**
      * Marks all messages in a chat as read for a specific user.
-     * Only marks messages sent by other users, not messages sent by the specified user.
+     * Advances the user's read cursor to the newest message in the chat, which is a single
+     * row update regardless of how many messages or members the chat has. In direct chats
+     * the other user's messages are also flagged as read so the sender sees a read receipt.
      * 
      * @param chatId The ID of the chat
      * @param userId The ID of the user
-     * @return The number of messages marked as read
+     * @return The number of messages that were unread before the call
      */
     public int markMessagesAsRead(int chatId, int userId) {
-        String query = "UPDATE Messages SET is_read = TRUE " +
-                       "WHERE chat_id = ? AND sender_id != ? AND is_read = FALSE";
+        int unread = getUnreadMessageCount(chatId, userId);
+        if (unread == 0) {
+            return 0;
+        }
         
-        try (PreparedStatement pstmt = connection.prepareStatement(query)) {
-            pstmt.setInt(1, chatId);
-            pstmt.setInt(2, userId);
-            return pstmt.executeUpdate();
+        String cursorQuery = "UPDATE ChatParticipants SET last_read_message_id = " +
+                             "(SELECT last_message_id FROM Chats WHERE id = ?) " +
+                             "WHERE chat_id = ? AND user_id = ?";
+        String receiptQuery = "UPDATE Messages SET is_read = TRUE " +
+                              "WHERE chat_id = ? AND sender_id != ? AND is_read = FALSE " +
+                              "AND chat_id IN (SELECT id FROM Chats WHERE is_group = FALSE)";
+        
+        try (PreparedStatement cursorStmt = connection.prepareStatement(cursorQuery);
+             PreparedStatement receiptStmt = connection.prepareStatement(receiptQuery)) {
+            cursorStmt.setInt(1, chatId);
+            cursorStmt.setInt(2, chatId);
+            cursorStmt.setInt(3, userId);
+            cursorStmt.executeUpdate();
+            
+            receiptStmt.setInt(1, chatId);
+            receiptStmt.setInt(2, userId);
+            receiptStmt.executeUpdate();
+            return unread;
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
         }
         
         return 0;
@@ -395,18 +812,18 @@ public class DatabaseHelperDM {
      * 
      * @param userId The ID of the user
      * @param keyword The keyword to search for
-     * @return A list of maps containing message details that match the search
+     * @return A list of maps containing message details that match the search; other_user holds
+     *         the group name for group chats
      */
     public List<Map<String, Object>> searchMessages(int userId, String keyword) {
         List<Map<String, Object>> messages = new ArrayList<>();
         
         String query = "SELECT m.id, m.chat_id, m.sender_id, u.userName AS sender_name, " +
-                       "m.content, m.timestamp, m.is_read, u2.userName AS other_user " +
+                       "m.content, m.timestamp, m.is_read, " + CHAT_DISPLAY_NAME + " AS other_user " +
                        "FROM Messages m " +
+                       "JOIN Chats c ON m.chat_id = c.id " +
                        "JOIN cse360users u ON m.sender_id = u.id " +
-                       "JOIN ChatParticipants cp1 ON m.chat_id = cp1.chat_id AND cp1.user_id = ? " +
-                       "JOIN ChatParticipants cp2 ON m.chat_id = cp2.chat_id AND cp2.user_id != ? " +
-                       "JOIN cse360users u2 ON cp2.user_id = u2.id " +
+                       "JOIN ChatParticipants cp ON m.chat_id = cp.chat_id AND cp.user_id = ? " +
                        "WHERE m.content LIKE ? " +
                        "ORDER BY m.timestamp DESC";
         
@@ -430,7 +847,7 @@ public class DatabaseHelperDM {
                 messages.add(message);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
         }
         
         return messages;
@@ -439,6 +856,7 @@ public class DatabaseHelperDM {
     /**
      * Gets the most recent chats for a user.
      * Includes information about the last message and unread message count.
+     * For group chats, other_user holds the group name and is_group is true.
      * 
      * @param userId The ID of the user
      * @param limit The maximum number of chats to return
@@ -447,13 +865,12 @@ public class DatabaseHelperDM {
     public Map<Integer, Map<String, Object>> getRecentChats(int userId, int limit) {
         Map<Integer, Map<String, Object>> recentChats = new HashMap<>();
         
-        String query = "SELECT c.id, c.updated_at, u.userName AS other_user, " +
-                       "(SELECT COUNT(*) FROM Messages m WHERE m.chat_id = c.id AND m.sender_id != ? AND m.is_read = FALSE) AS unread_count, " +
-                       "(SELECT m.content FROM Messages m WHERE m.chat_id = c.id ORDER BY m.timestamp DESC LIMIT 1) AS last_message " +
+        String query = "SELECT c.id, c.updated_at, c.is_group, " + CHAT_DISPLAY_NAME + " AS other_user, " +
+                       "(SELECT COUNT(*) FROM Messages m WHERE m.chat_id = c.id AND m.sender_id != ? " +
+                       "AND m.id > cp.last_read_message_id) AS unread_count, " +
+                       "(SELECT m.content FROM Messages m WHERE m.id = c.last_message_id) AS last_message " +
                        "FROM Chats c " +
-                       "JOIN ChatParticipants cp1 ON c.id = cp1.chat_id AND cp1.user_id = ? " +
-                       "JOIN ChatParticipants cp2 ON c.id = cp2.chat_id AND cp2.user_id != ? " +
-                       "JOIN cse360users u ON cp2.user_id = u.id " +
+                       "JOIN ChatParticipants cp ON c.id = cp.chat_id AND cp.user_id = ? " +
                        "ORDER BY c.updated_at DESC " +
                        "LIMIT ?";
         
@@ -468,6 +885,7 @@ public class DatabaseHelperDM {
                 int chatId = rs.getInt("id");
                 Map<String, Object> chatDetails = new HashMap<>();
                 chatDetails.put("updated_at", rs.getTimestamp("updated_at"));
+                chatDetails.put("is_group", rs.getBoolean("is_group"));
                 chatDetails.put("other_user", rs.getString("other_user"));
                 chatDetails.put("unread_count", rs.getInt("unread_count"));
                 chatDetails.put("last_message", rs.getString("last_message"));
@@ -475,7 +893,7 @@ public class DatabaseHelperDM {
                 recentChats.put(chatId, chatDetails);
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
         }
         
         return recentChats;
@@ -497,7 +915,7 @@ public class DatabaseHelperDM {
             int rowsAffected = pstmt.executeUpdate();
             return rowsAffected > 0;
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
         }
         
         return false;
@@ -520,7 +938,7 @@ public class DatabaseHelperDM {
                 return rs.getInt("id");
             }
         } catch (SQLException e) {
-            e.printStackTrace();
+            LOG.error(e);
         }
         
         return -1;
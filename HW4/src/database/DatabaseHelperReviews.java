@@ -21,6 +21,9 @@ import java.util.List;
  * </p>
  */
 public class DatabaseHelperReviews {
+
+    /** Logger for this class's messages and errors */
+    private static final Log LOG = Log.get(DatabaseHelperReviews.class);
     
     /**
      * The database connection used for all operations.
@@ -68,8 +71,8 @@ public class DatabaseHelperReviews {
             // Create an index for more efficient lookups
             statement.execute("CREATE INDEX IF NOT EXISTS idx_trusted_reviewers_user ON TrustedReviewers(userId)");
         } catch (SQLException e) {
-            System.err.println("Error creating TrustedReviewers table: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error creating TrustedReviewers table: {}", e.getMessage());
+            LOG.error(e);
         }
     }
     
@@ -114,8 +117,8 @@ public class DatabaseHelperReviews {
             int rowsAffected = pstmt.executeUpdate();
             return rowsAffected > 0;
         } catch (SQLException e) {
-            System.err.println("Error adding trusted reviewer: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error adding trusted reviewer: {}", e.getMessage());
+            LOG.error(e);
             return false;
         }
     }
@@ -145,8 +148,8 @@ public class DatabaseHelperReviews {
             int rowsAffected = pstmt.executeUpdate();
             return rowsAffected > 0;
         } catch (SQLException e) {
-            System.err.println("Error removing trusted reviewer: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error removing trusted reviewer: {}", e.getMessage());
+            LOG.error(e);
             return false;
         }
     }
@@ -177,8 +180,8 @@ public class DatabaseHelperReviews {
                 return rs.next(); // If there's a result, the reviewer is trusted
             }
         } catch (SQLException e) {
-            System.err.println("Error checking trusted reviewer status: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error checking trusted reviewer status: {}", e.getMessage());
+            LOG.error(e);
             return false;
         }
     }
@@ -215,8 +218,8 @@ public class DatabaseHelperReviews {
                 }
             }
         } catch (SQLException e) {
-            System.err.println("Error getting trusted reviewers: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error getting trusted reviewers: {}", e.getMessage());
+            LOG.error(e);
         }
         
         return trustedReviewers;
@@ -252,8 +255,8 @@ public class DatabaseHelperReviews {
                 }
             }
         } catch (SQLException e) {
-            System.err.println("Error getting users who trust reviewer: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error getting users who trust reviewer: {}", e.getMessage());
+            LOG.error(e);
         }
         
         return usersWhoTrust;
@@ -281,8 +284,8 @@ public class DatabaseHelperReviews {
                 }
             }
         } catch (SQLException e) {
-            System.err.println("Error getting trust count: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error getting trust count: {}", e.getMessage());
+            LOG.error(e);
         }
         
         return 0;
@@ -308,8 +311,8 @@ public class DatabaseHelperReviews {
                 }
             }
         } catch (SQLException e) {
-            System.err.println("Error getting user ID: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error getting user ID: {}", e.getMessage());
+            LOG.error(e);
         }
         
         return -1; // User not found
@@ -342,8 +345,8 @@ public class DatabaseHelperReviews {
             int rowsAffected = pstmt.executeUpdate();
             return rowsAffected >= 0; // Success even if no rows were deleted
         } catch (SQLException e) {
-            System.err.println("Error clearing trusted reviewers: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error clearing trusted reviewers: {}", e.getMessage());
+            LOG.error(e);
             return false;
         }
     }
@@ -376,8 +379,8 @@ public class DatabaseHelperReviews {
                 reviewers.add(rs.getString("trustedReviewerUserName"));
             }
         } catch (SQLException e) {
-            System.err.println("Error getting reviewers by trust count: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("Error getting reviewers by trust count: {}", e.getMessage());
+            LOG.error(e);
         }
         
         return reviewers;
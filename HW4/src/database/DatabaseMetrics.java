@@ -0,0 +1,441 @@
+package databasePart1;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * The DatabaseMetrics class keeps timing and counters for every database operation.
+ * <p>
+ * {@link #instrument(Connection)} wraps a JDBC connection so that every statement run on it is
+ * measured and attributed to the operation that issued it: the outermost DatabaseHelper,
+ * DatabaseHelperDM, DatabaseHelperReviews or ContentModerator method on the call stack.
+ * For each operation it keeps the number of statements executed, failures, rows returned,
+ * rows updated, and a latency histogram. A query's time is its execution plus the time spent in
+ * {@code next()} fetching its rows; it is recorded once the results are read to the end or
+ * closed, or the statement is run again, so results left open do not count idle time.
+ * </p>
+ * <p>
+ * Counters are lock-free, so recording never blocks the calling thread. The operation name of a
+ * prepared statement is looked up once, when it is prepared; a plain Statement may be reused by
+ * several methods, so its operation is looked up on each execution.
+ * {@link #snapshot()} returns a consistent-enough copy for display. Executions over the
+ * {@link SlowQueryLog} threshold are also passed to that log with their SQL and parameters,
+ * and every execution is emitted as a {@link DatabaseCallEvent} for Java Flight Recorder.
+ * </p>
+ * <p>
+ * The data-access methods usually log a failure and return a failure value, so callers cannot
+ * see the error itself. Listeners added with {@link #addErrorListener(Consumer)} are given every
+ * SQLException thrown by an instrumented connection, statement or result set before it reaches
+ * that code.
+ * </p>
+ */
+public class DatabaseMetrics {
+
+    /**
+     * Counters for one operation.
+     */
+    private static class OperationStats {
+        private final String name;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder statements = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder rowsReturned = new LongAdder();
+        private final LongAdder rowsUpdated = new LongAdder();
+
+        OperationStats(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * A point-in-time copy of one operation's counters.
+     */
+    public static class OperationSnapshot {
+        private final String operation;
+        private final long statements;
+        private final long failures;
+        private final long rowsReturned;
+        private final long rowsUpdated;
+        private final double totalMillis;
+        private final double meanMillis;
+        private final double p50Millis;
+        private final double p99Millis;
+        private final double maxMillis;
+
+        private OperationSnapshot(String operation, OperationStats stats) {
+            LatencyHistogram latency = stats.latency;
+            this.operation = operation;
+            this.statements = stats.statements.sum();
+            this.failures = stats.failures.sum();
+            this.rowsReturned = stats.rowsReturned.sum();
+            this.rowsUpdated = stats.rowsUpdated.sum();
+            this.meanMillis = latency.getMean() / 1000;
+            this.totalMillis = meanMillis * latency.getCount();
+            this.p50Millis = latency.getPercentile(0.50) / 1000.0;
+            this.p99Millis = latency.getPercentile(0.99) / 1000.0;
+            this.maxMillis = latency.getMax() / 1000.0;
+        }
+
+        /** @return The operation name, as Class.method */
+        public String getOperation() { return operation; }
+
+        /** @return The number of statements the operation executed */
+        public long getStatements() { return statements; }
+
+        /** @return The number of statements that failed */
+        public long getFailures() { return failures; }
+
+        /** @return The number of rows read from query results */
+        public long getRowsReturned() { return rowsReturned; }
+
+        /** @return The number of rows inserted, updated or deleted */
+        public long getRowsUpdated() { return rowsUpdated; }
+
+        /** @return The total time spent in the operation's statements, in milliseconds */
+        public double getTotalMillis() { return totalMillis; }
+
+        /** @return The mean statement time, in milliseconds */
+        public double getMeanMillis() { return meanMillis; }
+
+        /** @return The median statement time, in milliseconds */
+        public double getP50Millis() { return p50Millis; }
+
+        /** @return The 99th percentile statement time, in milliseconds */
+        public double getP99Millis() { return p99Millis; }
+
+        /** @return The slowest statement time, in milliseconds */
+        public double getMaxMillis() { return maxMillis; }
+    }
+
+    /** Classes whose methods count as operations */
+    private static final Set<String> OPERATION_CLASSES = Set.of(
+            DatabaseHelper.class.getName(),
+            DatabaseHelperDM.class.getName(),
+            DatabaseHelperReviews.class.getName(),
+            ContentModerator.class.getName());
+
+    /** Name used for statements issued from outside the data-access classes */
+    private static final String OTHER = "(other)";
+
+    /** Counters by operation name */
+    private static final ConcurrentHashMap<String, OperationStats> operations = new ConcurrentHashMap<>();
+
+    private static final StackWalker walker = StackWalker.getInstance();
+
+    /** Listeners told about every SQLException thrown through an instrumented connection */
+    private static final List<Consumer<SQLException>> errorListeners = new CopyOnWriteArrayList<>();
+
+    private DatabaseMetrics() {
+    }
+
+    /**
+     * Wraps a connection so that every statement run on it is measured.
+     *
+     * @param connection The connection to wrap
+     * @return A connection that behaves like the original and records metrics
+     */
+    public static Connection instrument(Connection connection) {
+        if (connection == null || Proxy.isProxyClass(connection.getClass())) {
+            return connection;
+        }
+        return (Connection) Proxy.newProxyInstance(DatabaseMetrics.class.getClassLoader(),
+                new Class<?>[] {Connection.class}, new ConnectionHandler(connection));
+    }
+
+    /**
+     * Returns the current counters of every operation that has run, busiest first by total time.
+     *
+     * @return A list of snapshots
+     */
+    public static List<OperationSnapshot> snapshot() {
+        List<OperationSnapshot> snapshots = new ArrayList<>();
+        operations.forEach((name, stats) -> snapshots.add(new OperationSnapshot(name, stats)));
+        snapshots.sort(Comparator.comparingDouble(OperationSnapshot::getTotalMillis).reversed());
+        return snapshots;
+    }
+
+    /**
+     * Returns the current counters of one operation.
+     *
+     * @param operation The operation name, as Class.method (e.g. "DatabaseHelper.login")
+     * @return The snapshot, or null if the operation has not run
+     */
+    public static OperationSnapshot snapshot(String operation) {
+        OperationStats stats = operations.get(operation);
+        return stats == null ? null : new OperationSnapshot(operation, stats);
+    }
+
+    /**
+     * Clears all counters.
+     */
+    public static void reset() {
+        operations.clear();
+    }
+
+    /**
+     * Adds a listener that is given every SQLException thrown by an instrumented connection,
+     * statement or result set. It is called on the thread that made the failing call.
+     *
+     * @param listener The listener
+     */
+    public static void addErrorListener(Consumer<SQLException> listener) {
+        errorListeners.add(listener);
+    }
+
+    /**
+     * Removes a listener added with {@link #addErrorListener(Consumer)}.
+     *
+     * @param listener The listener
+     */
+    public static void removeErrorListener(Consumer<SQLException> listener) {
+        errorListeners.remove(listener);
+    }
+
+    /**
+     * Finds the operation a statement belongs to: the outermost data-access method on the stack.
+     *
+     * @return The counters for that operation
+     */
+    private static OperationStats currentOperation() {
+        String name = walker.walk(frames -> {
+            String outermost = OTHER;
+            for (Iterator<StackWalker.StackFrame> it = frames.iterator(); it.hasNext(); ) {
+                StackWalker.StackFrame frame = it.next();
+                if (OPERATION_CLASSES.contains(frame.getClassName()) && !frame.getMethodName().startsWith("lambda$")) {
+                    String className = frame.getClassName();
+                    outermost = className.substring(className.lastIndexOf('.') + 1) + "." + frame.getMethodName();
+                }
+            }
+            return outermost;
+        });
+        return operations.computeIfAbsent(name, OperationStats::new);
+    }
+
+    /**
+     * Invokes a method on the wrapped object, rethrowing what the method threw.
+     */
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof SQLException) {
+                for (Consumer<SQLException> listener : errorListeners) {
+                    listener.accept((SQLException) e.getCause());
+                }
+            }
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Hands out measured statements for a connection.
+     */
+    private static class ConnectionHandler implements InvocationHandler {
+        private final Connection connection;
+
+        ConnectionHandler(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = DatabaseMetrics.invoke(connection, method, args);
+            if (result instanceof Statement) {
+                Class<?> type = method.getReturnType();
+                // A plain statement can be kept and reused by other methods, so it is attributed per execution
+                OperationStats stats = type == Statement.class ? null : currentOperation();
+                String sql = type == Statement.class ? null : (String) args[0];
+                return Proxy.newProxyInstance(DatabaseMetrics.class.getClassLoader(), new Class<?>[] {type},
+                        new StatementHandler((Statement) result, stats, sql));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Times the executions of one statement and remembers its SQL and bound parameters
+     * for the slow-query log.
+     */
+    private static class StatementHandler implements InvocationHandler {
+        private final Statement statement;
+
+        /** The operation the statement belongs to, or null to look it up on each execution */
+        private final OperationStats owner;
+
+        /** The SQL of a prepared statement, or of the last execution of a plain one */
+        private String sql;
+
+        /** The parameters currently bound, by index */
+        private final Map<Integer, Object> parameters = new TreeMap<>();
+
+        /** Number of parameter sets added to the current batch */
+        private int batchSize;
+
+        /** The query whose results are still being read: its operation, time and rows so far */
+        private OperationStats queryStats;
+        private DatabaseCallEvent queryEvent;
+        private long queryNanos;
+        private long queryRows;
+
+        StatementHandler(Statement statement, OperationStats owner, String sql) {
+            this.statement = statement;
+            this.owner = owner;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("close")) {
+                finishQuery();
+                return DatabaseMetrics.invoke(statement, method, args);
+            }
+            if (!name.startsWith("execute")) {
+                trackParameters(name, args);
+                return DatabaseMetrics.invoke(statement, method, args);
+            }
+
+            finishQuery();
+            OperationStats stats = owner != null ? owner : currentOperation();
+            if (args != null && args.length > 0 && args[0] instanceof String) {
+                sql = (String) args[0];
+            }
+            DatabaseCallEvent event = new DatabaseCallEvent();
+            event.begin();
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = DatabaseMetrics.invoke(statement, method, args);
+            } catch (Throwable e) {
+                stats.failures.increment();
+                record(stats, event, System.nanoTime() - start, 0, true);
+                throw e;
+            }
+
+            if (result instanceof ResultSet) {
+                // Keep timing while the results are read
+                queryStats = stats;
+                queryEvent = event;
+                queryNanos = System.nanoTime() - start;
+                queryRows = 0;
+                event.end();
+                return Proxy.newProxyInstance(DatabaseMetrics.class.getClassLoader(), new Class<?>[] {ResultSet.class},
+                        (rsProxy, rsMethod, rsArgs) -> resultSetCall((ResultSet) result, rsMethod, rsArgs));
+            }
+
+            long updated = 0;
+            if (result instanceof Integer) {
+                updated = Math.max(0, (Integer) result);
+            } else if (result instanceof Long) {
+                updated = Math.max(0, (Long) result);
+            } else if (result instanceof int[]) {
+                for (int count : (int[]) result) {
+                    updated += Math.max(0, count);
+                }
+            } else if (result instanceof long[]) {
+                for (long count : (long[]) result) {
+                    updated += Math.max(0, count);
+                }
+            }
+            stats.rowsUpdated.add(updated);
+            record(stats, event, System.nanoTime() - start, updated, false);
+            if (name.equals("executeBatch")) {
+                batchSize = 0;
+            }
+            return result;
+        }
+
+        /**
+         * Keeps track of the parameters bound to a prepared statement.
+         *
+         * @param name The name of the method called
+         * @param args Its arguments
+         */
+        private void trackParameters(String name, Object[] args) {
+            if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer
+                    && statement instanceof PreparedStatement) {
+                parameters.put((Integer) args[0], name.equals("setNull") ? null : args[1]);
+            } else if (name.equals("clearParameters")) {
+                parameters.clear();
+            } else if (name.equals("addBatch")) {
+                batchSize++;
+            } else if (name.equals("clearBatch")) {
+                batchSize = 0;
+            }
+        }
+
+        private Object resultSetCall(ResultSet rs, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.equals("getStatement")) {
+                return statement;
+            }
+            if (name.equals("close")) {
+                finishQuery();
+                return DatabaseMetrics.invoke(rs, method, args);
+            }
+            if (!name.equals("next") || queryStats == null) {
+                return DatabaseMetrics.invoke(rs, method, args);
+            }
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = DatabaseMetrics.invoke(rs, method, args);
+            } finally {
+                queryNanos += System.nanoTime() - start;
+                queryEvent.end();
+            }
+            if ((Boolean) result) {
+                queryRows++;
+            } else {
+                finishQuery();
+            }
+            return result;
+        }
+
+        /**
+         * Records the query whose results were being read, if there is one.
+         */
+        private void finishQuery() {
+            if (queryStats == null) {
+                return;
+            }
+            OperationStats stats = queryStats;
+            queryStats = null;
+            stats.rowsReturned.add(queryRows);
+            record(stats, queryEvent, queryNanos, queryRows, false);
+        }
+
+        /**
+         * Records one execution, commits its flight recorder event, and hands it to the
+         * slow-query log if it took long enough.
+         *
+         * @param stats The operation's counters
+         * @param event The flight recorder event begun with the execution
+         * @param nanos How long the execution took
+         * @param rows The rows returned or updated
+         * @param failed Whether the execution threw an exception
+         */
+        private void record(OperationStats stats, DatabaseCallEvent event, long nanos, long rows, boolean failed) {
+            if (event.shouldCommit()) {
+                event.operation = stats.name;
+                event.sql = sql;
+                event.rows = rows;
+                event.failed = failed;
+                event.commit();
+            }
+            stats.statements.increment();
+            stats.latency.record(nanos / 1000);
+            if (SlowQueryLog.isSlow(nanos)) {
+                SlowQueryLog.submit(stats.name, sql, new TreeMap<>(parameters), batchSize, rows, nanos);
+            }
+        }
+    }
+}
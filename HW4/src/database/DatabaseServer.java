@@ -0,0 +1,330 @@
+package databasePart1;
+
+import org.h2.api.ErrorCode;
+import org.h2.tools.Server;
+
+import java.io.IOException;
+import java.sql.*;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The DatabaseServer class decides how the application reaches its H2 database, and lets several
+ * clients on one machine share it.
+ * <p>
+ * The cse360.db.mode system property picks one of three modes:
+ * </p>
+ * <ul>
+ *   <li>{@code embedded}, the default: the database file is opened directly, so only one client at a
+ *       time can use it;</li>
+ *   <li>{@code server}: the first client to start hosts the database with an H2 TCP server on
+ *       cse360.db.port (default {@value #DEFAULT_PORT}), and the clients started after it connect to
+ *       that server. H2 only accepts connections from the same machine unless told otherwise;</li>
+ *   <li>{@code memory}: a private in-memory database that is gone when the client exits.</li>
+ * </ul>
+ * <p>
+ * The cse360.db.url property still overrides the mode with any JDBC URL.
+ * </p>
+ * <p>
+ * In server mode the database triggers run in the host, so only the host's {@link ChangeFeed} sees
+ * changes directly. The host passes every change on through {@link ChangeRelay}, on the port after
+ * the database port, and each client reports the changes made by the other clients to
+ * {@link ContentEvents} the way {@link DatabaseHelper} reports its own as it makes them. Clients tell
+ * their changes apart by the ID each one sets in a session variable when it connects. The host must
+ * keep running while other clients use the database; on a lab machine, start a dedicated one with
+ * {@code java -Dcse360.db.mode=server databasePart1.DatabaseServer}, and stop it with the same
+ * command followed by {@code stop}.
+ * </p>
+ * <p>
+ * The password in {@link DatabaseCredentials} guards the TCP server's shutdown and the change
+ * relay. The database's own login is left as it is, so the embedded and in-memory modes do not
+ * use that password.
+ * </p>
+ */
+public class DatabaseServer {
+
+    /**
+     * How the database is reached.
+     */
+    public enum Mode { EMBEDDED, SERVER, MEMORY }
+
+    /** TCP port of a shared database unless the cse360.db.port property says otherwise */
+    public static final int DEFAULT_PORT = 9092;
+
+    /** The database's file, relative to the home directory of the user running the host */
+    static final String DATABASE_PATH = "~/FoundationDatabase";
+
+    /** Session variable a client sets to its ID on every connection to a shared database */
+    static final String CLIENT_VARIABLE = "CSE360_CLIENT";
+
+    /** The mode this client uses */
+    private static final Mode MODE = parseMode(System.getProperty("cse360.db.mode", "embedded"));
+
+    /** TCP port of the shared database; its change relay listens on the next port */
+    private static final int PORT = Integer.getInteger("cse360.db.port", DEFAULT_PORT);
+
+    /** Identifies this client's changes to a shared database */
+    private static final String CLIENT_ID = UUID.randomUUID().toString();
+
+    /** Logger for this class's messages and errors */
+    private static final Log LOG = Log.get(DatabaseServer.class);
+
+    /** The H2 TCP server, if this client hosts the database */
+    private static Server server;
+
+    /** Whether {@link #start} has run */
+    private static boolean started = false;
+
+    /** Connection used to look up what other clients' changes touched */
+    private static Connection connection;
+
+    /**
+     * Returns the JDBC URL of the database: the cse360.db.url property if it is set, otherwise the
+     * URL for the configured mode.
+     *
+     * @return The URL
+     */
+    static String url() {
+        String url = System.getProperty("cse360.db.url");
+        return url != null ? url : urlFor(MODE, PORT, CLIENT_ID);
+    }
+
+    /**
+     * Builds the JDBC URL for a mode.
+     *
+     * @param mode How the database is reached
+     * @param port The TCP port of a shared database
+     * @param clientId The ID a client of a shared database sets on its connections
+     * @return The URL
+     */
+    public static String urlFor(Mode mode, int port, String clientId) {
+        switch (mode) {
+            case SERVER:
+                return "jdbc:h2:tcp://localhost:" + port + "/" + DATABASE_PATH
+                        + ";INIT=SET @" + CLIENT_VARIABLE + " = '" + clientId + "'";
+            case MEMORY:
+                return "jdbc:h2:mem:FoundationDatabase;DB_CLOSE_DELAY=-1";
+            default:
+                return "jdbc:h2:" + DATABASE_PATH;
+        }
+    }
+
+    /**
+     * Reads the cse360.db.mode property, falling back to embedded for a value it does not know.
+     */
+    private static Mode parseMode(String value) {
+        try {
+            return Mode.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            Log.get(DatabaseServer.class).warn("Unknown cse360.db.mode {}; using embedded", value);
+            return Mode.EMBEDDED;
+        }
+    }
+
+    /**
+     * @return The mode this client uses
+     */
+    public static Mode getMode() {
+        return System.getProperty("cse360.db.url") != null ? Mode.EMBEDDED : MODE;
+    }
+
+    /**
+     * @return The ID this client's changes to a shared database are marked with
+     */
+    public static String getClientId() {
+        return CLIENT_ID;
+    }
+
+    /**
+     * @return true if this client hosts the shared database
+     */
+    public static synchronized boolean isHost() {
+        return server != null;
+    }
+
+    /**
+     * Gets the database ready for this client's first connection. In server mode this client
+     * either starts hosting the database or, if another client already hosts it, joins that
+     * client's change relay. Does nothing in the other modes, or if it has already run.
+     *
+     * @throws SQLException If the database cannot be hosted or the host's relay cannot be reached
+     */
+    static synchronized void start() throws SQLException {
+        if (started || getMode() != Mode.SERVER) {
+            return;
+        }
+        started = true;
+        try {
+            if (host()) {
+                LOG.info("Hosting the shared database on port {}", PORT);
+            } else {
+                ChangeRelay.join(PORT + 1);
+                LOG.info("Joined the shared database on port {}", PORT);
+            }
+        } catch (IOException e) {
+            throw new SQLException("Could not reach the change relay on port " + (PORT + 1), e);
+        }
+        ChangeFeed.subscribe(DatabaseServer::applyOtherClientsChanges);
+    }
+
+    /**
+     * Starts the TCP server and the change relay, unless another client already hosts the database.
+     *
+     * @return true if this client is now the host
+     */
+    private static boolean host() throws SQLException, IOException {
+        // Create the database file if needed, since the server only opens databases that exist
+        try {
+            DriverManager.getConnection("jdbc:h2:" + DATABASE_PATH, DatabaseHelper.USER, DatabaseHelper.PASS).close();
+            LOG.debug("Opened {} to host it", DATABASE_PATH);
+        } catch (SQLException e) {
+            if (e.getErrorCode() != ErrorCode.DATABASE_ALREADY_OPEN_1) {
+                throw e;
+            }
+            // The host has it open
+            return false;
+        }
+        try {
+            server = Server.createTcpServer("-tcpPort", String.valueOf(PORT), "-tcpPassword", DatabaseCredentials.password()).start();
+        } catch (SQLException e) {
+            if (e.getErrorCode() == ErrorCode.EXCEPTION_OPENING_PORT_2) {
+                return false;
+            }
+            throw e;
+        }
+        ChangeFeed.recordOrigins();
+        ChangeRelay.host(PORT + 1);
+        return true;
+    }
+
+    /**
+     * Reports the changes other clients made to {@link ContentEvents}, and applies the ones it does
+     * not cover to the indexes that need them. Open pages follow {@link ChangeFeed} themselves, as
+     * does {@link EntityCache}, which gets these changes twice and applies them the same way both
+     * times.
+     *
+     * @param changes The changed rows, oldest first
+     */
+    private static void applyOtherClientsChanges(List<ChangeFeed.Change> changes) {
+        for (ChangeFeed.Change change : changes) {
+            if (CLIENT_ID.equals(change.getOrigin())) {
+                continue;
+            }
+            try {
+                applyOtherClientsChange(change);
+            } catch (SQLException e) {
+                LOG.error(e);
+            }
+        }
+    }
+
+    private static void applyOtherClientsChange(ChangeFeed.Change change) throws SQLException {
+        int id = change.getId();
+        ChangeFeed.Kind kind = change.getKind();
+        switch (change.getTable()) {
+            case QUESTIONS: {
+                String body = change.getString("body");
+                if (kind == ChangeFeed.Kind.INSERT) {
+                    ContentEvents.questionSaved(id, body, change.getString("askedBy"));
+                } else if (kind == ChangeFeed.Kind.UPDATE && change.changed("body")) {
+                    ContentEvents.questionEdited(getConnection(), id, body);
+                } else if (kind == ChangeFeed.Kind.DELETE) {
+                    ContentEvents.questionDeleted(id);
+                }
+                break;
+            }
+            case ANSWERS: {
+                int questionId = change.getParentId();
+                if (kind == ChangeFeed.Kind.INSERT) {
+                    ContentEvents.answerSaved(questionId, new EntityCache.CachedAnswer(id, change.getString("text"),
+                            change.getString("answeredBy"), change.getInt("upVote"), change.getInt("downVote"),
+                            change.getBoolean("isCorrect"), change.getBoolean("is_sensitive")));
+                } else if (kind == ChangeFeed.Kind.UPDATE && change.changed("isCorrect") && change.getBoolean("isCorrect")) {
+                    RelatedQuestionIndex.questionChanged(questionId);
+                }
+                break;
+            }
+            case VOTES:
+                // As in DatabaseHelper.recordVote, switching a vote between up and down does not move the question
+                if (kind == ChangeFeed.Kind.INSERT) {
+                    HotQuestionFeed.answerVoted(getConnection(), change.getParentId());
+                } else if (kind == ChangeFeed.Kind.DELETE) {
+                    int questionId = questionIdForAnswer(change.getParentId());
+                    if (questionId != -1) {
+                        HotQuestionFeed.questionChanged(getConnection(), questionId);
+                    }
+                }
+                break;
+            case QUESTION_VOTES:
+                if (kind == ChangeFeed.Kind.INSERT) {
+                    HotQuestionFeed.questionVoted(change.getParentId(), "upvote".equals(change.getString("voteType")));
+                } else {
+                    HotQuestionFeed.questionChanged(getConnection(), change.getParentId());
+                }
+                break;
+            case REVIEWS:
+                if (kind == ChangeFeed.Kind.UPDATE && change.changed("text")) {
+                    GlobalSearch.textChanged(ContentModerator.ContentType.REVIEW, id, change.getString("text"));
+                }
+                break;
+            default:
+                // New messages are picked up by GlobalSearch on its next search
+                break;
+        }
+    }
+
+    /**
+     * Looks up the question an answer belongs to.
+     *
+     * @return The question's ID, or -1 if the answer is gone
+     */
+    private static int questionIdForAnswer(int answerId) throws SQLException {
+        try (PreparedStatement pstmt = getConnection().prepareStatement("SELECT questionId FROM Answers WHERE id = ?")) {
+            pstmt.setInt(1, answerId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : -1;
+            }
+        }
+    }
+
+    /**
+     * Returns this class's own database connection, opening it on first use.
+     */
+    private static synchronized Connection getConnection() throws SQLException {
+        if (connection == null || connection.isClosed()) {
+            connection = DatabaseHelper.newConnection();
+        }
+        return connection;
+    }
+
+    /**
+     * Hosts the shared database without a user interface, for a lab machine whose clients come and go.
+     * Run it with -Dcse360.db.mode=server; it creates the tables and serves until it is stopped,
+     * either with Ctrl+C or by running it again with the argument {@code stop}.
+     *
+     * @param args {@code stop} to shut down the host's TCP server, or nothing to host
+     * @throws Exception If the database cannot be hosted
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && "stop".equals(args[0])) {
+            Server.shutdownTcpServer("tcp://localhost:" + PORT, DatabaseCredentials.password(), false, false);
+            LOG.info("Stopped the shared database on port {}", PORT);
+            Log.flush(1000);
+            return;
+        }
+        DatabaseHelper databaseHelper = new DatabaseHelper();
+        databaseHelper.connectToDatabase();
+        if (!isHost()) {
+            LOG.error("Not hosting: run with -Dcse360.db.mode=server on a machine where no other client hosts the database");
+            Log.flush(1000);
+            System.exit(1);
+        }
+        LOG.info("Hosting the shared database on port {}; press Ctrl+C to stop", PORT);
+        while (server.isRunning(false)) {
+            Thread.sleep(1000);
+        }
+        LOG.info("The shared database was stopped");
+        Log.flush(1000);
+        System.exit(0);
+    }
+}
@@ -0,0 +1,398 @@
+package databasePart1;
+
+import java.sql.*;
+import java.util.*;
+
+/**
+ * The DuplicateQuestionIndex class finds existing questions that are worded nearly the same as a new one.
+ * <p>
+ * Each question body is reduced to its set of words, leaving out common words and plural endings,
+ * and summarized by a MinHash signature of {@value #HASHES} values: for each of {@value #HASHES}
+ * hash functions, the smallest hash of any word. Two questions agree on any one value with a
+ * probability equal to the Jaccard similarity of their word sets. The signature is cut into
+ * {@value #BANDS} bands of {@value #ROWS} values (locality-sensitive hashing), and the question is
+ * filed under the hash of each band. Questions that share a band with the new text are the
+ * candidates; with these sizes a question with half the words in common shares a band about 93%
+ * of the time, one with 70% in common almost always does, and one with 20% rarely does.
+ * </p>
+ * <p>
+ * The best candidates, by number of shared bands, are then loaded by ID and checked against the new
+ * text by their exact word-set similarity, so a lookup touches a handful of rows however many
+ * questions there are. The index only keeps the band hashes, chained in flat int arrays rather than
+ * collections, which comes to about 300 bytes per question.
+ * </p>
+ * <p>
+ * The index is built from the Questions table on first use and kept up to date from
+ * {@link ContentEvents} as questions are saved, edited and deleted. Call {@link #invalidate} after
+ * changing the table another way.
+ * </p>
+ */
+public class DuplicateQuestionIndex {
+
+    /**
+     * A question that is similar to the text that was looked up.
+     */
+    public static class Match {
+        private final int questionId;
+        private final String body;
+        private final double similarity;
+
+        private Match(int questionId, String body, double similarity) {
+            this.questionId = questionId;
+            this.body = body;
+            this.similarity = similarity;
+        }
+
+        /** @return The question's ID */
+        public int getQuestionId() { return questionId; }
+
+        /** @return The question's text */
+        public String getBody() { return body; }
+
+        /** @return The share of words the two texts have in common, from 0 to 1 */
+        public double getSimilarity() { return similarity; }
+    }
+
+    /** Questions with at least this share of words in common are reported */
+    public static final double SIMILARITY_THRESHOLD = 0.5;
+
+    /** Number of bands each signature is cut into */
+    private static final int BANDS = 20;
+
+    /** Number of signature values in each band */
+    private static final int ROWS = 3;
+
+    /** Number of MinHash values in a signature */
+    private static final int HASHES = BANDS * ROWS;
+
+    /** Candidates that are checked against the text, at most */
+    private static final int MAX_CANDIDATES = 50;
+
+    /** Seeds for the hash functions */
+    private static final long[] SEEDS = new long[HASHES];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EED);
+        for (int i = 0; i < HASHES; i++) {
+            SEEDS[i] = random.nextLong();
+        }
+    }
+
+    /** Logger for this class's messages and errors */
+    private static final Log LOG = Log.get(DuplicateQuestionIndex.class);
+
+    /** Whether the index has been loaded */
+    private static boolean built = false;
+
+    /** The question stored in each slot, or -1 if the slot is free */
+    private static int[] questionIds = new int[0];
+
+    /** The band hashes of each slot's question, at slot * BANDS + band */
+    private static int[] bandHashes = new int[0];
+
+    /** The next entry in the same bucket, for each entry slot * BANDS + band; -1 ends the chain */
+    private static int[] next = new int[0];
+
+    /** Slot of each indexed question */
+    private static final Map<Integer, Integer> slots = new HashMap<>();
+
+    /** Slots freed by removed questions, reused first */
+    private static final Deque<Integer> freeSlots = new ArrayDeque<>();
+
+    /** Number of slots in use or freed */
+    private static int slotCount = 0;
+
+    /**
+     * First entry of each chain, or -1. Entries are chained by the hash of their band number and band
+     * hash, so a chain can hold entries from other buckets that happen to collide.
+     */
+    private static int[] heads = new int[0];
+
+    // Follow the changes reported to ContentEvents
+    static {
+        ContentEvents.subscribe(new ContentEvents.Listener() {
+            @Override
+            public void questionSaved(int questionId, String body, String askedBy) {
+                DuplicateQuestionIndex.questionSaved(questionId, body);
+            }
+
+            @Override
+            public void questionEdited(Connection connection, int questionId, String body) {
+                DuplicateQuestionIndex.questionSaved(questionId, body);
+            }
+
+            @Override
+            public void questionDeleted(int questionId) {
+                DuplicateQuestionIndex.questionDeleted(questionId);
+            }
+
+            @Override
+            public void invalidate() {
+                DuplicateQuestionIndex.invalidate();
+            }
+        });
+    }
+
+    /**
+     * Finds the existing questions that are worded most like the given text.
+     *
+     * @param connection The connection to build the index with and to load candidate questions from
+     * @param text The text of the new question
+     * @param limit The most matches to return
+     * @return The matches with at least {@link #SIMILARITY_THRESHOLD} similarity, most similar first
+     */
+    public static List<Match> findSimilar(Connection connection, String text, int limit) {
+        Set<String> words = words(text);
+        if (words.isEmpty()) {
+            return new ArrayList<>();
+        }
+        int[] bands = bandHashes(words);
+        List<Integer> candidates = new ArrayList<>();
+        synchronized (DuplicateQuestionIndex.class) {
+            if (!built) {
+                build(connection);
+            }
+            Map<Integer, Integer> sharedBands = new HashMap<>();
+            for (int band = 0; band < BANDS; band++) {
+                for (int entry = heads[chain(band, bands[band])]; entry >= 0; entry = next[entry]) {
+                    if (entry % BANDS == band && bandHashes[entry] == bands[band]) {
+                        sharedBands.merge(questionIds[entry / BANDS], 1, Integer::sum);
+                    }
+                }
+            }
+            sharedBands.entrySet().stream()
+                    .sorted((a, b) -> b.getValue() - a.getValue())
+                    .limit(MAX_CANDIDATES)
+                    .forEach(candidate -> candidates.add(candidate.getKey()));
+        }
+        if (candidates.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<Match> matches = new ArrayList<>();
+        String placeholders = String.join(", ", Collections.nCopies(candidates.size(), "?"));
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "SELECT id, body FROM Questions WHERE id IN (" + placeholders + ")")) {
+            for (int i = 0; i < candidates.size(); i++) {
+                pstmt.setInt(i + 1, candidates.get(i));
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    double similarity = jaccard(words, words(rs.getString("body")));
+                    if (similarity >= SIMILARITY_THRESHOLD) {
+                        matches.add(new Match(rs.getInt("id"), rs.getString("body"), similarity));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            LOG.error(e);
+        }
+        matches.sort(Comparator.comparingDouble(Match::getSimilarity).reversed()
+                .thenComparingInt(Match::getQuestionId));
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+
+    /**
+     * Adds a new question, or refiles an edited one under its new text. Does nothing until the index is
+     * built, since the database already holds the question for when it is.
+     *
+     * @param questionId The question's ID
+     * @param body The question's text
+     */
+    public static synchronized void questionSaved(int questionId, String body) {
+        if (built) {
+            remove(questionId);
+            add(questionId, body);
+        }
+    }
+
+    /**
+     * Removes a deleted question.
+     *
+     * @param questionId The question's ID
+     */
+    public static synchronized void questionDeleted(int questionId) {
+        if (built) {
+            remove(questionId);
+        }
+    }
+
+    /**
+     * Discards the index so it is rebuilt from the database the next time it is used.
+     */
+    public static synchronized void invalidate() {
+        built = false;
+        questionIds = new int[0];
+        bandHashes = new int[0];
+        next = new int[0];
+        slots.clear();
+        freeSlots.clear();
+        slotCount = 0;
+        heads = new int[0];
+    }
+
+    /**
+     * Reduces a text to the set of words used to compare it, as split by {@link TextTokenizer}.
+     *
+     * @param text The text
+     * @return The words
+     */
+    private static Set<String> words(String text) {
+        return new HashSet<>(TextTokenizer.tokenize(text));
+    }
+
+    /**
+     * Computes the Jaccard similarity of two word sets: the words in both over the words in either.
+     */
+    private static double jaccard(Set<String> a, Set<String> b) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return 0;
+        }
+        int common = 0;
+        for (String word : a) {
+            if (b.contains(word)) {
+                common++;
+            }
+        }
+        return (double) common / (a.size() + b.size() - common);
+    }
+
+    /**
+     * Computes the MinHash signature of a word set and hashes each band of it.
+     *
+     * @param words A non-empty word set
+     * @return The hash of each band
+     */
+    private static int[] bandHashes(Set<String> words) {
+        long[] signature = new long[HASHES];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        for (String word : words) {
+            long wordHash = mix(word.hashCode());
+            for (int i = 0; i < HASHES; i++) {
+                long hash = mix(wordHash ^ SEEDS[i]);
+                if (hash < signature[i]) {
+                    signature[i] = hash;
+                }
+            }
+        }
+        int[] bands = new int[BANDS];
+        for (int band = 0; band < BANDS; band++) {
+            long hash = band;
+            for (int row = 0; row < ROWS; row++) {
+                hash = mix(hash * 31 + signature[band * ROWS + row]);
+            }
+            bands[band] = (int) hash;
+        }
+        return bands;
+    }
+
+    /**
+     * Scrambles the bits of a value (the SplitMix64 finalizer).
+     */
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ (value >>> 27)) * 0x94D049BB133111EBL;
+        return value ^ (value >>> 31);
+    }
+
+    /**
+     * Picks the chain for a band hash.
+     */
+    private static int chain(int band, int hash) {
+        return (int) mix(((long) band << 32) | (hash & 0xFFFFFFFFL)) & (heads.length - 1);
+    }
+
+    /**
+     * Loads every question into the index.
+     */
+    private static void build(Connection connection) {
+        invalidate();
+        rehash(1 << 14);
+        built = true;
+        try (PreparedStatement pstmt = connection.prepareStatement("SELECT id, body FROM Questions");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                add(rs.getInt("id"), rs.getString("body"));
+            }
+        } catch (SQLException e) {
+            LOG.error(e);
+            invalidate();
+        }
+    }
+
+    /**
+     * Files a question under each of its band hashes.
+     */
+    private static void add(int questionId, String body) {
+        Set<String> words = words(body);
+        if (words.isEmpty()) {
+            return;
+        }
+        int[] bands = bandHashes(words);
+        int slot = freeSlots.isEmpty() ? slotCount++ : freeSlots.pop();
+        if (slot >= questionIds.length) {
+            int capacity = Math.max(1024, questionIds.length * 2);
+            questionIds = Arrays.copyOf(questionIds, capacity);
+            bandHashes = Arrays.copyOf(bandHashes, capacity * BANDS);
+            next = Arrays.copyOf(next, capacity * BANDS);
+        }
+        questionIds[slot] = questionId;
+        slots.put(questionId, slot);
+        for (int band = 0; band < BANDS; band++) {
+            bandHashes[slot * BANDS + band] = bands[band];
+        }
+        if (slots.size() * BANDS > heads.length) {
+            rehash(Math.max(1 << 14, heads.length * 2));
+        } else {
+            link(slot);
+        }
+    }
+
+    /**
+     * Puts each of a slot's entries at the front of its chain.
+     */
+    private static void link(int slot) {
+        for (int band = 0; band < BANDS; band++) {
+            int entry = slot * BANDS + band;
+            int chain = chain(band, bandHashes[entry]);
+            next[entry] = heads[chain];
+            heads[chain] = entry;
+        }
+    }
+
+    /**
+     * Unlinks a question from each of its buckets and frees its slot.
+     */
+    private static void remove(int questionId) {
+        Integer slot = slots.remove(questionId);
+        if (slot == null) {
+            return;
+        }
+        for (int band = 0; band < BANDS; band++) {
+            int entry = slot * BANDS + band;
+            int chain = chain(band, bandHashes[entry]);
+            if (heads[chain] == entry) {
+                heads[chain] = next[entry];
+            } else {
+                int previous = heads[chain];
+                while (next[previous] != entry) {
+                    previous = next[previous];
+                }
+                next[previous] = next[entry];
+            }
+        }
+        questionIds[slot] = -1;
+        freeSlots.push(slot);
+    }
+
+    /**
+     * Resizes the chain heads and relinks every indexed question.
+     */
+    private static void rehash(int capacity) {
+        heads = new int[capacity];
+        Arrays.fill(heads, -1);
+        for (int slot : slots.values()) {
+            link(slot);
+        }
+    }
+}
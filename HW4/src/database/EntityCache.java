@@ -0,0 +1,710 @@
+package databasePart1;
+
+import java.sql.Connection;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
+
+import application.Answer;
+import application.Question;
+import application.Review;
+
+/**
+ * The EntityCache class keeps the questions, answers and reviews most recently read from the
+ * database in memory, so opening a page again does not load every row again.
+ * <p>
+ * Entries are immutable snapshots of rows, keyed by ID: a question is cached together with its
+ * answers, and reviews are cached on their own. The loaders in {@link DatabaseHelper} first read the
+ * IDs they need, take whatever is cached, load the rest in one batch and add them here; every caller
+ * gets new {@link Question}, {@link Answer} and {@link Review} objects built from the snapshots, so
+ * a page changing its copy does not change anyone else's. The changes reported to
+ * {@link ContentEvents}, and the flags {@link ContentModerator} sets, are written through to the
+ * cached entries. Changes made through other connections arrive a moment later
+ * from {@link ChangeFeed} and are applied the same way.
+ * </p>
+ * <p>
+ * Each kind of entity is a {@link Region} split into {@value #SEGMENTS} segments, each a
+ * least-recently-used map under its own lock, so readers on different IDs rarely wait for each
+ * other. A region is bounded by the estimated memory of its entries rather than their number, since
+ * a question with many long answers costs much more than a short one. The total is
+ * {@value #DEFAULT_MAX_BYTES} bytes unless the cse360.entity.cache.bytes system property says
+ * otherwise; questions get three quarters of it and reviews the rest. Each region counts its hits,
+ * misses and evictions for {@link #snapshot()}.
+ * </p>
+ */
+public class EntityCache {
+
+    /** Estimated memory the cache may use unless the cse360.entity.cache.bytes property says otherwise */
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    /** Number of independently locked segments in each region */
+    private static final int SEGMENTS = 16;
+
+    /** Estimated memory the cache may use */
+    private static final long MAX_BYTES = Math.max(SEGMENTS * 2 * 1024L,
+            Long.getLong("cse360.entity.cache.bytes", DEFAULT_MAX_BYTES));
+
+    /** Estimated size of an object header and its fields, not counting its strings */
+    private static final int OBJECT_BYTES = 48;
+
+    /**
+     * A snapshot of an answer row.
+     */
+    public static final class CachedAnswer {
+        private final int id;
+        private final String text;
+        private final String answeredBy;
+        private final int upvotes;
+        private final int downvotes;
+        private final boolean correct;
+        private final boolean sensitive;
+
+        /**
+         * @param id The answer's ID
+         * @param text The answer's text
+         * @param answeredBy The author's user name
+         * @param upvotes The upvote count
+         * @param downvotes The downvote count
+         * @param correct Whether the answer is marked correct
+         * @param sensitive Whether the answer is flagged as sensitive
+         */
+        public CachedAnswer(int id, String text, String answeredBy, int upvotes, int downvotes,
+                boolean correct, boolean sensitive) {
+            this.id = id;
+            this.text = text;
+            this.answeredBy = answeredBy;
+            this.upvotes = upvotes;
+            this.downvotes = downvotes;
+            this.correct = correct;
+            this.sensitive = sensitive;
+        }
+
+        /** @return The answer's ID */
+        public int getId() { return id; }
+
+        /** @return The answer's text */
+        public String getText() { return text; }
+
+        /** @return Whether the answer is marked correct */
+        public boolean isCorrect() { return correct; }
+
+        /** @return Whether the answer is flagged as sensitive */
+        public boolean isSensitive() { return sensitive; }
+
+        /**
+         * Builds a new Answer from the snapshot.
+         *
+         * @param withSensitivity Whether to copy the sensitive flag
+         * @return The answer
+         */
+        public Answer toAnswer(boolean withSensitivity) {
+            Answer answer = new Answer(text, answeredBy);
+            answer.setId(id);
+            answer.setUpvote(upvotes);
+            answer.setDownvote(downvotes);
+            if (correct) {
+                answer.markAsCorrect();
+            }
+            if (withSensitivity && sensitive) {
+                answer.markAsSensitive();
+            }
+            return answer;
+        }
+
+        private int weight() {
+            return OBJECT_BYTES + 2 * (length(text) + length(answeredBy));
+        }
+    }
+
+    /**
+     * A snapshot of a question row and its answers, in answer order.
+     */
+    public static final class CachedQuestion {
+        private final int id;
+        private final String body;
+        private final String askedBy;
+        private final boolean sensitive;
+        private final List<CachedAnswer> answers;
+
+        /**
+         * @param id The question's ID
+         * @param body The question's text
+         * @param askedBy The author's user name
+         * @param sensitive Whether the question is flagged as sensitive
+         * @param answers The question's answers, oldest first
+         */
+        public CachedQuestion(int id, String body, String askedBy, boolean sensitive, List<CachedAnswer> answers) {
+            this.id = id;
+            this.body = body;
+            this.askedBy = askedBy;
+            this.sensitive = sensitive;
+            this.answers = List.copyOf(answers);
+        }
+
+        /** @return The question's ID */
+        public int getId() { return id; }
+
+        /** @return Whether the question is flagged as sensitive */
+        public boolean isSensitive() { return sensitive; }
+
+        /** @return The question's answers, oldest first */
+        public List<CachedAnswer> getAnswers() { return answers; }
+
+        /**
+         * Builds a new Question, with new Answers, from the snapshot.
+         *
+         * @param withSensitivity Whether to copy the sensitive flags
+         * @return The question
+         */
+        public Question toQuestion(boolean withSensitivity) {
+            Question question = new Question(body, askedBy);
+            if (withSensitivity && sensitive) {
+                question.markAsSensitive();
+            }
+            for (CachedAnswer answer : answers) {
+                question.addAnswer(answer.toAnswer(withSensitivity));
+            }
+            return question;
+        }
+
+        private CachedQuestion withAnswers(List<CachedAnswer> newAnswers) {
+            return new CachedQuestion(id, body, askedBy, sensitive, newAnswers);
+        }
+
+        private int weight() {
+            int weight = OBJECT_BYTES + 2 * (length(body) + length(askedBy));
+            for (CachedAnswer answer : answers) {
+                weight += answer.weight();
+            }
+            return weight;
+        }
+    }
+
+    /**
+     * A snapshot of a review row.
+     */
+    public static final class CachedReview {
+        private final int id;
+        private final int answerId;
+        private final String text;
+        private final String reviewer;
+
+        /**
+         * @param id The review's ID
+         * @param answerId The ID of the answer it reviews
+         * @param text The review's text
+         * @param reviewer The reviewer's user name
+         */
+        public CachedReview(int id, int answerId, String text, String reviewer) {
+            this.id = id;
+            this.answerId = answerId;
+            this.text = text;
+            this.reviewer = reviewer;
+        }
+
+        /** @return The review's ID */
+        public int getId() { return id; }
+
+        /**
+         * Builds a new Review from the snapshot.
+         *
+         * @return The review
+         */
+        public Review toReview() {
+            return new Review(text, reviewer, answerId);
+        }
+
+        private int weight() {
+            return OBJECT_BYTES + 2 * (length(text) + length(reviewer));
+        }
+    }
+
+    /**
+     * A weight-bounded map from IDs to snapshots of one kind of entity.
+     *
+     * @param <V> The kind of snapshot
+     */
+    public static final class Region<V> {
+        private final String name;
+        private final ToIntFunction<V> weigher;
+        private final long maxSegmentWeight;
+        private final Segment<V>[] segments;
+        private final AtomicLong version = new AtomicLong();
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+
+        @SuppressWarnings("unchecked")
+        private Region(String name, long maxWeight, ToIntFunction<V> weigher) {
+            this.name = name;
+            this.weigher = weigher;
+            this.maxSegmentWeight = maxWeight / SEGMENTS;
+            this.segments = (Segment<V>[]) new Segment<?>[SEGMENTS];
+            for (int i = 0; i < SEGMENTS; i++) {
+                segments[i] = new Segment<>();
+            }
+        }
+
+        /**
+         * Looks up a cached entity, counting a hit or a miss.
+         *
+         * @param id The entity's ID
+         * @return The snapshot, or null if it is not cached
+         */
+        public V get(int id) {
+            Segment<V> segment = segment(id);
+            V value;
+            synchronized (segment) {
+                value = segment.entries.get(id);
+            }
+            (value == null ? misses : hits).increment();
+            return value;
+        }
+
+        /**
+         * Returns a stamp to pass to {@link #put} with rows read after this call.
+         *
+         * @return The number of changes written to the region so far
+         */
+        public long getVersion() {
+            return version.get();
+        }
+
+        /**
+         * Caches an entity read from the database, unless the region has been written to since the
+         * row was read, in which case the row may already be out of date.
+         *
+         * @param id The entity's ID
+         * @param value The snapshot
+         * @param since The value of {@link #getVersion} before the row was read
+         */
+        public void put(int id, V value, long since) {
+            Segment<V> segment = segment(id);
+            synchronized (segment) {
+                if (version.get() == since) {
+                    store(segment, id, value);
+                }
+            }
+        }
+
+        /**
+         * Writes a change through to a cached entity. Does nothing if the entity is not cached.
+         *
+         * @param id The entity's ID
+         * @param change Builds the changed snapshot from the cached one
+         */
+        private void update(int id, UnaryOperator<V> change) {
+            Segment<V> segment = segment(id);
+            synchronized (segment) {
+                version.incrementAndGet();
+                V value = segment.entries.get(id);
+                if (value != null) {
+                    store(segment, id, change.apply(value));
+                }
+            }
+        }
+
+        /**
+         * Caches a new entity written by this application.
+         */
+        private void insert(int id, V value) {
+            Segment<V> segment = segment(id);
+            synchronized (segment) {
+                version.incrementAndGet();
+                store(segment, id, value);
+            }
+        }
+
+        /**
+         * Drops an entity.
+         */
+        private void remove(int id) {
+            Segment<V> segment = segment(id);
+            synchronized (segment) {
+                version.incrementAndGet();
+                V removed = segment.entries.remove(id);
+                if (removed != null) {
+                    segment.weight -= weigher.applyAsInt(removed);
+                    removed(removed);
+                }
+            }
+        }
+
+        /**
+         * Drops every entity.
+         */
+        private void clear() {
+            for (Segment<V> segment : segments) {
+                synchronized (segment) {
+                    version.incrementAndGet();
+                    for (V value : segment.entries.values()) {
+                        removed(value);
+                    }
+                    segment.entries.clear();
+                    segment.weight = 0;
+                }
+            }
+        }
+
+        private void store(Segment<V> segment, int id, V value) {
+            V previous = segment.entries.put(id, value);
+            if (previous != null) {
+                segment.weight -= weigher.applyAsInt(previous);
+                removed(previous);
+            }
+            segment.weight += weigher.applyAsInt(value);
+            added(value);
+            Iterator<V> eldest = segment.entries.values().iterator();
+            while (segment.weight > maxSegmentWeight && eldest.hasNext()) {
+                V evicted = eldest.next();
+                eldest.remove();
+                segment.weight -= weigher.applyAsInt(evicted);
+                removed(evicted);
+                evictions.increment();
+            }
+        }
+
+        private Segment<V> segment(int id) {
+            return segments[(id ^ (id >>> 16)) & (SEGMENTS - 1)];
+        }
+
+        /**
+         * Keeps the answer-to-question index in step with the cached questions.
+         */
+        private void added(V value) {
+            if (value instanceof CachedQuestion) {
+                CachedQuestion question = (CachedQuestion) value;
+                for (CachedAnswer answer : question.answers) {
+                    answerQuestions.put(answer.id, question.id);
+                }
+            }
+        }
+
+        private void removed(V value) {
+            if (value instanceof CachedQuestion) {
+                for (CachedAnswer answer : ((CachedQuestion) value).answers) {
+                    answerQuestions.remove(answer.id);
+                }
+            }
+        }
+
+        private RegionSnapshot snapshot() {
+            long entries = 0;
+            long weight = 0;
+            for (Segment<V> segment : segments) {
+                synchronized (segment) {
+                    entries += segment.entries.size();
+                    weight += segment.weight;
+                }
+            }
+            return new RegionSnapshot(name, entries, weight, maxSegmentWeight * SEGMENTS,
+                    hits.sum(), misses.sum(), evictions.sum());
+        }
+    }
+
+    /**
+     * One independently locked part of a region, least recently used first.
+     */
+    private static final class Segment<V> {
+        private final LinkedHashMap<Integer, V> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private long weight = 0;
+    }
+
+    /**
+     * A point-in-time copy of one region's counters.
+     */
+    public static class RegionSnapshot {
+        private final String region;
+        private final long entries;
+        private final long weightBytes;
+        private final long maxWeightBytes;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+
+        private RegionSnapshot(String region, long entries, long weightBytes, long maxWeightBytes,
+                long hits, long misses, long evictions) {
+            this.region = region;
+            this.entries = entries;
+            this.weightBytes = weightBytes;
+            this.maxWeightBytes = maxWeightBytes;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+        }
+
+        /** @return The kind of entity */
+        public String getRegion() { return region; }
+
+        /** @return The number of cached entities */
+        public long getEntries() { return entries; }
+
+        /** @return The estimated memory used by the cached entities, in bytes */
+        public long getWeightBytes() { return weightBytes; }
+
+        /** @return The estimated memory the region may use, in bytes */
+        public long getMaxWeightBytes() { return maxWeightBytes; }
+
+        /** @return The number of lookups answered from memory */
+        public long getHits() { return hits; }
+
+        /** @return The number of lookups that had to go to the database */
+        public long getMisses() { return misses; }
+
+        /** @return The share of lookups answered from memory, from 0 to 1 */
+        public double getHitRate() { return hits + misses == 0 ? 0 : (double) hits / (hits + misses); }
+
+        /** @return The number of entities dropped to stay within the memory bound */
+        public long getEvictions() { return evictions; }
+    }
+
+    /** The ID of the question each cached answer belongs to */
+    private static final ConcurrentHashMap<Integer, Integer> answerQuestions = new ConcurrentHashMap<>();
+
+    /** Questions with their answers, by question ID */
+    public static final Region<CachedQuestion> QUESTIONS =
+            new Region<>("Questions", MAX_BYTES / 4 * 3, CachedQuestion::weight);
+
+    /** Reviews, by review ID */
+    public static final Region<CachedReview> REVIEWS =
+            new Region<>("Reviews", MAX_BYTES / 4, CachedReview::weight);
+
+    /** Keeps the cached rows in step with changes made outside this class's callers */
+    private static final ChangeFeed.Subscription FEED = ChangeFeed.subscribe(EntityCache::applyChanges);
+
+    // Write the changes reported to ContentEvents through to the cached entries
+    static {
+        ContentEvents.subscribe(new ContentEvents.Listener() {
+            @Override
+            public void questionSaved(int questionId, String body, String askedBy) {
+                EntityCache.questionSaved(questionId, body, askedBy);
+            }
+
+            @Override
+            public void questionEdited(Connection connection, int questionId, String body) {
+                EntityCache.questionEdited(questionId, body);
+            }
+
+            @Override
+            public void questionDeleted(int questionId) {
+                EntityCache.questionDeleted(questionId);
+            }
+
+            @Override
+            public void answerSaved(int questionId, CachedAnswer answer) {
+                EntityCache.answerSaved(questionId, answer);
+            }
+
+            @Override
+            public void invalidate() {
+                clear();
+            }
+        });
+    }
+
+    /**
+     * Caches a question just saved, which has no answers or flags yet.
+     *
+     * @param questionId The question's ID
+     * @param body The question's text
+     * @param askedBy The author's user name
+     */
+    public static void questionSaved(int questionId, String body, String askedBy) {
+        QUESTIONS.insert(questionId, new CachedQuestion(questionId, body, askedBy, false, List.of()));
+    }
+
+    /**
+     * Writes a question's new text through to the cache.
+     *
+     * @param questionId The question's ID
+     * @param body The new text
+     */
+    public static void questionEdited(int questionId, String body) {
+        QUESTIONS.update(questionId, q -> new CachedQuestion(q.id, body, q.askedBy, q.sensitive, q.answers));
+    }
+
+    /**
+     * Writes a question's sensitive flag through to the cache.
+     *
+     * @param questionId The question's ID
+     * @param sensitive Whether the question is sensitive
+     */
+    public static void questionSensitivityChanged(int questionId, boolean sensitive) {
+        QUESTIONS.update(questionId, q -> new CachedQuestion(q.id, q.body, q.askedBy, sensitive, q.answers));
+    }
+
+    /**
+     * Drops a deleted question and its answers.
+     *
+     * @param questionId The question's ID
+     */
+    public static void questionDeleted(int questionId) {
+        QUESTIONS.remove(questionId);
+    }
+
+    /**
+     * Adds a new answer to its cached question.
+     *
+     * @param questionId The question's ID
+     * @param answer The saved answer
+     */
+    public static void answerSaved(int questionId, CachedAnswer answer) {
+        QUESTIONS.update(questionId, q -> q.withAnswers(putAnswer(q.answers, answer)));
+    }
+
+    /**
+     * Writes an answer's vote counts through to the cache.
+     *
+     * @param answerId The answer's ID
+     * @param upvotes The new upvote count
+     * @param downvotes The new downvote count
+     */
+    public static void answerVotesChanged(int answerId, int upvotes, int downvotes) {
+        updateAnswer(answerId, a -> new CachedAnswer(a.id, a.text, a.answeredBy, upvotes, downvotes, a.correct, a.sensitive));
+    }
+
+    /**
+     * Writes an answer's sensitive flag through to the cache.
+     *
+     * @param answerId The answer's ID
+     * @param sensitive Whether the answer is sensitive
+     */
+    public static void answerSensitivityChanged(int answerId, boolean sensitive) {
+        updateAnswer(answerId, a -> new CachedAnswer(a.id, a.text, a.answeredBy, a.upvotes, a.downvotes, a.correct, sensitive));
+    }
+
+    /**
+     * Caches a review just saved.
+     *
+     * @param reviewId The review's ID
+     * @param answerId The ID of the answer it reviews
+     * @param text The review's text
+     * @param reviewer The reviewer's user name
+     */
+    public static void reviewSaved(int reviewId, int answerId, String text, String reviewer) {
+        REVIEWS.insert(reviewId, new CachedReview(reviewId, answerId, text, reviewer));
+    }
+
+    /**
+     * Writes a review's new text through to the cache.
+     *
+     * @param reviewId The review's ID
+     * @param text The new text
+     */
+    public static void reviewEdited(int reviewId, String text) {
+        REVIEWS.update(reviewId, r -> new CachedReview(r.id, r.answerId, text, r.reviewer));
+    }
+
+    /**
+     * Drops a deleted review.
+     *
+     * @param reviewId The review's ID
+     */
+    public static void reviewDeleted(int reviewId) {
+        REVIEWS.remove(reviewId);
+    }
+
+    /**
+     * Drops every cached entity, for when the tables are changed outside {@link DatabaseHelper}.
+     */
+    public static void clear() {
+        QUESTIONS.clear();
+        REVIEWS.clear();
+    }
+
+    /**
+     * Returns the counters of each region.
+     *
+     * @return One snapshot per kind of entity
+     */
+    public static List<RegionSnapshot> snapshot() {
+        return List.of(QUESTIONS.snapshot(), REVIEWS.snapshot());
+    }
+
+    /**
+     * Applies row changes from {@link ChangeFeed} to the cached entries. Inserted questions and
+     * reviews are left to be loaded when they are first needed; everything else updates or drops
+     * the cached copy, if there is one.
+     *
+     * @param changes The changed rows, oldest first
+     */
+    private static void applyChanges(List<ChangeFeed.Change> changes) {
+        for (ChangeFeed.Change change : changes) {
+            int id = change.getId();
+            boolean deleted = change.getKind() == ChangeFeed.Kind.DELETE;
+            switch (change.getTable()) {
+                case QUESTIONS:
+                    if (deleted) {
+                        questionDeleted(id);
+                    } else if (change.getKind() == ChangeFeed.Kind.UPDATE) {
+                        QUESTIONS.update(id, q -> new CachedQuestion(id, change.getString("body"),
+                                change.getString("askedBy"), change.getBoolean("is_sensitive"), q.answers));
+                    }
+                    break;
+                case ANSWERS:
+                    CachedAnswer answer = new CachedAnswer(id, change.getString("text"), change.getString("answeredBy"),
+                            change.getInt("upVote"), change.getInt("downVote"), change.getBoolean("isCorrect"),
+                            change.getBoolean("is_sensitive"));
+                    QUESTIONS.update(change.getParentId(), q -> {
+                        if (!deleted) {
+                            return q.withAnswers(putAnswer(q.answers, answer));
+                        }
+                        List<CachedAnswer> answers = new ArrayList<>(q.answers);
+                        answers.removeIf(a -> a.id == id);
+                        return q.withAnswers(answers);
+                    });
+                    break;
+                case REVIEWS:
+                    if (deleted) {
+                        reviewDeleted(id);
+                    } else {
+                        REVIEWS.update(id, r -> new CachedReview(id, change.getParentId(),
+                                change.getString("text"), change.getString("reviewer")));
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Replaces the answer with the same ID in a list of answers, or adds it at the end. The
+     * application's own write and the feed's copy of it can arrive in either order.
+     */
+    private static List<CachedAnswer> putAnswer(List<CachedAnswer> answers, CachedAnswer answer) {
+        List<CachedAnswer> result = new ArrayList<>(answers);
+        for (int i = 0; i < result.size(); i++) {
+            if (result.get(i).id == answer.id) {
+                result.set(i, answer);
+                return result;
+            }
+        }
+        result.add(answer);
+        return result;
+    }
+
+    /**
+     * Replaces one answer inside its cached question.
+     */
+    private static void updateAnswer(int answerId, UnaryOperator<CachedAnswer> change) {
+        Integer questionId = answerQuestions.get(answerId);
+        if (questionId == null) {
+            // Still count the write, so a question being loaded with the old answer is not cached
+            QUESTIONS.version.incrementAndGet();
+            return;
+        }
+        QUESTIONS.update(questionId, q -> {
+            List<CachedAnswer> answers = new ArrayList<>(q.answers);
+            answers.replaceAll(a -> a.id == answerId ? change.apply(a) : a);
+            return q.withAnswers(answers);
+        });
+    }
+
+    private static int length(String text) {
+        return text == null ? 0 : text.length();
+    }
+}
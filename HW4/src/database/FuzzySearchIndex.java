@@ -0,0 +1,521 @@
+package databasePart1;
+
+import java.sql.*;
+import java.util.*;
+
+/**
+ * The FuzzySearchIndex class finds questions by the words in them and their answers, allowing for typos.
+ * <p>
+ * Every distinct word used in questions and answers is kept in a vocabulary, and each word is filed
+ * under the character trigrams of the word padded with a '$' at each end, so "tree" is filed under
+ * "$tr", "tre", "ree" and "ee$". One typo changes at most three trigrams, so a word within k edits
+ * of a search word of length n shares at least n - 3k of its trigrams. A search word is matched by
+ * counting the trigrams each vocabulary word shares with it and only checking the Levenshtein
+ * distance of words that share enough and are close enough in length. Words of up to
+ * {@value #SHORT_WORD_LENGTH} letters may be {@value #SHORT_WORD_EDITS} edit away and longer ones
+ * {@value #LONG_WORD_EDITS}; each search word is expanded to at most {@value #MAX_EXPANSIONS} of the
+ * closest words, so the work grows with the number of words that look alike rather than with the
+ * size of the vocabulary.
+ * </p>
+ * <p>
+ * Each vocabulary word also has a posting list of the questions whose thread uses it, by the
+ * question's slot in flat arrays, so a search adds up scores in arrays rather than maps. A question
+ * scores, for each search word, the inverse document frequency of the closest word it contains
+ * divided by 1 + the number of edits, so exact matches of rare words count most, and the scores of
+ * the search words are added up.
+ * </p>
+ * <p>
+ * The index is built from the database on first use and kept up to date from {@link ContentEvents}
+ * as questions and answers are saved, edited and deleted. Call {@link #invalidate} after changing
+ * the tables another way.
+ * </p>
+ */
+public class FuzzySearchIndex {
+
+    /**
+     * A question that matches a search.
+     */
+    public static class Hit {
+        private final int questionId;
+        private final double score;
+        private final int edits;
+
+        private Hit(int questionId, double score, int edits) {
+            this.questionId = questionId;
+            this.score = score;
+            this.edits = edits;
+        }
+
+        /** @return The question's ID */
+        public int getQuestionId() { return questionId; }
+
+        /** @return How well the question matches; higher is better */
+        public double getScore() { return score; }
+
+        /** @return The number of edits between the search words and the words they matched, in total */
+        public int getEdits() { return edits; }
+    }
+
+    /** Words up to this long may have {@value #SHORT_WORD_EDITS} typo */
+    private static final int SHORT_WORD_LENGTH = 4;
+
+    /** Edits allowed in a short word */
+    private static final int SHORT_WORD_EDITS = 1;
+
+    /** Edits allowed in a longer word */
+    private static final int LONG_WORD_EDITS = 2;
+
+    /** Vocabulary words each search word is matched to, at most */
+    private static final int MAX_EXPANSIONS = 10;
+
+    /** Logger for this class's messages and errors */
+    private static final Log LOG = Log.get(FuzzySearchIndex.class);
+
+    /**
+     * A growable list of ints.
+     */
+    private static class IntList {
+        private int[] items = new int[2];
+        private int size = 0;
+
+        private void add(int value) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = value;
+        }
+
+        private void remove(int value) {
+            for (int i = size - 1; i >= 0; i--) {
+                if (items[i] == value) {
+                    items[i] = items[--size];
+                    return;
+                }
+            }
+        }
+    }
+
+    /** Whether the index has been loaded */
+    private static boolean built = false;
+
+    /** ID of each vocabulary word */
+    private static final Map<String, Integer> wordIds = new HashMap<>();
+
+    /** The vocabulary, by word ID */
+    private static final List<String> words = new ArrayList<>();
+
+    /** The vocabulary words containing each trigram */
+    private static final Map<Integer, IntList> trigramWords = new HashMap<>();
+
+    /** The slots of the questions whose thread uses each word, by word ID */
+    private static final List<IntList> wordQuestions = new ArrayList<>();
+
+    /** The question stored in each slot, or -1 if the slot is free */
+    private static int[] slotQuestions = new int[0];
+
+    /** The distinct words used in each slot's thread */
+    private static int[][] slotWords = new int[0][];
+
+    /** Slot of each indexed question */
+    private static final Map<Integer, Integer> slots = new HashMap<>();
+
+    /** Slots freed by removed questions, reused first */
+    private static final Deque<Integer> freeSlots = new ArrayDeque<>();
+
+    /** Number of slots in use or freed */
+    private static int slotCount = 0;
+
+    // Follow the changes reported to ContentEvents
+    static {
+        ContentEvents.subscribe(new ContentEvents.Listener() {
+            @Override
+            public void questionSaved(int questionId, String body, String askedBy) {
+                questionAdded(questionId, body);
+            }
+
+            @Override
+            public void questionEdited(Connection connection, int questionId, String body) {
+                questionChanged(connection, questionId);
+            }
+
+            @Override
+            public void questionDeleted(int questionId) {
+                FuzzySearchIndex.questionDeleted(questionId);
+            }
+
+            @Override
+            public void answerSaved(int questionId, EntityCache.CachedAnswer answer) {
+                answerAdded(questionId, answer.getText());
+            }
+
+            @Override
+            public void invalidate() {
+                FuzzySearchIndex.invalidate();
+            }
+        });
+    }
+
+    /**
+     * Finds the questions whose thread uses the search words or words close to them.
+     *
+     * @param connection The connection to build the index with
+     * @param query The search text
+     * @param limit The most questions to return
+     * @return The matching questions, best first
+     */
+    public static synchronized List<Hit> search(Connection connection, String query, int limit) {
+        if (!built) {
+            build(connection);
+        }
+        double[] scores = new double[slotCount];
+        int[] edits = new int[slotCount];
+        // The best score and fewest edits the current term gives each slot, and the slots it touched
+        double[] termScores = new double[slotCount];
+        int[] termEdits = new int[slotCount];
+        IntList touched = new IntList();
+        for (String term : new LinkedHashSet<>(TextTokenizer.words(query))) {
+            if (TextTokenizer.isStopWord(term)) {
+                continue;
+            }
+            for (int[] expansion : expand(term)) {
+                IntList postings = wordQuestions.get(expansion[0]);
+                double score = idf(postings.size) / (1 + expansion[1]);
+                for (int i = 0; i < postings.size; i++) {
+                    int slot = postings.items[i];
+                    if (termScores[slot] < score) {
+                        if (termScores[slot] == 0) {
+                            touched.add(slot);
+                        }
+                        termScores[slot] = score;
+                        termEdits[slot] = expansion[1];
+                    }
+                }
+            }
+            for (int i = 0; i < touched.size; i++) {
+                int slot = touched.items[i];
+                scores[slot] += termScores[slot];
+                edits[slot] += termEdits[slot];
+                termScores[slot] = 0;
+            }
+            touched.size = 0;
+        }
+
+        PriorityQueue<Hit> best = new PriorityQueue<>(Comparator.comparingDouble(Hit::getScore)
+                .thenComparing(Comparator.comparingInt(Hit::getQuestionId).reversed()));
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (scores[slot] == 0 || (best.size() == limit && scores[slot] < best.peek().getScore())) {
+                continue;
+            }
+            best.add(new Hit(slotQuestions[slot], scores[slot], edits[slot]));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        List<Hit> hits = new ArrayList<>();
+        while (!best.isEmpty()) {
+            hits.add(best.poll());
+        }
+        Collections.reverse(hits);
+        return hits;
+    }
+
+    /**
+     * Adds the words of a new question. Does nothing until the index is built, since the database
+     * already holds the question for when it is.
+     *
+     * @param questionId The question's ID
+     * @param body The question's text
+     */
+    public static synchronized void questionAdded(int questionId, String body) {
+        if (built) {
+            addWords(questionId, body);
+        }
+    }
+
+    /**
+     * Adds the words of a new answer to its question.
+     *
+     * @param questionId The ID of the question that was answered
+     * @param text The answer's text
+     */
+    public static synchronized void answerAdded(int questionId, String text) {
+        if (built) {
+            addWords(questionId, text);
+        }
+    }
+
+    /**
+     * Re-reads an edited question and its answers.
+     *
+     * @param connection The connection to read the question with
+     * @param questionId The question's ID
+     */
+    public static synchronized void questionChanged(Connection connection, int questionId) {
+        if (!built) {
+            return;
+        }
+        removeQuestion(questionId);
+        try (PreparedStatement pstmt = connection.prepareStatement(
+                "SELECT body AS text FROM Questions WHERE id = ? "
+                + "UNION ALL SELECT text FROM Answers WHERE questionId = ?")) {
+            pstmt.setInt(1, questionId);
+            pstmt.setInt(2, questionId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    addWords(questionId, rs.getString("text"));
+                }
+            }
+        } catch (SQLException e) {
+            LOG.error(e);
+            invalidate();
+        }
+    }
+
+    /**
+     * Removes a deleted question.
+     *
+     * @param questionId The question's ID
+     */
+    public static synchronized void questionDeleted(int questionId) {
+        if (built) {
+            removeQuestion(questionId);
+        }
+    }
+
+    /**
+     * Discards the index so it is rebuilt from the database the next time it is used.
+     */
+    public static synchronized void invalidate() {
+        built = false;
+        wordIds.clear();
+        words.clear();
+        trigramWords.clear();
+        wordQuestions.clear();
+        slotQuestions = new int[0];
+        slotWords = new int[0][];
+        slots.clear();
+        freeSlots.clear();
+        slotCount = 0;
+    }
+
+    /**
+     * Loads the words of every question and answer.
+     */
+    private static void build(Connection connection) {
+        invalidate();
+        built = true;
+        try (Statement statement = connection.createStatement()) {
+            try (ResultSet rs = statement.executeQuery("SELECT id, body FROM Questions")) {
+                while (rs.next()) {
+                    addWords(rs.getInt("id"), rs.getString("body"));
+                }
+            }
+            try (ResultSet rs = statement.executeQuery("SELECT questionId, text FROM Answers")) {
+                while (rs.next()) {
+                    addWords(rs.getInt("questionId"), rs.getString("text"));
+                }
+            }
+        } catch (SQLException e) {
+            LOG.error(e);
+            invalidate();
+        }
+        LOG.debug("Indexed {} words for fuzzy search", words.size());
+    }
+
+    /**
+     * Files a question under each word of a text that it is not already filed under.
+     */
+    private static void addWords(int questionId, String text) {
+        int slot = slot(questionId);
+        int[] known = slotWords[slot];
+        Set<Integer> added = new LinkedHashSet<>();
+        for (String word : TextTokenizer.words(text)) {
+            if (TextTokenizer.isStopWord(word)) {
+                continue;
+            }
+            int wordId = wordId(word);
+            if (!contains(known, wordId) && added.add(wordId)) {
+                wordQuestions.get(wordId).add(slot);
+            }
+        }
+        if (!added.isEmpty()) {
+            int[] all = Arrays.copyOf(known, known.length + added.size());
+            int i = known.length;
+            for (int wordId : added) {
+                all[i++] = wordId;
+            }
+            slotWords[slot] = all;
+        }
+    }
+
+    /**
+     * Returns a question's slot, giving it a free one if it has none yet.
+     */
+    private static int slot(int questionId) {
+        Integer existing = slots.get(questionId);
+        if (existing != null) {
+            return existing;
+        }
+        int slot = freeSlots.isEmpty() ? slotCount++ : freeSlots.pop();
+        if (slot >= slotQuestions.length) {
+            int capacity = Math.max(1024, slotQuestions.length * 2);
+            slotQuestions = Arrays.copyOf(slotQuestions, capacity);
+            slotWords = Arrays.copyOf(slotWords, capacity);
+        }
+        slotQuestions[slot] = questionId;
+        slotWords[slot] = new int[0];
+        slots.put(questionId, slot);
+        return slot;
+    }
+
+    /**
+     * Takes a question off the posting lists of its words and frees its slot.
+     */
+    private static void removeQuestion(int questionId) {
+        Integer slot = slots.remove(questionId);
+        if (slot == null) {
+            return;
+        }
+        for (int wordId : slotWords[slot]) {
+            wordQuestions.get(wordId).remove(slot);
+        }
+        slotQuestions[slot] = -1;
+        slotWords[slot] = null;
+        freeSlots.push(slot);
+    }
+
+    private static boolean contains(int[] values, int value) {
+        for (int v : values) {
+            if (v == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns a word's ID, adding it to the vocabulary and the trigram index if it is new.
+     */
+    private static int wordId(String word) {
+        Integer wordId = wordIds.get(word);
+        if (wordId != null) {
+            return wordId;
+        }
+        int id = words.size();
+        wordIds.put(word, id);
+        words.add(word);
+        wordQuestions.add(new IntList());
+        for (int trigram : trigrams(word)) {
+            trigramWords.computeIfAbsent(trigram, t -> new IntList()).add(id);
+        }
+        return id;
+    }
+
+    /**
+     * Lists the distinct trigrams of a word padded with '$' at each end, each packed into an int.
+     */
+    private static int[] trigrams(String word) {
+        String padded = "$" + word + "$";
+        Set<Integer> trigrams = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add((padded.charAt(i) << 16) | (padded.charAt(i + 1) << 8) | padded.charAt(i + 2));
+        }
+        return trigrams.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Finds the vocabulary words within the allowed number of edits of a search word that are still
+     * used by some question.
+     *
+     * @return Up to {@value #MAX_EXPANSIONS} pairs of {word ID, edits}, closest and most used first
+     */
+    private static List<int[]> expand(String term) {
+        int maxEdits = maxEdits(term);
+        int[] termTrigrams = trigrams(term);
+        int needed = Math.max(1, termTrigrams.length - 3 * maxEdits);
+
+        Map<Integer, Integer> shared = new HashMap<>();
+        for (int trigram : termTrigrams) {
+            IntList candidates = trigramWords.get(trigram);
+            if (candidates == null) {
+                continue;
+            }
+            for (int i = 0; i < candidates.size; i++) {
+                shared.merge(candidates.items[i], 1, Integer::sum);
+            }
+        }
+
+        List<int[]> expansions = new ArrayList<>();
+        for (Map.Entry<Integer, Integer> candidate : shared.entrySet()) {
+            int wordId = candidate.getKey();
+            String word = words.get(wordId);
+            if (candidate.getValue() < needed || Math.abs(word.length() - term.length()) > maxEdits
+                    || wordQuestions.get(wordId).size == 0) {
+                continue;
+            }
+            int distance = editDistance(term, word, maxEdits);
+            if (distance <= maxEdits) {
+                expansions.add(new int[] {wordId, distance});
+            }
+        }
+        expansions.sort(Comparator.<int[]>comparingInt(e -> e[1])
+                .thenComparing(Comparator.<int[]>comparingInt(e -> wordQuestions.get(e[0]).size).reversed()));
+        return expansions.size() > MAX_EXPANSIONS ? expansions.subList(0, MAX_EXPANSIONS) : expansions;
+    }
+
+    /**
+     * Checks whether a vocabulary word is within the edits allowed for a search word, so that a search
+     * for the one could find a post using the other.
+     *
+     * @param term A lower-case search word
+     * @param word A lower-case word
+     * @return true if the word is close enough to the search word
+     */
+    static boolean isClose(String term, String word) {
+        int maxEdits = maxEdits(term);
+        return Math.abs(word.length() - term.length()) <= maxEdits && editDistance(term, word, maxEdits) <= maxEdits;
+    }
+
+    /**
+     * Returns the number of edits allowed for a search word of its length.
+     */
+    private static int maxEdits(String term) {
+        return term.length() <= SHORT_WORD_LENGTH ? SHORT_WORD_EDITS : LONG_WORD_EDITS;
+    }
+
+    /**
+     * Computes the Levenshtein distance between two words, giving up once it must exceed a bound.
+     *
+     * @return The distance, or bound + 1 if it is larger than the bound
+     */
+    private static int editDistance(String a, String b, int bound) {
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > bound) {
+                return bound + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    /**
+     * Computes the inverse document frequency of a word used by the given number of questions.
+     */
+    private static double idf(int questions) {
+        return Math.log((slots.size() + 1.0) / (questions + 1.0)) + 1;
+    }
+}
@@ -0,0 +1,479 @@
+package databasePart1;
+
+import application.User;
+import databasePart1.ContentModerator.ContentType;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The GlobalSearch class searches questions, answers, reviews and direct messages at once.
+ * <p>
+ * Each kind of content has its own shard: an inverted index from the words of each row, as split by
+ * {@link TextTokenizer}, to the rows that use them, with their term frequencies, stored by row slot
+ * in flat arrays. A search runs on every shard in parallel on a small thread pool, each shard on its
+ * own connection. A shard ranks its rows by TF-IDF, dividing by the square root of the row's length
+ * so long posts do not win just for being long, loads the text of the best ones, and the results of
+ * all shards are merged by score.
+ * </p>
+ * <p>
+ * Results are filtered by what the user may see: messages only from chats the user takes part in,
+ * and content flagged as sensitive only for staff. Sensitivity and deletions are checked against the
+ * database when the text of the best rows is loaded, so they are always current; if filtering leaves
+ * too few results, the shard ranks more candidates and tries again.
+ * </p>
+ * <p>
+ * A shard loads its table on first use and, before each search, reads any rows with a higher ID than
+ * the last one it has seen, so new content is found whichever way it was saved. Edited questions arrive
+ * from {@link ContentEvents} and edited reviews are passed in by {@link DatabaseHelper}. Call {@link #invalidate} after replacing the tables.
+ * </p>
+ */
+public class GlobalSearch {
+
+    /**
+     * A row that matches a search.
+     */
+    public static class Result {
+        private final ContentType type;
+        private final int id;
+        private final int ownerId;
+        private final String text;
+        private final double score;
+
+        private Result(ContentType type, int id, int ownerId, String text, double score) {
+            this.type = type;
+            this.id = id;
+            this.ownerId = ownerId;
+            this.text = text;
+            this.score = score;
+        }
+
+        /** @return The kind of content */
+        public ContentType getType() { return type; }
+
+        /** @return The row's ID */
+        public int getId() { return id; }
+
+        /**
+         * @return The question an answer belongs to, the answer a review is about or the chat a message
+         *         was sent in; for a question, its own ID
+         */
+        public int getOwnerId() { return ownerId; }
+
+        /** @return The row's text */
+        public String getText() { return text; }
+
+        /** @return How well the row matches; higher is better */
+        public double getScore() { return score; }
+    }
+
+    /** Each shard ranks this many candidates per result it is asked for, before filtering */
+    private static final int CANDIDATE_FACTOR = 2;
+
+    /** Logger for this class's messages and errors */
+    private static final Log LOG = Log.get(GlobalSearch.class);
+
+    /** One shard per kind of content */
+    private static final Shard[] SHARDS = {
+        new Shard(ContentType.QUESTION, "Questions", "id", "body"),
+        new Shard(ContentType.ANSWER, "Answers", "questionId", "text"),
+        new Shard(ContentType.REVIEW, "Reviews", "answerId", "text"),
+        new Shard(ContentType.MESSAGE, "Messages", "chat_id", "content")
+    };
+
+    /** Searches the shards in parallel */
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(SHARDS.length, runnable -> {
+        Thread thread = new Thread(runnable, "global-search");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Follow the changes reported to ContentEvents
+    static {
+        ContentEvents.subscribe(new ContentEvents.Listener() {
+            @Override
+            public void questionEdited(Connection connection, int questionId, String body) {
+                textChanged(ContentType.QUESTION, questionId, body);
+            }
+
+            @Override
+            public void invalidate() {
+                GlobalSearch.invalidate();
+            }
+        });
+    }
+
+    /**
+     * Searches every kind of content the user may see.
+     *
+     * @param query The search text
+     * @param user The user searching, or null to search only public content
+     * @param limit The most results to return
+     * @return The matching rows, best first
+     */
+    public static List<Result> search(String query, User user, int limit) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(TextTokenizer.tokenize(query)));
+        List<Result> results = new ArrayList<>();
+        if (terms.isEmpty() || limit <= 0) {
+            return results;
+        }
+        String userName = user == null ? null : user.getUserName();
+        boolean staff = user != null && user.hasRole("staff");
+
+        List<Future<List<Result>>> shardResults = new ArrayList<>();
+        for (Shard shard : SHARDS) {
+            shardResults.add(EXECUTOR.submit(() -> shard.search(terms, userName, staff, limit)));
+        }
+        for (Future<List<Result>> shardResult : shardResults) {
+            try {
+                results.addAll(shardResult.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException e) {
+                LOG.error("A search shard failed", e.getCause());
+            }
+        }
+        results.sort(Comparator.comparingDouble(Result::getScore).reversed()
+                .thenComparing(Result::getType)
+                .thenComparingInt(Result::getId));
+        return results.size() > limit ? new ArrayList<>(results.subList(0, limit)) : results;
+    }
+
+    /**
+     * Re-indexes a row whose text was edited.
+     *
+     * @param type The kind of content
+     * @param id The row's ID
+     * @param text The new text
+     */
+    public static void textChanged(ContentType type, int id, String text) {
+        for (Shard shard : SHARDS) {
+            if (shard.type == type) {
+                shard.replace(id, text);
+            }
+        }
+    }
+
+    /**
+     * Discards every shard so each is reloaded from the database the next time it is searched.
+     */
+    public static void invalidate() {
+        for (Shard shard : SHARDS) {
+            shard.invalidate();
+        }
+    }
+
+    /**
+     * The rows of one slot-indexed posting list and their term frequency weights.
+     */
+    private static class Postings {
+        private int[] slots = new int[2];
+        private float[] weights = new float[2];
+        private int size = 0;
+
+        private void add(int slot, float weight) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            slots[size] = slot;
+            weights[size] = weight;
+            size++;
+        }
+
+        private void remove(int slot) {
+            for (int i = size - 1; i >= 0; i--) {
+                if (slots[i] == slot) {
+                    size--;
+                    slots[i] = slots[size];
+                    weights[i] = weights[size];
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * The index of one kind of content.
+     */
+    private static class Shard {
+        private final ContentType type;
+        private final String table;
+        private final String ownerColumn;
+        private final String textColumn;
+
+        /** The shard's own connection */
+        private Connection connection;
+
+        /** Whether the table has been loaded */
+        private boolean built = false;
+
+        /** The highest row ID loaded so far */
+        private int lastId = 0;
+
+        /** ID of each word */
+        private final Map<String, Integer> termIds = new HashMap<>();
+
+        /** The rows using each word, by word ID */
+        private final List<Postings> postings = new ArrayList<>();
+
+        /** The row stored in each slot */
+        private int[] slotIds = new int[0];
+
+        /** The owner of each slot's row, see {@link Result#getOwnerId} */
+        private int[] slotOwners = new int[0];
+
+        /** The distinct words of each slot's row */
+        private int[][] slotTerms = new int[0][];
+
+        /** One over the square root of the number of words in each slot's row */
+        private float[] lengthNorms = new float[0];
+
+        /** Slot of each indexed row */
+        private final Map<Integer, Integer> slots = new HashMap<>();
+
+        /** Slots freed by removed rows, reused first */
+        private final Deque<Integer> freeSlots = new ArrayDeque<>();
+
+        /** Number of slots in use or freed */
+        private int slotCount = 0;
+
+        private Shard(ContentType type, String table, String ownerColumn, String textColumn) {
+            this.type = type;
+            this.table = table;
+            this.ownerColumn = ownerColumn;
+            this.textColumn = textColumn;
+        }
+
+        /**
+         * Finds the rows of this shard that best match the search words and that the user may see.
+         */
+        private synchronized List<Result> search(List<String> terms, String userName, boolean staff, int limit) {
+            try {
+                if (connection == null || connection.isClosed()) {
+                    connection = DriverManager.getConnection(DatabaseHelper.DB_URL, DatabaseHelper.USER, DatabaseHelper.PASS);
+                }
+                catchUp();
+                Set<Integer> allowedOwners = null;
+                if (type == ContentType.MESSAGE) {
+                    allowedOwners = chatsOf(userName);
+                    if (allowedOwners.isEmpty()) {
+                        return new ArrayList<>();
+                    }
+                }
+                int wanted = limit * CANDIDATE_FACTOR;
+                while (true) {
+                    List<Result> candidates = rank(terms, allowedOwners, wanted);
+                    List<Result> results = load(candidates, staff);
+                    if (results.size() >= limit || candidates.size() < wanted) {
+                        return results.size() > limit ? new ArrayList<>(results.subList(0, limit)) : results;
+                    }
+                    wanted *= 4;
+                }
+            } catch (SQLException e) {
+                LOG.error(e);
+                return new ArrayList<>();
+            }
+        }
+
+        /**
+         * Loads the table on first use, and afterwards any rows added since the last search.
+         */
+        private void catchUp() throws SQLException {
+            if (!built) {
+                invalidate();
+                built = true;
+            }
+            try (PreparedStatement pstmt = connection.prepareStatement("SELECT id, " + ownerColumn + " AS owner, "
+                    + textColumn + " AS text FROM " + table + " WHERE id > ? ORDER BY id")) {
+                pstmt.setInt(1, lastId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        add(rs.getInt("id"), rs.getInt("owner"), rs.getString("text"));
+                        lastId = rs.getInt("id");
+                    }
+                }
+            }
+        }
+
+        /**
+         * Lists the chats a user takes part in.
+         */
+        private Set<Integer> chatsOf(String userName) throws SQLException {
+            Set<Integer> chats = new HashSet<>();
+            if (userName == null) {
+                return chats;
+            }
+            try (PreparedStatement pstmt = connection.prepareStatement("SELECT cp.chat_id FROM ChatParticipants cp "
+                    + "JOIN cse360users u ON cp.user_id = u.id WHERE u.userName = ?")) {
+                pstmt.setString(1, userName);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        chats.add(rs.getInt(1));
+                    }
+                }
+            }
+            return chats;
+        }
+
+        /**
+         * Scores every row that uses a search word and keeps the best, without their text.
+         *
+         * @param allowedOwners The owners whose rows may be returned, or null for any
+         */
+        private List<Result> rank(List<String> terms, Set<Integer> allowedOwners, int wanted) {
+            float[] scores = new float[slotCount];
+            int rows = slots.size();
+            for (String term : terms) {
+                Integer termId = termIds.get(term);
+                if (termId == null) {
+                    continue;
+                }
+                Postings list = postings.get(termId);
+                float idf = (float) (Math.log((rows + 1.0) / (list.size + 1.0)) + 1);
+                for (int i = 0; i < list.size; i++) {
+                    scores[list.slots[i]] += list.weights[i] * idf;
+                }
+            }
+
+            PriorityQueue<Result> best = new PriorityQueue<>(Comparator.comparingDouble(Result::getScore)
+                    .thenComparing(Comparator.comparingInt(Result::getId).reversed()));
+            for (int slot = 0; slot < slotCount; slot++) {
+                if (scores[slot] == 0 || (allowedOwners != null && !allowedOwners.contains(slotOwners[slot]))) {
+                    continue;
+                }
+                best.add(new Result(type, slotIds[slot], slotOwners[slot], null, scores[slot] * lengthNorms[slot]));
+                if (best.size() > wanted) {
+                    best.poll();
+                }
+            }
+            List<Result> ranked = new ArrayList<>(best);
+            ranked.sort(Comparator.comparingDouble(Result::getScore).reversed().thenComparingInt(Result::getId));
+            return ranked;
+        }
+
+        /**
+         * Loads the text of ranked rows, leaving out rows that have been deleted, which are also taken
+         * out of the index, and sensitive rows unless the user is staff.
+         */
+        private List<Result> load(List<Result> candidates, boolean staff) throws SQLException {
+            List<Result> results = new ArrayList<>();
+            if (candidates.isEmpty()) {
+                return results;
+            }
+            Map<Integer, String> texts = new HashMap<>();
+            Set<Integer> sensitive = new HashSet<>();
+            String placeholders = String.join(", ", Collections.nCopies(candidates.size(), "?"));
+            try (PreparedStatement pstmt = connection.prepareStatement("SELECT id, " + textColumn + " AS text, "
+                    + "COALESCE(is_sensitive, 0) AS sensitive FROM " + table + " WHERE id IN (" + placeholders + ")")) {
+                for (int i = 0; i < candidates.size(); i++) {
+                    pstmt.setInt(i + 1, candidates.get(i).getId());
+                }
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        texts.put(rs.getInt("id"), rs.getString("text"));
+                        if (rs.getInt("sensitive") != 0) {
+                            sensitive.add(rs.getInt("id"));
+                        }
+                    }
+                }
+            }
+            for (Result candidate : candidates) {
+                String text = texts.get(candidate.getId());
+                if (text == null) {
+                    remove(candidate.getId());
+                } else if (staff || !sensitive.contains(candidate.getId())) {
+                    results.add(new Result(type, candidate.getId(), candidate.getOwnerId(), text, candidate.getScore()));
+                }
+            }
+            return results;
+        }
+
+        /**
+         * Re-indexes an edited row, if it has been loaded.
+         */
+        private synchronized void replace(int id, String text) {
+            Integer slot = slots.get(id);
+            if (slot != null) {
+                int owner = slotOwners[slot];
+                remove(id);
+                add(id, owner, text);
+            }
+        }
+
+        /**
+         * Files a row under each of its words.
+         */
+        private void add(int id, int owner, String text) {
+            List<String> words = TextTokenizer.tokenize(text);
+            if (words.isEmpty()) {
+                return;
+            }
+            Map<Integer, Integer> counts = new LinkedHashMap<>();
+            for (String word : words) {
+                Integer termId = termIds.get(word);
+                if (termId == null) {
+                    termId = postings.size();
+                    termIds.put(word, termId);
+                    postings.add(new Postings());
+                }
+                counts.merge(termId, 1, Integer::sum);
+            }
+
+            int slot = freeSlots.isEmpty() ? slotCount++ : freeSlots.pop();
+            if (slot >= slotIds.length) {
+                int capacity = Math.max(1024, slotIds.length * 2);
+                slotIds = Arrays.copyOf(slotIds, capacity);
+                slotOwners = Arrays.copyOf(slotOwners, capacity);
+                slotTerms = Arrays.copyOf(slotTerms, capacity);
+                lengthNorms = Arrays.copyOf(lengthNorms, capacity);
+            }
+            slotIds[slot] = id;
+            slotOwners[slot] = owner;
+            slotTerms[slot] = new int[counts.size()];
+            lengthNorms[slot] = (float) (1 / Math.sqrt(words.size()));
+            slots.put(id, slot);
+            int i = 0;
+            for (Map.Entry<Integer, Integer> count : counts.entrySet()) {
+                slotTerms[slot][i++] = count.getKey();
+                postings.get(count.getKey()).add(slot, (float) (1 + Math.log(count.getValue())));
+            }
+        }
+
+        /**
+         * Takes a row off the posting lists of its words and frees its slot.
+         */
+        private void remove(int id) {
+            Integer slot = slots.remove(id);
+            if (slot == null) {
+                return;
+            }
+            for (int termId : slotTerms[slot]) {
+                postings.get(termId).remove(slot);
+            }
+            slotTerms[slot] = null;
+            freeSlots.push(slot);
+        }
+
+        /**
+         * Empties the shard so it is reloaded on the next search.
+         */
+        private synchronized void invalidate() {
+            built = false;
+            lastId = 0;
+            termIds.clear();
+            postings.clear();
+            slotIds = new int[0];
+            slotOwners = new int[0];
+            slotTerms = new int[0][];
+            lengthNorms = new float[0];
+            slots.clear();
+            freeSlots.clear();
+            slotCount = 0;
+        }
+    }
+}
@@ -0,0 +1,467 @@
+package databasePart1;
+
+import java.sql.*;
+import java.util.*;
+
+/**
+ * The HotQuestionFeed class keeps the currently most active questions, ranked by a time-decayed score.
+ * <p>
+ * Every event on a question adds a weight that halves every {@link #HALF_LIFE_HOURS} hours: being
+ * asked, each answer, each upvote or downvote on the question and each vote on one of its answers.
+ * Downvotes on the question count against it; votes on answers count as activity either way. The
+ * score is the sum of those decayed weights.
+ * </p>
+ * <p>
+ * Scores are stored relative to a fixed epoch, as weight &times; e<sup>&lambda;(t - epoch)</sup>,
+ * rather than relative to now. All scores decay at the same rate, so their order never changes as
+ * time passes and a question only moves when something happens to it. When a question is asked,
+ * answered or voted on, {@link DatabaseHelper} adds the event's weight to that question's score, and
+ * the top questions are kept in a bounded min-heap as scores change. A vote that is changed or taken
+ * back instead rescores its question with indexed queries, since its weight depends on when it was
+ * cast. The feed is read from the heap without scoring anything.
+ * </p>
+ * <p>
+ * The feed is built from the whole database on first use. It only sees changes reported to
+ * {@link ContentEvents} and votes cast through DatabaseHelper; call {@link #invalidate} after changing the tables another way.
+ * </p>
+ */
+public class HotQuestionFeed {
+
+    /** Logger for this class's messages and errors */
+    private static final Log LOG = Log.get(HotQuestionFeed.class);
+
+    /** Hours after which an event's weight has halved */
+    public static final double HALF_LIFE_HOURS =
+            Double.parseDouble(System.getProperty("cse360.hot.halflife.hours", "24"));
+
+    /** Number of questions kept in the feed */
+    public static final int CAPACITY = Integer.getInteger("cse360.hot.size", 50);
+
+    /** Weight of the question being asked */
+    private static final double ASKED_WEIGHT = 2.0;
+
+    /** Weight of each answer */
+    private static final double ANSWER_WEIGHT = 2.0;
+
+    /** Weight of each upvote on the question; downvotes count the same amount against it */
+    private static final double QUESTION_VOTE_WEIGHT = 1.0;
+
+    /** Weight of each vote on one of the question's answers */
+    private static final double ANSWER_VOTE_WEIGHT = 0.5;
+
+    /** Decay rate per millisecond */
+    private static final double LAMBDA = Math.log(2) / (HALF_LIFE_HOURS * 3_600_000);
+
+    /** The epoch is moved forward once scores have grown by this power of e, to keep them in range */
+    private static final double REBASE_EXPONENT = 100;
+
+    /** Whether the scores have been loaded */
+    private static boolean built = false;
+
+    /** Time that scores are relative to, in milliseconds since 1970 */
+    private static long epoch;
+
+    /** Score of every question */
+    private static final Map<Integer, Double> scores = new HashMap<>();
+
+    /** Min-heap of the top question IDs; the lowest-scoring of them is at index 0 */
+    private static final int[] heap = new int[CAPACITY];
+
+    /** Number of questions in the heap */
+    private static int size = 0;
+
+    /** Index in the heap of each question in it */
+    private static final Map<Integer, Integer> positions = new HashMap<>();
+
+    /**
+     * Returns the hottest questions, building the feed first if needed.
+     *
+     * @param connection The connection to load the scores with if the feed is not built yet
+     * @param limit The most questions to return; at most {@link #CAPACITY} are available
+     * @return The question IDs, hottest first
+     */
+    public static synchronized List<Integer> top(Connection connection, int limit) {
+        if (!built) {
+            build(connection);
+        }
+        Integer[] ids = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            ids[i] = heap[i];
+        }
+        Arrays.sort(ids, (a, b) -> isLower(a, b) ? 1 : isLower(b, a) ? -1 : 0);
+        return new ArrayList<>(Arrays.asList(ids).subList(0, Math.min(limit, size)));
+    }
+
+    // Follow the changes reported to ContentEvents
+    static {
+        ContentEvents.subscribe(new ContentEvents.Listener() {
+            @Override
+            public void questionSaved(int questionId, String body, String askedBy) {
+                questionAsked(questionId);
+            }
+
+            @Override
+            public void questionDeleted(int questionId) {
+                HotQuestionFeed.questionDeleted(questionId);
+            }
+
+            @Override
+            public void answerSaved(int questionId, EntityCache.CachedAnswer answer) {
+                answerAdded(questionId);
+            }
+
+            @Override
+            public void invalidate() {
+                HotQuestionFeed.invalidate();
+            }
+        });
+    }
+
+    /**
+     * Records that a question was just asked.
+     *
+     * @param questionId The new question's ID
+     */
+    public static void questionAsked(int questionId) {
+        addEvent(questionId, ASKED_WEIGHT);
+    }
+
+    /**
+     * Records that a question was just answered.
+     *
+     * @param questionId The question's ID
+     */
+    public static void answerAdded(int questionId) {
+        addEvent(questionId, ANSWER_WEIGHT);
+    }
+
+    /**
+     * Records a new vote on a question. A vote that was changed or taken back needs
+     * {@link #questionChanged} instead, since its weight depends on when it was first cast.
+     *
+     * @param questionId The question's ID
+     * @param upvote Whether the vote is an upvote
+     */
+    public static void questionVoted(int questionId, boolean upvote) {
+        addEvent(questionId, upvote ? QUESTION_VOTE_WEIGHT : -QUESTION_VOTE_WEIGHT);
+    }
+
+    /**
+     * Records a new vote on an answer, crediting the answer's question.
+     *
+     * @param connection The connection to look up the answer's question with
+     * @param answerId The answer's ID
+     */
+    public static void answerVoted(Connection connection, int answerId) {
+        synchronized (HotQuestionFeed.class) {
+            if (!built) {
+                return;
+            }
+        }
+        try (PreparedStatement pstmt = connection.prepareStatement("SELECT questionId FROM Answers WHERE id = ?")) {
+            pstmt.setInt(1, answerId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    addEvent(rs.getInt(1), ANSWER_VOTE_WEIGHT);
+                }
+            }
+        } catch (SQLException e) {
+            LOG.error(e);
+        }
+    }
+
+    /**
+     * Rescores a question from the database, after a vote on it or its answers was changed or taken back.
+     * Does nothing until the feed is built, since the database already holds the change for when it is.
+     *
+     * @param connection The connection to query the question's activity with
+     * @param questionId The question's ID
+     */
+    public static void questionChanged(Connection connection, int questionId) {
+        long scoreEpoch;
+        synchronized (HotQuestionFeed.class) {
+            if (!built) {
+                return;
+            }
+            rebaseIfNeeded();
+            scoreEpoch = epoch;
+        }
+        try {
+            Map<Integer, Double> result = loadScores(connection, scoreEpoch, questionId);
+            Double score = result.get(questionId);
+            synchronized (HotQuestionFeed.class) {
+                if (!built) {
+                    return;
+                }
+                if (score == null) {
+                    remove(questionId);
+                } else {
+                    // Another thread may have moved the epoch while the query ran
+                    update(questionId, score * Math.exp(-LAMBDA * (epoch - scoreEpoch)));
+                }
+            }
+        } catch (SQLException e) {
+            LOG.error(e);
+        }
+    }
+
+    /**
+     * Adds the weight of an event that happened now to a question's score.
+     */
+    private static synchronized void addEvent(int questionId, double weight) {
+        if (!built || questionId < 0) {
+            return;
+        }
+        rebaseIfNeeded();
+        double decayed = weight * Math.exp(LAMBDA * (System.currentTimeMillis() - epoch));
+        update(questionId, scores.getOrDefault(questionId, 0.0) + decayed);
+    }
+
+    /**
+     * Drops a deleted question from the feed.
+     *
+     * @param questionId The question's ID
+     */
+    public static synchronized void questionDeleted(int questionId) {
+        if (built) {
+            remove(questionId);
+        }
+    }
+
+    /**
+     * Discards the scores so the feed is rebuilt from the database the next time it is read.
+     */
+    public static synchronized void invalidate() {
+        built = false;
+        scores.clear();
+        positions.clear();
+        size = 0;
+    }
+
+    /**
+     * Loads every question's score and fills the heap.
+     */
+    private static void build(Connection connection) {
+        invalidate();
+        epoch = System.currentTimeMillis();
+        try {
+            for (Map.Entry<Integer, Double> entry : loadScores(connection, epoch, -1).entrySet()) {
+                update(entry.getKey(), entry.getValue());
+            }
+            built = true;
+        } catch (SQLException e) {
+            LOG.error(e);
+            invalidate();
+        }
+    }
+
+    /**
+     * Adds up the decayed weights of each question's events. Each table is aggregated on its own,
+     * with answer votes summed per answer and then credited to the answer's question, which is much
+     * faster than one query over all of them.
+     *
+     * @param connection The connection to query with
+     * @param scoreEpoch The time the scores are relative to
+     * @param questionId The question to score, or -1 for all of them
+     * @return The score of each question, relative to the epoch; a deleted question has none
+     * @throws SQLException If a query fails
+     */
+    private static Map<Integer, Double> loadScores(Connection connection, long scoreEpoch, int questionId)
+            throws SQLException {
+        boolean one = questionId >= 0;
+        String decay = "EXP(? * DATEDIFF(MILLISECOND, ?, timestamp))";
+        Map<Integer, Double> result = new HashMap<>();
+        try (PreparedStatement pstmt = prepare(connection, "SELECT id, " + decay + " FROM Questions"
+                + (one ? " WHERE id = ?" : ""), scoreEpoch, questionId);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                result.put(rs.getInt(1), ASKED_WEIGHT * rs.getDouble(2));
+            }
+        }
+        if (one && result.isEmpty()) {
+            return result;
+        }
+        Map<Integer, Integer> questionOfAnswer = new HashMap<>();
+        try (PreparedStatement pstmt = prepare(connection, "SELECT id, questionId, " + decay + " FROM Answers"
+                + (one ? " WHERE questionId = ?" : ""), scoreEpoch, questionId);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                questionOfAnswer.put(rs.getInt(1), rs.getInt(2));
+                result.merge(rs.getInt(2), ANSWER_WEIGHT * rs.getDouble(3), Double::sum);
+            }
+        }
+        try (PreparedStatement pstmt = prepare(connection, "SELECT v.answerId, SUM(" + decay.replace("timestamp", "v.timestamp")
+                + ") FROM Votes v" + (one ? " JOIN Answers a ON a.id = v.answerId WHERE a.questionId = ?" : "")
+                + " GROUP BY v.answerId", scoreEpoch, questionId);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                Integer question = questionOfAnswer.get(rs.getInt(1));
+                if (question != null) {
+                    result.merge(question, ANSWER_VOTE_WEIGHT * rs.getDouble(2), Double::sum);
+                }
+            }
+        }
+        try (PreparedStatement pstmt = prepare(connection, "SELECT questionId, SUM(CASE WHEN voteType = 'upvote' "
+                + "THEN 1 ELSE -1 END * " + decay + ") FROM QuestionVotes"
+                + (one ? " WHERE questionId = ?" : "") + " GROUP BY questionId", scoreEpoch, questionId);
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                if (result.containsKey(rs.getInt(1))) {
+                    result.merge(rs.getInt(1), QUESTION_VOTE_WEIGHT * rs.getDouble(2), Double::sum);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Prepares one of the scoring queries, binding the decay rate, the epoch and the question if there is one.
+     */
+    private static PreparedStatement prepare(Connection connection, String query, long scoreEpoch, int questionId)
+            throws SQLException {
+        PreparedStatement pstmt = connection.prepareStatement(query);
+        pstmt.setDouble(1, LAMBDA);
+        pstmt.setTimestamp(2, new Timestamp(scoreEpoch));
+        if (questionId >= 0) {
+            pstmt.setInt(3, questionId);
+        }
+        return pstmt;
+    }
+
+    /**
+     * Sets a question's score and moves it into, within or out of the heap.
+     */
+    private static void update(int id, double score) {
+        boolean full = size == CAPACITY;
+        double lowest = size > 0 ? scores.get(heap[0]) : 0;
+        Double previous = scores.put(id, score);
+        Integer position = positions.get(id);
+        if (position == null) {
+            if (!full) {
+                heap[size] = id;
+                positions.put(id, size);
+                size++;
+                siftUp(size - 1);
+            } else if (isLower(heap[0], id)) {
+                positions.remove(heap[0]);
+                place(0, id);
+                siftDown(0);
+            }
+        } else if (previous != null && score < previous) {
+            siftUp(position);
+            // Questions outside the heap may now score higher than this one
+            if (full && score < lowest) {
+                int outside = bestOutside();
+                if (outside >= 0 && isLower(heap[0], outside)) {
+                    positions.remove(heap[0]);
+                    place(0, outside);
+                    siftDown(0);
+                }
+            }
+        } else {
+            siftDown(position);
+        }
+    }
+
+    /**
+     * Removes a question, refilling the heap from the questions outside it.
+     */
+    private static void remove(int id) {
+        scores.remove(id);
+        Integer position = positions.remove(id);
+        if (position == null) {
+            return;
+        }
+        size--;
+        if (position < size) {
+            int moved = heap[size];
+            place(position, moved);
+            siftDown(position);
+            siftUp(positions.get(moved));
+        }
+        int replacement = bestOutside();
+        if (replacement >= 0) {
+            heap[size] = replacement;
+            positions.put(replacement, size);
+            size++;
+            siftUp(size - 1);
+        }
+    }
+
+    /**
+     * Finds the highest-scoring question that is not in the heap. This scans every score, but is only
+     * needed when a question in the heap is deleted or drops below the rest of the heap.
+     *
+     * @return The question's ID, or -1 if every question is in the heap
+     */
+    private static int bestOutside() {
+        int best = -1;
+        for (Integer id : scores.keySet()) {
+            if (!positions.containsKey(id) && (best < 0 || isLower(best, id))) {
+                best = id;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Moves the epoch forward once scores have grown large, scaling every score down to match.
+     */
+    private static void rebaseIfNeeded() {
+        long now = System.currentTimeMillis();
+        if (LAMBDA * (now - epoch) < REBASE_EXPONENT) {
+            return;
+        }
+        double factor = Math.exp(-LAMBDA * (now - epoch));
+        scores.replaceAll((id, score) -> score * factor);
+        epoch = now;
+    }
+
+    /**
+     * Compares two questions by score; the newer question wins a tie.
+     *
+     * @return true if a ranks below b
+     */
+    private static boolean isLower(int a, int b) {
+        double scoreA = scores.get(a);
+        double scoreB = scores.get(b);
+        return scoreA < scoreB || (scoreA == scoreB && a < b);
+    }
+
+    private static void place(int index, int id) {
+        heap[index] = id;
+        positions.put(id, index);
+    }
+
+    private static void siftUp(int index) {
+        int id = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (!isLower(id, heap[parent])) {
+                break;
+            }
+            place(index, heap[parent]);
+            index = parent;
+        }
+        place(index, id);
+    }
+
+    private static void siftDown(int index) {
+        int id = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && isLower(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!isLower(heap[child], id)) {
+                break;
+            }
+            place(index, heap[child]);
+            index = child;
+        }
+        place(index, id);
+    }
+}
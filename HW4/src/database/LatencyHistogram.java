@@ -0,0 +1,158 @@
+package databasePart1;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent latency histogram with logarithmic buckets.
+ * <p>
+ * Latencies are recorded in microseconds. Each power of two is split into
+ * {@value #SUB_BUCKETS} linear sub-buckets, so a reported percentile is within about
+ * 12% of the true value while the whole histogram stays a fixed array of counters.
+ * Recording is lock-free and safe from any number of threads.
+ * </p>
+ */
+public class LatencyHistogram {
+    /** Linear sub-buckets per power of two */
+    private static final int SUB_BUCKETS = 8;
+
+    /** Bits needed to address a sub-bucket */
+    private static final int SUB_BITS = 3;
+
+    /** Enough buckets for any long value */
+    private static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records one latency.
+     *
+     * @param micros The latency in microseconds
+     */
+    public void record(long micros) {
+        long value = Math.max(0, micros);
+        counts.incrementAndGet(bucketOf(value));
+        total.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Returns the number of recorded latencies.
+     *
+     * @return The count
+     */
+    public long getCount() {
+        return total.sum();
+    }
+
+    /**
+     * Returns the mean latency.
+     *
+     * @return The mean in microseconds, or 0 if nothing was recorded
+     */
+    public double getMean() {
+        long count = total.sum();
+        return count == 0 ? 0 : (double) sum.sum() / count;
+    }
+
+    /**
+     * Returns the largest recorded latency.
+     *
+     * @return The maximum in microseconds
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the latency below which the given fraction of the recorded latencies fall.
+     *
+     * @param fraction The percentile as a fraction, e.g. 0.99
+     * @return The upper bound of the bucket holding the percentile, in microseconds
+     */
+    public long getPercentile(double fraction) {
+        long count = total.sum();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(fraction * count);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(upperBound(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Returns how many latencies fall into each power-of-two range of milliseconds:
+     * element 0 counts latencies under 1 ms, element {@code k} those from
+     * {@code 2^(k-1)} up to {@code 2^k} ms.
+     *
+     * @return The counts, up to the last non-empty range
+     */
+    public long[] getMillisecondRanges() {
+        long[] ranges = new long[64];
+        int last = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            long n = counts.get(i);
+            if (n == 0) {
+                continue;
+            }
+            long millis = lowerBound(i) / 1000;
+            int range = millis == 0 ? 0 : 64 - Long.numberOfLeadingZeros(millis);
+            ranges[range] += n;
+            last = Math.max(last, range);
+        }
+        long[] trimmed = new long[last + 1];
+        System.arraycopy(ranges, 0, trimmed, 0, trimmed.length);
+        return trimmed;
+    }
+
+    /**
+     * Adds every latency recorded in another histogram to this one.
+     *
+     * @param other The histogram to add
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.addAndGet(i, other.counts.get(i));
+        }
+        total.add(other.total.sum());
+        sum.add(other.sum.sum());
+        max.accumulate(other.max.get());
+    }
+
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        int sub = (int) (value >>> exponent) & (SUB_BUCKETS - 1);
+        return (exponent + 1) * SUB_BUCKETS + sub;
+    }
+
+    private static long lowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        return (SUB_BUCKETS + sub) << exponent;
+    }
+
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS - 1;
+        return lowerBound(bucket) + (1L << exponent) - 1;
+    }
+}
@@ -0,0 +1,395 @@
+package databasePart1;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The Log class is a small asynchronous logger used in place of System.out, System.err and
+ * printStackTrace.
+ * <p>
+ * Logging a message only checks the level and puts the message, its arguments and any exception
+ * into a fixed-size ring buffer; the thread that logged it, often the JavaFX thread, never formats
+ * text or waits on the console. A single background writer takes messages off the buffer in order,
+ * formats them as one line each (time, level, thread, logger and message, followed by the stack
+ * trace if there is one) and prints them to System.err for warnings and errors and System.out for
+ * everything else. The buffer is lock-free: loggers claim a slot with one compare-and-set, and if it
+ * is full the message is dropped and counted rather than blocking the caller.
+ * </p>
+ * <p>
+ * Messages may contain {} placeholders, which are replaced by the arguments when the writer formats
+ * the line, so a disabled debug message costs almost nothing. The level defaults to INFO and can be
+ * set with the cse360.log.level system property or {@link #setLevel}.
+ * </p>
+ */
+public class Log {
+
+    /**
+     * Message levels, from least to most severe. OFF disables logging entirely.
+     */
+    public enum Level { DEBUG, INFO, WARN, ERROR, OFF }
+
+    /** One logged message, as stored in the ring buffer */
+    private static class Entry {
+        final long time = System.currentTimeMillis();
+        final String thread = Thread.currentThread().getName();
+        final Level level;
+        final Log logger;
+        final String message;
+        final Object[] arguments;
+        final Throwable thrown;
+
+        Entry(Level level, Log logger, String message, Object[] arguments, Throwable thrown) {
+            this.level = level;
+            this.logger = logger;
+            this.message = message;
+            this.arguments = arguments;
+            this.thrown = thrown;
+        }
+    }
+
+    /** Number of slots in the ring buffer; a power of two */
+    private static final int CAPACITY = 8192;
+
+    private static final int MASK = CAPACITY - 1;
+
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+
+    /** Messages below this level are ignored */
+    private static volatile Level level = parseLevel(System.getProperty("cse360.log.level"), Level.INFO);
+
+    /** The ring buffer's slots */
+    private static final Entry[] entries = new Entry[CAPACITY];
+
+    /**
+     * Sequence number of each slot. A slot whose sequence equals a claimed position is free for that
+     * position; one past it means the entry has been published and is ready for the writer.
+     */
+    private static final AtomicLongArray sequences = new AtomicLongArray(CAPACITY);
+
+    /** Next position to be claimed by a logging thread */
+    private static final AtomicLong tail = new AtomicLong();
+
+    /** Next position the writer will take; only the writer changes it */
+    private static volatile long head = 0;
+
+    /** Number of messages dropped because the buffer was full */
+    private static final AtomicLong dropped = new AtomicLong();
+
+    /** Set by the writer while it is parked waiting for messages */
+    private static volatile boolean writerWaiting = false;
+
+    private static final Thread writer;
+
+    static {
+        for (int i = 0; i < CAPACITY; i++) {
+            sequences.set(i, i);
+        }
+        writer = new Thread(Log::writeLoop, "async-log");
+        writer.setDaemon(true);
+        writer.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> flush(1000), "async-log-flush"));
+    }
+
+    /** The name shown for messages from this logger */
+    private final String name;
+
+    /** The fully qualified name of the class the logger belongs to */
+    private final String className;
+
+    private Log(Class<?> owner) {
+        this.name = owner.getSimpleName();
+        this.className = owner.getName();
+    }
+
+    /**
+     * Creates a logger for a class.
+     *
+     * @param owner The class whose messages it logs
+     * @return The logger
+     */
+    public static Log get(Class<?> owner) {
+        return new Log(owner);
+    }
+
+    /**
+     * Returns the current level.
+     *
+     * @return The lowest level that is logged
+     */
+    public static Level getLevel() {
+        return level;
+    }
+
+    /**
+     * Sets the lowest level that is logged.
+     *
+     * @param newLevel The new level
+     */
+    public static void setLevel(Level newLevel) {
+        level = newLevel;
+    }
+
+    /**
+     * Checks whether messages at a level are logged, for callers that want to skip building arguments.
+     *
+     * @param messageLevel The level to check
+     * @return true if messages at that level are logged
+     */
+    public static boolean isEnabled(Level messageLevel) {
+        return messageLevel != Level.OFF && messageLevel.compareTo(level) >= 0;
+    }
+
+    /**
+     * Returns the number of messages dropped because the buffer was full.
+     *
+     * @return The count since startup
+     */
+    public static long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Logs a debug message.
+     *
+     * @param message The message, with {} for each argument
+     * @param arguments The values for the placeholders
+     */
+    public void debug(String message, Object... arguments) {
+        log(Level.DEBUG, message, arguments, null);
+    }
+
+    /**
+     * Logs an informational message.
+     *
+     * @param message The message, with {} for each argument
+     * @param arguments The values for the placeholders
+     */
+    public void info(String message, Object... arguments) {
+        log(Level.INFO, message, arguments, null);
+    }
+
+    /**
+     * Logs a warning.
+     *
+     * @param message The message, with {} for each argument
+     * @param arguments The values for the placeholders
+     */
+    public void warn(String message, Object... arguments) {
+        log(Level.WARN, message, arguments, null);
+    }
+
+    /**
+     * Logs an error.
+     *
+     * @param message The message, with {} for each argument
+     * @param arguments The values for the placeholders
+     */
+    public void error(String message, Object... arguments) {
+        log(Level.ERROR, message, arguments, null);
+    }
+
+    /**
+     * Logs an error with the exception that caused it and its stack trace.
+     *
+     * @param message The message
+     * @param thrown The exception
+     */
+    public void error(String message, Throwable thrown) {
+        log(Level.ERROR, message, null, thrown);
+    }
+
+    /**
+     * Logs an exception and its stack trace. The message names the method of this logger's class
+     * the exception passed through, so a bare catch block still says where it failed.
+     *
+     * @param thrown The exception
+     */
+    public void error(Throwable thrown) {
+        log(Level.ERROR, null, null, thrown);
+    }
+
+    private void log(Level messageLevel, String message, Object[] arguments, Throwable thrown) {
+        if (!isEnabled(messageLevel)) {
+            return;
+        }
+        Entry entry = new Entry(messageLevel, this, message, arguments, thrown);
+        while (true) {
+            long position = tail.get();
+            int index = (int) (position & MASK);
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    entries[index] = entry;
+                    sequences.set(index, position + 1);
+                    break;
+                }
+            } else if (difference < 0) {
+                dropped.incrementAndGet();
+                return;
+            }
+        }
+        if (writerWaiting) {
+            LockSupport.unpark(writer);
+        }
+    }
+
+    /**
+     * Waits until every message logged before the call has been printed.
+     *
+     * @param timeoutMillis The longest time to wait, in milliseconds
+     * @return true if the messages were printed, false if the timeout expired first
+     */
+    public static boolean flush(long timeoutMillis) {
+        long target = tail.get();
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (head < target) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(200_000);
+        }
+        return true;
+    }
+
+    /**
+     * Body of the writer thread: prints messages in the order they were logged.
+     */
+    private static void writeLoop() {
+        long reportedDrops = 0;
+        while (true) {
+            Entry entry = take();
+            if (entry == null) {
+                // Loggers check writerWaiting after publishing, so a message published after this
+                // check unparks the writer; the timeout is only a safety net
+                writerWaiting = true;
+                if (!hasNext()) {
+                    LockSupport.parkNanos(50_000_000);
+                }
+                writerWaiting = false;
+                continue;
+            }
+            try {
+                long drops = dropped.get();
+                if (drops > reportedDrops) {
+                    System.err.println(format(new Entry(Level.WARN, null,
+                            (drops - reportedDrops) + " log messages dropped because the buffer was full", null, null)));
+                    reportedDrops = drops;
+                }
+                String line = format(entry);
+                (entry.level.compareTo(Level.WARN) >= 0 ? System.err : System.out).print(line);
+            } catch (RuntimeException e) {
+                // A bad toString() in an argument must not stop the writer
+            } finally {
+                head++;
+            }
+        }
+    }
+
+    /**
+     * Takes the next published entry off the buffer.
+     *
+     * @return The entry, or null if there is none yet
+     */
+    private static Entry take() {
+        long position = head;
+        int index = (int) (position & MASK);
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        Entry entry = entries[index];
+        entries[index] = null;
+        sequences.set(index, position + CAPACITY);
+        return entry;
+    }
+
+    private static boolean hasNext() {
+        long position = head;
+        return sequences.get((int) (position & MASK)) == position + 1;
+    }
+
+    /**
+     * Reads a level name, ignoring case.
+     *
+     * @param text The name, or null
+     * @param fallback The level to use if the name is missing or unknown
+     * @return The level
+     */
+    private static Level parseLevel(String text, Level fallback) {
+        if (text == null) {
+            return fallback;
+        }
+        try {
+            return Level.valueOf(text.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return fallback;
+        }
+    }
+
+    /**
+     * Formats an entry as one line, with its stack trace on the following lines.
+     *
+     * @param entry The entry
+     * @return The text, ending with a line separator
+     */
+    private static String format(Entry entry) {
+        StringBuilder line = new StringBuilder(128);
+        line.append(LocalDateTime.ofInstant(Instant.ofEpochMilli(entry.time), ZoneId.systemDefault())
+                .format(TIME_FORMAT));
+        line.append(' ').append(String.format("%-5s", entry.level));
+        line.append(" [").append(entry.thread).append("] ");
+        line.append(entry.logger == null ? "Log" : entry.logger.name).append(" - ");
+        if (entry.message != null) {
+            appendMessage(line, entry.message, entry.arguments);
+        } else if (entry.thrown != null) {
+            line.append(entry.logger.failedMethod(entry.thrown)).append(" failed: ").append(entry.thrown);
+        }
+        line.append(System.lineSeparator());
+        if (entry.thrown != null) {
+            StringWriter trace = new StringWriter();
+            entry.thrown.printStackTrace(new PrintWriter(trace));
+            line.append(trace);
+        }
+        return line.toString();
+    }
+
+    /**
+     * Appends a message, replacing each {} with the next argument.
+     */
+    private static void appendMessage(StringBuilder line, String message, Object[] arguments) {
+        if (arguments == null || arguments.length == 0) {
+            line.append(message);
+            return;
+        }
+        int argument = 0;
+        int start = 0;
+        int placeholder;
+        while (argument < arguments.length && (placeholder = message.indexOf("{}", start)) >= 0) {
+            line.append(message, start, placeholder).append(arguments[argument++]);
+            start = placeholder + 2;
+        }
+        line.append(message, start, message.length());
+    }
+
+    /**
+     * Finds the method of this logger's class that the exception passed through.
+     *
+     * @param thrown The exception
+     * @return The method as Class.method, or just the class if it is not on the stack trace
+     */
+    private String failedMethod(Throwable thrown) {
+        for (StackTraceElement frame : thrown.getStackTrace()) {
+            if (frame.getClassName().equals(className) || frame.getClassName().startsWith(className + "$")) {
+                return name + "." + frame.getMethodName();
+            }
+        }
+        return name;
+    }
+}
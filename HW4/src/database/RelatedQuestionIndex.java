@@ -0,0 +1,610 @@
+package databasePart1;
+
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * The RelatedQuestionIndex class finds the questions whose threads talk about the same things as a
+ * given one, so the page for a question can point to similar threads that have already been resolved.
+ * <p>
+ * Each question is turned into a TF-IDF vector of its body and its accepted answers. Words are hashed
+ * into {@value #FEATURES} features rather than kept in a vocabulary, and weighted by 1 + log of their
+ * count in the thread times their inverse document frequency, so words that appear in few threads
+ * count for more. Two questions are related by the cosine of the angle between their vectors.
+ * </p>
+ * <p>
+ * Vectors are stored as sorted feature and weight arrays per question, and each feature keeps a
+ * posting list of the questions that contain it, also in flat arrays. A lookup walks the posting lists
+ * of the question's own features and adds up the dot products, so it only touches questions that share
+ * a word with it. Vector lengths depend on the document frequencies, which move as questions are added
+ * and removed; they are recomputed whenever the number of questions has changed by more than
+ * {@value #NORM_DRIFT} of what it was the last time.
+ * </p>
+ * <p>
+ * The index is built by a background worker the first time it is needed, from a separate connection,
+ * and lookups return nothing until it is ready. {@link ContentEvents} then hands the worker every
+ * question that is saved, edited, answered with an accepted answer or deleted, and the worker
+ * re-reads that one thread. Call {@link #invalidate} after changing the tables another way.
+ * </p>
+ */
+public class RelatedQuestionIndex {
+
+    /**
+     * A question that is related to the one that was looked up.
+     */
+    public static class Related {
+        private final int questionId;
+        private final double score;
+        private final boolean resolved;
+
+        private Related(int questionId, double score, boolean resolved) {
+            this.questionId = questionId;
+            this.score = score;
+            this.resolved = resolved;
+        }
+
+        /** @return The question's ID */
+        public int getQuestionId() { return questionId; }
+
+        /** @return The cosine similarity of the two threads, from 0 to 1 */
+        public double getScore() { return score; }
+
+        /** @return Whether the question has an accepted answer */
+        public boolean isResolved() { return resolved; }
+    }
+
+    /** Questions less similar than this are not reported */
+    public static final double MIN_SCORE = 0.1;
+
+    /** Number of hashed features words are mapped to */
+    private static final int FEATURES = 1 << 18;
+
+    /** Share the question count may change by before vector lengths are recomputed */
+    private static final double NORM_DRIFT = 0.1;
+
+    /** Logger for this class's messages and errors */
+    private static final Log LOG = Log.get(RelatedQuestionIndex.class);
+
+    /** The state of the index */
+    private enum State { EMPTY, BUILDING, BUILT }
+
+    /** Whether the index is empty, being built or ready */
+    private static State state = State.EMPTY;
+
+    /** Incremented by {@link #invalidate} so that work started before it is dropped */
+    private static int generation = 0;
+
+    /** The question stored in each slot, or -1 if the slot is free */
+    private static int[] slotQuestions = new int[0];
+
+    /** The sorted features of each slot's vector */
+    private static int[][] slotFeatures = new int[0][];
+
+    /** The term frequency weight of each of a slot's features */
+    private static float[][] slotWeights = new float[0][];
+
+    /** The length of each slot's TF-IDF vector */
+    private static float[] norms = new float[0];
+
+    /** Whether each slot's question has an accepted answer */
+    private static boolean[] resolved = new boolean[0];
+
+    /** Slot of each indexed question */
+    private static final Map<Integer, Integer> slots = new HashMap<>();
+
+    /** Slots freed by removed questions, reused first */
+    private static final Deque<Integer> freeSlots = new ArrayDeque<>();
+
+    /** Number of slots in use or freed */
+    private static int slotCount = 0;
+
+    /** Number of indexed questions containing each feature, which is also the length of its posting list */
+    private static int[] documentFrequency;
+
+    /** The slots containing each feature */
+    private static int[][] postingSlots;
+
+    /** The term frequency weight of each feature in each slot of its posting list */
+    private static float[][] postingWeights;
+
+    /** Number of indexed questions */
+    private static int documentCount = 0;
+
+    /** Number of indexed questions when vector lengths were last recomputed */
+    private static int normDocumentCount = 0;
+
+    /** Tasks waiting for the background worker */
+    private static final LinkedBlockingQueue<Runnable> queue = new LinkedBlockingQueue<>();
+
+    /** Guards {@link #pending} and is notified when the queue becomes idle */
+    private static final Object idleLock = new Object();
+
+    /** Number of tasks submitted but not yet finished */
+    private static int pending = 0;
+
+    /** The background worker, started on first use */
+    private static Thread worker;
+
+    /** The worker's own connection to the database */
+    private static Connection workerConnection;
+
+    /**
+     * A question's vector, as read from the database and before it is placed in the index.
+     */
+    private static class Document {
+        private final int questionId;
+        private final int[] features;
+        private final float[] weights;
+        private final boolean resolved;
+
+        private Document(int questionId, String text, boolean resolved) {
+            this.questionId = questionId;
+            this.resolved = resolved;
+            Map<Integer, Integer> counts = new HashMap<>();
+            for (String word : TextTokenizer.tokenize(text)) {
+                counts.merge(feature(word), 1, Integer::sum);
+            }
+            features = new int[counts.size()];
+            int i = 0;
+            for (int feature : counts.keySet()) {
+                features[i++] = feature;
+            }
+            Arrays.sort(features);
+            weights = new float[features.length];
+            for (i = 0; i < features.length; i++) {
+                weights[i] = (float) (1 + Math.log(counts.get(features[i])));
+            }
+        }
+    }
+
+    // Follow the changes reported to ContentEvents
+    static {
+        ContentEvents.subscribe(new ContentEvents.Listener() {
+            @Override
+            public void questionSaved(int questionId, String body, String askedBy) {
+                questionChanged(questionId);
+            }
+
+            @Override
+            public void questionEdited(Connection connection, int questionId, String body) {
+                questionChanged(questionId);
+            }
+
+            @Override
+            public void questionDeleted(int questionId) {
+                RelatedQuestionIndex.questionDeleted(questionId);
+            }
+
+            @Override
+            public void answerSaved(int questionId, EntityCache.CachedAnswer answer) {
+                // Only accepted answers are part of a question's thread
+                if (answer.isCorrect()) {
+                    questionChanged(questionId);
+                }
+            }
+
+            @Override
+            public void invalidate() {
+                RelatedQuestionIndex.invalidate();
+            }
+        });
+    }
+
+    /**
+     * Finds the questions most similar to a question. Starts building the index if it has not been
+     * built yet, and returns an empty list until it is ready.
+     *
+     * @param questionId The question's ID
+     * @param limit The most questions to return
+     * @return The related questions with at least {@link #MIN_SCORE} similarity, most similar first
+     */
+    public static synchronized List<Related> related(int questionId, int limit) {
+        List<Related> related = new ArrayList<>();
+        if (state == State.EMPTY) {
+            requestBuild();
+        }
+        Integer slot = slots.get(questionId);
+        if (state != State.BUILT || slot == null || limit <= 0) {
+            return related;
+        }
+
+        int[] features = slotFeatures[slot];
+        float[] weights = slotWeights[slot];
+        float[] dot = new float[slotCount];
+        for (int i = 0; i < features.length; i++) {
+            int feature = features[i];
+            double idf = idf(feature);
+            float queryWeight = (float) (weights[i] * idf * idf);
+            int[] postings = postingSlots[feature];
+            float[] postingWeight = postingWeights[feature];
+            for (int p = documentFrequency[feature] - 1; p >= 0; p--) {
+                dot[postings[p]] += queryWeight * postingWeight[p];
+            }
+        }
+
+        PriorityQueue<Related> best = new PriorityQueue<>(Comparator.comparingDouble(Related::getScore)
+                .thenComparing(Comparator.comparingInt(Related::getQuestionId).reversed()));
+        for (int other = 0; other < slotCount; other++) {
+            if (other == slot || dot[other] == 0) {
+                continue;
+            }
+            double score = Math.min(1, dot[other] / (norms[slot] * norms[other]));
+            if (score < MIN_SCORE) {
+                continue;
+            }
+            best.add(new Related(slotQuestions[other], score, resolved[other]));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        while (!best.isEmpty()) {
+            related.add(best.poll());
+        }
+        Collections.reverse(related);
+        return related;
+    }
+
+    /**
+     * Starts building the index in the background if it is not built or being built.
+     */
+    public static synchronized void requestBuild() {
+        if (state == State.EMPTY) {
+            state = State.BUILDING;
+            int buildGeneration = generation;
+            submit(() -> build(buildGeneration));
+        }
+    }
+
+    /**
+     * Re-reads a question that was saved, edited or given an accepted answer. Does nothing until the
+     * index is being built, since the database already holds the change for when it is.
+     *
+     * @param questionId The question's ID
+     */
+    public static synchronized void questionChanged(int questionId) {
+        if (state != State.EMPTY) {
+            int taskGeneration = generation;
+            submit(() -> refresh(questionId, taskGeneration));
+        }
+    }
+
+    /**
+     * Removes a deleted question.
+     *
+     * @param questionId The question's ID
+     */
+    public static synchronized void questionDeleted(int questionId) {
+        if (state != State.EMPTY) {
+            int taskGeneration = generation;
+            submit(() -> {
+                synchronized (RelatedQuestionIndex.class) {
+                    if (generation == taskGeneration && state == State.BUILT) {
+                        remove(questionId);
+                        checkNorms();
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Discards the index so it is rebuilt from the database the next time it is used. Work the
+     * background worker has not finished yet is dropped.
+     */
+    public static synchronized void invalidate() {
+        generation++;
+        state = State.EMPTY;
+        slotQuestions = new int[0];
+        slotFeatures = new int[0][];
+        slotWeights = new float[0][];
+        norms = new float[0];
+        resolved = new boolean[0];
+        slots.clear();
+        freeSlots.clear();
+        slotCount = 0;
+        documentFrequency = null;
+        postingSlots = null;
+        postingWeights = null;
+        documentCount = 0;
+        normDocumentCount = 0;
+    }
+
+    /**
+     * Waits until the background worker has finished every task submitted so far.
+     *
+     * @param timeoutMillis The longest time to wait, in milliseconds
+     * @return true if the worker is idle, false if the timeout expired first
+     */
+    public static boolean awaitIdle(long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (idleLock) {
+            while (pending > 0) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    idleLock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Maps a word to its feature.
+     */
+    private static int feature(String word) {
+        long hash = word.hashCode() * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & (FEATURES - 1);
+    }
+
+    /**
+     * Computes the inverse document frequency of a feature.
+     */
+    private static double idf(int feature) {
+        return Math.log((documentCount + 1.0) / (documentFrequency[feature] + 1.0)) + 1;
+    }
+
+    /**
+     * Computes the length of a slot's TF-IDF vector.
+     */
+    private static float norm(int slot) {
+        int[] features = slotFeatures[slot];
+        float[] weights = slotWeights[slot];
+        double sum = 0;
+        for (int i = 0; i < features.length; i++) {
+            double weight = weights[i] * idf(features[i]);
+            sum += weight * weight;
+        }
+        return (float) Math.sqrt(sum);
+    }
+
+    /**
+     * Recomputes every vector length if the number of questions has drifted too far since the last time.
+     */
+    private static void checkNorms() {
+        if (Math.abs(documentCount - normDocumentCount) <= NORM_DRIFT * normDocumentCount) {
+            return;
+        }
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (slotFeatures[slot] != null) {
+                norms[slot] = norm(slot);
+            }
+        }
+        normDocumentCount = documentCount;
+    }
+
+    /**
+     * Hands a task to the background worker.
+     */
+    private static void submit(Runnable task) {
+        startWorker();
+        synchronized (idleLock) {
+            pending++;
+        }
+        queue.add(task);
+    }
+
+    /**
+     * Starts the background worker if it is not already running.
+     */
+    private static synchronized void startWorker() {
+        if (worker != null) {
+            return;
+        }
+        worker = new Thread(RelatedQuestionIndex::processQueue, "related-questions");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Body of the background worker: runs each task in turn.
+     */
+    private static void processQueue() {
+        while (true) {
+            Runnable task;
+            try {
+                task = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                LOG.error("Related question task failed", e);
+            } finally {
+                synchronized (idleLock) {
+                    pending--;
+                    if (pending == 0) {
+                        idleLock.notifyAll();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the worker's connection, opening it if needed.
+     */
+    private static Connection connection() throws SQLException {
+        if (workerConnection == null || workerConnection.isClosed()) {
+            workerConnection = DriverManager.getConnection(DatabaseHelper.DB_URL, DatabaseHelper.USER, DatabaseHelper.PASS);
+        }
+        return workerConnection;
+    }
+
+    /**
+     * Reads every question and accepted answer and loads them into the index. The vectors are made
+     * before taking the lock, so lookups are only held up while they are filed.
+     */
+    private static void build(int buildGeneration) {
+        Map<Integer, StringBuilder> texts = new LinkedHashMap<>();
+        Set<Integer> resolvedQuestions = new HashSet<>();
+        try {
+            Connection connection = connection();
+            try (PreparedStatement pstmt = connection.prepareStatement("SELECT id, body FROM Questions");
+                 ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    texts.put(rs.getInt("id"), new StringBuilder(String.valueOf(rs.getString("body"))));
+                }
+            }
+            try (PreparedStatement pstmt = connection.prepareStatement(
+                    "SELECT questionId, text FROM Answers WHERE isCorrect = TRUE");
+                 ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    StringBuilder text = texts.get(rs.getInt("questionId"));
+                    if (text != null) {
+                        text.append(' ').append(rs.getString("text"));
+                        resolvedQuestions.add(rs.getInt("questionId"));
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            LOG.error(e);
+            synchronized (RelatedQuestionIndex.class) {
+                if (generation == buildGeneration) {
+                    state = State.EMPTY;
+                }
+            }
+            return;
+        }
+
+        List<Document> documents = new ArrayList<>(texts.size());
+        for (Map.Entry<Integer, StringBuilder> text : texts.entrySet()) {
+            int questionId = text.getKey();
+            documents.add(new Document(questionId, text.getValue().toString(), resolvedQuestions.contains(questionId)));
+        }
+
+        synchronized (RelatedQuestionIndex.class) {
+            if (generation != buildGeneration) {
+                return;
+            }
+            documentFrequency = new int[FEATURES];
+            postingSlots = new int[FEATURES][];
+            postingWeights = new float[FEATURES][];
+            for (Document document : documents) {
+                add(document);
+            }
+            normDocumentCount = -1;
+            checkNorms();
+            state = State.BUILT;
+        }
+        LOG.debug("Indexed {} questions for related questions", documents.size());
+    }
+
+    /**
+     * Re-reads one question and its accepted answers and replaces its vector.
+     */
+    private static void refresh(int questionId, int taskGeneration) {
+        StringBuilder text = null;
+        boolean isResolved = false;
+        try {
+            Connection connection = connection();
+            try (PreparedStatement pstmt = connection.prepareStatement("SELECT body FROM Questions WHERE id = ?")) {
+                pstmt.setInt(1, questionId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        text = new StringBuilder(String.valueOf(rs.getString("body")));
+                    }
+                }
+            }
+            if (text != null) {
+                try (PreparedStatement pstmt = connection.prepareStatement(
+                        "SELECT text FROM Answers WHERE questionId = ? AND isCorrect = TRUE")) {
+                    pstmt.setInt(1, questionId);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            text.append(' ').append(rs.getString("text"));
+                            isResolved = true;
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            LOG.error(e);
+            return;
+        }
+
+        Document document = text == null ? null : new Document(questionId, text.toString(), isResolved);
+        synchronized (RelatedQuestionIndex.class) {
+            if (generation != taskGeneration || state != State.BUILT) {
+                return;
+            }
+            remove(questionId);
+            if (document != null) {
+                add(document);
+            }
+            checkNorms();
+        }
+    }
+
+    /**
+     * Files a question's vector in a free slot and in the posting list of each of its features.
+     */
+    private static void add(Document document) {
+        if (document.features.length == 0) {
+            return;
+        }
+        int slot = freeSlots.isEmpty() ? slotCount++ : freeSlots.pop();
+        if (slot >= slotQuestions.length) {
+            int capacity = Math.max(1024, slotQuestions.length * 2);
+            slotQuestions = Arrays.copyOf(slotQuestions, capacity);
+            slotFeatures = Arrays.copyOf(slotFeatures, capacity);
+            slotWeights = Arrays.copyOf(slotWeights, capacity);
+            norms = Arrays.copyOf(norms, capacity);
+            resolved = Arrays.copyOf(resolved, capacity);
+        }
+        slotQuestions[slot] = document.questionId;
+        slotFeatures[slot] = document.features;
+        slotWeights[slot] = document.weights;
+        resolved[slot] = document.resolved;
+        slots.put(document.questionId, slot);
+        for (int i = 0; i < document.features.length; i++) {
+            int feature = document.features[i];
+            int count = documentFrequency[feature];
+            if (postingSlots[feature] == null) {
+                postingSlots[feature] = new int[4];
+                postingWeights[feature] = new float[4];
+            } else if (count == postingSlots[feature].length) {
+                postingSlots[feature] = Arrays.copyOf(postingSlots[feature], count * 2);
+                postingWeights[feature] = Arrays.copyOf(postingWeights[feature], count * 2);
+            }
+            postingSlots[feature][count] = slot;
+            postingWeights[feature][count] = document.weights[i];
+            documentFrequency[feature] = count + 1;
+        }
+        documentCount++;
+        norms[slot] = norm(slot);
+    }
+
+    /**
+     * Takes a question out of its features' posting lists and frees its slot.
+     */
+    private static void remove(int questionId) {
+        Integer slot = slots.remove(questionId);
+        if (slot == null) {
+            return;
+        }
+        for (int feature : slotFeatures[slot]) {
+            int last = --documentFrequency[feature];
+            int[] postings = postingSlots[feature];
+            int p = last;
+            while (postings[p] != slot) {
+                p--;
+            }
+            postings[p] = postings[last];
+            postingWeights[feature][p] = postingWeights[feature][last];
+        }
+        slotQuestions[slot] = -1;
+        slotFeatures[slot] = null;
+        slotWeights[slot] = null;
+        resolved[slot] = false;
+        documentCount--;
+        freeSlots.push(slot);
+    }
+}
@@ -0,0 +1,240 @@
+package databasePart1;
+
+import java.sql.Connection;
+import java.util.*;
+
+/**
+ * The SearchResultCache class remembers the ranked results of recent question searches, so a search
+ * that is repeated, like "exam" or "hw4", is answered without searching again.
+ * <p>
+ * Results are kept by search scope and query, lower-cased and trimmed, in a least-recently-used map
+ * of at most {@value #DEFAULT_CAPACITY} entries; the size can be changed with the
+ * cse360.search.cache.size system property. Each entry remembers its search words and the
+ * questions it returned, so a change to the posts only drops the entries it can affect:
+ * </p>
+ * <ul>
+ *   <li>a new question or answer drops the entries whose query appears in its text or whose search
+ *       words are within the typos {@link FuzzySearchIndex} allows of one of its words;</li>
+ *   <li>an edited question drops those entries for its new text, and every entry that returned it;</li>
+ *   <li>a deleted question drops every entry that returned it.</li>
+ * </ul>
+ * <p>
+ * Unrelated posts still shift the inverse document frequencies the ranking uses a little, but
+ * they do not change which questions match, and cached entries keep their order until something
+ * they depend on changes. The calls above are made from {@link ContentEvents} as questions and
+ * answers are saved, edited and deleted.
+ * </p>
+ */
+public class SearchResultCache {
+
+    /** Number of searches kept unless the cse360.search.cache.size property says otherwise */
+    public static final int DEFAULT_CAPACITY = 256;
+
+    /** Number of searches kept */
+    private static final int CAPACITY = Math.max(1, Integer.getInteger("cse360.search.cache.size", DEFAULT_CAPACITY));
+
+    /**
+     * The results of one search and what they depend on.
+     */
+    private static class Entry {
+        private final String query;
+        private final List<String> terms = new ArrayList<>();
+        private final List<Integer> questionIds;
+        private final Set<Integer> questionIdSet;
+
+        private Entry(String query, List<Integer> questionIds) {
+            this.query = query;
+            for (String word : new LinkedHashSet<>(TextTokenizer.words(query))) {
+                if (!TextTokenizer.isStopWord(word)) {
+                    terms.add(word);
+                }
+            }
+            this.questionIds = Collections.unmodifiableList(new ArrayList<>(questionIds));
+            this.questionIdSet = new HashSet<>(questionIds);
+        }
+    }
+
+    /** The cached searches by scope and query, least recently used first */
+    private static final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > CAPACITY;
+        }
+    };
+
+    /** Incremented whenever the posts change, so results worked out before a change are not stored */
+    private static long version = 0;
+
+    /** Number of lookups answered from the cache */
+    private static long hits = 0;
+
+    /** Number of lookups that had to search */
+    private static long misses = 0;
+
+    // Follow the changes reported to ContentEvents
+    static {
+        ContentEvents.subscribe(new ContentEvents.Listener() {
+            @Override
+            public void questionSaved(int questionId, String body, String askedBy) {
+                contentAdded(body);
+            }
+
+            @Override
+            public void questionEdited(Connection connection, int questionId, String body) {
+                questionChanged(questionId, body);
+            }
+
+            @Override
+            public void questionDeleted(int questionId) {
+                questionRemoved(questionId);
+            }
+
+            @Override
+            public void answerSaved(int questionId, EntityCache.CachedAnswer answer) {
+                contentAdded(answer.getText());
+            }
+
+            @Override
+            public void invalidate() {
+                clear();
+            }
+        });
+    }
+
+    /**
+     * Returns the cached results of a search.
+     *
+     * @param scope The kind of search
+     * @param query The search text
+     * @return The question IDs, best first, or null if the search is not cached
+     */
+    public static synchronized List<Integer> get(String scope, String query) {
+        Entry entry = entries.get(key(scope, query));
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.questionIds;
+    }
+
+    /**
+     * Returns a stamp to pass to {@link #put} with results worked out after this call.
+     *
+     * @return The current version of the cache
+     */
+    public static synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Caches the results of a search, unless the posts have changed since they were worked out.
+     *
+     * @param scope The kind of search
+     * @param query The search text
+     * @param questionIds The question IDs, best first
+     * @param since The value of {@link #getVersion} before the search was run
+     */
+    public static synchronized void put(String scope, String query, List<Integer> questionIds, long since) {
+        if (since == version) {
+            entries.put(key(scope, query), new Entry(normalize(query), questionIds));
+        }
+    }
+
+    /**
+     * Drops the searches a new question or answer could show up in.
+     *
+     * @param text The post's text
+     */
+    public static synchronized void contentAdded(String text) {
+        dropMatching(text, -1);
+    }
+
+    /**
+     * Drops the searches an edited question could show up in or drop out of.
+     *
+     * @param questionId The question's ID
+     * @param text The question's new text
+     */
+    public static synchronized void questionChanged(int questionId, String text) {
+        dropMatching(text, questionId);
+    }
+
+    /**
+     * Drops the searches that returned a deleted question.
+     *
+     * @param questionId The question's ID
+     */
+    public static synchronized void questionRemoved(int questionId) {
+        dropMatching(null, questionId);
+    }
+
+    /**
+     * Drops every cached search.
+     */
+    public static synchronized void clear() {
+        entries.clear();
+        version++;
+    }
+
+    /**
+     * @return The number of lookups answered from the cache
+     */
+    public static synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * @return The number of lookups that were not cached
+     */
+    public static synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * Reduces a search to the form it is cached under.
+     */
+    private static String normalize(String query) {
+        return query == null ? "" : query.trim().toLowerCase();
+    }
+
+    private static String key(String scope, String query) {
+        return scope + '\u0000' + normalize(query);
+    }
+
+    /**
+     * Drops the entries whose search matches a text or that returned a question.
+     *
+     * @param text The text, or null
+     * @param questionId The question, or -1
+     */
+    private static void dropMatching(String text, int questionId) {
+        String lowerText = text == null ? null : text.toLowerCase();
+        Set<String> words = new HashSet<>(TextTokenizer.words(text));
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+            Entry entry = it.next();
+            if (entry.questionIdSet.contains(questionId) || (lowerText != null && matches(entry, lowerText, words))) {
+                it.remove();
+            }
+        }
+        version++;
+    }
+
+    /**
+     * Checks whether a search could find a text: the text contains the query, or one of its words is
+     * close to one of the search words.
+     */
+    private static boolean matches(Entry entry, String lowerText, Set<String> words) {
+        if (!entry.query.isEmpty() && lowerText.contains(entry.query)) {
+            return true;
+        }
+        for (String term : entry.terms) {
+            for (String word : words) {
+                if (FuzzySearchIndex.isClose(term, word)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,324 @@
+package databasePart1;
+
+import java.sql.*;
+import java.util.*;
+
+/**
+ * The SearchSuggester class completes what has been typed into the question search box.
+ * <p>
+ * Suggestions come from a trie of every word used in questions and answers, weighted by the number
+ * of posts that use it, and of the searches people have run, which count {@value #QUERY_WEIGHT}
+ * times as much per search so popular queries come first. The trie is stored in flat arrays, one
+ * entry per node: its character, parent, first child, next sibling, its own weight and the largest
+ * weight anywhere below it. Completing a prefix walks down to the prefix's node and then expands
+ * nodes best-first by that largest weight, so only the branches that can still hold one of the top
+ * suggestions are visited, however many words there are.
+ * </p>
+ * <p>
+ * When the input has several words, the last one is completed on its own as well, keeping the words
+ * before it, so "configure the dri" can suggest "configure the driver" even if nobody has searched
+ * for it yet.
+ * </p>
+ * <p>
+ * The trie is built from the database on first use and then takes the words of every question and
+ * answer reported to {@link ContentEvents} as saved. Words are not taken back out when a post is edited or
+ * deleted, so a word can linger with a small weight until the trie is rebuilt; call
+ * {@link #invalidate} to rebuild it.
+ * </p>
+ */
+public class SearchSuggester {
+
+    /** Weight added to a query each time it is searched for */
+    public static final int QUERY_WEIGHT = 5;
+
+    /** Words shorter than this are not suggested */
+    private static final int MIN_WORD_LENGTH = 3;
+
+    /** Queries longer than this are not remembered */
+    private static final int MAX_QUERY_LENGTH = 60;
+
+    /** Logger for this class's messages and errors */
+    private static final Log LOG = Log.get(SearchSuggester.class);
+
+    /** Whether the trie has been loaded */
+    private static boolean built = false;
+
+    /** The character leading to each node; the root is node 0 */
+    private static char[] labels = new char[0];
+
+    /** The parent of each node */
+    private static int[] parents = new int[0];
+
+    /** The first child of each node, or -1 */
+    private static int[] firstChildren = new int[0];
+
+    /** The next child of the same parent, or -1 */
+    private static int[] nextSiblings = new int[0];
+
+    /** The weight of the word or query ending at each node, or 0 if none does */
+    private static int[] weights = new int[0];
+
+    /** The largest weight at or below each node */
+    private static int[] maxWeights = new int[0];
+
+    /** Number of nodes in use */
+    private static int nodeCount = 0;
+
+    // Follow the changes reported to ContentEvents
+    static {
+        ContentEvents.subscribe(new ContentEvents.Listener() {
+            @Override
+            public void questionSaved(int questionId, String body, String askedBy) {
+                textAdded(body);
+            }
+
+            @Override
+            public void questionEdited(Connection connection, int questionId, String body) {
+                textAdded(body);
+            }
+
+            @Override
+            public void answerSaved(int questionId, EntityCache.CachedAnswer answer) {
+                textAdded(answer.getText());
+            }
+
+            @Override
+            public void invalidate() {
+                SearchSuggester.invalidate();
+            }
+        });
+    }
+
+    /**
+     * Suggests completions for what has been typed into the search box.
+     *
+     * @param connection The connection to build the trie with
+     * @param input The text typed so far
+     * @param limit The most suggestions to return
+     * @return The suggestions, most popular first
+     */
+    public static synchronized List<String> suggest(Connection connection, String input, int limit) {
+        List<String> suggestions = new ArrayList<>();
+        String prefix = normalize(input);
+        if (prefix.isEmpty() || limit <= 0) {
+            return suggestions;
+        }
+        if (!built) {
+            build(connection);
+        }
+
+        Map<String, Integer> candidates = new HashMap<>();
+        complete(find(prefix), "", limit, candidates);
+        int lastSpace = prefix.lastIndexOf(' ');
+        if (lastSpace >= 0 && lastSpace < prefix.length() - 1) {
+            complete(find(prefix.substring(lastSpace + 1)), prefix.substring(0, lastSpace + 1), limit, candidates);
+        }
+        candidates.remove(prefix);
+        candidates.entrySet().stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .forEach(candidate -> suggestions.add(candidate.getKey()));
+        return suggestions;
+    }
+
+    /**
+     * Counts the words of a new question or answer. Does nothing until the trie is built, since the
+     * database already holds the post for when it is.
+     *
+     * @param text The post's text
+     */
+    public static synchronized void textAdded(String text) {
+        if (built) {
+            addWords(text);
+        }
+    }
+
+    /**
+     * Remembers a search so it is suggested to whoever types its beginning next.
+     *
+     * @param query The text that was searched for
+     */
+    public static synchronized void querySubmitted(String query) {
+        String normalized = normalize(query).strip();
+        if (built && normalized.length() >= MIN_WORD_LENGTH && normalized.length() <= MAX_QUERY_LENGTH) {
+            insert(normalized, QUERY_WEIGHT);
+        }
+    }
+
+    /**
+     * Discards the trie, and the searches remembered in it, so it is rebuilt from the database the
+     * next time it is used.
+     */
+    public static synchronized void invalidate() {
+        built = false;
+        labels = new char[0];
+        parents = new int[0];
+        firstChildren = new int[0];
+        nextSiblings = new int[0];
+        weights = new int[0];
+        maxWeights = new int[0];
+        nodeCount = 0;
+    }
+
+    /**
+     * Lower-cases a text and reduces its whitespace to single spaces.
+     */
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase().replaceAll("\\s+", " ").stripLeading();
+    }
+
+    /**
+     * Loads the words of every question and answer into the trie.
+     */
+    private static void build(Connection connection) {
+        invalidate();
+        newNode('\0', -1);
+        built = true;
+        try (Statement statement = connection.createStatement()) {
+            try (ResultSet rs = statement.executeQuery("SELECT body FROM Questions")) {
+                while (rs.next()) {
+                    addWords(rs.getString("body"));
+                }
+            }
+            try (ResultSet rs = statement.executeQuery("SELECT text FROM Answers")) {
+                while (rs.next()) {
+                    addWords(rs.getString("text"));
+                }
+            }
+        } catch (SQLException e) {
+            LOG.error(e);
+            invalidate();
+        }
+        LOG.debug("Built search suggestions with {} trie nodes", nodeCount);
+    }
+
+    /**
+     * Adds one to the weight of each distinct word in a text.
+     */
+    private static void addWords(String text) {
+        for (String word : new HashSet<>(TextTokenizer.words(text))) {
+            if (word.length() >= MIN_WORD_LENGTH && !TextTokenizer.isStopWord(word)) {
+                insert(word, 1);
+            }
+        }
+    }
+
+    /**
+     * Adds to the weight of a word or query, creating its nodes if needed.
+     */
+    private static void insert(String text, int weight) {
+        int node = 0;
+        for (int i = 0; i < text.length(); i++) {
+            int child = child(node, text.charAt(i));
+            node = child >= 0 ? child : newNode(text.charAt(i), node);
+        }
+        weights[node] += weight;
+        for (int n = node; n >= 0 && maxWeights[n] < weights[node]; n = parents[n]) {
+            maxWeights[n] = weights[node];
+        }
+    }
+
+    /**
+     * Finds the node a prefix leads to.
+     *
+     * @return The node, or -1 if no word or query starts with the prefix
+     */
+    private static int find(String prefix) {
+        int node = 0;
+        for (int i = 0; i < prefix.length() && node >= 0; i++) {
+            node = child(node, prefix.charAt(i));
+        }
+        return node;
+    }
+
+    /**
+     * Finds the child of a node reached by a character.
+     *
+     * @return The child, or -1 if there is none
+     */
+    private static int child(int node, char label) {
+        for (int child = firstChildren[node]; child >= 0; child = nextSiblings[child]) {
+            if (labels[child] == label) {
+                return child;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Collects the heaviest words and queries below a node, expanding nodes best-first by the
+     * largest weight below them and stopping once enough have been found.
+     *
+     * @param start The prefix's node, or -1
+     * @param head Text to put in front of each completion
+     * @param limit The most completions to collect
+     * @param candidates The completions found so far, with their weights
+     */
+    private static void complete(int start, String head, int limit, Map<String, Integer> candidates) {
+        if (start < 0) {
+            return;
+        }
+        // Entries are {priority, node, 1 if it stands for the word ending at the node itself}
+        PriorityQueue<int[]> frontier = new PriorityQueue<>((a, b) -> Integer.compare(b[0], a[0]));
+        frontier.add(new int[] {maxWeights[start], start, 0});
+        int found = 0;
+        // One more than the limit, in case one of them is the prefix itself
+        while (!frontier.isEmpty() && found <= limit) {
+            int[] entry = frontier.poll();
+            int node = entry[1];
+            if (entry[2] == 1) {
+                candidates.merge(head + text(node), entry[0], Math::max);
+                found++;
+                continue;
+            }
+            if (weights[node] > 0) {
+                frontier.add(new int[] {weights[node], node, 1});
+            }
+            for (int child = firstChildren[node]; child >= 0; child = nextSiblings[child]) {
+                if (maxWeights[child] > 0) {
+                    frontier.add(new int[] {maxWeights[child], child, 0});
+                }
+            }
+        }
+    }
+
+    /**
+     * Spells out the word or query ending at a node.
+     */
+    private static String text(int node) {
+        StringBuilder text = new StringBuilder();
+        for (int n = node; n > 0; n = parents[n]) {
+            text.append(labels[n]);
+        }
+        return text.reverse().toString();
+    }
+
+    /**
+     * Appends a node as the first child of its parent, growing the arrays if needed.
+     *
+     * @return The new node
+     */
+    private static int newNode(char label, int parent) {
+        if (nodeCount == labels.length) {
+            int capacity = Math.max(1024, labels.length * 2);
+            labels = Arrays.copyOf(labels, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            firstChildren = Arrays.copyOf(firstChildren, capacity);
+            nextSiblings = Arrays.copyOf(nextSiblings, capacity);
+            weights = Arrays.copyOf(weights, capacity);
+            maxWeights = Arrays.copyOf(maxWeights, capacity);
+        }
+        int node = nodeCount++;
+        labels[node] = label;
+        parents[node] = parent;
+        firstChildren[node] = -1;
+        nextSiblings[node] = -1;
+        weights[node] = 0;
+        maxWeights[node] = 0;
+        if (parent >= 0) {
+            nextSiblings[node] = firstChildren[parent];
+            firstChildren[parent] = node;
+        }
+        return node;
+    }
+}
@@ -0,0 +1,386 @@
+package databasePart1;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.Date;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * The SlowQueryLog class records every statement that takes longer than a threshold.
+ * <p>
+ * {@link DatabaseMetrics} hands each slow execution to {@link #submit} with its SQL, bound
+ * parameters, row count and duration. A background worker then asks H2 for the statement's
+ * plan with EXPLAIN on a separate connection, keeps the entry in a fixed-size ring buffer of
+ * the most recent slow queries, and appends it to a log file that is rotated when it grows too
+ * large. Nothing beyond the hand-off happens on the thread that ran the statement.
+ * </p>
+ * <p>
+ * The threshold defaults to {@value #DEFAULT_THRESHOLD_MILLIS} ms and can be set with the
+ * cse360.slowquery.millis system property or {@link #setThresholdMillis}. The log is written to
+ * cse360-slow-queries.log in the user's home directory unless cse360.slowquery.file names another
+ * file; a negative threshold turns the log off.
+ * </p>
+ * <p>
+ * String parameters can hold passwords and message text, so they are replaced with
+ * {@value #REDACTED} before an entry is queued; the plan is explained with that value bound.
+ * Set cse360.slowquery.strings=true or call {@link #setLogStringParameters} to log them as they are.
+ * </p>
+ */
+public class SlowQueryLog {
+
+    /** Logger for this class's messages and errors */
+    private static final Log LOG = Log.get(SlowQueryLog.class);
+
+    /**
+     * One slow statement.
+     */
+    public static class SlowQuery {
+        private final long timestamp;
+        private final String operation;
+        private final String sql;
+        private final Map<Integer, Object> parameters;
+        private final int batchSize;
+        private final long rows;
+        private final double durationMillis;
+        private String plan;
+
+        private SlowQuery(String operation, String sql, Map<Integer, Object> parameters, int batchSize,
+                          long rows, long nanos) {
+            this.timestamp = System.currentTimeMillis();
+            this.operation = operation;
+            this.sql = sql;
+            this.parameters = parameters;
+            this.batchSize = batchSize;
+            this.rows = rows;
+            this.durationMillis = nanos / 1e6;
+        }
+
+        /** @return When the statement finished, in milliseconds since the epoch */
+        public long getTimestamp() { return timestamp; }
+
+        /** @return The time formatted for display */
+        public String getTime() { return new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(new Date(timestamp)); }
+
+        /** @return The operation that ran the statement, as Class.method */
+        public String getOperation() { return operation; }
+
+        /** @return The SQL text */
+        public String getSql() { return sql; }
+
+        /** @return The bound parameters in order, or the last set of a batch */
+        public String getParameters() {
+            StringBuilder text = new StringBuilder("[");
+            for (Object value : parameters.values()) {
+                if (text.length() > 1) {
+                    text.append(", ");
+                }
+                text.append(value instanceof String ? "'" + value + "'" : String.valueOf(value));
+            }
+            text.append(']');
+            if (batchSize > 1) {
+                text.append(" (last of a batch of ").append(batchSize).append(')');
+            }
+            return text.toString();
+        }
+
+        /** @return The rows returned or updated */
+        public long getRows() { return rows; }
+
+        /** @return How long the statement took, in milliseconds */
+        public double getDurationMillis() { return durationMillis; }
+
+        /** @return The plan H2 reported for the statement, or why there is none */
+        public String getPlan() { return plan; }
+
+        /**
+         * Formats the entry as it is written to the log file.
+         *
+         * @return The entry as text
+         */
+        @Override
+        public String toString() {
+            return String.format("%s | %.1f ms | %d rows | %s%n  SQL: %s%n  Parameters: %s%n  Plan: %s%n",
+                    getTime(), durationMillis, rows, operation, sql, getParameters(),
+                    plan == null ? "" : plan.replace("\n", "\n        "));
+        }
+    }
+
+    /** Written in place of a string parameter */
+    public static final String REDACTED = "***";
+
+    /** Threshold used when none is configured */
+    public static final long DEFAULT_THRESHOLD_MILLIS = 100;
+
+    /** Number of recent slow queries kept in memory */
+    private static final int CAPACITY = 200;
+
+    /** Size at which the log file is rotated */
+    private static final long MAX_FILE_BYTES = 1024 * 1024;
+
+    /** Number of rotated files kept besides the current one */
+    private static final int KEPT_FILES = 3;
+
+    /** Statements slower than this, in nanoseconds, are logged; negative turns the log off */
+    private static volatile long thresholdNanos =
+            Long.getLong("cse360.slowquery.millis", DEFAULT_THRESHOLD_MILLIS) * 1_000_000;
+
+    /** Whether string parameters are logged as they are instead of redacted */
+    private static volatile boolean logStringParameters = Boolean.getBoolean("cse360.slowquery.strings");
+
+    /** The log file */
+    private static final File logFile = new File(System.getProperty("cse360.slowquery.file",
+            System.getProperty("user.home") + File.separator + "cse360-slow-queries.log"));
+
+    /** The most recent slow queries, oldest overwritten first */
+    private static final SlowQuery[] ring = new SlowQuery[CAPACITY];
+
+    /** Total number of entries ever added to the ring */
+    private static long added = 0;
+
+    /** Slow queries waiting for the background worker */
+    private static final LinkedBlockingQueue<SlowQuery> queue = new LinkedBlockingQueue<>();
+
+    /** Guards {@link #pending} and is notified when the queue becomes idle */
+    private static final Object idleLock = new Object();
+
+    /** Number of submitted entries that have not been processed yet */
+    private static int pending = 0;
+
+    /** The background worker thread, started on first use */
+    private static Thread worker;
+
+    /** The worker's own connection for EXPLAIN, not instrumented so it is never logged itself */
+    private static Connection explainConnection;
+
+    /**
+     * Checks whether a statement that took the given time should be logged.
+     *
+     * @param nanos The statement's duration in nanoseconds
+     * @return true if it is over the threshold
+     */
+    static boolean isSlow(long nanos) {
+        long threshold = thresholdNanos;
+        return threshold >= 0 && nanos >= threshold;
+    }
+
+    /**
+     * Queues a slow statement to be explained and logged in the background. String parameters
+     * are redacted first unless they are to be logged.
+     *
+     * @param operation The operation that ran the statement
+     * @param sql The SQL text
+     * @param parameters The bound parameters by index
+     * @param batchSize The number of parameter sets in the batch, or 0 if not a batch
+     * @param rows The rows returned or updated
+     * @param nanos How long the statement took
+     */
+    static void submit(String operation, String sql, Map<Integer, Object> parameters, int batchSize, long rows, long nanos) {
+        if (sql == null) {
+            return;
+        }
+        if (!logStringParameters) {
+            parameters.replaceAll((index, value) -> value instanceof String ? REDACTED : value);
+        }
+        synchronized (idleLock) {
+            pending++;
+        }
+        queue.add(new SlowQuery(operation, sql, parameters, batchSize, rows, nanos));
+        startWorker();
+    }
+
+    /**
+     * Returns the most recent slow queries.
+     *
+     * @return The entries, newest first
+     */
+    public static synchronized List<SlowQuery> recent() {
+        List<SlowQuery> entries = new ArrayList<>();
+        long count = Math.min(added, CAPACITY);
+        for (long i = added - 1; i >= added - count; i--) {
+            entries.add(ring[(int) (i % CAPACITY)]);
+        }
+        return entries;
+    }
+
+    /**
+     * Empties the in-memory list of slow queries. The log file is kept.
+     */
+    public static synchronized void clear() {
+        Arrays.fill(ring, null);
+        added = 0;
+    }
+
+    /**
+     * Returns the current threshold.
+     *
+     * @return The threshold in milliseconds, or a negative number if the log is off
+     */
+    public static long getThresholdMillis() {
+        long threshold = thresholdNanos;
+        return threshold < 0 ? -1 : threshold / 1_000_000;
+    }
+
+    /**
+     * Sets the threshold.
+     *
+     * @param millis Statements taking at least this many milliseconds are logged; negative turns the log off
+     */
+    public static void setThresholdMillis(long millis) {
+        thresholdNanos = millis < 0 ? -1 : millis * 1_000_000;
+    }
+
+    /**
+     * Sets whether string parameters are logged as they are. They are redacted by default
+     * because they can hold passwords.
+     *
+     * @param enabled true to log string parameters, false to redact them
+     */
+    public static void setLogStringParameters(boolean enabled) {
+        logStringParameters = enabled;
+    }
+
+    /**
+     * Returns the file the log is written to.
+     *
+     * @return The log file
+     */
+    public static File getLogFile() {
+        return logFile;
+    }
+
+    /**
+     * Waits until every submitted entry has been logged.
+     *
+     * @param timeoutMillis The longest time to wait, in milliseconds
+     * @return true if the queue is idle, false if the timeout expired first
+     */
+    public static boolean awaitIdle(long timeoutMillis) {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        synchronized (idleLock) {
+            while (pending > 0) {
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return false;
+                }
+                try {
+                    idleLock.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Starts the background worker if it is not already running.
+     */
+    private static synchronized void startWorker() {
+        if (worker != null) {
+            return;
+        }
+        worker = new Thread(SlowQueryLog::processQueue, "slow-query-log");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Body of the background worker: explains, stores and writes each slow query.
+     */
+    private static void processQueue() {
+        while (true) {
+            SlowQuery entry;
+            try {
+                entry = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                entry.plan = explain(entry);
+                add(entry);
+                write(entry);
+            } finally {
+                synchronized (idleLock) {
+                    pending--;
+                    if (pending == 0) {
+                        idleLock.notifyAll();
+                    }
+                }
+            }
+        }
+    }
+
+    private static synchronized void add(SlowQuery entry) {
+        ring[(int) (added % CAPACITY)] = entry;
+        added++;
+    }
+
+    /**
+     * Asks H2 for the plan of a statement, with the same parameters bound.
+     *
+     * @param entry The slow query
+     * @return The plan, or a note on why there is none
+     */
+    private static String explain(SlowQuery entry) {
+        String keyword = entry.sql.trim().split("\\s+", 2)[0].toUpperCase();
+        if (!Set.of("SELECT", "INSERT", "UPDATE", "DELETE", "MERGE", "WITH").contains(keyword)) {
+            return "(not explained)";
+        }
+        try {
+            if (explainConnection == null || explainConnection.isClosed()) {
+                explainConnection = DriverManager.getConnection(DatabaseHelper.DB_URL, DatabaseHelper.USER, DatabaseHelper.PASS);
+            }
+            try (PreparedStatement pstmt = explainConnection.prepareStatement("EXPLAIN " + entry.sql)) {
+                for (Map.Entry<Integer, Object> parameter : entry.parameters.entrySet()) {
+                    pstmt.setObject(parameter.getKey(), parameter.getValue());
+                }
+                StringBuilder plan = new StringBuilder();
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        plan.append(rs.getString(1));
+                    }
+                }
+                return plan.toString();
+            }
+        } catch (SQLException e) {
+            return "(could not explain: " + e.getMessage() + ")";
+        }
+    }
+
+    /**
+     * Appends an entry to the log file, rotating the file first if it is full.
+     *
+     * @param entry The slow query
+     */
+    private static void write(SlowQuery entry) {
+        try {
+            if (logFile.length() > MAX_FILE_BYTES) {
+                rotate();
+            }
+            try (Writer writer = new OutputStreamWriter(new FileOutputStream(logFile, true), StandardCharsets.UTF_8)) {
+                writer.write(entry.toString());
+            }
+        } catch (IOException e) {
+            LOG.error(e);
+        }
+    }
+
+    /**
+     * Shifts the log files along by one: the current file becomes .1, .1 becomes .2, and the oldest is deleted.
+     */
+    private static void rotate() {
+        File oldest = new File(logFile.getPath() + "." + KEPT_FILES);
+        oldest.delete();
+        for (int i = KEPT_FILES - 1; i >= 1; i--) {
+            File file = new File(logFile.getPath() + "." + i);
+            if (file.exists()) {
+                file.renameTo(new File(logFile.getPath() + "." + (i + 1)));
+            }
+        }
+        logFile.renameTo(new File(logFile.getPath() + ".1"));
+    }
+}
@@ -0,0 +1,82 @@
+package databasePart1;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The TextTokenizer class splits question and answer text into the words the search and
+ * similarity indexes compare.
+ * <p>
+ * Text is lower-cased and split on anything that is not a letter or digit. Words too common to
+ * tell posts apart are dropped, and a plural "s" is removed so "drivers" and "driver" match.
+ * </p>
+ */
+public final class TextTokenizer {
+
+    /** Words too common to tell posts apart */
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "the", "is", "are", "was", "were", "be", "to", "of", "in", "on", "for", "and", "or",
+            "i", "we", "you", "it", "this", "that", "do", "does", "can", "my", "our", "there", "any", "with");
+
+    private TextTokenizer() {
+    }
+
+    /**
+     * Splits a text into its words, in order and with repeats.
+     *
+     * @param text The text, or null
+     * @return The normalized words
+     */
+    public static List<String> tokenize(String text) {
+        List<String> words = new ArrayList<>();
+        for (String word : words(text)) {
+            if (!isStopWord(word)) {
+                words.add(stem(word));
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Splits a text into its lower-case words as written, keeping common words and plurals.
+     *
+     * @param text The text, or null
+     * @return The words, in order and with repeats
+     */
+    public static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        for (String word : text.toLowerCase().split("[^a-z0-9]+")) {
+            if (!word.isEmpty()) {
+                words.add(word);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Checks whether a lower-case word is too common to tell posts apart.
+     *
+     * @param word The word
+     * @return true if the word is a stop word
+     */
+    public static boolean isStopWord(String word) {
+        return STOP_WORDS.contains(word);
+    }
+
+    /**
+     * Removes a plural "s" from a lower-case word.
+     *
+     * @param word The word
+     * @return The word without its plural ending
+     */
+    public static String stem(String word) {
+        if (word.length() > 3 && word.endsWith("s") && !word.endsWith("ss")) {
+            return word.substring(0, word.length() - 1);
+        }
+        return word;
+    }
+}